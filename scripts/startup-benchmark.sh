@@ -0,0 +1,66 @@
+#!/usr/bin/env bash
+#
+# Measures the time from launching the server until the first tool call is answered, for the JVM build, the JVM build
+# with its AppCDS archive and the native executable. The Cost Explorer stand-in replays synthetic pages without
+# latency, so no AWS access is needed. Build first with:
+#
+#   ./mvnw package -Pfast-start                  # JVM and AppCDS
+#   ./mvnw package -Pfast-start -Dnative         # native
+#
+# Usage: scripts/startup-benchmark.sh [runs]
+
+set -euo pipefail
+
+RUNS=${1:-10}
+APP_DIR=target/quarkus-app
+SERVER_ARGS=(-Dquarkus.profile=fast-start -Dcost-explorer.stand-in.mode=replay -Dcost-explorer.stand-in.latency=PT0S
+  -Dcost-explorer.cache.enabled=false -Dcost-explorer.warehouse.enabled=false)
+
+REQUESTS='{"jsonrpc":"2.0","id":1,"method":"initialize","params":{"protocolVersion":"2024-11-05","capabilities":{},"clientInfo":{"name":"startup-benchmark","version":"1.0"}}}
+{"jsonrpc":"2.0","method":"notifications/initialized"}
+{"jsonrpc":"2.0","id":2,"method":"tools/call","params":{"name":"getCostPerServiceAndOperation","arguments":{"startDate":"2025-01-01","endDate":"2025-02-01","regions":[]}}}'
+
+now_ms() {
+  date +%s%3N
+}
+
+# Prints the milliseconds until the response to the tool call arrives
+time_to_first_response() {
+  local started line
+  started=$(now_ms)
+  coproc SERVER { "$@" 2>/dev/null; }
+  printf '%s\n' "$REQUESTS" >&"${SERVER[1]}"
+  while IFS= read -r line <&"${SERVER[0]}"; do
+    if [[ $line == *'"id":2'* ]]; then
+      break
+    fi
+  done
+  echo $(($(now_ms) - started))
+  kill "$SERVER_PID" 2>/dev/null || true
+  wait "$SERVER_PID" 2>/dev/null || true
+}
+
+measure() {
+  local name=$1
+  shift
+  local times=()
+  for ((run = 0; run < RUNS; run++)); do
+    times+=("$(time_to_first_response "$@")")
+  done
+  printf '%s\n' "${times[@]}" | sort -n | awk -v name="$name" '
+    { times[NR] = $1 }
+    END { printf "%-8s median: %5d ms, min: %5d ms, max: %5d ms (%d runs)\n", name, times[int((NR + 1) / 2)], times[1], times[NR], NR }'
+}
+
+if [[ -f $APP_DIR/quarkus-run.jar ]]; then
+  measure jvm java "${SERVER_ARGS[@]}" -jar "$APP_DIR/quarkus-run.jar"
+  if [[ -f $APP_DIR/app-cds.jsa ]]; then
+    measure appcds java -XX:SharedArchiveFile="$APP_DIR/app-cds.jsa" "${SERVER_ARGS[@]}" -jar "$APP_DIR/quarkus-run.jar"
+  fi
+fi
+
+for runner in target/*-runner; do
+  if [[ -x $runner ]]; then
+    measure native "$runner" "${SERVER_ARGS[@]}"
+  fi
+done
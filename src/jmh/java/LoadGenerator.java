@@ -0,0 +1,234 @@
+import anomaly.AnomalyConfig;
+import anomaly.AnomalyDetector;
+import cache.CacheConfig;
+import cache.ResponseCache;
+import data.FormatConfig;
+import dimension.DimensionIndex;
+import dimension.DimensionIndexConfig;
+import io.smallrye.config.SmallRyeConfig;
+import io.smallrye.config.SmallRyeConfigBuilder;
+import metrics.ServerMetrics;
+import query.BatchConfig;
+import query.ComparisonConfig;
+import query.CostAndUsageFetcher;
+import query.FanOutConfig;
+import query.OpenPeriodResults;
+import query.PlannerConfig;
+import query.QueryBatch;
+import query.QueryEngine;
+import query.QueryPlanner;
+import query.RevalidationConfig;
+import query.TagGroupByConfig;
+import query.TimeSeriesConfig;
+import ratelimit.AdaptiveRateLimiter;
+import ratelimit.ApiBudget;
+import ratelimit.BudgetConfig;
+import ratelimit.RateLimitConfig;
+import snapshot.ReportPager;
+import snapshot.SnapshotConfig;
+import snapshot.SnapshotStore;
+import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
+import standin.StandInConfig;
+import warehouse.CostWarehouse;
+import warehouse.WarehouseConfig;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Drives the cost tools with concurrent simulated sessions and reports the latency percentiles and the throughput.
+ * The server is wired from application.properties, with the Cost Explorer stand-in in replay mode and the response
+ * cache off unless overridden with system properties, so a run never calls AWS:
+ *
+ * <pre>
+ * ./mvnw -Pbenchmark test-compile exec:exec@load -Dload.sessions=1,16,128 -Dload.calls=20
+ * </pre>
+ *
+ * With {@code -Dload.executor=worker} the sessions share a fixed pool of {@code load.workers} platform threads
+ * instead, like tool calls queueing behind a worker pool.
+ */
+public class LoadGenerator {
+    private static final List<String> REGIONS = List.of("us-east-1", "us-west-2", "eu-west-1", "eu-central-1",
+            "ap-southeast-1");
+    private static final LocalDate FIRST_MONTH = LocalDate.of(2024, 1, 1);
+    private static final int MONTHS = 18;
+
+    public static void main(String[] args) throws Exception {
+        String sessionCounts = System.getProperty("load.sessions", "1,16,128");
+        int callsPerSession = Integer.getInteger("load.calls", 50);
+        String executor = System.getProperty("load.executor", "virtual");
+        int workers = Integer.getInteger("load.workers", 20);
+        long seed = Long.getLong("load.seed", 42);
+
+        setDefault("cost-explorer.stand-in.mode", "replay");
+        setDefault("cost-explorer.cache.enabled", "false");
+        SmallRyeConfig config = config();
+
+        System.out.printf("Executor: %s%s, calls per session: %d%n", executor,
+                "virtual".equals(executor) ? "" : " (" + workers + " threads)", callsPerSession);
+        for (String sessionCount : sessionCounts.split(",")) {
+            int sessions = Integer.parseInt(sessionCount.trim());
+            run(costExplorer(config), sessions, callsPerSession, seed,
+                    "virtual".equals(executor)
+                            ? Executors.newVirtualThreadPerTaskExecutor()
+                            : Executors.newFixedThreadPool(workers));
+        }
+    }
+
+    /**
+     * Run the sessions, each on its own task of the executor. A fixed pool of platform threads stands for a worker
+     * pool the tool calls queue behind, virtual threads for tools running on virtual threads.
+     */
+    private static void run(CostExplorer costExplorer, int sessions, int callsPerSession, long seed,
+                            ExecutorService executor) throws Exception {
+        AtomicLong errors = new AtomicLong();
+        List<Future<long[]>> pending = new ArrayList<>(sessions);
+        long started = System.nanoTime();
+
+        try (executor) {
+            for (int session = 0; session < sessions; session++) {
+                Random random = new Random(seed + session);
+                pending.add(executor.submit(() -> runSession(costExplorer, random, callsPerSession, errors)));
+            }
+
+            long[] latencies = new long[sessions * callsPerSession];
+            int count = 0;
+            for (Future<long[]> session : pending) {
+                long[] sessionLatencies = session.get();
+                System.arraycopy(sessionLatencies, 0, latencies, count, sessionLatencies.length);
+                count += sessionLatencies.length;
+            }
+            double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+            Arrays.sort(latencies);
+            System.out.printf("Sessions: %d, calls: %d, errors: %d%n", sessions, count, errors.get());
+            System.out.printf("  Throughput: %.1f calls/s%n", count / elapsedSeconds);
+            System.out.printf("  Latency p50: %.1f ms, p90: %.1f ms, p99: %.1f ms, max: %.1f ms%n",
+                    percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                    percentile(latencies, 1.0));
+        }
+    }
+
+    private static long[] runSession(CostExplorer costExplorer, Random random, int calls, AtomicLong errors) {
+        long[] latencies = new long[calls];
+
+        for (int call = 0; call < calls; call++) {
+            LocalDate start = FIRST_MONTH.plusMonths(random.nextInt(MONTHS));
+            String startDate = start.toString();
+            String endDate = start.plusMonths(1 + random.nextInt(3)).toString();
+            List<String> regions = randomRegions(random);
+            Integer limit = random.nextBoolean() ? null : 20;
+
+            long callStarted = System.nanoTime();
+            try {
+                switch (random.nextInt(3)) {
+                    case 0 -> costExplorer.getCostPerServiceAndOperation(startDate, endDate, regions, limit, null,
+                            null);
+                    case 1 -> costExplorer.getCostPerLinkedAccount(startDate, endDate, regions, limit, null, null);
+                    default -> costExplorer.getDiscounts(startDate, endDate, regions, limit, null, null);
+                }
+            } catch (RuntimeException e) {
+                errors.incrementAndGet();
+            }
+            latencies[call] = System.nanoTime() - callStarted;
+        }
+
+        return latencies;
+    }
+
+    private static List<String> randomRegions(Random random) {
+        List<String> regions = new ArrayList<>(REGIONS);
+        Collections.shuffle(regions, random);
+        return List.copyOf(regions.subList(0, random.nextInt(3)));
+    }
+
+    private static double percentile(long[] sortedLatencies, double percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1e6;
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    private static SmallRyeConfig config() {
+        return new SmallRyeConfigBuilder()
+                .addDefaultSources()
+                .addDiscoveredSources()
+                .addDiscoveredConverters()
+                .withMapping(CacheConfig.class)
+                .withMapping(FanOutConfig.class)
+                .withMapping(PlannerConfig.class)
+                .withMapping(RateLimitConfig.class)
+                .withMapping(BudgetConfig.class)
+                .withMapping(WarehouseConfig.class)
+                .withMapping(StandInConfig.class)
+                .withMapping(ClientConfig.class)
+                .withMapping(FormatConfig.class)
+                .withMapping(SnapshotConfig.class)
+                .withMapping(TimeSeriesConfig.class)
+                .withMapping(BatchConfig.class)
+                .withMapping(RevalidationConfig.class)
+                .withMapping(AccountsConfig.class)
+                .withMapping(DimensionIndexConfig.class)
+                .withMapping(ComparisonConfig.class)
+                .withMapping(TagGroupByConfig.class)
+                .withMapping(AnomalyConfig.class)
+                .build();
+    }
+
+    private static CostExplorer costExplorer(SmallRyeConfig config) {
+        CacheConfig cacheConfig = config.getConfigMapping(CacheConfig.class);
+        ResponseCache responseCache = new ResponseCache(cacheConfig);
+        RateLimitConfig rateLimitConfig = config.getConfigMapping(RateLimitConfig.class);
+        FanOutConfig fanOutConfig = config.getConfigMapping(FanOutConfig.class);
+
+        ClientConfig clientConfig = config.getConfigMapping(ClientConfig.class);
+        ServerMetrics serverMetrics = new ServerMetrics();
+
+        AwsConfig awsConfig = new AwsConfig();
+        Supplier<CostExplorerClient> liveClient = () -> clientConfig.async()
+                ? new AsyncBackedCostExplorerClient(awsConfig.costExplorerAsyncClient(clientConfig, rateLimitConfig))
+                : AwsConfig.blockingClient(clientConfig, rateLimitConfig);
+        ApiBudget apiBudget = new ApiBudget(config.getConfigMapping(BudgetConfig.class));
+        StandInConfig standInConfig = config.getConfigMapping(StandInConfig.class);
+        CostExplorerClient costExplorerClient = awsConfig.costExplorerClient(liveClient, responseCache,
+                new AdaptiveRateLimiter(rateLimitConfig), apiBudget, rateLimitConfig, standInConfig, serverMetrics);
+
+        PlannerConfig plannerConfig = config.getConfigMapping(PlannerConfig.class);
+        RevalidationConfig revalidationConfig = config.getConfigMapping(RevalidationConfig.class);
+        CostAndUsageFetcher costAndUsageFetcher = new CostAndUsageFetcher(costExplorerClient, responseCache,
+                fanOutConfig);
+        QueryEngine queryEngine = new QueryEngine(costAndUsageFetcher,
+                new CostWarehouse(config.getConfigMapping(WarehouseConfig.class)),
+                new QueryPlanner(responseCache, fanOutConfig, plannerConfig),
+                serverMetrics, new OpenPeriodResults(revalidationConfig));
+        AccountPool accountPool = new AccountPool(config.getConfigMapping(AccountsConfig.class), queryEngine,
+                awsConfig, clientConfig, cacheConfig, fanOutConfig, plannerConfig, rateLimitConfig, standInConfig,
+                revalidationConfig, apiBudget, serverMetrics);
+        FormatConfig formatConfig = config.getConfigMapping(FormatConfig.class);
+        SnapshotConfig snapshotConfig = config.getConfigMapping(SnapshotConfig.class);
+        BatchConfig batchConfig = config.getConfigMapping(BatchConfig.class);
+        return new CostExplorer(queryEngine, formatConfig,
+                new ReportPager(new SnapshotStore(snapshotConfig), snapshotConfig, formatConfig),
+                config.getConfigMapping(TimeSeriesConfig.class), new QueryBatch(queryEngine, batchConfig),
+                batchConfig, accountPool,
+                new DimensionIndex(costExplorerClient, config.getConfigMapping(DimensionIndexConfig.class)),
+                config.getConfigMapping(ComparisonConfig.class), config.getConfigMapping(TagGroupByConfig.class),
+                new AnomalyDetector(costAndUsageFetcher, config.getConfigMapping(AnomalyConfig.class)));
+    }
+}
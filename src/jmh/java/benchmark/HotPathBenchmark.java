@@ -0,0 +1,135 @@
+package benchmark;
+
+import data.Discount;
+import data.DiscountReport;
+import data.UsagePerServiceAndOperation;
+import data.UsageReport;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import query.CostAggregator;
+import query.CostDataset;
+import query.CostQuery;
+import query.RowMapper;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+import software.amazon.awssdk.services.costexplorer.model.Group;
+import software.amazon.awssdk.services.costexplorer.model.MetricValue;
+import software.amazon.awssdk.services.costexplorer.model.ResultByTime;
+import standin.SyntheticResponses;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The path every cost tool takes once the pages are fetched: parsing the groups, aggregating them, building the
+ * sorted rows and rendering the report. Run with the gc profiler to see the allocation rate of each stage:
+ *
+ * <pre>
+ * ./mvnw -Pbenchmark test-compile exec:exec
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HotPathBenchmark {
+    private static final int LIMIT = 20;
+    private static final int PAGE_SIZE = 5_000;
+
+    private static final RowMapper<UsagePerServiceAndOperation> USAGE =
+            (keys, currency, value) -> new UsagePerServiceAndOperation.Builder()
+                    .serviceName(keys[0])
+                    .operation(keys[1])
+                    .currency(currency)
+                    .value(value)
+                    .build();
+
+    private static final RowMapper<Discount> DISCOUNT =
+            (keys, currency, value) -> new Discount.Builder()
+                    .serviceName(keys[0])
+                    .discountType(keys[1])
+                    .currency(currency)
+                    .value(value)
+                    .build();
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int groups;
+
+    @Param({"2"})
+    public int currencies;
+
+    private List<GetCostAndUsageResponse> pages;
+    private CostAggregator aggregator;
+    private List<UsagePerServiceAndOperation> usageRows;
+    private List<Discount> discountRows;
+
+    @Setup
+    public void setUp() {
+        pages = SyntheticResponses.pages(CostDataset.USAGE_PER_SERVICE_AND_OPERATION
+                .query("2025-01-01", "2025-02-01", List.of())
+                .toRequest(), groups, currencies, PAGE_SIZE);
+        aggregator = aggregate(pages);
+        usageRows = aggregator.rows(USAGE);
+        discountRows = aggregator.rows(DISCOUNT);
+    }
+
+    @Benchmark
+    public void parseGroups(Blackhole blackhole) {
+        for (GetCostAndUsageResponse page : pages) {
+            for (ResultByTime result : page.resultsByTime()) {
+                for (Group group : result.groups()) {
+                    MetricValue metric = group.metrics().get(CostQuery.METRIC);
+                    blackhole.consume(group.keys());
+                    blackhole.consume(metric.unit());
+                    blackhole.consume(Double.parseDouble(metric.amount()));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public CostAggregator aggregateGroups() {
+        return aggregate(pages);
+    }
+
+    @Benchmark
+    public List<UsagePerServiceAndOperation> buildSortedRows() {
+        return aggregator.rows(USAGE);
+    }
+
+    @Benchmark
+    public List<UsagePerServiceAndOperation> buildTopRows() {
+        return aggregator.rows(USAGE, LIMIT);
+    }
+
+    @Benchmark
+    public String renderUsageReport() {
+        return new UsageReport<>(usageRows, aggregator.totalPerCurrency(), "benchmark").generate();
+    }
+
+    @Benchmark
+    public String renderDiscountReport() {
+        return new DiscountReport(discountRows, aggregator.totalPerCurrency(), "benchmark").generate();
+    }
+
+    @Benchmark
+    public String endToEnd() {
+        CostAggregator pageAggregator = aggregate(pages);
+        return new UsageReport<>(pageAggregator.rows(USAGE), pageAggregator.totalPerCurrency(), "benchmark")
+                .generate();
+    }
+
+    private static CostAggregator aggregate(List<GetCostAndUsageResponse> pages) {
+        CostAggregator aggregator = new CostAggregator(2);
+        for (GetCostAndUsageResponse page : pages) {
+            for (ResultByTime result : page.resultsByTime()) {
+                for (Group group : result.groups()) {
+                    MetricValue metric = group.metrics().get(CostQuery.METRIC);
+                    aggregator.add(group.keys(), metric.unit(), Double.parseDouble(metric.amount()));
+                }
+            }
+        }
+        return aggregator;
+    }
+}
@@ -0,0 +1,101 @@
+package benchmark;
+
+import data.FormatConfig;
+import data.ReportFormat;
+import data.UsagePerServiceAndOperation;
+import data.UsageReport;
+import org.openjdk.jmh.annotations.*;
+import query.CostAggregator;
+import query.CostDataset;
+import query.CostQuery;
+import query.RowMapper;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+import software.amazon.awssdk.services.costexplorer.model.Group;
+import software.amazon.awssdk.services.costexplorer.model.MetricValue;
+import software.amazon.awssdk.services.costexplorer.model.ResultByTime;
+import standin.SyntheticResponses;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the same report in every {@link ReportFormat}. The size of each report is printed once per trial, to compare
+ * how much of the context of the model and of the stdio transport every format takes:
+ *
+ * <pre>
+ * ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="-prof gc ReportFormatBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportFormatBenchmark {
+    private static final int PAGE_SIZE = 5_000;
+
+    private static final RowMapper<UsagePerServiceAndOperation> USAGE =
+            (keys, currency, value) -> new UsagePerServiceAndOperation.Builder()
+                    .serviceName(keys[0])
+                    .operation(keys[1])
+                    .currency(currency)
+                    .value(value)
+                    .build();
+
+    private static final FormatConfig FORMAT_CONFIG = new FormatConfig() {
+        @Override
+        public ReportFormat defaultFormat() {
+            return ReportFormat.CSV;
+        }
+
+        @Override
+        public int precision() {
+            return 2;
+        }
+
+        @Override
+        public double dropBelow() {
+            return 0.005;
+        }
+    };
+
+    @Param({"1000", "100000"})
+    public int groups;
+
+    @Param({"2"})
+    public int currencies;
+
+    @Param({"CSV", "JSONL", "COMPACT"})
+    public ReportFormat format;
+
+    private UsageReport<UsagePerServiceAndOperation> report;
+
+    @Setup
+    public void setUp() {
+        List<GetCostAndUsageResponse> pages = SyntheticResponses.pages(CostDataset.USAGE_PER_SERVICE_AND_OPERATION
+                .query("2025-01-01", "2025-02-01", List.of())
+                .toRequest(), groups, currencies, PAGE_SIZE);
+
+        CostAggregator aggregator = new CostAggregator(2);
+        for (GetCostAndUsageResponse page : pages) {
+            for (ResultByTime result : page.resultsByTime()) {
+                for (Group group : result.groups()) {
+                    MetricValue metric = group.metrics().get(CostQuery.METRIC);
+                    aggregator.add(group.keys(), metric.unit(), Double.parseDouble(metric.amount()));
+                }
+            }
+        }
+        report = new UsageReport<>(aggregator.rows(USAGE), aggregator.totalPerCurrency(), "benchmark");
+
+        String rendered = render();
+        System.out.printf("%n%s report of %d groups: %d bytes, %d lines%n", format.title(), groups,
+                rendered.getBytes(StandardCharsets.UTF_8).length, rendered.lines().count());
+    }
+
+    @Benchmark
+    public String render() {
+        return report.generate(format, FORMAT_CONFIG);
+    }
+}
@@ -0,0 +1,217 @@
+import cache.CacheConfig;
+import cache.ResponseCache;
+import data.AccountRow;
+import data.Usage;
+import io.quarkiverse.mcp.server.ToolCallException;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import metrics.ServerMetrics;
+import query.Aggregation;
+import query.CostAndUsageFetcher;
+import query.CostQuery;
+import query.FanOutConfig;
+import query.OpenPeriodResults;
+import query.PlannerConfig;
+import query.QueryEngine;
+import query.QueryPlanner;
+import query.QueryResult;
+import query.RevalidationConfig;
+import query.RowMapper;
+import ratelimit.AdaptiveRateLimiter;
+import ratelimit.ApiBudget;
+import ratelimit.RateLimitConfig;
+import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
+import standin.StandInConfig;
+import warehouse.CostWarehouse;
+import warehouse.WarehouseConfig;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * The accounts of {@link AccountsConfig#pool()}, each with its own client, response cache directory, rate limiter
+ * and query engine, built on first use. The API budget is shared, it caps the spend of the whole server. A query over
+ * several accounts runs in all of them at the same time, so it takes as long as the slowest account.
+ */
+@ApplicationScoped
+public class AccountPool {
+    public static final String DEFAULT_ACCOUNT = "default";
+
+    private final AccountsConfig config;
+    private final QueryEngine defaultQueryEngine;
+    private final Function<AccountsConfig.Account, PooledAccount> accountFactory;
+    private final Map<String, PooledAccount> accounts = new ConcurrentHashMap<>();
+
+    @Inject
+    public AccountPool(AccountsConfig config, QueryEngine queryEngine, AwsConfig awsConfig, ClientConfig clientConfig,
+                       CacheConfig cacheConfig, FanOutConfig fanOutConfig, PlannerConfig plannerConfig,
+                       RateLimitConfig rateLimitConfig, StandInConfig standInConfig,
+                       RevalidationConfig revalidationConfig, ApiBudget apiBudget, ServerMetrics serverMetrics) {
+        this(config, queryEngine, account -> {
+            ResponseCache responseCache = new ResponseCache(new AccountCacheConfig(cacheConfig, account.profile()));
+            CostExplorerClient client = awsConfig.costExplorerClient(
+                    () -> AwsConfig.accountClient(clientConfig, rateLimitConfig, account), responseCache,
+                    new AdaptiveRateLimiter(rateLimitConfig), apiBudget, rateLimitConfig, standInConfig,
+                    serverMetrics);
+            QueryEngine accountQueryEngine = new QueryEngine(
+                    new CostAndUsageFetcher(client, responseCache, fanOutConfig),
+                    new CostWarehouse(new NoWarehouseConfig()),
+                    new QueryPlanner(responseCache, fanOutConfig, plannerConfig), serverMetrics,
+                    new OpenPeriodResults(revalidationConfig));
+            return new PooledAccount(accountQueryEngine, client);
+        });
+    }
+
+    AccountPool(AccountsConfig config, QueryEngine defaultQueryEngine,
+                Function<AccountsConfig.Account, PooledAccount> accountFactory) {
+        this.config = config;
+        this.defaultQueryEngine = defaultQueryEngine;
+        this.accountFactory = accountFactory;
+    }
+
+    /**
+     * Execute the query in every account and merge the groups into one result, tagging each row with its account.
+     * The {@code limit} applies to the merged rows.
+     */
+    public <T extends Usage> QueryResult<AccountRow<T>> execute(List<String> accountNames, CostQuery query,
+                                                               RowMapper<T> rowMapper, int limit) {
+        List<String> names = accountNames.stream().map(String::trim).distinct().toList();
+        for (String name : names) {
+            if (!DEFAULT_ACCOUNT.equals(name) && !config.pool().containsKey(name)) {
+                throw new ToolCallException("Unknown account: " + name + ", it should be " + DEFAULT_ACCOUNT +
+                        (config.pool().isEmpty() ? "" : " or one of " + String.join(", ", config.pool().keySet())));
+            }
+        }
+
+        Map<String, Aggregation> aggregations = new LinkedHashMap<>();
+        Map<String, Future<Aggregation>> pending = new LinkedHashMap<>();
+        Semaphore permits = new Semaphore(Math.max(1, config.maxConcurrency()));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String name : names) {
+                pending.put(name, executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return queryEngine(name).aggregation(query);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (Map.Entry<String, Future<Aggregation>> account : pending.entrySet()) {
+                aggregations.put(account.getKey(), await(account.getValue()));
+            }
+        }
+
+        return Aggregation.perAccount(aggregations).perAccountResult((keys, currency, value) ->
+                new AccountRow<>(keys[0], rowMapper.map(Arrays.copyOfRange(keys, 1, keys.length), currency, value)),
+                limit);
+    }
+
+    @PreDestroy
+    void close() {
+        accounts.values().forEach(account -> account.client().close());
+    }
+
+    private QueryEngine queryEngine(String name) {
+        if (DEFAULT_ACCOUNT.equals(name)) {
+            return defaultQueryEngine;
+        }
+        return accounts.computeIfAbsent(name, ignored -> accountFactory.apply(config.pool().get(name))).queryEngine();
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying the accounts", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    record PooledAccount(QueryEngine queryEngine, CostExplorerClient client) {
+    }
+
+    // The disk tier of every profile has a directory of its own, the same request returns other costs per account
+    private record AccountCacheConfig(CacheConfig config, String profile) implements CacheConfig {
+        @Override
+        public boolean enabled() {
+            return config.enabled();
+        }
+
+        @Override
+        public int memoryMaxEntries() {
+            return config.memoryMaxEntries();
+        }
+
+        @Override
+        public String directory() {
+            return Path.of(config.directory(), "accounts", profile).toString();
+        }
+
+        @Override
+        public int immutableAfterDays() {
+            return config.immutableAfterDays();
+        }
+
+        @Override
+        public Duration openPeriodTtl() {
+            return config.openPeriodTtl();
+        }
+
+        @Override
+        public Duration staleRetention() {
+            return config.staleRetention();
+        }
+
+        @Override
+        public String pruneInterval() {
+            return config.pruneInterval();
+        }
+    }
+
+    // Only the account of the server is synced into the warehouse
+    private static final class NoWarehouseConfig implements WarehouseConfig {
+        @Override
+        public boolean enabled() {
+            return false;
+        }
+
+        @Override
+        public String directory() {
+            return "";
+        }
+
+        @Override
+        public int historyMonths() {
+            return 0;
+        }
+
+        @Override
+        public int restatementDays() {
+            return 0;
+        }
+
+        @Override
+        public String syncInterval() {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,19 @@
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.util.Map;
+import java.util.Optional;
+
+@ConfigMapping(prefix = "cost-explorer.accounts")
+public interface AccountsConfig {
+    Map<String, Account> pool();
+
+    @WithDefault("4")
+    int maxConcurrency();
+
+    interface Account {
+        String profile();
+
+        Optional<String> region();
+    }
+}
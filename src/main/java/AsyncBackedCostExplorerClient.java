@@ -0,0 +1,53 @@
+import software.amazon.awssdk.services.costexplorer.CostExplorerAsyncClient;
+import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Exposes a {@link CostExplorerAsyncClient} as a blocking {@link CostExplorerClient}, so it can sit below the cache
+ * and the rate limiter. Waiting for the response parks a virtual thread without blocking its carrier, and exceptions
+ * are unwrapped, so throttling is seen by the rate limiter the same way as from the blocking client.
+ */
+public class AsyncBackedCostExplorerClient implements CostExplorerClient {
+    private final CostExplorerAsyncClient delegate;
+
+    public AsyncBackedCostExplorerClient(CostExplorerAsyncClient delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public GetCostAndUsageResponse getCostAndUsage(GetCostAndUsageRequest request) {
+        return join(delegate.getCostAndUsage(request));
+    }
+
+    @Override
+    public GetDimensionValuesResponse getDimensionValues(GetDimensionValuesRequest request) {
+        return join(delegate.getDimensionValues(request));
+    }
+
+    @Override
+    public String serviceName() {
+        return delegate.serviceName();
+    }
+
+    @Override
+    public void close() {
+        // The async client is a bean of its own and closed by its disposer
+    }
+
+    private static <R> R join(CompletableFuture<R> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,13 +1,154 @@
+import cache.CachingCostExplorerClient;
+import cache.ResponseCache;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Instance;
 import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+import metrics.InstrumentedCostExplorerClient;
+import metrics.ServerMetrics;
+import org.jboss.logging.Logger;
+import ratelimit.AdaptiveRateLimiter;
+import ratelimit.ApiBudget;
+import ratelimit.RateLimitConfig;
+import ratelimit.RateLimitedCostExplorerClient;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.costexplorer.CostExplorerAsyncClient;
+import software.amazon.awssdk.services.costexplorer.CostExplorerAsyncClientBuilder;
 import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
 import software.amazon.awssdk.services.costexplorer.CostExplorerClientBuilder;
+import standin.FixtureStore;
+import standin.RecordingCostExplorerClient;
+import standin.ReplayCostExplorerClient;
+import standin.StandInConfig;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @ApplicationScoped
 public class AwsConfig {
+    Logger logger = Logger.getLogger(AwsConfig.class);
+
+    // Throttling is retried by the rate limiter, which also has to see it to slow down. Built once, in native images
+    // at build time.
+    private static final ClientOverrideConfiguration NO_RETRIES = ClientOverrideConfiguration.builder()
+            .retryStrategy(AwsRetryStrategy.doNotRetry())
+            .build();
+
     @Produces
-    CostExplorerClient costExplorerClient() {
-        CostExplorerClientBuilder costExplorerClientBuilder = CostExplorerClient.builder();
+    @Singleton
+    CostExplorerClient costExplorerClient(ResponseCache responseCache, AdaptiveRateLimiter rateLimiter,
+                                          ApiBudget apiBudget, RateLimitConfig rateLimitConfig,
+                                          StandInConfig standInConfig, ClientConfig clientConfig,
+                                          ServerMetrics serverMetrics,
+                                          Instance<CostExplorerAsyncClient> costExplorerAsyncClient) {
+        Supplier<CostExplorerClient> liveClient = () -> clientConfig.async()
+                ? new AsyncBackedCostExplorerClient(costExplorerAsyncClient.get())
+                : blockingClient(clientConfig, rateLimitConfig);
+
+        return costExplorerClient(liveClient, responseCache, rateLimiter, apiBudget, rateLimitConfig, standInConfig,
+                serverMetrics);
+    }
+
+    CostExplorerClient costExplorerClient(Supplier<CostExplorerClient> liveClient, ResponseCache responseCache,
+                                          AdaptiveRateLimiter rateLimiter, ApiBudget apiBudget,
+                                          RateLimitConfig rateLimitConfig, StandInConfig standInConfig,
+                                          ServerMetrics serverMetrics) {
+        FixtureStore fixtureStore = new FixtureStore(Path.of(standInConfig.directory()));
+        CostExplorerClient costExplorerClient = switch (standInConfig.mode()) {
+            case LIVE -> liveClient.get();
+            case RECORD -> new RecordingCostExplorerClient(liveClient.get(), fixtureStore);
+            case REPLAY -> new ReplayCostExplorerClient(fixtureStore, standInConfig);
+        };
+
+        if (standInConfig.mode() != StandInConfig.Mode.LIVE) {
+            logger.infof("Cost Explorer stand-in in %s mode, fixtures in %s", standInConfig.mode(),
+                    standInConfig.directory());
+        }
+
+        costExplorerClient = new InstrumentedCostExplorerClient(costExplorerClient, serverMetrics);
+
+        if (rateLimitConfig.enabled()) {
+            costExplorerClient = new RateLimitedCostExplorerClient(costExplorerClient, rateLimiter, apiBudget,
+                    rateLimitConfig);
+        }
+
+        if (responseCache.isEnabled()) {
+            costExplorerClient = new CachingCostExplorerClient(costExplorerClient, responseCache,
+                    apiBudget.isServeStaleWhenExhausted());
+        }
+
+        return costExplorerClient;
+    }
+
+    @Produces
+    @Singleton
+    CostExplorerAsyncClient costExplorerAsyncClient(ClientConfig clientConfig, RateLimitConfig rateLimitConfig) {
+        CostExplorerAsyncClientBuilder costExplorerAsyncClientBuilder = CostExplorerAsyncClient.builder()
+                .credentialsProvider(credentialsProvider(clientConfig))
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(clientConfig.maxConcurrency()));
+        clientConfig.region().ifPresent(region -> costExplorerAsyncClientBuilder.region(Region.of(region)));
+
+        if (rateLimitConfig.enabled()) {
+            costExplorerAsyncClientBuilder.overrideConfiguration(NO_RETRIES);
+        }
+
+        return costExplorerAsyncClientBuilder.build();
+    }
+
+    static CostExplorerClient blockingClient(ClientConfig clientConfig, RateLimitConfig rateLimitConfig) {
+        return blockingClient(clientConfig, rateLimitConfig, credentialsProvider(clientConfig), clientConfig.region());
+    }
+
+    static CostExplorerClient accountClient(ClientConfig clientConfig, RateLimitConfig rateLimitConfig,
+                                            AccountsConfig.Account account) {
+        return blockingClient(clientConfig, rateLimitConfig, ProfileCredentialsProvider.create(account.profile()),
+                account.region().or(clientConfig::region));
+    }
+
+    private static CostExplorerClient blockingClient(ClientConfig clientConfig, RateLimitConfig rateLimitConfig,
+                                                     AwsCredentialsProvider credentialsProvider,
+                                                     Optional<String> region) {
+        // Both HTTP clients are on the classpath, so one has to be picked explicitly
+        CostExplorerClientBuilder costExplorerClientBuilder = CostExplorerClient.builder()
+                .credentialsProvider(credentialsProvider)
+                .httpClientBuilder(switch (clientConfig.httpClient()) {
+                    case APACHE -> ApacheHttpClient.builder();
+                    case URL_CONNECTION -> UrlConnectionHttpClient.builder();
+                });
+        region.ifPresent(name -> costExplorerClientBuilder.region(Region.of(name)));
+
+        if (rateLimitConfig.enabled()) {
+            costExplorerClientBuilder.overrideConfiguration(NO_RETRIES);
+        }
+
         return costExplorerClientBuilder.build();
     }
+
+    private static AwsCredentialsProvider credentialsProvider(ClientConfig clientConfig) {
+        return switch (clientConfig.credentials()) {
+            case DEFAULT -> DefaultCredentialsProvider.create();
+            case ENVIRONMENT -> EnvironmentVariableCredentialsProvider.create();
+            case PROFILE -> ProfileCredentialsProvider.create();
+        };
+    }
+
+    void closeCostExplorerClient(@Disposes CostExplorerClient costExplorerClient) {
+        costExplorerClient.close();
+    }
+
+    void closeCostExplorerAsyncClient(@Disposes CostExplorerAsyncClient costExplorerAsyncClient) {
+        costExplorerAsyncClient.close();
+    }
 }
@@ -0,0 +1,32 @@
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.util.Optional;
+
+@ConfigMapping(prefix = "cost-explorer.client")
+public interface ClientConfig {
+    enum HttpClient {
+        APACHE,
+        URL_CONNECTION
+    }
+
+    enum Credentials {
+        DEFAULT,
+        ENVIRONMENT,
+        PROFILE
+    }
+
+    @WithDefault("true")
+    boolean async();
+
+    @WithDefault("64")
+    int maxConcurrency();
+
+    @WithDefault("apache")
+    HttpClient httpClient();
+
+    Optional<String> region();
+
+    @WithDefault("default")
+    Credentials credentials();
+}
@@ -1,326 +1,581 @@
-import com.opencsv.exceptions.CsvDataTypeMismatchException;
-import com.opencsv.exceptions.CsvRequiredFieldEmptyException;
+import anomaly.AnomalyDetector;
+import anomaly.AnomalyScan;
+import anomaly.CostAnomaly;
 import data.*;
+import dimension.DimensionIndex;
+import dimension.DimensionValueSet;
 import io.quarkiverse.mcp.server.Tool;
 import io.quarkiverse.mcp.server.ToolArg;
 import io.quarkiverse.mcp.server.ToolCallException;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import metrics.Instrumented;
 import org.jboss.logging.Logger;
-import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
-import software.amazon.awssdk.services.costexplorer.model.*;
-
+import query.CostDataset;
+import query.DataFreshness;
+import query.CostQuery;
+import query.BatchConfig;
+import query.BatchOutcome;
+import query.ComparisonConfig;
+import query.CostChange;
+import query.PeriodComparison;
+import query.QueryBatch;
+import query.QueryEngine;
+import query.QueryResult;
+import query.RowMapper;
+import query.TagGroupByConfig;
+import query.TimeSeries;
+import query.TimeSeriesConfig;
+import query.TimeSeriesResult;
+import ratelimit.BudgetExceededException;
+import snapshot.ReportPager;
+import software.amazon.awssdk.services.costexplorer.model.CostExplorerException;
+import software.amazon.awssdk.services.costexplorer.model.Dimension;
+import software.amazon.awssdk.services.costexplorer.model.Granularity;
+import software.amazon.awssdk.services.costexplorer.model.GroupDefinition;
+import software.amazon.awssdk.services.costexplorer.model.GroupDefinitionType;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.function.Supplier;
 
+@Instrumented
 @ApplicationScoped
 public class CostExplorer {
     Logger logger = Logger.getLogger(CostExplorer.class);
 
-    private final Expression discountsFilter = Expression.builder()
-            .dimensions(DimensionValues.builder()
-                    .key(Dimension.RECORD_TYPE)
-                    .values(List.of("Refund", "Credit", "DiscountedUsage", "Discount",
-                            "BundledDiscount ", "SavingsPlanCoveredUsage", "SavingsPlanNegation"))
-                    .build())
-            .build();
+    private static final RowMapper<UsagePerServiceAndOperation> USAGE_PER_SERVICE_AND_OPERATION =
+            (keys, currency, value) -> new UsagePerServiceAndOperation.Builder()
+                    .serviceName(keys[0])
+                    .operation(keys[1])
+                    .currency(currency)
+                    .value(value)
+                    .build();
+
+    private static final RowMapper<UsagePerLinkedAccountAndService> USAGE_PER_LINKED_ACCOUNT_AND_SERVICE =
+            (keys, currency, value) -> new UsagePerLinkedAccountAndService.Builder()
+                    .linkedAccount(keys[0])
+                    .serviceName(keys[1])
+                    .currency(currency)
+                    .value(value)
+                    .build();
 
-    private final Expression excludeDiscountsFilter = Expression.builder()
-            .not(discountsFilter)
-            .build();
+    private static final RowMapper<Discount> DISCOUNT =
+            (keys, currency, value) -> new Discount.Builder()
+                    .serviceName(keys[0])
+                    .discountType(keys[1])
+                    .currency(currency)
+                    .value(value)
+                    .build();
 
-    private final CostExplorerClient costExplorerClient;
+    // Tag and cost category keys come as "name$value", the value being empty for untagged costs
+    private static final RowMapper<UsagePerGroupAndService> USAGE_PER_GROUP_AND_SERVICE =
+            (keys, currency, value) -> {
+                String group = keys[0].substring(keys[0].indexOf('$') + 1);
+                return new UsagePerGroupAndService.Builder()
+                        .currency(currency)
+                        .group(group.isEmpty() ? "(untagged)" : group)
+                        .serviceName(keys[1])
+                        .value(value)
+                        .build();
+            };
+
+    private static final String FORMAT_DESCRIPTION = "Format of the rows: csv, jsonl (one JSON object per row) or " +
+            "compact (strings listed once in a dictionary and referenced by index, rounded amounts, near-zero rows " +
+            "left out). Compact uses the least context for large reports.";
+
+    private static final String ACCOUNTS_DESCRIPTION = "Accounts to query, by the names configured on the server, " +
+            "\"default\" being the account of the server. The rows of all the accounts are merged into one report, " +
+            "each tagged with its account. Only the account of the server is queried when omitted.";
+
+    private final QueryEngine queryEngine;
+    private final FormatConfig formatConfig;
+    private final ReportPager reportPager;
+    private final TimeSeriesConfig timeSeriesConfig;
+    private final QueryBatch queryBatch;
+    private final BatchConfig batchConfig;
+    private final AccountPool accountPool;
+    private final DimensionIndex dimensionIndex;
+    private final ComparisonConfig comparisonConfig;
+    private final TagGroupByConfig tagGroupByConfig;
+    private final AnomalyDetector anomalyDetector;
+    private final Clock clock = Clock.systemUTC();
 
     @Inject
-    public CostExplorer(CostExplorerClient costExplorerClient) {
-        this.costExplorerClient = costExplorerClient;
+    public CostExplorer(QueryEngine queryEngine, FormatConfig formatConfig, ReportPager reportPager,
+                        TimeSeriesConfig timeSeriesConfig, QueryBatch queryBatch, BatchConfig batchConfig,
+                        AccountPool accountPool, DimensionIndex dimensionIndex, ComparisonConfig comparisonConfig,
+                        TagGroupByConfig tagGroupByConfig, AnomalyDetector anomalyDetector) {
+        this.queryEngine = queryEngine;
+        this.formatConfig = formatConfig;
+        this.reportPager = reportPager;
+        this.timeSeriesConfig = timeSeriesConfig;
+        this.queryBatch = queryBatch;
+        this.batchConfig = batchConfig;
+        this.accountPool = accountPool;
+        this.dimensionIndex = dimensionIndex;
+        this.comparisonConfig = comparisonConfig;
+        this.tagGroupByConfig = tagGroupByConfig;
+        this.anomalyDetector = anomalyDetector;
     }
 
+    @RunOnVirtualThread
     @Tool(description = "Return all the costs by services and operations in all the regions for a given period.")
     public String getCostPerServiceAndOperation(
             @ToolArg(description = "Start date in format of yyyy-MM-dd") String startDate,
             @ToolArg(description = "End date in format of yyyy-MM-dd") String endDate,
-            @ToolArg(description = "AWS regions where the costs should be retrieved. In case we want to get the costs for resources in all regions, we should provide an empty list.") List<String> regions
+            @ToolArg(description = "AWS regions where the costs should be retrieved. In case we want to get the costs for resources in all regions, we should provide an empty list.") List<String> regions,
+            @ToolArg(description = "Maximum number of rows to return. The remaining rows are summed up in an \"Other\" " +
+                    "row per currency. All the rows are returned when omitted.", required = false) Integer limit,
+            @ToolArg(description = FORMAT_DESCRIPTION, required = false) String format,
+            @ToolArg(description = ACCOUNTS_DESCRIPTION, required = false) List<String> accounts
     ) {
         Utils.validateStartEndEndDate(startDate, endDate);
+        Utils.validateLimit(limit);
+        ReportFormat reportFormat = Utils.parseFormat(format, formatConfig.defaultFormat());
 
-        List<Expression> filterExpressionList = new ArrayList<>();
-
-        if (!regions.isEmpty()) {
-            filterExpressionList.add(Expression.builder()
-                    .dimensions(DimensionValues.builder()
-                            .key(Dimension.REGION)
-                            .values(regions)
-                            .build())
-                    .build());
-        }
-
-        filterExpressionList.add(excludeDiscountsFilter);
+        QueryResult<? extends Usage> result = execute(
+                CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query(startDate, endDate,
+                        regions(regions, startDate, endDate, accounts)),
+                USAGE_PER_SERVICE_AND_OPERATION, limit, accounts);
 
-        Expression filterExpression = null;
+        UsageReport<? extends Usage> usageReport = new UsageReport<>(result.rows(), result.totalPerCurrency(),
+                result.freshness().describe(clock));
+        return reportPager.firstChunk(usageReport, reportFormat);
+    }
 
-        if (filterExpressionList.size() == 1) {
-            filterExpression = filterExpressionList.getFirst();
-        }
+    @RunOnVirtualThread
+    @Tool(description = "Return all the costs by linked account and service in selected regions for a given period.")
+    public String getCostPerLinkedAccount(
+            @ToolArg(description = "Start date in format of yyyy-MM-dd") String startDate,
+            @ToolArg(description = "End date in format of yyyy-MM-dd") String endDate,
+            @ToolArg(description = "AWS regions where the costs should be retrieved. In case we want to get the costs for resources in all regions, we should provide an empty list.") List<String> regions,
+            @ToolArg(description = "Maximum number of rows to return. The remaining rows are summed up in an \"Other\" " +
+                    "row per currency. All the rows are returned when omitted.", required = false) Integer limit,
+            @ToolArg(description = FORMAT_DESCRIPTION, required = false) String format,
+            @ToolArg(description = ACCOUNTS_DESCRIPTION, required = false) List<String> accounts
+    ) {
+        Utils.validateStartEndEndDate(startDate, endDate);
+        Utils.validateLimit(limit);
+        ReportFormat reportFormat = Utils.parseFormat(format, formatConfig.defaultFormat());
 
-        if (filterExpressionList.size() > 1) {
-            filterExpression = Expression.builder().and(filterExpressionList).build();
-        }
+        QueryResult<? extends Usage> result = execute(
+                CostDataset.USAGE_PER_LINKED_ACCOUNT_AND_SERVICE.query(startDate, endDate,
+                        regions(regions, startDate, endDate, accounts)),
+                USAGE_PER_LINKED_ACCOUNT_AND_SERVICE, limit, accounts);
 
-        List<UsagePerServiceAndOperation> usagePerServiceAndOperations = new ArrayList<>();
-        Map<String, Double> totalCostPerCurrency = new HashMap<>();
-
-        String nextPageToken = null;
-
-        do {
-            GetCostAndUsageRequest request = GetCostAndUsageRequest.builder()
-                    .timePeriod(DateInterval.builder()
-                            .start(startDate)
-                            .end(endDate)
-                            .build())
-                    .granularity(Granularity.MONTHLY)
-                    .metrics(List.of("UnblendedCost"))
-                    .filter(filterExpression)
-                    .groupBy(GroupDefinition.builder()
-                                    .type(GroupDefinitionType.DIMENSION)
-                                    .key("SERVICE")
-                                    .build(),
-                            GroupDefinition.builder()
-                                    .type(GroupDefinitionType.DIMENSION)
-                                    .key("OPERATION")
-                                    .build()
-                    )
-                    .nextPageToken(nextPageToken)
-                    .build();
+        UsageReport<? extends Usage> usageReport = new UsageReport<>(result.rows(), result.totalPerCurrency(),
+                result.freshness().describe(clock));
+        return reportPager.firstChunk(usageReport, reportFormat);
+    }
 
-            try {
-                GetCostAndUsageResponse response = costExplorerClient.getCostAndUsage(request);
-                for (ResultByTime result : response.resultsByTime()) {
-                    for (Group group : result.groups()) {
-                        double cost = Double.parseDouble(group.metrics().get("UnblendedCost").amount());
-
-                        String serviceName = group.keys().getFirst();
-                        String operation = group.keys().getLast();
-                        String currency = group.metrics().get("UnblendedCost").unit();
-                        usagePerServiceAndOperations.add(new UsagePerServiceAndOperation.Builder()
-                                .serviceName(serviceName)
-                                .operation(operation)
-                                .currency(currency)
-                                .value(cost)
-                                .build());
-
-                        totalCostPerCurrency.compute(currency, (key, value) -> value == null ? 0 : value + cost);
-                    }
-                }
-                nextPageToken = response.nextPageToken();
-            } catch (CostExplorerException e) {
-                this.logger.error(e);
-                throw new ToolCallException("AWS API error: " + e.getMessage());
-            }
+    @RunOnVirtualThread
+    @Tool(description = "Return all the discounts by services and operations in all the regions for a given period.")
+    public String getDiscounts(
+            @ToolArg(description = "Start date in format of yyyy-MM-dd") String startDate,
+            @ToolArg(description = "End date in format of yyyy-MM-dd") String endDate,
+            @ToolArg(description = "AWS regions where the discounts should be retrieved. In case we want to get the " +
+                    "discounts for resources in all regions, we should provide an empty list.") List<String> regions,
+            @ToolArg(description = "Maximum number of rows to return. The remaining rows are summed up in an \"Other\" " +
+                    "row per currency. All the rows are returned when omitted.", required = false) Integer limit,
+            @ToolArg(description = FORMAT_DESCRIPTION, required = false) String format,
+            @ToolArg(description = ACCOUNTS_DESCRIPTION, required = false) List<String> accounts
+    ) {
+        Utils.validateStartEndEndDate(startDate, endDate);
+        Utils.validateLimit(limit);
+        ReportFormat reportFormat = Utils.parseFormat(format, formatConfig.defaultFormat());
 
-        } while (nextPageToken != null);
+        QueryResult<? extends Usage> result = execute(
+                CostDataset.DISCOUNTS_PER_SERVICE_AND_TYPE.query(startDate, endDate,
+                        regions(regions, startDate, endDate, accounts)), DISCOUNT, limit, accounts);
 
-        usagePerServiceAndOperations.sort((a, b) -> Double.compare(b.value(), a.value()));
+        DiscountReport discountReport = new DiscountReport(result.rows(), result.totalPerCurrency(),
+                result.freshness().describe(clock));
+        return reportPager.firstChunk(discountReport, reportFormat);
+    }
 
-        try {
-            UsageReport usageReport = new UsageReport(usagePerServiceAndOperations, totalCostPerCurrency);
-            return usageReport.generate();
-        } catch (CsvRequiredFieldEmptyException | CsvDataTypeMismatchException e) {
-            this.logger.error(e);
-            throw new ToolCallException("Error generating report:" + e.getMessage());
+    @RunOnVirtualThread
+    @Tool(description = "Return the costs per value of a cost allocation tag or of a cost category, and per " +
+            "service, in selected regions for a given period. Costs without the tag are grouped as (untagged).")
+    public String getCostPerTag(
+            @ToolArg(description = "Start date in format of yyyy-MM-dd") String startDate,
+            @ToolArg(description = "End date in format of yyyy-MM-dd") String endDate,
+            @ToolArg(description = "AWS regions where the costs should be retrieved. In case we want to get the costs for resources in all regions, we should provide an empty list.") List<String> regions,
+            @ToolArg(description = "Key of the cost allocation tag, or name of the cost category, for example " +
+                    "team") String key,
+            @ToolArg(description = "What the key names: TAG (default) or COST_CATEGORY", required = false) String groupType,
+            @ToolArg(description = "Maximum number of rows to return. The remaining rows are summed up in an \"Other\" " +
+                    "row per currency. Defaults to 50.", required = false) Integer limit,
+            @ToolArg(description = FORMAT_DESCRIPTION, required = false) String format
+    ) {
+        Utils.validateStartEndEndDate(startDate, endDate);
+        Utils.validateLimit(limit);
+        GroupDefinitionType type = Utils.parseGroupType(groupType);
+        if (key == null || key.isBlank()) {
+            throw new ToolCallException("No " + type + " key given");
         }
+        ReportFormat reportFormat = Utils.parseFormat(format, formatConfig.defaultFormat());
+
+        List<GroupDefinition> groupBy = List.of(
+                GroupDefinition.builder().type(type).key(key.trim()).build(),
+                CostQuery.dimensions("SERVICE").getFirst());
+        CostQuery query = CostQuery.of(startDate, endDate, regions(regions, startDate, endDate),
+                CostDataset.Filters.EXCLUDE_DISCOUNTS, groupBy);
+        // Tags may have hundreds of thousands of values, so the groups are spilled to disk above the memory limit
+        QueryResult<UsagePerGroupAndService> result = handleErrors(() -> queryEngine.executeSpilling(query,
+                USAGE_PER_GROUP_AND_SERVICE, limit == null ? tagGroupByConfig.defaultLimit() : limit,
+                tagGroupByConfig.maxMemoryMegabytes() * 1024L * 1024L, Path.of(tagGroupByConfig.spillDirectory())));
+
+        UsageReport<UsagePerGroupAndService> usageReport = new UsageReport<>(result.rows(),
+                result.totalPerCurrency(), result.freshness().describe(clock));
+        return reportPager.firstChunk(usageReport, reportFormat);
     }
 
-    @Tool(description = "Return all the costs by linked account and service in selected regions for a given period.")
-    public String getCostPerLinkedAccount(
+    @RunOnVirtualThread
+    @Tool(description = "Return the costs of every service, or of another dimension, per month, day or hour of a " +
+            "given period, one row per series with a column per period. Use it to see how costs evolve.")
+    public String getCostTimeSeries(
             @ToolArg(description = "Start date in format of yyyy-MM-dd") String startDate,
             @ToolArg(description = "End date in format of yyyy-MM-dd") String endDate,
-            @ToolArg(description = "AWS regions where the costs should be retrieved. In case we want to get the costs for resources in all regions, we should provide an empty list.") List<String> regions
+            @ToolArg(description = "AWS regions where the costs should be retrieved. In case we want to get the costs for resources in all regions, we should provide an empty list.") List<String> regions,
+            @ToolArg(description = "Dimension of the series: SERVICE (default), LINKED_ACCOUNT, REGION, USAGE_TYPE, " +
+                    "OPERATION, INSTANCE_TYPE, RECORD_TYPE, PURCHASE_TYPE or AZ.", required = false) String groupBy,
+            @ToolArg(description = "Length of the periods: monthly, daily or hourly. Hourly costs cover at most the " +
+                    "last 14 days. Defaults to daily.", required = false) String granularity,
+            @ToolArg(description = "Maximum number of series to return, sorted by their total. The remaining series " +
+                    "are summed up in an \"Other\" series per currency. Defaults to 20.", required = false) Integer limit,
+            @ToolArg(description = FORMAT_DESCRIPTION, required = false) String format
     ) {
         Utils.validateStartEndEndDate(startDate, endDate);
-
-        List<Expression> filterExpressionList = new ArrayList<>();
-
-        if (!regions.isEmpty()) {
-            filterExpressionList.add(Expression.builder()
-                    .dimensions(DimensionValues.builder()
-                            .key(Dimension.REGION)
-                            .values(regions)
-                            .build())
-                    .build());
+        Utils.validateLimit(limit);
+        String dimension = Utils.parseGroupBy(groupBy);
+        Granularity periodGranularity = Utils.parseGranularity(granularity, timeSeriesConfig.defaultGranularity());
+        Utils.validateHourlyPeriod(startDate, endDate, periodGranularity);
+        ReportFormat reportFormat = Utils.parseFormat(format, formatConfig.defaultFormat());
+
+        CostQuery query = CostQuery.of(startDate, endDate, regions(regions, startDate, endDate),
+                        CostDataset.Filters.EXCLUDE_DISCOUNTS, CostQuery.dimensions(dimension))
+                .withGranularity(periodGranularity);
+        TimeSeriesResult result = handleErrors(() -> queryEngine.executeTimeSeries(query,
+                limit == null ? timeSeriesConfig.defaultLimit() : limit));
+
+        List<String> columns = new ArrayList<>(result.periods().size() + 3);
+        columns.add(dimension);
+        columns.add("CURRENCY");
+        columns.add("TOTAL");
+        columns.addAll(result.periods());
+        List<String> sharedColumns = List.copyOf(columns);
+
+        List<TimeSeriesRow> rows = new ArrayList<>(result.series().size());
+        for (TimeSeries series : result.series()) {
+            rows.add(new TimeSeriesRow(sharedColumns, series.keys(), series.currency(), series.total(),
+                    series.values()));
         }
 
-        filterExpressionList.add(excludeDiscountsFilter);
-
-        Expression filterExpression = null;
+        TimeSeriesReport timeSeriesReport = new TimeSeriesReport(rows, result.totalPerCurrency(),
+                result.freshness().describe(clock), period(periodGranularity));
+        return reportPager.firstChunk(timeSeriesReport, reportFormat);
+    }
 
-        if (filterExpressionList.size() == 1) {
-            filterExpression = filterExpressionList.getFirst();
+    @RunOnVirtualThread
+    @Tool(description = "Run several cost and discount queries in one call and return all their reports, in the " +
+            "order of the queries. Identical queries and overlapping periods are fetched once and the queries run " +
+            "concurrently, prefer it to several calls of the cost tools.")
+    public String runCostQueries(
+            @ToolArg(description = "The queries. Each one names the tool answering it in \"tool\" " +
+                    "(getCostPerServiceAndOperation, getCostPerLinkedAccount or getDiscounts) and takes the " +
+                    "arguments of that tool: \"startDate\", \"endDate\", \"regions\" and optionally " +
+                    "\"limit\".") List<CostQuerySpec> queries,
+            @ToolArg(description = FORMAT_DESCRIPTION, required = false) String format
+    ) {
+        ReportFormat reportFormat = Utils.parseFormat(format, formatConfig.defaultFormat());
+        if (queries == null || queries.isEmpty()) {
+            throw new ToolCallException("No queries given");
         }
-
-        if (filterExpressionList.size() > 1) {
-            filterExpression = Expression.builder().and(filterExpressionList).build();
+        if (queries.size() > batchConfig.maxQueries()) {
+            throw new ToolCallException("Too many queries: " + queries.size() + ", at most " +
+                    batchConfig.maxQueries() + " can be run in one call");
         }
 
-        List<UsagePerLinkedAccountAndService> usagePerLinkedAccountAndServices = new ArrayList<>();
-        Map<String, Double> totalCostPerCurrency = new HashMap<>();
-
-        String nextPageToken = null;
-
-        do {
-            GetCostAndUsageRequest request = GetCostAndUsageRequest.builder()
-                    .timePeriod(DateInterval.builder()
-                            .start(startDate)
-                            .end(endDate)
-                            .build())
-                    .granularity(Granularity.MONTHLY)
-                    .metrics(List.of("UnblendedCost"))
-                    .filter(filterExpression)
-                    .groupBy(GroupDefinition.builder()
-                                    .type(GroupDefinitionType.DIMENSION)
-                                    .key("LINKED_ACCOUNT")
-                                    .build(),
-                            GroupDefinition.builder()
-                                    .type(GroupDefinitionType.DIMENSION)
-                                    .key("SERVICE")
-                                    .build()
-                    )
-                    .nextPageToken(nextPageToken)
-                    .build();
-
+        List<CostQuery> costQueries = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            CostQuerySpec spec = queries.get(i);
             try {
-                GetCostAndUsageResponse response = costExplorerClient.getCostAndUsage(request);
-                for (ResultByTime result : response.resultsByTime()) {
-                    for (Group group : result.groups()) {
-                        double cost = Double.parseDouble(group.metrics().get("UnblendedCost").amount());
-
-                        String linkedAccount = group.keys().getFirst();
-                        String serviceName = group.keys().getLast();
-                        String currency = group.metrics().get("UnblendedCost").unit();
-                        usagePerLinkedAccountAndServices.add(new UsagePerLinkedAccountAndService.Builder()
-                                .serviceName(serviceName)
-                                .linkedAccount(linkedAccount)
-                                .currency(currency)
-                                .value(cost)
-                                .build());
-
-                        totalCostPerCurrency.compute(currency, (key, value) -> value == null ? 0 : value + cost);
-                    }
-                }
-                nextPageToken = response.nextPageToken();
-            } catch (CostExplorerException e) {
-                this.logger.error(e);
-                throw new ToolCallException("AWS API error: " + e.getMessage());
+                Utils.validateStartEndEndDate(spec.startDate(), spec.endDate());
+                Utils.validateLimit(spec.limit());
+                costQueries.add(dataset(spec.tool()).query(spec.startDate(), spec.endDate(),
+                        spec.regions() == null ? List.of()
+                                : regions(spec.regions(), spec.startDate(), spec.endDate())));
+            } catch (ToolCallException e) {
+                throw new ToolCallException("Query " + (i + 1) + ": " + e.getMessage());
             }
+        }
+
+        List<BatchOutcome> outcomes = handleErrors(() -> queryBatch.execute(costQueries));
 
-        } while (nextPageToken != null);
+        StringBuilder reports = new StringBuilder();
+        for (int i = 0; i < queries.size(); i++) {
+            CostQuerySpec spec = queries.get(i);
+            reports.append("Query ").append(i + 1).append(": ").append(spec.tool()).append(' ')
+                    .append(spec.startDate()).append(" - ").append(spec.endDate());
+            if (spec.regions() != null && !spec.regions().isEmpty()) {
+                reports.append(" in ").append(String.join(", ", spec.regions()));
+            }
+            reports.append('\n');
 
-        usagePerLinkedAccountAndServices.sort((a, b) -> Double.compare(b.value(), a.value()));
+            try {
+                reports.append(reportPager.firstChunk(report(spec, outcomes.get(i)), reportFormat));
+            } catch (ToolCallException e) {
+                reports.append("Failed: ").append(e.getMessage()).append('\n');
+            }
+            reports.append('\n');
+        }
+        return reports.toString();
+    }
 
+    @RunOnVirtualThread
+    @Tool(description = "Compare the costs of two periods, for example last month and the month before, and return " +
+            "only the top movers: the groups whose cost changed the most, and the ones which changed the most " +
+            "relative to the first period. Prefer it to two calls of the cost tools.")
+    public String compareCostPeriods(
+            @ToolArg(description = "Start date of the first period in format of yyyy-MM-dd") String baseStartDate,
+            @ToolArg(description = "End date of the first period in format of yyyy-MM-dd") String baseEndDate,
+            @ToolArg(description = "Start date of the second period in format of yyyy-MM-dd") String comparedStartDate,
+            @ToolArg(description = "End date of the second period in format of yyyy-MM-dd") String comparedEndDate,
+            @ToolArg(description = "AWS regions where the costs should be compared. In case we want to compare the costs for resources in all regions, we should provide an empty list.") List<String> regions,
+            @ToolArg(description = "Groups to compare: SERVICE+OPERATION (default), LINKED_ACCOUNT+SERVICE or " +
+                    "SERVICE+RECORD_TYPE, the last one comparing discounts.", required = false) String groupBy,
+            @ToolArg(description = "Number of top movers returned by each ranking. Defaults to 10.", required = false) Integer limit,
+            @ToolArg(description = FORMAT_DESCRIPTION, required = false) String format
+    ) {
         try {
-            UsageReport usageReport = new UsageReport(usagePerLinkedAccountAndServices, totalCostPerCurrency);
-            return usageReport.generate();
-        } catch (CsvRequiredFieldEmptyException | CsvDataTypeMismatchException e) {
-            this.logger.error(e);
-            throw new ToolCallException("Error generating report:" + e.getMessage());
+            Utils.validateStartEndEndDate(baseStartDate, baseEndDate);
+        } catch (ToolCallException e) {
+            throw new ToolCallException("First period: " + e.getMessage());
         }
+        try {
+            Utils.validateStartEndEndDate(comparedStartDate, comparedEndDate);
+        } catch (ToolCallException e) {
+            throw new ToolCallException("Second period: " + e.getMessage());
+        }
+        Utils.validateLimit(limit);
+        ReportFormat reportFormat = Utils.parseFormat(format, formatConfig.defaultFormat());
+        CostDataset dataset = comparedDataset(groupBy);
+        // Checked over the span of both periods, a region may only have costs in one of them
+        List<String> validRegions = regions(regions,
+                baseStartDate.compareTo(comparedStartDate) <= 0 ? baseStartDate : comparedStartDate,
+                baseEndDate.compareTo(comparedEndDate) >= 0 ? baseEndDate : comparedEndDate);
+
+        // Fetched as one batch, so periods sharing months fetch them once and the cached slices are reused
+        List<BatchOutcome> outcomes = handleErrors(() -> queryBatch.execute(List.of(
+                dataset.query(baseStartDate, baseEndDate, validRegions),
+                dataset.query(comparedStartDate, comparedEndDate, validRegions))));
+        PeriodComparison comparison = handleErrors(() -> PeriodComparison.join(
+                outcomes.get(0).aggregationOrThrow(), outcomes.get(1).aggregationOrThrow()));
+
+        List<String> columns = new ArrayList<>();
+        dataset.groupBy().forEach(groupDefinition -> columns.add(groupDefinition.key()));
+        columns.addAll(List.of("CURRENCY", "BASE", "COMPARED", "CHANGE", "RELATIVE CHANGE"));
+        List<String> sharedColumns = List.copyOf(columns);
+
+        int movers = limit == null ? comparisonConfig.defaultLimit() : limit;
+        ComparisonReport comparisonReport = new ComparisonReport(
+                changeRows(sharedColumns, comparison.topByChange(movers)),
+                changeRows(sharedColumns, comparison.topByRelativeChange(movers, comparisonConfig.minRelativeBase())),
+                baseStartDate + " - " + baseEndDate, comparison.baseTotalPerCurrency(),
+                comparedStartDate + " - " + comparedEndDate, comparison.comparedTotalPerCurrency(),
+                comparison.freshness().describe(clock));
+        return reportPager.firstChunk(comparisonReport, reportFormat);
     }
 
-    @Tool(description = "Return all the discounts by services and operations in all the regions for a given period.")
-    public String getDiscounts(
-            @ToolArg(description = "Start date in format of yyyy-MM-dd") String startDate,
-            @ToolArg(description = "End date in format of yyyy-MM-dd") String endDate,
-            @ToolArg(description = "AWS regions where the discounts should be retrieved. In case we want to get the " +
-                    "discounts for resources in all regions, we should provide an empty list.") List<String> regions
+    @RunOnVirtualThread
+    @Tool(description = "Find the services whose daily cost of the last days deviates from their usual cost for that " +
+            "weekday, spikes as well as drops. Services which started having costs are reported as new, with an " +
+            "infinite score. Scored from locally kept daily statistics, a check fetches at most the days since the " +
+            "previous one.")
+    public String detectCostAnomalies(
+            @ToolArg(description = "Number of past days to check. Defaults to 7.", required = false) Integer lookbackDays,
+            @ToolArg(description = "Deviation from the usual cost, in standard deviations, from which a day is " +
+                    "reported. Defaults to 3.", required = false) Double threshold,
+            @ToolArg(description = "Maximum number of anomalies to return, the strongest first. All the anomalies " +
+                    "are returned when omitted.", required = false) Integer limit,
+            @ToolArg(description = FORMAT_DESCRIPTION, required = false) String format
     ) {
-        Utils.validateStartEndEndDate(startDate, endDate);
+        Utils.validateLimit(limit);
+        ReportFormat reportFormat = Utils.parseFormat(format, formatConfig.defaultFormat());
+        if (!anomalyDetector.isEnabled()) {
+            throw new ToolCallException("Anomaly detection is disabled on this server");
+        }
+        int days = lookbackDays == null ? 7 : lookbackDays;
+        if (days < 1 || days > anomalyDetector.maxLookbackDays()) {
+            throw new ToolCallException("Invalid lookback: " + lookbackDays + ", it should be between 1 and " +
+                    anomalyDetector.maxLookbackDays() + " days");
+        }
+        if (threshold != null && !(threshold > 0)) {
+            throw new ToolCallException("Invalid threshold: " + threshold + ", it should be positive");
+        }
 
-        List<Expression> filterExpressionList = new ArrayList<>();
+        AnomalyScan scan = handleErrors(() -> anomalyDetector.detect(days,
+                threshold == null ? anomalyDetector.defaultThreshold() : threshold));
+
+        List<CostAnomaly> anomalies = limit == null ? scan.anomalies()
+                : scan.anomalies().subList(0, Math.min(limit, scan.anomalies().size()));
+        List<CostAnomalyRow> rows = new ArrayList<>(anomalies.size());
+        for (CostAnomaly anomaly : anomalies) {
+            // New services have an infinite score, which is kept as is
+            double score = Double.isFinite(anomaly.score()) ? Math.round(anomaly.score() * 10) / 10.0 : anomaly.score();
+            rows.add(new CostAnomalyRow(anomaly.day().toString(), anomaly.serviceName(), anomaly.currency(),
+                    anomaly.value(), anomaly.expected(), anomaly.impact(), score));
+        }
+
+        String summary = scan.anomalies().size() + " anomalies in the last " + days + " days of " + scan.series() +
+                " daily service cost series, learned until " + scan.learnedUntil();
+        AnomalyReport anomalyReport = new AnomalyReport(rows, summary,
+                DataFreshness.api(scan.refreshedAt()).describe(clock));
+        return reportPager.firstChunk(anomalyReport, reportFormat);
+    }
 
-        if (!regions.isEmpty()) {
-            filterExpressionList.add(Expression.builder()
-                    .dimensions(DimensionValues.builder()
-                            .key(Dimension.REGION)
-                            .values(regions)
-                            .build())
-                    .build());
+    @RunOnVirtualThread
+    @Tool(description = "List the values of a dimension which had costs in the last months, for example the exact " +
+            "names of the services or the regions to pass to the other tools. Answered from a local index, without " +
+            "querying costs.")
+    public String listDimensionValues(
+            @ToolArg(description = "The dimension: REGION, SERVICE, LINKED_ACCOUNT, RECORD_TYPE or OPERATION") String dimension,
+            @ToolArg(description = "Only return the values starting with this prefix, ignoring case. Values close " +
+                    "to it are returned when none starts with it.", required = false) String prefix,
+            @ToolArg(description = "Maximum number of values to return. Defaults to 100.", required = false) Integer limit
+    ) {
+        Utils.validateLimit(limit);
+        Dimension indexedDimension = Utils.parseIndexedDimension(dimension);
+        if (!dimensionIndex.isEnabled()) {
+            throw new ToolCallException("The dimension index is disabled on this server");
         }
 
-        filterExpressionList.add(discountsFilter);
+        DimensionValueSet valueSet = handleErrors(() -> dimensionIndex.values(indexedDimension));
+        int maxValues = limit == null ? 100 : limit;
+        String valuePrefix = prefix == null ? "" : prefix.trim();
+        List<String> values = valueSet.withPrefix(valuePrefix, maxValues);
+        boolean closest = values.isEmpty() && !valuePrefix.isEmpty();
+        if (closest) {
+            values = valueSet.closest(valuePrefix, maxValues);
+        }
 
-        Expression filterExpression = null;
+        StringBuilder list = new StringBuilder();
+        list.append(valueSet.size()).append(" values of ").append(indexedDimension).append(" with costs between ")
+                .append(valueSet.from()).append(" and ").append(valueSet.until()).append(", indexed at ")
+                .append(valueSet.loadedAt().truncatedTo(ChronoUnit.SECONDS)).append('\n');
+        if (closest) {
+            list.append("No value starts with \"").append(valuePrefix).append("\", the closest ones:\n");
+        } else if (!valuePrefix.isEmpty()) {
+            list.append("Values starting with \"").append(valuePrefix).append("\":\n");
+        }
+        values.forEach(value -> list.append(value).append('\n'));
+        return list.toString();
+    }
 
-        if (filterExpressionList.size() == 1) {
-            filterExpression = filterExpressionList.getFirst();
+    @Tool(description = "Return the next rows of a cost or discount report which did not fit in one response, in the " +
+            "format of the report. Only valid with a cursor returned by one of the cost tools or by this tool.")
+    public String fetchMoreRows(
+            @ToolArg(description = "Cursor printed after the previous rows") String cursor
+    ) {
+        return reportPager.nextChunk(cursor)
+                .orElseThrow(() -> new ToolCallException("Unknown or expired cursor: " + cursor + ". Call the cost " +
+                        "tool again to get a new one."));
+    }
+
+    private <T extends Usage> QueryResult<? extends Usage> execute(CostQuery query, RowMapper<T> rowMapper,
+                                                                   Integer limit, List<String> accounts) {
+        int rowLimit = limit == null ? 0 : limit;
+        if (accounts == null || accounts.isEmpty()) {
+            return handleErrors(() -> queryEngine.execute(query, rowMapper, rowLimit));
         }
+        return handleErrors(() -> accountPool.execute(accounts, query, rowMapper, rowLimit));
+    }
+
+    private List<String> regions(List<String> regions, String startDate, String endDate) {
+        return regions(regions, startDate, endDate, List.of());
+    }
+
+    private List<String> regions(List<String> regions, String startDate, String endDate, List<String> accounts) {
+        return Utils.resolveValues(dimensionIndex, Dimension.REGION, regions, startDate, endDate, accounts);
+    }
+
+    private static CostDataset comparedDataset(String groupBy) {
+        String keys = groupBy == null || groupBy.isBlank() ? "SERVICE+OPERATION" : groupBy.trim();
+        return switch (keys.toUpperCase(Locale.ROOT).replace(" ", "")) {
+            case "SERVICE+OPERATION" -> CostDataset.USAGE_PER_SERVICE_AND_OPERATION;
+            case "LINKED_ACCOUNT+SERVICE" -> CostDataset.USAGE_PER_LINKED_ACCOUNT_AND_SERVICE;
+            case "SERVICE+RECORD_TYPE" -> CostDataset.DISCOUNTS_PER_SERVICE_AND_TYPE;
+            default -> throw new ToolCallException("Invalid group by: " + groupBy + ", it should be one of " +
+                    "SERVICE+OPERATION, LINKED_ACCOUNT+SERVICE or SERVICE+RECORD_TYPE");
+        };
+    }
 
-        if (filterExpressionList.size() > 1) {
-            filterExpression = Expression.builder().and(filterExpressionList).build();
+    private static List<CostChangeRow> changeRows(List<String> columns, List<CostChange> changes) {
+        List<CostChangeRow> rows = new ArrayList<>(changes.size());
+        for (CostChange change : changes) {
+            double relativeChange = change.relativeChange();
+            rows.add(new CostChangeRow(columns, change.keys(), change.currency(), change.baseValue(),
+                    change.comparedValue(), change.change(), Double.isNaN(relativeChange)
+                    ? "new"
+                    : String.format(Locale.ROOT, "%+.1f%%", relativeChange * 100)));
         }
+        return rows;
+    }
 
-        List<Discount> discounts = new ArrayList<>();
-
-        Map<String, Double> totalDiscountPerCurrency = new HashMap<>();
-
-        String nextPageToken = null;
-
-        do {
-            GetCostAndUsageRequest request = GetCostAndUsageRequest.builder()
-                    .timePeriod(DateInterval.builder()
-                            .start(startDate)
-                            .end(endDate)
-                            .build())
-                    .granularity(Granularity.MONTHLY)
-                    .metrics(List.of("UnblendedCost"))
-                    .filter(filterExpression)
-                    .groupBy(GroupDefinition.builder()
-                                    .type(GroupDefinitionType.DIMENSION)
-                                    .key("SERVICE")
-                                    .build(),
-                            GroupDefinition.builder()
-                                    .type(GroupDefinitionType.DIMENSION)
-                                    .key("RECORD_TYPE")
-                                    .build()
-                    )
-                    .nextPageToken(nextPageToken)
-                    .build();
+    private static CostDataset dataset(String tool) {
+        return switch (tool == null ? "" : tool.trim()) {
+            case "getCostPerServiceAndOperation" -> CostDataset.USAGE_PER_SERVICE_AND_OPERATION;
+            case "getCostPerLinkedAccount" -> CostDataset.USAGE_PER_LINKED_ACCOUNT_AND_SERVICE;
+            case "getDiscounts" -> CostDataset.DISCOUNTS_PER_SERVICE_AND_TYPE;
+            default -> throw new ToolCallException("Invalid tool: " + tool + ", it should be one of " +
+                    "getCostPerServiceAndOperation, getCostPerLinkedAccount or getDiscounts");
+        };
+    }
 
-            try {
-                GetCostAndUsageResponse response = costExplorerClient.getCostAndUsage(request);
-
-                for (ResultByTime result : response.resultsByTime()) {
-                    for (Group group : result.groups()) {
-                        double discount = Double.parseDouble(group.metrics().get("UnblendedCost").amount());
-
-                        String serviceName = group.keys().getFirst();
-                        String discountType = group.keys().getLast();
-                        String currency = group.metrics().get("UnblendedCost").unit();
-                        discounts.add(new Discount.Builder()
-                                .serviceName(serviceName)
-                                .discountType(discountType)
-                                .currency(currency).value(discount)
-                                .build());
-                        totalDiscountPerCurrency.compute(currency, (key, value) ->
-                                value == null ? 0 : value + discount);
-                    }
-                }
-                nextPageToken = response.nextPageToken();
-            } catch (CostExplorerException e) {
-                this.logger.error(e);
-                throw new ToolCallException("AWS API error: " + e.getMessage());
+    private Report report(CostQuerySpec spec, BatchOutcome outcome) {
+        int limit = spec.limit() == null ? 0 : spec.limit();
+        return switch (dataset(spec.tool())) {
+            case USAGE_PER_SERVICE_AND_OPERATION -> {
+                QueryResult<UsagePerServiceAndOperation> result = handleErrors(() ->
+                        outcome.result(USAGE_PER_SERVICE_AND_OPERATION, limit));
+                yield new UsageReport<>(result.rows(), result.totalPerCurrency(), result.freshness().describe(clock));
+            }
+            case USAGE_PER_LINKED_ACCOUNT_AND_SERVICE -> {
+                QueryResult<UsagePerLinkedAccountAndService> result = handleErrors(() ->
+                        outcome.result(USAGE_PER_LINKED_ACCOUNT_AND_SERVICE, limit));
+                yield new UsageReport<>(result.rows(), result.totalPerCurrency(), result.freshness().describe(clock));
+            }
+            case DISCOUNTS_PER_SERVICE_AND_TYPE -> {
+                QueryResult<Discount> result = handleErrors(() -> outcome.result(DISCOUNT, limit));
+                yield new DiscountReport(result.rows(), result.totalPerCurrency(), result.freshness().describe(clock));
             }
-        } while (nextPageToken != null);
+        };
+    }
 
-        discounts.sort((a, b) -> Double.compare(b.value(), a.value()));
+    private static String period(Granularity granularity) {
+        return switch (granularity) {
+            case HOURLY -> "hour";
+            case DAILY -> "day";
+            default -> "month";
+        };
+    }
 
+    private <T> T handleErrors(Supplier<T> query) {
         try {
-            DiscountReport discountReport = new DiscountReport(discounts, totalDiscountPerCurrency);
-            return discountReport.generate();
-        } catch (CsvRequiredFieldEmptyException | CsvDataTypeMismatchException e) {
+            return query.get();
+        } catch (CostExplorerException e) {
             this.logger.error(e);
-            throw new ToolCallException("Could not create report!", e);
+            throw new ToolCallException("AWS API error: " + e.getMessage());
+        } catch (BudgetExceededException e) {
+            this.logger.warn(e.getMessage());
+            throw new ToolCallException(e.getMessage() + ". Try again later or with a period which was queried "
+                    + "before.");
         }
     }
 }
@@ -0,0 +1,7 @@
+import java.util.List;
+
+/**
+ * One query of a runCostQueries call: the name of the cost tool answering it and that tool's arguments.
+ */
+public record CostQuerySpec(String tool, String startDate, String endDate, List<String> regions, Integer limit) {
+}
@@ -0,0 +1,171 @@
+import cache.CacheStats;
+import cache.ResponseCache;
+import io.quarkiverse.mcp.server.Tool;
+import io.quarkus.qute.Qute;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import metrics.Histogram;
+import metrics.ServerMetrics;
+import query.OpenPeriodResults;
+import query.PlannerStats;
+import query.QueryPlanner;
+import query.RevalidationStats;
+import ratelimit.AdaptiveRateLimiter;
+import ratelimit.ApiBudget;
+import ratelimit.ApiUsageStats;
+import snapshot.SnapshotStats;
+import snapshot.SnapshotStore;
+
+@ApplicationScoped
+public class ServerTools {
+    private final ResponseCache responseCache;
+    private final ApiBudget apiBudget;
+    private final AdaptiveRateLimiter rateLimiter;
+    private final QueryPlanner queryPlanner;
+    private final ServerMetrics serverMetrics;
+    private final SnapshotStore snapshotStore;
+    private final OpenPeriodResults openPeriodResults;
+
+    @Inject
+    public ServerTools(ResponseCache responseCache, ApiBudget apiBudget, AdaptiveRateLimiter rateLimiter,
+                       QueryPlanner queryPlanner, ServerMetrics serverMetrics, SnapshotStore snapshotStore,
+                       OpenPeriodResults openPeriodResults) {
+        this.responseCache = responseCache;
+        this.apiBudget = apiBudget;
+        this.rateLimiter = rateLimiter;
+        this.queryPlanner = queryPlanner;
+        this.serverMetrics = serverMetrics;
+        this.snapshotStore = snapshotStore;
+        this.openPeriodResults = openPeriodResults;
+    }
+
+    @Tool(description = "Return the statistics of the Cost Explorer response cache, of the query planner, of the " +
+            "current month results served while refreshed and of the result snapshots kept for fetchMoreRows, " +
+            "including the estimated API spend saved by cache hits and region rollups.")
+    public String getCacheStatistics() {
+        CacheStats stats = responseCache.stats();
+        PlannerStats plannerStats = queryPlanner.stats();
+        SnapshotStats snapshotStats = snapshotStore.stats();
+        RevalidationStats revalidationStats = openPeriodResults.stats();
+
+        return Qute.fmt(
+                        """
+                                Cache hits (memory): {memoryHits}
+                                Cache hits (disk): {diskHits}
+                                Cache misses: {misses}
+                                Hit ratio: {hitRatio}
+                                Entries in memory: {memoryEntries}
+                                Estimated API spend saved: {savings} USD
+                                Queries planned: {plans}
+                                Queries answered by region rollup: {rollupPlans}
+                                Slices rolled up from cached regions: {rolledUpSlices} (partially: {partialSlices})
+                                Estimated API spend saved by rollups: {rollupSavings} USD
+                                Current month results: {openResults} (fresh hits: {freshHits}, stale hits: {staleHits}, expired: {expiredResults})
+                                Background refreshes: {refreshes} (failed: {failedRefreshes})
+                                Result snapshots: {snapshots} ({snapshotMemory} MB of {snapshotMaxMemory} MB)
+                                Result snapshots stored: {snapshotsStored} (too large: {snapshotsRejected})
+                                Chunks served by fetchMoreRows: {chunksServed}
+                                Snapshots expired: {snapshotsExpired}, evicted: {snapshotsEvicted}, unknown cursors: {unknownCursors}
+                                """)
+                .data("memoryHits", stats.memoryHits())
+                .data("diskHits", stats.diskHits())
+                .data("misses", stats.misses())
+                .data("hitRatio", String.format("%.2f", stats.hitRatio()))
+                .data("memoryEntries", stats.memoryEntries())
+                .data("savings", String.format("%.2f", stats.estimatedSavings()))
+                .data("plans", plannerStats.plans())
+                .data("rollupPlans", plannerStats.rollupPlans())
+                .data("rolledUpSlices", plannerStats.rolledUpSlices())
+                .data("partialSlices", plannerStats.partiallyRolledUpSlices())
+                .data("rollupSavings", String.format("%.2f", plannerStats.estimatedSavings()))
+                .data("openResults", revalidationStats.entries())
+                .data("freshHits", revalidationStats.freshHits())
+                .data("staleHits", revalidationStats.staleHits())
+                .data("expiredResults", revalidationStats.expired())
+                .data("refreshes", revalidationStats.refreshes())
+                .data("failedRefreshes", revalidationStats.failedRefreshes())
+                .data("snapshots", snapshotStats.snapshots())
+                .data("snapshotMemory", String.format("%.1f", snapshotStats.estimatedMegabytes()))
+                .data("snapshotMaxMemory", String.format("%.0f", snapshotStats.maxMegabytes()))
+                .data("snapshotsStored", snapshotStats.stored())
+                .data("snapshotsRejected", snapshotStats.rejected())
+                .data("chunksServed", snapshotStats.chunksServed())
+                .data("snapshotsExpired", snapshotStats.expired())
+                .data("snapshotsEvicted", snapshotStats.evicted())
+                .data("unknownCursors", snapshotStats.unknownCursors())
+                .render();
+    }
+
+    @Tool(description = "Return the number of requests sent to the Cost Explorer API, their estimated cost and the " +
+            "throttling observed by the rate limiter.")
+    public String getApiUsage() {
+        ApiUsageStats stats = ApiUsageStats.of(apiBudget, rateLimiter);
+
+        return Qute.fmt(
+                        """
+                                Requests sent: {requests}
+                                Requests this hour: {requestsThisHour}
+                                Requests today: {requestsToday}
+                                Requests rejected by the budget: {rejected}
+                                Throttled requests: {throttled}
+                                Retries: {retries}
+                                Current rate limit: {rate} requests per second
+                                Estimated API spend: {spend} USD (today: {spendToday} USD)
+                                """)
+                .data("requests", stats.requests())
+                .data("requestsThisHour", stats.requestsThisHour())
+                .data("requestsToday", stats.requestsToday())
+                .data("rejected", stats.rejected())
+                .data("throttled", stats.throttled())
+                .data("retries", stats.retries())
+                .data("rate", String.format("%.2f", stats.currentRequestsPerSecond()))
+                .data("spend", String.format("%.2f", stats.estimatedSpend()))
+                .data("spendToday", String.format("%.2f", stats.estimatedSpendToday()))
+                .render();
+    }
+
+    @Tool(description = "Return the metrics of the server since its start: the latency, errors and output size of " +
+            "every tool, the latency of the Cost Explorer requests, the pages and rows read per query and the " +
+            "throttling retries.")
+    public String getServerMetrics() {
+        StringBuilder tools = new StringBuilder();
+        serverMetrics.tools().forEach((name, tool) -> tools.append(String.format(
+                "%s: %d calls, %d errors, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms, " +
+                        "average output %.0f bytes%n",
+                name, tool.latencyNanos().count(), tool.errors(),
+                ServerMetrics.millis(tool.latencyNanos().percentile(0.50)),
+                ServerMetrics.millis(tool.latencyNanos().percentile(0.90)),
+                ServerMetrics.millis(tool.latencyNanos().percentile(0.99)),
+                ServerMetrics.millis(tool.latencyNanos().max()),
+                tool.outputBytes().mean())));
+        Histogram awsCalls = serverMetrics.awsCallNanos();
+
+        return Qute.fmt(
+                        """
+                                Tool calls:
+                                {tools}
+                                Cost Explorer requests: {awsCalls} ({awsErrors} failed)
+                                Cost Explorer latency: p50 {awsP50} ms, p99 {awsP99} ms, max {awsMax} ms
+                                Throttled requests: {throttled}
+                                Retries: {retries}
+                                Queries sent to the API: {queries}
+                                Pages per query: p50 {pagesP50}, max {pagesMax}
+                                Rows aggregated: {rows}
+                                Groups after aggregation: {groups}
+                                """)
+                .data("tools", tools.isEmpty() ? "none\n" : tools.toString())
+                .data("awsCalls", awsCalls.count())
+                .data("awsErrors", serverMetrics.awsErrors())
+                .data("awsP50", String.format("%.1f", ServerMetrics.millis(awsCalls.percentile(0.50))))
+                .data("awsP99", String.format("%.1f", ServerMetrics.millis(awsCalls.percentile(0.99))))
+                .data("awsMax", String.format("%.1f", ServerMetrics.millis(awsCalls.max())))
+                .data("throttled", rateLimiter.throttled())
+                .data("retries", rateLimiter.retries())
+                .data("queries", serverMetrics.pagesPerQuery().count())
+                .data("pagesP50", serverMetrics.pagesPerQuery().percentile(0.50))
+                .data("pagesMax", serverMetrics.pagesPerQuery().max())
+                .data("rows", serverMetrics.rowsPerQuery().sum())
+                .data("groups", serverMetrics.groups())
+                .render();
+    }
+}
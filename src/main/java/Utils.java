@@ -1,10 +1,26 @@
+import data.ReportFormat;
+import dimension.DimensionIndex;
+import dimension.DimensionValueSet;
 import io.quarkiverse.mcp.server.ToolCallException;
+import software.amazon.awssdk.services.costexplorer.model.Dimension;
+import software.amazon.awssdk.services.costexplorer.model.Granularity;
+import software.amazon.awssdk.services.costexplorer.model.GroupDefinitionType;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 
 public interface Utils {
+    List<String> GROUP_BY_DIMENSIONS = List.of("SERVICE", "LINKED_ACCOUNT", "REGION", "USAGE_TYPE", "OPERATION",
+            "INSTANCE_TYPE", "RECORD_TYPE", "PURCHASE_TYPE", "AZ");
+    // Cost Explorer keeps hourly data for the last 14 days only
+    int MAX_HOURLY_DAYS = 14;
+
     static boolean isValidDate(String date) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         try {
@@ -21,7 +37,132 @@ public interface Utils {
         }
 
         if (!Utils.isValidDate(endDate)) {
-            throw new ToolCallException("Invalid start date: " + startDate);
+            throw new ToolCallException("Invalid end date: " + endDate);
+        }
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        if (!LocalDate.parse(startDate, formatter).isBefore(LocalDate.parse(endDate, formatter))) {
+            throw new ToolCallException("Invalid period: " + startDate + " - " + endDate +
+                    ", the start date should be before the end date");
+        }
+    }
+
+    static void validateLimit(Integer limit) throws ToolCallException {
+        if (limit != null && limit < 1) {
+            throw new ToolCallException("Invalid limit: " + limit + ", it should be at least 1");
+        }
+    }
+
+    static ReportFormat parseFormat(String format, ReportFormat defaultFormat) throws ToolCallException {
+        if (format == null || format.isBlank()) {
+            return defaultFormat;
+        }
+
+        return ReportFormat.parse(format.trim())
+                .orElseThrow(() -> new ToolCallException("Invalid format: " + format + ", it should be one of csv, " +
+                        "jsonl or compact"));
+    }
+
+    static Granularity parseGranularity(String granularity, Granularity defaultGranularity) throws ToolCallException {
+        if (granularity == null || granularity.isBlank()) {
+            return defaultGranularity;
         }
+
+        return switch (granularity.trim().toUpperCase(Locale.ROOT)) {
+            case "MONTHLY" -> Granularity.MONTHLY;
+            case "DAILY" -> Granularity.DAILY;
+            case "HOURLY" -> Granularity.HOURLY;
+            default -> throw new ToolCallException("Invalid granularity: " + granularity + ", it should be one of " +
+                    "monthly, daily or hourly");
+        };
+    }
+
+    static void validateHourlyPeriod(String startDate, String endDate, Granularity granularity)
+            throws ToolCallException {
+        if (granularity == Granularity.HOURLY
+                && ChronoUnit.DAYS.between(LocalDate.parse(startDate), LocalDate.parse(endDate)) > MAX_HOURLY_DAYS) {
+            throw new ToolCallException("Hourly costs cover at most " + MAX_HOURLY_DAYS + " days, ask for a " +
+                    "shorter period or for daily costs");
+        }
+    }
+
+    static String parseGroupBy(String groupBy) throws ToolCallException {
+        if (groupBy == null || groupBy.isBlank()) {
+            return "SERVICE";
+        }
+
+        String dimension = groupBy.trim().toUpperCase(Locale.ROOT);
+        if (!GROUP_BY_DIMENSIONS.contains(dimension)) {
+            throw new ToolCallException("Invalid group by: " + groupBy + ", it should be one of " +
+                    String.join(", ", GROUP_BY_DIMENSIONS));
+        }
+        return dimension;
+    }
+
+    /**
+     * Check the values against the dimension index, correcting the ones which only differ in case. Values are not
+     * checked while the dimension is not indexed. Unknown values are only rejected when the period lies within the
+     * indexed months and the query runs in the account of the server, the only one indexed. Otherwise they may have
+     * costs the index does not know about and are passed through.
+     */
+    static List<String> resolveValues(DimensionIndex dimensionIndex, Dimension dimension, List<String> values,
+                                      String startDate, String endDate, List<String> accounts)
+            throws ToolCallException {
+        Optional<DimensionValueSet> indexed = dimensionIndex.loaded(dimension);
+        if (values == null || indexed.isEmpty()) {
+            return values;
+        }
+
+        DimensionValueSet valueSet = indexed.get();
+        boolean covered = (accounts == null || accounts.isEmpty())
+                && valueSet.covers(LocalDate.parse(startDate), LocalDate.parse(endDate));
+        List<String> resolved = new ArrayList<>(values.size());
+        for (String value : values) {
+            if (valueSet.contains(value)) {
+                resolved.add(value);
+                continue;
+            }
+
+            Optional<String> sameIgnoringCase = valueSet.ignoringCase(value.trim());
+            if (sameIgnoringCase.isPresent()) {
+                resolved.add(sameIgnoringCase.get());
+                continue;
+            }
+
+            if (!covered) {
+                resolved.add(value);
+                continue;
+            }
+
+            List<String> suggestions = valueSet.closest(value.trim(), dimensionIndex.maxSuggestions());
+            throw new ToolCallException("Unknown " + dimension + " value: " + value + ", it has no costs between " +
+                    valueSet.from() + " and " + valueSet.until() + (suggestions.isEmpty() ? "" : ". Did you mean " +
+                    String.join(", ", suggestions) + "?"));
+        }
+        return resolved;
+    }
+
+    static Dimension parseIndexedDimension(String dimension) throws ToolCallException {
+        String name = dimension == null ? "" : dimension.trim().toUpperCase(Locale.ROOT);
+        for (Dimension indexed : DimensionIndex.DIMENSIONS) {
+            if (indexed.toString().equals(name)) {
+                return indexed;
+            }
+        }
+        throw new ToolCallException("Invalid dimension: " + dimension + ", it should be one of " +
+                String.join(", ", DimensionIndex.DIMENSIONS.stream().map(Dimension::toString).toList()));
+    }
+
+    static GroupDefinitionType parseGroupType(String groupType) throws ToolCallException {
+        if (groupType == null || groupType.isBlank()) {
+            return GroupDefinitionType.TAG;
+        }
+
+        return switch (groupType.trim().toUpperCase(Locale.ROOT)) {
+            case "TAG" -> GroupDefinitionType.TAG;
+            case "COST_CATEGORY" -> GroupDefinitionType.COST_CATEGORY;
+            default -> throw new ToolCallException("Invalid group type: " + groupType + ", it should be TAG or " +
+                    "COST_CATEGORY");
+        };
     }
 }
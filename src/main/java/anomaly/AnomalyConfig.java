@@ -0,0 +1,42 @@
+package anomaly;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "cost-explorer.anomaly")
+public interface AnomalyConfig {
+    @WithDefault("true")
+    boolean enabled();
+
+    @WithDefault("${user.home}/.mcp-aws-cost-explorer/anomaly")
+    String directory();
+
+    @WithDefault("91")
+    int historyDays();
+
+    @WithDefault("28")
+    int smoothingDays();
+
+    @WithDefault("14")
+    int warmupDays();
+
+    @WithDefault("3")
+    int restatementDays();
+
+    @WithDefault("14")
+    int recentDays();
+
+    @WithDefault("3.0")
+    double threshold();
+
+    @WithDefault("2.0")
+    double partialDayThresholdFactor();
+
+    @WithDefault("1.0")
+    double minImpact();
+
+    @WithDefault("PT1H")
+    Duration minRefreshInterval();
+}
@@ -0,0 +1,279 @@
+package anomaly;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import query.CostAndUsageFetcher;
+import query.CostDataset;
+import query.CostQuery;
+import query.FetchedPages;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.Granularity;
+import software.amazon.awssdk.services.costexplorer.model.Group;
+import software.amazon.awssdk.services.costexplorer.model.MetricValue;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps a {@link DailySeries} per service and currency, learned from DAILY costs grouped by service. The first refresh
+ * fetches {@link AnomalyConfig#historyDays()} days, every later one only the days since the last learned day: the
+ * restated days and the new ones, which is usually a single page. Days older than
+ * {@link AnomalyConfig#restatementDays()} are learned once and never read again, the restated ones are only scored.
+ * The statistics are persisted, so a restart does not fetch the history again.
+ */
+@ApplicationScoped
+public class AnomalyDetector {
+    private static final int MAGIC = 0x414e4d31;
+
+    Logger logger = Logger.getLogger(AnomalyDetector.class);
+
+    private final CostAndUsageFetcher costAndUsageFetcher;
+    private final AnomalyConfig config;
+    private final Path file;
+    private final Clock clock;
+    private final Map<SeriesKey, DailySeries> series = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Days from learnedUntil on, fetched by the last refresh but not learned yet
+    private Map<SeriesKey, double[]> restated = Map.of();
+    private LocalDate learnedUntil;
+    private Instant refreshedAt;
+
+    private record SeriesKey(String serviceName, String currency) {
+    }
+
+    @Inject
+    public AnomalyDetector(CostAndUsageFetcher costAndUsageFetcher, AnomalyConfig config) {
+        this(costAndUsageFetcher, config, Clock.systemUTC());
+    }
+
+    public AnomalyDetector(CostAndUsageFetcher costAndUsageFetcher, AnomalyConfig config, Clock clock) {
+        this.costAndUsageFetcher = costAndUsageFetcher;
+        this.config = config;
+        this.clock = clock;
+        this.file = Path.of(config.directory()).resolve("daily-series.bin");
+
+        if (config.enabled()) {
+            load();
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (config.enabled()) {
+            Thread.ofVirtual().name("anomaly-refresh").start(() -> {
+                try {
+                    refresh();
+                } catch (RuntimeException e) {
+                    logger.warnf(e, "Could not refresh the daily cost series");
+                }
+            });
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.enabled();
+    }
+
+    /**
+     * Longest lookback of a check, the number of scored days kept per series.
+     */
+    public int maxLookbackDays() {
+        return config.recentDays();
+    }
+
+    public double defaultThreshold() {
+        return config.threshold();
+    }
+
+    /**
+     * Refresh the series unless they were refreshed less than {@link AnomalyConfig#minRefreshInterval()} ago, then
+     * report the days of the last {@code lookbackDays} days whose score reaches the threshold.
+     */
+    public AnomalyScan detect(int lookbackDays, double threshold) {
+        lock.lock();
+        try {
+            refresh();
+
+            LocalDate from = LocalDate.now(clock).minusDays(lookbackDays);
+            List<CostAnomaly> anomalies = new ArrayList<>();
+            series.forEach((key, dailySeries) -> dailySeries.anomalies(key.serviceName(), key.currency(), from,
+                    threshold, config.minImpact(), anomalies));
+            restated.forEach((key, values) -> scoreRestated(key, values, from, threshold, anomalies));
+
+            anomalies.sort(Comparator.comparingDouble((CostAnomaly anomaly) -> Math.abs(anomaly.score())).reversed());
+            return new AnomalyScan(anomalies, series.size(), learnedUntil, refreshedAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void scoreRestated(SeriesKey key, double[] values, LocalDate from, double threshold,
+                               List<CostAnomaly> anomalies) {
+        DailySeries dailySeries = series.get(key);
+        for (int i = 0; i < values.length; i++) {
+            LocalDate day = learnedUntil.plusDays(i);
+            if (day.isBefore(from) || dailySeries == null && values[i] == 0) {
+                continue;
+            }
+            if (dailySeries == null) {
+                // No costs on the learned days, the first day with costs within the lookback is new
+                double score = DailySeries.newSeriesScore(values[i]);
+                if (DailySeries.isAnomaly(score, values[i], threshold, config.minImpact())) {
+                    anomalies.add(new CostAnomaly(key.serviceName(), key.currency(), day, values[i], 0, score));
+                }
+                return;
+            }
+
+            // The most recent day is still incomplete
+            double dayThreshold = i == values.length - 1 ? threshold * config.partialDayThresholdFactor() : threshold;
+            double score = dailySeries.score(day, values[i], config.warmupDays());
+            double expected = dailySeries.expected(day);
+            if (DailySeries.isAnomaly(score, values[i] - expected, dayThreshold, config.minImpact())) {
+                anomalies.add(new CostAnomaly(key.serviceName(), key.currency(), day, values[i], expected, score));
+            }
+        }
+    }
+
+    /**
+     * Fetch the days since the last learned one and learn the ones which are not restated anymore.
+     */
+    public void refresh() {
+        lock.lock();
+        try {
+            LocalDate today = LocalDate.now(clock);
+            if (refreshedAt != null && !refreshedAt.plus(config.minRefreshInterval()).isBefore(clock.instant())
+                    && !today.isAfter(learnedUntil.plusDays(config.restatementDays()))) {
+                return;
+            }
+
+            LocalDate from = learnedUntil == null ? today.minusDays(config.historyDays()) : learnedUntil;
+            if (!from.isBefore(today)) {
+                learnedUntil = from;
+                refreshedAt = clock.instant();
+                return;
+            }
+            int days = (int) ChronoUnit.DAYS.between(from, today);
+            FetchedPages pages = new FetchedPages();
+            Map<SeriesKey, double[]> fetched = fetch(from, today, days, pages);
+
+            LocalDate restatedFrom = today.minusDays(config.restatementDays());
+            int learnedDays = Math.max(0, (int) ChronoUnit.DAYS.between(from, restatedFrom));
+            learn(from, learnedDays, fetched);
+
+            Map<SeriesKey, double[]> stillRestated = new HashMap<>();
+            fetched.forEach((key, values) -> stillRestated.put(key, Arrays.copyOfRange(values, learnedDays, days)));
+            restated = stillRestated;
+            learnedUntil = from.plusDays(learnedDays);
+            refreshedAt = clock.instant();
+            if (learnedDays > 0) {
+                persist();
+            }
+            logger.infof("Refreshed %d daily cost series from %s with %d pages, learned %d days", series.size(),
+                    from, pages.count(), learnedDays);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<SeriesKey, double[]> fetch(LocalDate from, LocalDate until, int days, FetchedPages pages) {
+        GetCostAndUsageRequest request = CostQuery.of(from.toString(), until.toString(), List.of(),
+                        CostDataset.Filters.EXCLUDE_DISCOUNTS, CostQuery.dimensions("SERVICE"))
+                .withGranularity(Granularity.DAILY)
+                .toRequest();
+
+        Map<SeriesKey, double[]> fetched = new HashMap<>();
+        costAndUsageFetcher.fetch(request, pages, result -> {
+            int day = (int) ChronoUnit.DAYS.between(from, LocalDate.parse(result.timePeriod().start()));
+            if (day < 0 || day >= days) {
+                return;
+            }
+            for (Group group : result.groups()) {
+                MetricValue metric = group.metrics().get(CostQuery.METRIC);
+                SeriesKey key = new SeriesKey(group.keys().getFirst(), metric.unit());
+                fetched.computeIfAbsent(key, ignored -> new double[days])[day] += Double.parseDouble(metric.amount());
+            }
+        });
+        return fetched;
+    }
+
+    // A series starts with its first day with costs, later days without costs are learned as zero
+    private void learn(LocalDate from, int days, Map<SeriesKey, double[]> fetched) {
+        double alpha = 2.0 / (config.smoothingDays() + 1);
+        double weekdayAlpha = 2.0 / (config.smoothingDays() / 7.0 + 1);
+
+        for (int i = 0; i < days; i++) {
+            LocalDate day = from.plusDays(i);
+            for (Map.Entry<SeriesKey, double[]> entry : fetched.entrySet()) {
+                double value = entry.getValue()[i];
+                DailySeries dailySeries = series.get(entry.getKey());
+                if (dailySeries == null) {
+                    if (value == 0) {
+                        continue;
+                    }
+                    dailySeries = new DailySeries(config.recentDays());
+                    series.put(entry.getKey(), dailySeries);
+                }
+                dailySeries.add(day, value, alpha, weekdayAlpha, config.warmupDays());
+            }
+            for (Map.Entry<SeriesKey, DailySeries> entry : series.entrySet()) {
+                if (!fetched.containsKey(entry.getKey())) {
+                    entry.getValue().add(day, 0, alpha, weekdayAlpha, config.warmupDays());
+                }
+            }
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a daily cost series file");
+            }
+            learnedUntil = LocalDate.ofEpochDay(in.readLong());
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                SeriesKey key = new SeriesKey(in.readUTF(), in.readUTF());
+                series.put(key, DailySeries.read(in, config.recentDays()));
+            }
+        } catch (IOException e) {
+            logger.warnf(e, "Could not load the daily cost series %s, they will be learned again", file);
+            series.clear();
+            learnedUntil = null;
+        }
+    }
+
+    private void persist() {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporaryFile = Files.createTempFile(file.getParent(), "series", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporaryFile)))) {
+                out.writeInt(MAGIC);
+                out.writeLong(learnedUntil.toEpochDay());
+                out.writeInt(series.size());
+                for (Map.Entry<SeriesKey, DailySeries> entry : series.entrySet()) {
+                    out.writeUTF(entry.getKey().serviceName());
+                    out.writeUTF(entry.getKey().currency());
+                    entry.getValue().write(out);
+                }
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warnf(e, "Could not persist the daily cost series %s", file);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package anomaly;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The anomalies of a check, sorted by descending absolute score, with the number of series scored, the first day
+ * not yet learned by the baselines and when the series were last refreshed.
+ */
+public record AnomalyScan(List<CostAnomaly> anomalies, int series, LocalDate learnedUntil, Instant refreshedAt) {
+}
@@ -0,0 +1,15 @@
+package anomaly;
+
+import java.time.LocalDate;
+
+/**
+ * A day whose cost of a service deviates from its baseline: the expected cost for that weekday and the deviation in
+ * standard deviations, positive for spikes and negative for drops. The first day with costs of a service expects no
+ * costs and has an infinite score.
+ */
+public record CostAnomaly(String serviceName, String currency, LocalDate day, double value, double expected,
+                          double score) {
+    public double impact() {
+        return value - expected;
+    }
+}
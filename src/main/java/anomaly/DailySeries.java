@@ -0,0 +1,159 @@
+package anomaly;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Streaming statistics of the daily cost of one service in one currency: an exponentially weighted level and
+ * variance, and an offset per weekday for the weekly seasonality. Every day is scored against the baseline before it
+ * is learned, in a single pass and with constant memory, so no day has to be read twice. The scores of the last days
+ * are kept in a ring for the checks.
+ */
+final class DailySeries {
+    // Deviations are measured at least against this share of the level, so a flat series does not flag cents
+    private static final double MIN_RELATIVE_DEVIATION = 0.05;
+    private static final double MIN_DEVIATION = 0.01;
+    // Deviations are learned up to this many standard deviations, so one spike does not inflate the baseline
+    private static final double LEARNED_DEVIATION = 4;
+
+    private final double[] weekdayOffsets = new double[7];
+    private final long[] recentDays;
+    private final double[] recentValues;
+    private final double[] recentExpected;
+    private final double[] recentScores;
+
+    private double level;
+    private double variance;
+    private int days;
+    private int recentCount;
+    private int recentNext;
+
+    DailySeries(int recentDays) {
+        this.recentDays = new long[recentDays];
+        this.recentValues = new double[recentDays];
+        this.recentExpected = new double[recentDays];
+        this.recentScores = new double[recentDays];
+    }
+
+    double expected(LocalDate day) {
+        return level + weekdayOffsets[day.getDayOfWeek().ordinal()];
+    }
+
+    /**
+     * Deviation of the cost from its expected value in standard deviations, NaN while the series is warming up.
+     */
+    double score(LocalDate day, double value, int warmupDays) {
+        if (days < warmupDays) {
+            return Double.NaN;
+        }
+        return (value - expected(day)) / deviation();
+    }
+
+    /**
+     * Score of the first day of a series, which had no costs before: infinite, with the sign of the cost.
+     */
+    static double newSeriesScore(double value) {
+        return Math.copySign(Double.POSITIVE_INFINITY, value);
+    }
+
+    /**
+     * Score the day, keep its score and learn it. The first day is kept as new, expecting no costs. Days have to be
+     * added in order, without gaps.
+     */
+    void add(LocalDate day, double value, double alpha, double weekdayAlpha, int warmupDays) {
+        if (days == 0) {
+            keep(day, value, 0, newSeriesScore(value));
+            level = value;
+            days = 1;
+            return;
+        }
+
+        double expected = expected(day);
+        double score = score(day, value, warmupDays);
+        keep(day, value, expected, score);
+
+        double residual = value - expected;
+        if (!Double.isNaN(score)) {
+            double limit = LEARNED_DEVIATION * deviation();
+            residual = Math.clamp(residual, -limit, limit);
+        }
+
+        int weekday = day.getDayOfWeek().ordinal();
+        double learned = expected + residual;
+        level += alpha * (learned - weekdayOffsets[weekday] - level);
+        weekdayOffsets[weekday] += weekdayAlpha * (learned - level - weekdayOffsets[weekday]);
+        variance = (1 - alpha) * (variance + alpha * residual * residual);
+        days++;
+    }
+
+    /**
+     * Report the kept days from {@code from} on whose score reaches the threshold.
+     */
+    void anomalies(String serviceName, String currency, LocalDate from, double threshold, double minImpact,
+                   List<CostAnomaly> anomalies) {
+        for (int i = 0; i < recentCount; i++) {
+            LocalDate day = LocalDate.ofEpochDay(recentDays[i]);
+            if (day.isBefore(from) || !isAnomaly(recentScores[i], recentValues[i] - recentExpected[i], threshold,
+                    minImpact)) {
+                continue;
+            }
+            anomalies.add(new CostAnomaly(serviceName, currency, day, recentValues[i], recentExpected[i],
+                    recentScores[i]));
+        }
+    }
+
+    static boolean isAnomaly(double score, double impact, double threshold, double minImpact) {
+        return !Double.isNaN(score) && Math.abs(score) >= threshold && Math.abs(impact) >= minImpact;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeDouble(level);
+        out.writeDouble(variance);
+        out.writeInt(days);
+        for (double offset : weekdayOffsets) {
+            out.writeDouble(offset);
+        }
+        out.writeInt(recentCount);
+        for (int i = 0; i < recentCount; i++) {
+            int index = (recentNext - recentCount + i + recentDays.length) % recentDays.length;
+            out.writeLong(recentDays[index]);
+            out.writeDouble(recentValues[index]);
+            out.writeDouble(recentExpected[index]);
+            out.writeDouble(recentScores[index]);
+        }
+    }
+
+    static DailySeries read(DataInputStream in, int recentDays) throws IOException {
+        DailySeries series = new DailySeries(recentDays);
+        series.level = in.readDouble();
+        series.variance = in.readDouble();
+        series.days = in.readInt();
+        for (int i = 0; i < series.weekdayOffsets.length; i++) {
+            series.weekdayOffsets[i] = in.readDouble();
+        }
+        int kept = in.readInt();
+        for (int i = 0; i < kept; i++) {
+            series.keep(LocalDate.ofEpochDay(in.readLong()), in.readDouble(), in.readDouble(), in.readDouble());
+        }
+        return series;
+    }
+
+    private double deviation() {
+        return Math.max(Math.sqrt(variance), Math.max(MIN_RELATIVE_DEVIATION * Math.abs(level), MIN_DEVIATION));
+    }
+
+    private void keep(LocalDate day, double value, double expected, double score) {
+        if (recentDays.length == 0) {
+            return;
+        }
+        recentDays[recentNext] = day.toEpochDay();
+        recentValues[recentNext] = value;
+        recentExpected[recentNext] = expected;
+        recentScores[recentNext] = score;
+        recentNext = (recentNext + 1) % recentDays.length;
+        recentCount = Math.min(recentCount + 1, recentDays.length);
+    }
+}
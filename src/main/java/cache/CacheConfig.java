@@ -0,0 +1,30 @@
+package cache;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "cost-explorer.cache")
+public interface CacheConfig {
+    @WithDefault("true")
+    boolean enabled();
+
+    @WithDefault("512")
+    int memoryMaxEntries();
+
+    @WithDefault("${user.home}/.mcp-aws-cost-explorer/cache")
+    String directory();
+
+    @WithDefault("3")
+    int immutableAfterDays();
+
+    @WithDefault("PT15M")
+    Duration openPeriodTtl();
+
+    @WithDefault("P7D")
+    Duration staleRetention();
+
+    @WithDefault("6h")
+    String pruneInterval();
+}
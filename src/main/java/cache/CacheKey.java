@@ -0,0 +1,103 @@
+package cache;
+
+import software.amazon.awssdk.services.costexplorer.model.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Normalized representation of a GetCostAndUsage request. Two requests asking for the same data produce the same key,
+ * regardless of the order of metrics, filter operands or filter values.
+ */
+public record CacheKey(String value) {
+    public CacheKey {
+        Objects.requireNonNull(value);
+    }
+
+    public static CacheKey of(GetCostAndUsageRequest request) {
+        StringBuilder builder = new StringBuilder(256);
+        builder.append(request.timePeriod().start())
+                .append('/')
+                .append(request.timePeriod().end())
+                .append('|')
+                .append(request.granularityAsString())
+                .append('|')
+                .append(String.join(",", request.metrics().stream().sorted().toList()))
+                .append('|')
+                .append(request.filter() == null ? "" : canonical(request.filter()))
+                .append('|');
+
+        for (GroupDefinition groupDefinition : request.groupBy()) {
+            builder.append(groupDefinition.typeAsString())
+                    .append(':')
+                    .append(groupDefinition.key())
+                    .append(';');
+        }
+
+        builder.append('|').append(request.nextPageToken() == null ? "" : request.nextPageToken());
+        return new CacheKey(builder.toString());
+    }
+
+    /**
+     * Name of the file holding this entry in the disk tier.
+     */
+    public String fileName() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8))) + ".bin";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String canonical(Expression expression) {
+        if (expression.hasAnd()) {
+            return "and(" + canonical(expression.and()) + ")";
+        }
+
+        if (expression.hasOr()) {
+            return "or(" + canonical(expression.or()) + ")";
+        }
+
+        if (expression.not() != null) {
+            return "not(" + canonical(expression.not()) + ")";
+        }
+
+        if (expression.dimensions() != null) {
+            DimensionValues dimensions = expression.dimensions();
+            return "dim:" + dimensions.keyAsString() + canonical(dimensions.values(), dimensions.matchOptionsAsStrings());
+        }
+
+        if (expression.tags() != null) {
+            TagValues tags = expression.tags();
+            return "tag:" + tags.key() + canonical(tags.values(), tags.matchOptionsAsStrings());
+        }
+
+        if (expression.costCategories() != null) {
+            CostCategoryValues costCategories = expression.costCategories();
+            return "cc:" + costCategories.key() + canonical(costCategories.values(),
+                    costCategories.matchOptionsAsStrings());
+        }
+
+        return "";
+    }
+
+    private static String canonical(List<Expression> operands) {
+        List<String> canonicalOperands = new ArrayList<>(operands.size());
+        for (Expression operand : operands) {
+            canonicalOperands.add(canonical(operand));
+        }
+        canonicalOperands.sort(null);
+        return String.join(",", canonicalOperands);
+    }
+
+    private static String canonical(List<String> values, List<String> matchOptions) {
+        return "=" + String.join(",", values.stream().sorted().toList())
+                + "~" + String.join(",", matchOptions.stream().sorted().toList());
+    }
+}
@@ -0,0 +1,21 @@
+package cache;
+
+import ratelimit.ApiUsageStats;
+
+/**
+ * Snapshot of the response cache counters. Every hit is a GetCostAndUsage page which was not paid for.
+ */
+public record CacheStats(long memoryHits, long diskHits, long misses, int memoryEntries) {
+    public long hits() {
+        return memoryHits + diskHits;
+    }
+
+    public double hitRatio() {
+        long requests = hits() + misses;
+        return requests == 0 ? 0 : (double) hits() / requests;
+    }
+
+    public double estimatedSavings() {
+        return hits() * ApiUsageStats.COST_PER_REQUEST;
+    }
+}
@@ -0,0 +1,18 @@
+package cache;
+
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+
+import java.time.Instant;
+
+/**
+ * A cached response page. Entries without expiry belong to closed periods and are never refreshed.
+ */
+public record CachedResponse(GetCostAndUsageResponse response, Instant fetchedAt, Instant expiresAt) {
+    public boolean isImmutable() {
+        return expiresAt == null;
+    }
+
+    public boolean isExpired(Instant now) {
+        return !isImmutable() && !now.isBefore(expiresAt);
+    }
+}
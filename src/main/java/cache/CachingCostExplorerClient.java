@@ -0,0 +1,78 @@
+package cache;
+
+import org.jboss.logging.Logger;
+import ratelimit.BudgetExceededException;
+import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesResponse;
+
+import java.util.Optional;
+
+/**
+ * Decorates a {@link CostExplorerClient} so that GetCostAndUsage pages are served from the {@link ResponseCache}
+ * whenever possible. When the API budget is spent, expired pages are served instead of failing, if allowed.
+ */
+public class CachingCostExplorerClient implements CostExplorerClient {
+    Logger logger = Logger.getLogger(CachingCostExplorerClient.class);
+
+    private final CostExplorerClient delegate;
+    private final ResponseCache cache;
+    private final boolean serveStaleWhenBudgetExhausted;
+
+    public CachingCostExplorerClient(CostExplorerClient delegate, ResponseCache cache,
+                                     boolean serveStaleWhenBudgetExhausted) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.serveStaleWhenBudgetExhausted = serveStaleWhenBudgetExhausted;
+    }
+
+    @Override
+    public GetCostAndUsageResponse getCostAndUsage(GetCostAndUsageRequest request) {
+        return getCachedCostAndUsage(request).response();
+    }
+
+    /**
+     * Return the page for the request together with the time it was fetched from the API, which lies in the past
+     * when the page was served from the cache.
+     */
+    public CachedResponse getCachedCostAndUsage(GetCostAndUsageRequest request) {
+        Optional<CachedResponse> cached = cache.get(request);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        GetCostAndUsageResponse response;
+        try {
+            response = delegate.getCostAndUsage(request);
+        } catch (BudgetExceededException e) {
+            if (serveStaleWhenBudgetExhausted) {
+                Optional<CachedResponse> stale = cache.getStale(request);
+                if (stale.isPresent()) {
+                    logger.warnf("%s, serving data fetched at %s", e.getMessage(), stale.get().fetchedAt());
+                    return stale.get();
+                }
+            }
+            throw e;
+        }
+
+        return cache.put(request, response);
+    }
+
+    @Override
+    public GetDimensionValuesResponse getDimensionValues(GetDimensionValuesRequest request) {
+        // Not cached here, the dimension index keeps the values itself
+        return delegate.getDimensionValues(request);
+    }
+
+    @Override
+    public String serviceName() {
+        return delegate.serviceName();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,304 @@
+package cache;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier cache of GetCostAndUsage response pages: an in-memory LRU tier in front of a disk tier which survives
+ * restarts. Pages of periods which closed more than {@link CacheConfig#immutableAfterDays()} days ago never expire,
+ * every other page lives for {@link CacheConfig#openPeriodTtl()}. Expired pages stay on disk for
+ * {@link CacheConfig#staleRetention()} to be served stale, then they are deleted when read or by the periodic prune.
+ */
+@ApplicationScoped
+public class ResponseCache {
+    Logger logger = Logger.getLogger(ResponseCache.class);
+
+    private static final int DATE_LENGTH = "yyyy-MM-dd".length();
+
+    private final CacheConfig config;
+    private final Clock clock;
+    private final Path directory;
+    private final Map<CacheKey, CachedResponse> memory;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Inject
+    public ResponseCache(CacheConfig config) {
+        this(config, Clock.systemUTC());
+    }
+
+    public ResponseCache(CacheConfig config, Clock clock) {
+        this.config = config;
+        this.clock = clock;
+        this.directory = Path.of(config.directory());
+        this.memory = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedResponse> eldest) {
+                return size() > config.memoryMaxEntries();
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return config.enabled();
+    }
+
+    /**
+     * Return the cached page for the request, if there is one which has not expired yet.
+     */
+    public Optional<CachedResponse> get(GetCostAndUsageRequest request) {
+        if (!config.enabled()) {
+            return Optional.empty();
+        }
+
+        CacheKey key = CacheKey.of(request);
+        Instant now = clock.instant();
+
+        CachedResponse cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+
+        if (cached != null && !cached.isExpired(now)) {
+            memoryHits.increment();
+            return Optional.of(cached);
+        }
+
+        cached = readFromDisk(key, now);
+        if (cached != null && !cached.isExpired(now)) {
+            synchronized (memory) {
+                memory.put(key, cached);
+            }
+            diskHits.increment();
+            return Optional.of(cached);
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Return the cached page for the request even if it has expired. Used when fresh data cannot be fetched.
+     */
+    public Optional<CachedResponse> getStale(GetCostAndUsageRequest request) {
+        if (!config.enabled()) {
+            return Optional.empty();
+        }
+
+        CacheKey key = CacheKey.of(request);
+
+        CachedResponse cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+
+        if (cached == null) {
+            cached = readFromDisk(key, clock.instant());
+        }
+
+        return Optional.ofNullable(cached);
+    }
+
+    /**
+     * Check whether the request can be answered from the cache, without counting it as a hit or a miss. Entries
+     * found on disk are promoted to the memory tier, so the following {@link #get} is cheap.
+     */
+    public boolean contains(GetCostAndUsageRequest request) {
+        if (!config.enabled()) {
+            return false;
+        }
+
+        CacheKey key = CacheKey.of(request);
+        Instant now = clock.instant();
+
+        synchronized (memory) {
+            CachedResponse cached = memory.get(key);
+            if (cached != null && !cached.isExpired(now)) {
+                return true;
+            }
+        }
+
+        CachedResponse cached = readFromDisk(key, now);
+        if (cached == null || cached.isExpired(now)) {
+            return false;
+        }
+
+        synchronized (memory) {
+            memory.put(key, cached);
+        }
+        return true;
+    }
+
+    /**
+     * Check whether the memory tier holds an unexpired page for the request. Unlike {@link #contains} it never reads
+     * the disk tier, so it is cheap enough to probe many candidate requests.
+     */
+    public boolean containsInMemory(GetCostAndUsageRequest request) {
+        if (!config.enabled()) {
+            return false;
+        }
+
+        CacheKey key = CacheKey.of(request);
+        Instant now = clock.instant();
+
+        synchronized (memory) {
+            CachedResponse cached = memory.get(key);
+            return cached != null && !cached.isExpired(now);
+        }
+    }
+
+    /**
+     * Cache the page just fetched for the request and return its entry, which is not kept when the cache is disabled.
+     */
+    public CachedResponse put(GetCostAndUsageRequest request, GetCostAndUsageResponse response) {
+        Instant now = clock.instant();
+        CachedResponse entry = new CachedResponse(response, now, expiryFor(request, now));
+        if (!config.enabled()) {
+            return entry;
+        }
+
+        CacheKey key = CacheKey.of(request);
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        writeToDisk(key, entry);
+        return entry;
+    }
+
+    @Scheduled(every = "${cost-explorer.cache.prune-interval}", delayed = "${cost-explorer.cache.prune-interval}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledPrune() {
+        if (config.enabled()) {
+            prune();
+        }
+    }
+
+    /**
+     * Delete the pages of the disk tier which expired more than {@link CacheConfig#staleRetention()} ago, including
+     * the ones of the pooled accounts in its subdirectories. Only the header of each entry is decoded.
+     *
+     * @return the number of deleted pages
+     */
+    public int prune() {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+
+        Instant now = clock.instant();
+        int pruned = 0;
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().endsWith(".bin")) {
+                    continue;
+                }
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    if (!isRetained(ResponseCodec.readExpiresAt(inputStream), now)) {
+                        Files.deleteIfExists(file);
+                        pruned++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // Deleted by a concurrent read
+                } catch (IOException e) {
+                    logger.warnf(e, "Could not prune cache entry %s", file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warnf(e, "Could not prune the cache entries in %s", directory);
+        }
+
+        if (pruned > 0) {
+            logger.infof("Pruned %d expired cache entries from %s", pruned, directory);
+        }
+        return pruned;
+    }
+
+    public CacheStats stats() {
+        int memoryEntries;
+        synchronized (memory) {
+            memoryEntries = memory.size();
+        }
+        return new CacheStats(memoryHits.sum(), diskHits.sum(), misses.sum(), memoryEntries);
+    }
+
+    // AWS does not restate periods which ended immutableAfterDays ago, HOURLY periods are compared by date
+    private Instant expiryFor(GetCostAndUsageRequest request, Instant now) {
+        LocalDate end = LocalDate.parse(request.timePeriod().end().substring(0, DATE_LENGTH));
+        LocalDate today = LocalDate.ofInstant(now, clock.getZone());
+
+        if (!today.isBefore(end.plusDays(config.immutableAfterDays()))) {
+            return null;
+        }
+
+        return now.plus(config.openPeriodTtl());
+    }
+
+    private boolean isRetained(Instant expiresAt, Instant now) {
+        return expiresAt == null || now.isBefore(expiresAt.plus(config.staleRetention()));
+    }
+
+    private CachedResponse readFromDisk(CacheKey key, Instant now) {
+        Path file = directory.resolve(key.fileName());
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        CachedResponse cached;
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            cached = ResponseCodec.read(inputStream);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warnf(e, "Could not read cache entry %s, discarding it", file);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // The entry is overwritten by the next successful fetch anyway
+            }
+            return null;
+        }
+
+        if (isRetained(cached.expiresAt(), now)) {
+            return cached;
+        }
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warnf(e, "Could not delete expired cache entry %s", file);
+        }
+        return null;
+    }
+
+    private void writeToDisk(CacheKey key, CachedResponse entry) {
+        try {
+            Files.createDirectories(directory);
+            Path temporaryFile = Files.createTempFile(directory, "entry", ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+                ResponseCodec.write(entry, outputStream);
+            }
+            Files.move(temporaryFile, directory.resolve(key.fileName()),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warnf(e, "Could not persist cache entry in %s", directory);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package cache;
+
+import software.amazon.awssdk.services.costexplorer.model.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact binary encoding of cached GetCostAndUsage responses. Strings are dictionary encoded, so service names,
+ * operations and currencies repeated on every group are written only once per entry, and the whole entry is
+ * compressed.
+ */
+public final class ResponseCodec {
+    private static final int MAGIC = 0x43454331;
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private ResponseCodec() {
+    }
+
+    public static void write(CachedResponse entry, OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(outputStream)));
+        StringTable strings = new StringTable(out);
+        GetCostAndUsageResponse response = entry.response();
+
+        out.writeInt(MAGIC);
+        out.writeLong(entry.fetchedAt().toEpochMilli());
+        out.writeLong(entry.isImmutable() ? NEVER : entry.expiresAt().toEpochMilli());
+        strings.write(response.nextPageToken());
+
+        out.writeInt(response.groupDefinitions().size());
+        for (GroupDefinition groupDefinition : response.groupDefinitions()) {
+            strings.write(groupDefinition.typeAsString());
+            strings.write(groupDefinition.key());
+        }
+
+        out.writeInt(response.resultsByTime().size());
+        for (ResultByTime result : response.resultsByTime()) {
+            strings.write(result.timePeriod().start());
+            strings.write(result.timePeriod().end());
+            out.writeBoolean(Boolean.TRUE.equals(result.estimated()));
+            writeMetrics(result.total(), strings, out);
+
+            out.writeInt(result.groups().size());
+            for (Group group : result.groups()) {
+                out.writeInt(group.keys().size());
+                for (String key : group.keys()) {
+                    strings.write(key);
+                }
+                writeMetrics(group.metrics(), strings, out);
+            }
+        }
+
+        out.flush();
+        out.close();
+    }
+
+    public static CachedResponse read(InputStream inputStream) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(inputStream)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a cached Cost Explorer response");
+            }
+
+            StringTable strings = new StringTable(in);
+            Instant fetchedAt = Instant.ofEpochMilli(in.readLong());
+            long expiresAtMillis = in.readLong();
+            Instant expiresAt = expiresAtMillis == NEVER ? null : Instant.ofEpochMilli(expiresAtMillis);
+            String nextPageToken = strings.read();
+
+            int groupDefinitionCount = in.readInt();
+            List<GroupDefinition> groupDefinitions = new ArrayList<>(groupDefinitionCount);
+            for (int i = 0; i < groupDefinitionCount; i++) {
+                groupDefinitions.add(GroupDefinition.builder()
+                        .type(strings.read())
+                        .key(strings.read())
+                        .build());
+            }
+
+            int resultCount = in.readInt();
+            List<ResultByTime> results = new ArrayList<>(resultCount);
+            for (int i = 0; i < resultCount; i++) {
+                DateInterval timePeriod = DateInterval.builder()
+                        .start(strings.read())
+                        .end(strings.read())
+                        .build();
+                boolean estimated = in.readBoolean();
+                Map<String, MetricValue> total = readMetrics(strings, in);
+
+                int groupCount = in.readInt();
+                List<Group> groups = new ArrayList<>(groupCount);
+                for (int j = 0; j < groupCount; j++) {
+                    int keyCount = in.readInt();
+                    List<String> keys = new ArrayList<>(keyCount);
+                    for (int k = 0; k < keyCount; k++) {
+                        keys.add(strings.read());
+                    }
+                    groups.add(Group.builder()
+                            .keys(keys)
+                            .metrics(readMetrics(strings, in))
+                            .build());
+                }
+
+                results.add(ResultByTime.builder()
+                        .timePeriod(timePeriod)
+                        .estimated(estimated)
+                        .total(total)
+                        .groups(groups)
+                        .build());
+            }
+
+            GetCostAndUsageResponse response = GetCostAndUsageResponse.builder()
+                    .nextPageToken(nextPageToken)
+                    .groupDefinitions(groupDefinitions)
+                    .resultsByTime(results)
+                    .build();
+            return new CachedResponse(response, fetchedAt, expiresAt);
+        }
+    }
+
+    /**
+     * Read only the expiry of an entry, without decoding its pages. Null for entries which never expire.
+     */
+    public static Instant readExpiresAt(InputStream inputStream) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(inputStream)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a cached Cost Explorer response");
+            }
+
+            in.readLong();
+            long expiresAtMillis = in.readLong();
+            return expiresAtMillis == NEVER ? null : Instant.ofEpochMilli(expiresAtMillis);
+        }
+    }
+
+    private static void writeMetrics(Map<String, MetricValue> metrics, StringTable strings, DataOutputStream out)
+            throws IOException {
+        out.writeInt(metrics.size());
+        for (Map.Entry<String, MetricValue> metric : metrics.entrySet()) {
+            strings.write(metric.getKey());
+            strings.write(metric.getValue().amount());
+            strings.write(metric.getValue().unit());
+        }
+    }
+
+    private static Map<String, MetricValue> readMetrics(StringTable strings, DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Map<String, MetricValue> metrics = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String name = strings.read();
+            metrics.put(name, MetricValue.builder()
+                    .amount(strings.read())
+                    .unit(strings.read())
+                    .build());
+        }
+        return metrics;
+    }
+
+    // Every distinct string is written once, later occurrences as an index into the table
+    private static final class StringTable {
+        private static final int NULL = -1;
+        private static final int NEW = -2;
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final DataOutputStream out;
+        private final DataInputStream in;
+
+        StringTable(DataOutputStream out) {
+            this.out = out;
+            this.in = null;
+        }
+
+        StringTable(DataInputStream in) {
+            this.out = null;
+            this.in = in;
+        }
+
+        void write(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(NULL);
+                return;
+            }
+
+            Integer index = indexes.get(value);
+            if (index != null) {
+                out.writeInt(index);
+                return;
+            }
+
+            indexes.put(value, indexes.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(NEW);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        String read() throws IOException {
+            int index = in.readInt();
+            if (index == NULL) {
+                return null;
+            }
+
+            if (index != NEW) {
+                return values.get(index);
+            }
+
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            values.add(value);
+            return value;
+        }
+    }
+}
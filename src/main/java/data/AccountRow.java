@@ -0,0 +1,45 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A row of a report merged from several accounts, tagged with the name of the account it comes from.
+ */
+public record AccountRow<T extends Usage>(String account, T row) implements Usage {
+    // The columns of the rows are constants, so every tagged variant is built once
+    private static final Map<List<String>, List<String>> COLUMNS = new ConcurrentHashMap<>();
+
+    @Override
+    public String serviceName() {
+        return row.serviceName();
+    }
+
+    @Override
+    public double value() {
+        return row.value();
+    }
+
+    @Override
+    public String currency() {
+        return row.currency();
+    }
+
+    @Override
+    public List<String> columns() {
+        return COLUMNS.computeIfAbsent(row.columns(), columns -> {
+            List<String> tagged = new ArrayList<>(columns.size() + 1);
+            tagged.add("ACCOUNT");
+            tagged.addAll(columns);
+            return List.copyOf(tagged);
+        });
+    }
+
+    @Override
+    public void write(RowWriter writer) {
+        writer.field(account);
+        row.write(writer);
+    }
+}
@@ -0,0 +1,28 @@
+package data;
+
+import java.util.List;
+
+/**
+ * The anomalies of a check, preceded by a summary of what was scored.
+ */
+public record AnomalyReport(List<CostAnomalyRow> anomalies, String summary, String freshness) implements Report {
+    private static final String ROWS_TITLE = "Cost anomalies";
+
+    @Override
+    public List<CostAnomalyRow> rows() {
+        return anomalies;
+    }
+
+    @Override
+    public String generate(ReportFormat format, FormatConfig formatConfig, int until) {
+        return summary + '\n' +
+                "Data freshness: " + freshness + '\n' +
+                '\n' +
+                generateRows(format, formatConfig, 0, until);
+    }
+
+    @Override
+    public String generateRows(ReportFormat format, FormatConfig formatConfig, int from, int until) {
+        return ReportRenderer.renderRows(ROWS_TITLE, anomalies, from, until, format, formatConfig);
+    }
+}
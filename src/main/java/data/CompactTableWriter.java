@@ -0,0 +1,121 @@
+package data;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the rows as a dictionary-encoded table: every distinct string once in a numbered dictionary, the rows as
+ * comma separated dictionary indexes and amounts rounded to a fixed number of decimals. Service names, operations and
+ * currencies repeat on most rows, so the table is a fraction of the size of the CSV.
+ */
+final class CompactTableWriter implements RowWriter {
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000,
+            100_000_000, 1_000_000_000};
+    // Above this, scaling by the largest power of ten could overflow a long
+    private static final double LARGEST_SCALED = 1e9;
+
+    private final int precision;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private final StringBuilder rows;
+    private boolean firstField = true;
+
+    CompactTableWriter(int precision, int estimatedLength) {
+        this.precision = precision;
+        this.rows = new StringBuilder(estimatedLength);
+    }
+
+    @Override
+    public CompactTableWriter field(String value) {
+        separate();
+        if (value != null) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = dictionary.size();
+                indexes.put(value, index);
+                dictionary.add(value);
+            }
+            rows.append(index);
+        }
+        return this;
+    }
+
+    @Override
+    public CompactTableWriter field(double value) {
+        separate();
+        appendFixed(rows, value, precision);
+        return this;
+    }
+
+    @Override
+    public void endRow() {
+        rows.append('\n');
+        firstField = true;
+    }
+
+    /**
+     * Append the dictionary, one string per line prefixed by its index, then the header and the rows.
+     */
+    void writeTo(StringBuilder buffer, List<String> columns) {
+        buffer.append("Dictionary:\n");
+        for (int i = 0; i < dictionary.size(); i++) {
+            buffer.append(i).append('=');
+            // The entries are separated by line breaks, so those are the only characters to escape
+            String value = dictionary.get(i);
+            for (int c = 0; c < value.length(); c++) {
+                char character = value.charAt(c);
+                if (character == '\n') {
+                    buffer.append("\\n");
+                } else if (character == '\r') {
+                    buffer.append("\\r");
+                } else {
+                    buffer.append(character);
+                }
+            }
+            buffer.append('\n');
+        }
+
+        buffer.append("Rows:\n").append(String.join(",", columns)).append('\n').append(rows);
+    }
+
+    /**
+     * Append the value rounded half up to {@code precision} decimals, at most 9, without going through a formatter.
+     */
+    static void appendFixed(StringBuilder buffer, double value, int precision) {
+        precision = decimals(precision);
+        if (!Double.isFinite(value) || Math.abs(value) >= LARGEST_SCALED) {
+            buffer.append(Double.isFinite(value)
+                    ? BigDecimal.valueOf(value).setScale(precision, RoundingMode.HALF_UP).toPlainString()
+                    : String.valueOf(value));
+            return;
+        }
+
+        long scale = POWERS_OF_TEN[precision];
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            buffer.append('-');
+        }
+        buffer.append(scaled / scale);
+
+        if (precision > 0) {
+            buffer.append('.');
+            String fraction = Long.toString(scaled % scale);
+            buffer.repeat('0', precision - fraction.length()).append(fraction);
+        }
+    }
+
+    static int decimals(int precision) {
+        return Math.clamp(precision, 0, POWERS_OF_TEN.length - 1);
+    }
+
+    private void separate() {
+        if (!firstField) {
+            rows.append(',');
+        }
+        firstField = false;
+    }
+}
@@ -0,0 +1,60 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The top movers between two periods: the groups with the largest change, followed by the ones with the largest
+ * relative change. Both rankings are one list of rows, built once, so chunks of the report may end in either of them.
+ */
+public record ComparisonReport(List<CostChangeRow> topChanges, List<CostChangeRow> topRelativeChanges,
+                               List<CostChangeRow> rows, String basePeriod, Map<String, Double> baseTotalPerCurrency,
+                               String comparedPeriod, Map<String, Double> comparedTotalPerCurrency,
+                               String freshness) implements Report {
+    private static final String CHANGES_TITLE = "Largest changes";
+    private static final String RELATIVE_CHANGES_TITLE = "Largest relative changes";
+
+    public ComparisonReport(List<CostChangeRow> topChanges, List<CostChangeRow> topRelativeChanges,
+                            String basePeriod, Map<String, Double> baseTotalPerCurrency,
+                            String comparedPeriod, Map<String, Double> comparedTotalPerCurrency,
+                            String freshness) {
+        this(topChanges, topRelativeChanges, concat(topChanges, topRelativeChanges), basePeriod,
+                baseTotalPerCurrency, comparedPeriod, comparedTotalPerCurrency, freshness);
+    }
+
+    @Override
+    public String generate(ReportFormat format, FormatConfig formatConfig, int until) {
+        StringBuilder buffer = new StringBuilder();
+        ReportRenderer.appendTotals(buffer, "Total cost per currency, " + basePeriod, baseTotalPerCurrency, format,
+                formatConfig);
+        ReportRenderer.appendTotals(buffer, "Total cost per currency, " + comparedPeriod, comparedTotalPerCurrency,
+                format, formatConfig);
+        buffer.append("Data freshness: ").append(freshness).append('\n')
+                .append('\n')
+                .append(generateRows(format, formatConfig, 0, until));
+        return buffer.toString();
+    }
+
+    @Override
+    public String generateRows(ReportFormat format, FormatConfig formatConfig, int from, int until) {
+        int changes = topChanges.size();
+        StringBuilder buffer = new StringBuilder();
+        if (from < changes) {
+            buffer.append(ReportRenderer.renderRows(CHANGES_TITLE, topChanges, from, Math.min(until, changes),
+                    format, formatConfig));
+        }
+        if (until > changes) {
+            buffer.append(ReportRenderer.renderRows(RELATIVE_CHANGES_TITLE, topRelativeChanges,
+                    Math.max(from, changes) - changes, until - changes, format, formatConfig));
+        }
+        return buffer.toString();
+    }
+
+    private static List<CostChangeRow> concat(List<CostChangeRow> topChanges, List<CostChangeRow> topRelativeChanges) {
+        List<CostChangeRow> rows = new ArrayList<>(topChanges.size() + topRelativeChanges.size());
+        rows.addAll(topChanges);
+        rows.addAll(topRelativeChanges);
+        return List.copyOf(rows);
+    }
+}
@@ -0,0 +1,35 @@
+package data;
+
+import java.util.List;
+
+/**
+ * One day whose cost of a service deviates from its baseline: the cost, the expected cost for that weekday, their
+ * difference and the deviation in standard deviations.
+ */
+public record CostAnomalyRow(String day, String serviceName, String currency, double actual, double expected,
+                             double impact, double score) implements ReportRow {
+    private static final List<String> COLUMNS = List.of("DAY", "SERVICE", "CURRENCY", "VALUE", "EXPECTED", "IMPACT",
+            "SCORE");
+
+    @Override
+    public List<String> columns() {
+        return COLUMNS;
+    }
+
+    @Override
+    public void write(RowWriter writer) {
+        writer.field(day)
+                .field(serviceName)
+                .field(currency)
+                .field(actual)
+                .field(expected)
+                .field(impact)
+                .field(score);
+        writer.endRow();
+    }
+
+    @Override
+    public double value() {
+        return impact;
+    }
+}
@@ -0,0 +1,29 @@
+package data;
+
+import java.util.List;
+
+/**
+ * One group of a period comparison: its group-by keys and currency, its amount in both periods and the change. The
+ * relative change is a percentage, or "new" for a group without costs in the base period. The columns are shared by
+ * every row of a report, they name the group-by keys.
+ */
+public record CostChangeRow(List<String> columns, String[] keys, String currency, double base, double compared,
+                            double change, String relativeChange) implements ReportRow {
+    @Override
+    public void write(RowWriter writer) {
+        for (String key : keys) {
+            writer.field(key);
+        }
+        writer.field(currency)
+                .field(base)
+                .field(compared)
+                .field(change)
+                .field(relativeChange);
+        writer.endRow();
+    }
+
+    @Override
+    public double value() {
+        return change;
+    }
+}
@@ -0,0 +1,67 @@
+package data;
+
+import java.util.List;
+
+/**
+ * Writes CSV rows straight into a report buffer, in the format the reports have always had: every field quoted with
+ * {@code '}, quote and escape characters inside a field preceded by {@code "}, and {@code \n} line endings. Doubles
+ * are appended without boxing and read the same as {@link Double#toString(double)}.
+ */
+public final class CsvBuffer implements RowWriter {
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '\'';
+    private static final char ESCAPE = '"';
+
+    private final StringBuilder buffer;
+    private boolean firstField = true;
+
+    CsvBuffer(StringBuilder buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public CsvBuffer field(String value) {
+        separate();
+        if (value == null) {
+            return this;
+        }
+
+        buffer.append(QUOTE);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == QUOTE || c == ESCAPE) {
+                buffer.append(ESCAPE);
+            }
+            buffer.append(c);
+        }
+        buffer.append(QUOTE);
+        return this;
+    }
+
+    @Override
+    public CsvBuffer field(double value) {
+        separate();
+        buffer.append(QUOTE).append(value).append(QUOTE);
+        return this;
+    }
+
+    @Override
+    public void endRow() {
+        buffer.append('\n');
+        firstField = true;
+    }
+
+    void header(List<String> columns) {
+        for (String column : columns) {
+            field(column);
+        }
+        endRow();
+    }
+
+    private void separate() {
+        if (!firstField) {
+            buffer.append(SEPARATOR);
+        }
+        firstField = false;
+    }
+}
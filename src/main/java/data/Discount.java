@@ -1,39 +1,55 @@
-package data;
-
-import com.opencsv.bean.CsvBindByName;
-
-public record Discount(@CsvBindByName(column = "service") String serviceName,
-                       @CsvBindByName String discountType,
-                       @CsvBindByName String currency,
-                       @CsvBindByName double value) {
-    public static class Builder {
-        private String serviceName;
-        private String discountType;
-        private String currency;
-        private double value;
-
-        public Builder serviceName(String serviceName) {
-            this.serviceName = serviceName;
-            return this;
-        }
-
-        public Builder discountType(String discountType) {
-            this.discountType = discountType;
-            return this;
-        }
-
-        public Builder currency(String currency) {
-            this.currency = currency;
-            return this;
-        }
-
-        public Builder value(double value) {
-            this.value = value;
-            return this;
-        }
-
-        public Discount build() {
-            return new Discount(this.serviceName, this.discountType, this.currency, this.value);
-        }
-    }
-}
+package data;
+
+import java.util.List;
+
+public record Discount(String serviceName,
+                       String discountType,
+                       String currency,
+                       double value) implements Usage {
+    private static final List<String> COLUMNS = List.of("CURRENCY", "DISCOUNTTYPE", "SERVICE", "VALUE");
+
+    public static class Builder {
+        private String serviceName;
+        private String discountType;
+        private String currency;
+        private double value;
+
+        public Builder serviceName(String serviceName) {
+            this.serviceName = serviceName;
+            return this;
+        }
+
+        public Builder discountType(String discountType) {
+            this.discountType = discountType;
+            return this;
+        }
+
+        public Builder currency(String currency) {
+            this.currency = currency;
+            return this;
+        }
+
+        public Builder value(double value) {
+            this.value = value;
+            return this;
+        }
+
+        public Discount build() {
+            return new Discount(this.serviceName, this.discountType, this.currency, this.value);
+        }
+    }
+
+    @Override
+    public List<String> columns() {
+        return COLUMNS;
+    }
+
+    @Override
+    public void write(RowWriter writer) {
+        writer.field(currency)
+                .field(discountType)
+                .field(serviceName)
+                .field(value);
+        writer.endRow();
+    }
+}
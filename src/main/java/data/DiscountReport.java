@@ -1,36 +1,29 @@
-package data;
-
-import com.opencsv.CSVWriter;
-import com.opencsv.bean.StatefulBeanToCsv;
-import com.opencsv.bean.StatefulBeanToCsvBuilder;
-import com.opencsv.exceptions.CsvDataTypeMismatchException;
-import com.opencsv.exceptions.CsvRequiredFieldEmptyException;
-import io.quarkus.qute.Qute;
-
-import java.io.StringWriter;
-import java.io.Writer;
-import java.util.List;
-import java.util.Map;
-
-public record DiscountReport(List<Discount> discounts, Map<String, Double> totalDiscountPerCurrency) {
-    public String generate() throws CsvRequiredFieldEmptyException, CsvDataTypeMismatchException {
-        Writer stringWriter = new StringWriter();
-        StatefulBeanToCsv<Discount> statefulBeanToCsv = new StatefulBeanToCsvBuilder<Discount>(stringWriter)
-                .withQuotechar('\'')
-                .withSeparator(CSVWriter.DEFAULT_SEPARATOR)
-                .build();
-
-        statefulBeanToCsv.write(discounts);
-
-        return Qute.fmt(
-                        """
-                                Total discount per currency: {totalCost}
-                                
-                                Discount list in CSV format:
-                                {csv}
-                                """)
-                .data("totalCost", this.totalDiscountPerCurrency)
-                .data("csv", stringWriter.toString())
-                .render();
-    }
-}
+package data;
+
+import java.util.List;
+import java.util.Map;
+
+public record DiscountReport(List<? extends Usage> discounts, Map<String, Double> totalDiscountPerCurrency,
+                             String freshness) implements Report {
+    private static final String ROWS_TITLE = "Discount list";
+
+    public String generate() {
+        return generate(ReportFormat.CSV, null);
+    }
+
+    @Override
+    public List<? extends Usage> rows() {
+        return discounts;
+    }
+
+    @Override
+    public String generate(ReportFormat format, FormatConfig formatConfig, int until) {
+        return ReportRenderer.render("Total discount per currency", totalDiscountPerCurrency, freshness, ROWS_TITLE,
+                discounts, until, format, formatConfig);
+    }
+
+    @Override
+    public String generateRows(ReportFormat format, FormatConfig formatConfig, int from, int until) {
+        return ReportRenderer.renderRows(ROWS_TITLE, discounts, from, until, format, formatConfig);
+    }
+}
@@ -0,0 +1,16 @@
+package data;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "cost-explorer.format")
+public interface FormatConfig {
+    @WithDefault("csv")
+    ReportFormat defaultFormat();
+
+    @WithDefault("2")
+    int precision();
+
+    @WithDefault("0.005")
+    double dropBelow();
+}
@@ -0,0 +1,74 @@
+package data;
+
+import java.util.List;
+
+/**
+ * Writes every row as a JSON object on its own line, with the column names as keys, strings escaped as JSON requires
+ * and amounts at full precision.
+ */
+final class JsonLinesWriter implements RowWriter {
+    private final StringBuilder buffer;
+    private final List<String> columns;
+    private int column;
+
+    JsonLinesWriter(StringBuilder buffer, List<String> columns) {
+        this.buffer = buffer;
+        this.columns = columns;
+    }
+
+    @Override
+    public JsonLinesWriter field(String value) {
+        key();
+        if (value == null) {
+            buffer.append("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonLinesWriter field(double value) {
+        key();
+        if (Double.isFinite(value)) {
+            buffer.append(value);
+        } else {
+            buffer.append("null");
+        }
+        return this;
+    }
+
+    @Override
+    public void endRow() {
+        buffer.append("}\n");
+        column = 0;
+    }
+
+    private void key() {
+        buffer.append(column == 0 ? '{' : ',');
+        string(columns.get(column++));
+        buffer.append(':');
+    }
+
+    private void string(String value) {
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> buffer.append("\\\"");
+                case '\\' -> buffer.append("\\\\");
+                case '\n' -> buffer.append("\\n");
+                case '\r' -> buffer.append("\\r");
+                case '\t' -> buffer.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        buffer.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        buffer.append(c);
+                    }
+                }
+            }
+        }
+        buffer.append('"');
+    }
+}
@@ -0,0 +1,36 @@
+package data;
+
+import java.util.List;
+
+/**
+ * A rendered tool result: the totals and freshness of a query followed by its rows. The rows can be rendered in
+ * chunks, the first one together with the totals and every following one on its own.
+ */
+public interface Report {
+    List<? extends ReportRow> rows();
+
+    default String generate(ReportFormat format, FormatConfig formatConfig) {
+        return generate(format, formatConfig, rows().size());
+    }
+
+    /**
+     * Render the totals together with the first {@code until} rows.
+     */
+    String generate(ReportFormat format, FormatConfig formatConfig, int until);
+
+    /**
+     * Render the rows from {@code from} until {@code until}, without the totals.
+     */
+    String generateRows(ReportFormat format, FormatConfig formatConfig, int from, int until);
+
+    /**
+     * Rough number of bytes the rows keep on the heap, assuming none of their strings is shared.
+     */
+    default long estimatedBytes() {
+        RowSizeEstimator estimator = new RowSizeEstimator();
+        for (ReportRow row : rows()) {
+            row.write(estimator);
+        }
+        return estimator.bytes();
+    }
+}
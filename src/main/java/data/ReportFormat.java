@@ -0,0 +1,33 @@
+package data;
+
+import java.util.Locale;
+import java.util.Optional;
+
+public enum ReportFormat {
+    /**
+     * Every field quoted, amounts at full precision. The format the reports have always had.
+     */
+    CSV,
+    /**
+     * One JSON object per row, keyed by the column names.
+     */
+    JSONL,
+    /**
+     * The strings listed once in a dictionary and referenced by their index, amounts rounded to a fixed precision and
+     * near-zero rows left out. The smallest of the formats.
+     */
+    COMPACT;
+
+    public static Optional<ReportFormat> parse(String format) {
+        for (ReportFormat reportFormat : values()) {
+            if (reportFormat.name().equals(format.toUpperCase(Locale.ROOT))) {
+                return Optional.of(reportFormat);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public String title() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
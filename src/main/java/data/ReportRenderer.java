@@ -0,0 +1,130 @@
+package data;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders a report into a single buffer sized for its rows: the totals, the freshness of the data and the rows in the
+ * requested {@link ReportFormat}, or a chunk of the rows on its own. An empty list of rows renders an empty table,
+ * without a header. The format configuration is only read by the compact format.
+ */
+final class ReportRenderer {
+    private static final int ESTIMATED_HEADER_LENGTH = 256;
+    private static final int ESTIMATED_ROW_LENGTH = 96;
+    private static final int ESTIMATED_COMPACT_ROW_LENGTH = 24;
+
+    private ReportRenderer() {
+    }
+
+    static String render(String totalTitle, Map<String, Double> totalPerCurrency, String freshness, String rowsTitle,
+                         List<? extends ReportRow> rows, int until, ReportFormat format, FormatConfig formatConfig) {
+        StringBuilder buffer = new StringBuilder(ESTIMATED_HEADER_LENGTH + estimatedLength(until, format));
+        appendTotals(buffer, totalTitle, totalPerCurrency, format, formatConfig);
+        buffer.append("Data freshness: ").append(freshness).append('\n')
+                .append('\n');
+
+        appendRows(buffer, rowsTitle, rows, 0, until, format, formatConfig);
+        return buffer.append('\n').toString();
+    }
+
+    /**
+     * Append one line of totals per currency, rounded like the amounts of the rows in the compact format.
+     */
+    static void appendTotals(StringBuilder buffer, String totalTitle, Map<String, Double> totalPerCurrency,
+                             ReportFormat format, FormatConfig formatConfig) {
+        buffer.append(totalTitle).append(": ");
+        if (format == ReportFormat.COMPACT) {
+            appendFixed(buffer, totalPerCurrency, formatConfig.precision());
+        } else {
+            buffer.append(totalPerCurrency);
+        }
+        buffer.append('\n');
+    }
+
+    static String renderRows(String rowsTitle, List<? extends ReportRow> rows, int from, int until,
+                             ReportFormat format, FormatConfig formatConfig) {
+        StringBuilder buffer = new StringBuilder(ESTIMATED_HEADER_LENGTH + estimatedLength(until - from, format));
+        appendRows(buffer, rowsTitle, rows, from, until, format, formatConfig);
+        return buffer.append('\n').toString();
+    }
+
+    private static void appendRows(StringBuilder buffer, String rowsTitle, List<? extends ReportRow> rows, int from,
+                                   int until, ReportFormat format, FormatConfig formatConfig) {
+        List<? extends ReportRow> chunk = rows.subList(from, until);
+        buffer.append(rowsTitle).append(" in ").append(format == ReportFormat.CSV ? "CSV" : format.title())
+                .append(" format");
+        if (chunk.size() < rows.size()) {
+            buffer.append(", rows ").append(from + 1).append(" to ").append(until).append(" of ").append(rows.size());
+        }
+
+        switch (format) {
+            case CSV -> {
+                buffer.append(":\n");
+                if (!chunk.isEmpty()) {
+                    CsvBuffer csv = new CsvBuffer(buffer);
+                    csv.header(chunk.getFirst().columns());
+                    writeRows(chunk, csv);
+                }
+            }
+            case JSONL -> {
+                buffer.append(":\n");
+                if (!chunk.isEmpty()) {
+                    writeRows(chunk, new JsonLinesWriter(buffer, chunk.getFirst().columns()));
+                }
+            }
+            case COMPACT -> renderCompact(buffer, chunk, formatConfig);
+        }
+    }
+
+    private static int estimatedLength(int rows, ReportFormat format) {
+        return rows * (format == ReportFormat.COMPACT ? ESTIMATED_COMPACT_ROW_LENGTH : ESTIMATED_ROW_LENGTH);
+    }
+
+    private static void renderCompact(StringBuilder buffer, List<? extends ReportRow> rows,
+                                      FormatConfig formatConfig) {
+        CompactTableWriter writer = new CompactTableWriter(formatConfig.precision(),
+                rows.size() * ESTIMATED_COMPACT_ROW_LENGTH);
+        int dropped = 0;
+        for (ReportRow row : rows) {
+            if (Math.abs(row.value()) < formatConfig.dropBelow()) {
+                dropped++;
+                continue;
+            }
+            row.write(writer);
+        }
+
+        buffer.append(", strings are indexes into the dictionary, amounts have ")
+                .append(CompactTableWriter.decimals(formatConfig.precision()))
+                .append(" decimals");
+        if (dropped > 0) {
+            buffer.append(", ").append(dropped).append(" rows below ").append(formatConfig.dropBelow())
+                    .append(" left out");
+        }
+        buffer.append(":\n");
+
+        if (dropped < rows.size()) {
+            writer.writeTo(buffer, rows.getFirst().columns());
+        }
+    }
+
+    private static void writeRows(List<? extends ReportRow> rows, RowWriter writer) {
+        for (ReportRow row : rows) {
+            row.write(writer);
+        }
+    }
+
+    private static void appendFixed(StringBuilder buffer, Map<String, Double> totalPerCurrency, int precision) {
+        buffer.append('{');
+        Iterator<Map.Entry<String, Double>> totals = totalPerCurrency.entrySet().iterator();
+        while (totals.hasNext()) {
+            Map.Entry<String, Double> total = totals.next();
+            buffer.append(total.getKey()).append('=');
+            CompactTableWriter.appendFixed(buffer, total.getValue(), precision);
+            if (totals.hasNext()) {
+                buffer.append(", ");
+            }
+        }
+        buffer.append('}');
+    }
+}
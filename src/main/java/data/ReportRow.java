@@ -0,0 +1,18 @@
+package data;
+
+import java.util.List;
+
+/**
+ * A report row which writes its fields to a {@link RowWriter}. The columns are the upper-cased field names in
+ * alphabetical order, the order the reports have always used.
+ */
+public interface ReportRow {
+    List<String> columns();
+
+    void write(RowWriter writer);
+
+    /**
+     * The amount of the row, rows with a near-zero amount are left out of compact reports.
+     */
+    double value();
+}
@@ -0,0 +1,40 @@
+package data;
+
+/**
+ * Adds up the heap footprint of the rows written to it: the row object with one reference or double per field, and
+ * the header and Latin-1 bytes of every string.
+ */
+final class RowSizeEstimator implements RowWriter {
+    private static final int OBJECT_HEADER_BYTES = 16;
+    private static final int FIELD_BYTES = 8;
+    // String object plus the header of its byte array
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private long bytes;
+    private int fields;
+
+    @Override
+    public RowSizeEstimator field(String value) {
+        fields++;
+        if (value != null) {
+            bytes += STRING_OVERHEAD_BYTES + value.length();
+        }
+        return this;
+    }
+
+    @Override
+    public RowSizeEstimator field(double value) {
+        fields++;
+        return this;
+    }
+
+    @Override
+    public void endRow() {
+        bytes += OBJECT_HEADER_BYTES + (long) fields * FIELD_BYTES;
+        fields = 0;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+}
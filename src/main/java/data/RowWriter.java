@@ -0,0 +1,12 @@
+package data;
+
+/**
+ * Receives the fields of the report rows, in the order of their columns, in one of the {@link ReportFormat}s.
+ */
+public interface RowWriter {
+    RowWriter field(String value);
+
+    RowWriter field(double value);
+
+    void endRow();
+}
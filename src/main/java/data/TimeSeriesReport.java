@@ -0,0 +1,27 @@
+package data;
+
+import java.util.List;
+import java.util.Map;
+
+public record TimeSeriesReport(List<TimeSeriesRow> series, Map<String, Double> totalCostPerCurrency, String freshness,
+                               String granularity) implements Report {
+    @Override
+    public List<TimeSeriesRow> rows() {
+        return series;
+    }
+
+    @Override
+    public String generate(ReportFormat format, FormatConfig formatConfig, int until) {
+        return ReportRenderer.render("Total cost per currency", totalCostPerCurrency, freshness, rowsTitle(), series,
+                until, format, formatConfig);
+    }
+
+    @Override
+    public String generateRows(ReportFormat format, FormatConfig formatConfig, int from, int until) {
+        return ReportRenderer.renderRows(rowsTitle(), series, from, until, format, formatConfig);
+    }
+
+    private String rowsTitle() {
+        return "Cost per " + granularity + " period";
+    }
+}
@@ -0,0 +1,28 @@
+package data;
+
+import java.util.List;
+
+/**
+ * One series of a time series report: its group-by keys, currency and total, followed by the amount of every period.
+ * The columns are shared by every row of a report, they name the periods.
+ */
+public record TimeSeriesRow(List<String> columns, String[] keys, String currency, double total, double[] values)
+        implements ReportRow {
+    @Override
+    public void write(RowWriter writer) {
+        for (String key : keys) {
+            writer.field(key);
+        }
+        writer.field(currency)
+                .field(total);
+        for (double value : values) {
+            writer.field(value);
+        }
+        writer.endRow();
+    }
+
+    @Override
+    public double value() {
+        return total;
+    }
+}
@@ -1,9 +1,9 @@
-package data;
-
-public interface Usage {
-    String serviceName();
-
-    double value();
-
-    String currency();
-}
+package data;
+
+public interface Usage extends ReportRow {
+    String serviceName();
+
+    double value();
+
+    String currency();
+}
@@ -0,0 +1,56 @@
+package data;
+
+import java.util.List;
+
+public record UsagePerGroupAndService(String currency,
+                                      String group,
+                                      String serviceName,
+                                      double value) implements Usage {
+    private static final List<String> COLUMNS = List.of("CURRENCY", "GROUP", "SERVICE", "VALUE");
+
+    public static class Builder {
+        private String currency;
+        private String group;
+        private String serviceName;
+        private double value;
+
+
+        public Builder currency(String currency) {
+            this.currency = currency;
+            return this;
+        }
+
+        public Builder group(String group) {
+            this.group = group;
+            return this;
+        }
+
+        public Builder serviceName(String serviceName) {
+            this.serviceName = serviceName;
+            return this;
+        }
+
+        public Builder value(double value) {
+            this.value = value;
+            return this;
+        }
+
+        public UsagePerGroupAndService build() {
+            return new UsagePerGroupAndService(this.currency, this.group, this.serviceName, this.value);
+        }
+    }
+
+    @Override
+    public List<String> columns() {
+        return COLUMNS;
+    }
+
+    @Override
+    public void write(RowWriter writer) {
+        writer.field(currency)
+                .field(group)
+                .field(serviceName)
+                .field(value);
+        writer.endRow();
+    }
+}
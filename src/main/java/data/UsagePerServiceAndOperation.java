@@ -1,39 +1,55 @@
-package data;
-
-import com.opencsv.bean.CsvBindByName;
-
-public record UsagePerServiceAndOperation(@CsvBindByName(column = "service") String serviceName,
-                                          @CsvBindByName String operation,
-                                          @CsvBindByName String currency,
-                                          @CsvBindByName double value) implements Usage {
-    public static class Builder {
-        private String serviceName;
-        private String operation;
-        private String currency;
-        private double value;
-
-        public Builder serviceName(String serviceName) {
-            this.serviceName = serviceName;
-            return this;
-        }
-
-        public Builder operation(String discountType) {
-            this.operation = discountType;
-            return this;
-        }
-
-        public Builder currency(String currency) {
-            this.currency = currency;
-            return this;
-        }
-
-        public Builder value(double value) {
-            this.value = value;
-            return this;
-        }
-
-        public UsagePerServiceAndOperation build() {
-            return new UsagePerServiceAndOperation(this.serviceName, this.operation, this.currency, this.value);
-        }
-    }
-}
+package data;
+
+import java.util.List;
+
+public record UsagePerServiceAndOperation(String serviceName,
+                                          String operation,
+                                          String currency,
+                                          double value) implements Usage {
+    private static final List<String> COLUMNS = List.of("CURRENCY", "OPERATION", "SERVICE", "VALUE");
+
+    public static class Builder {
+        private String serviceName;
+        private String operation;
+        private String currency;
+        private double value;
+
+        public Builder serviceName(String serviceName) {
+            this.serviceName = serviceName;
+            return this;
+        }
+
+        public Builder operation(String discountType) {
+            this.operation = discountType;
+            return this;
+        }
+
+        public Builder currency(String currency) {
+            this.currency = currency;
+            return this;
+        }
+
+        public Builder value(double value) {
+            this.value = value;
+            return this;
+        }
+
+        public UsagePerServiceAndOperation build() {
+            return new UsagePerServiceAndOperation(this.serviceName, this.operation, this.currency, this.value);
+        }
+    }
+
+    @Override
+    public List<String> columns() {
+        return COLUMNS;
+    }
+
+    @Override
+    public void write(RowWriter writer) {
+        writer.field(currency)
+                .field(operation)
+                .field(serviceName)
+                .field(value);
+        writer.endRow();
+    }
+}
@@ -1,38 +1,30 @@
-package data;
-
-import com.opencsv.CSVWriter;
-import com.opencsv.bean.StatefulBeanToCsv;
-import com.opencsv.bean.StatefulBeanToCsvBuilder;
-import com.opencsv.exceptions.CsvDataTypeMismatchException;
-import com.opencsv.exceptions.CsvRequiredFieldEmptyException;
-import io.quarkus.qute.Qute;
-
-import java.io.StringWriter;
-import java.io.Writer;
-import java.util.List;
-import java.util.Map;
-
-public record UsageReport<T extends Usage>(List<T> usage,
-                                           Map<String, Double> totalCostPerCurrency) {
-
-    public String generate() throws CsvRequiredFieldEmptyException, CsvDataTypeMismatchException {
-        Writer stringWriter = new StringWriter();
-        StatefulBeanToCsv<T> statefulBeanToCsv = new StatefulBeanToCsvBuilder<T>(stringWriter)
-                .withQuotechar('\'')
-                .withSeparator(CSVWriter.DEFAULT_SEPARATOR)
-                .build();
-
-        statefulBeanToCsv.write(usage);
-
-        return Qute.fmt(
-                        """
-                                Total cost per currency: {totalCost}
-                                
-                                Cost usage in CSV format:
-                                {csv}
-                                """)
-                .data("totalCost", this.totalCostPerCurrency)
-                .data("csv", stringWriter.toString())
-                .render();
-    }
-}
+package data;
+
+import java.util.List;
+import java.util.Map;
+
+public record UsageReport<T extends Usage>(List<T> usage,
+                                           Map<String, Double> totalCostPerCurrency,
+                                           String freshness) implements Report {
+    private static final String ROWS_TITLE = "Cost usage";
+
+    public String generate() {
+        return generate(ReportFormat.CSV, null);
+    }
+
+    @Override
+    public List<T> rows() {
+        return usage;
+    }
+
+    @Override
+    public String generate(ReportFormat format, FormatConfig formatConfig, int until) {
+        return ReportRenderer.render("Total cost per currency", totalCostPerCurrency, freshness, ROWS_TITLE, usage,
+                until, format, formatConfig);
+    }
+
+    @Override
+    public String generateRows(ReportFormat format, FormatConfig formatConfig, int from, int until) {
+        return ReportRenderer.renderRows(ROWS_TITLE, usage, from, until, format, formatConfig);
+    }
+}
@@ -0,0 +1,156 @@
+package dimension;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
+import software.amazon.awssdk.services.costexplorer.model.Context;
+import software.amazon.awssdk.services.costexplorer.model.DateInterval;
+import software.amazon.awssdk.services.costexplorer.model.Dimension;
+import software.amazon.awssdk.services.costexplorer.model.DimensionValuesWithAttributes;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesResponse;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Local index of the values of the dimensions the tools take as arguments or group by, built from GetDimensionValues
+ * over the last {@link DimensionIndexConfig#lookbackMonths()} months and refreshed in the background. Arguments are
+ * checked against it before a query is sent, so a misspelled value is rejected, with suggestions, instead of costing
+ * a paginated scan which finds nothing.
+ */
+@ApplicationScoped
+public class DimensionIndex {
+    public static final List<Dimension> DIMENSIONS = List.of(Dimension.REGION, Dimension.SERVICE,
+            Dimension.LINKED_ACCOUNT, Dimension.RECORD_TYPE, Dimension.OPERATION);
+
+    Logger logger = Logger.getLogger(DimensionIndex.class);
+
+    private final CostExplorerClient costExplorerClient;
+    private final DimensionIndexConfig config;
+    private final Clock clock;
+    private final Map<Dimension, DimensionValueSet> values = new ConcurrentHashMap<>();
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    @Inject
+    public DimensionIndex(CostExplorerClient costExplorerClient, DimensionIndexConfig config) {
+        this(costExplorerClient, config, Clock.systemUTC());
+    }
+
+    public DimensionIndex(CostExplorerClient costExplorerClient, DimensionIndexConfig config, Clock clock) {
+        this.costExplorerClient = costExplorerClient;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (config.enabled()) {
+            Thread.ofVirtual().name("dimension-index").start(this::refresh);
+        }
+    }
+
+    @Scheduled(every = "${cost-explorer.dimension-index.refresh-interval}",
+            delayed = "${cost-explorer.dimension-index.refresh-interval}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledRefresh() {
+        if (config.enabled()) {
+            refresh();
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.enabled();
+    }
+
+    public int maxSuggestions() {
+        return config.maxSuggestions();
+    }
+
+    /**
+     * Reload the values of every indexed dimension. A dimension which fails keeps its previous values.
+     */
+    public void refresh() {
+        for (Dimension dimension : DIMENSIONS) {
+            try {
+                load(dimension);
+            } catch (RuntimeException e) {
+                logger.warnf(e, "Could not index the values of %s", dimension);
+            }
+        }
+    }
+
+    /**
+     * The values of the dimension if they were indexed already, without calling the API.
+     */
+    public Optional<DimensionValueSet> loaded(Dimension dimension) {
+        return config.enabled() ? Optional.ofNullable(values.get(dimension)) : Optional.empty();
+    }
+
+    /**
+     * The values of the dimension, loaded first if they were not indexed yet.
+     */
+    public DimensionValueSet values(Dimension dimension) {
+        DimensionValueSet loaded = values.get(dimension);
+        if (loaded != null) {
+            return loaded;
+        }
+
+        loadLock.lock();
+        try {
+            // Loaded by another call while this one was waiting for the lock
+            loaded = values.get(dimension);
+            return loaded != null ? loaded : fetch(dimension);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private void load(Dimension dimension) {
+        loadLock.lock();
+        try {
+            fetch(dimension);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private DimensionValueSet fetch(Dimension dimension) {
+        LocalDate today = LocalDate.now(clock);
+        DateInterval period = DateInterval.builder()
+                .start(today.withDayOfMonth(1).minusMonths(config.lookbackMonths()).toString())
+                .end(today.toString())
+                .build();
+
+        List<String> dimensionValues = new ArrayList<>();
+        String nextPageToken = null;
+        do {
+            GetDimensionValuesResponse response = costExplorerClient.getDimensionValues(
+                    GetDimensionValuesRequest.builder()
+                            .dimension(dimension)
+                            .context(Context.COST_AND_USAGE)
+                            .timePeriod(period)
+                            .nextPageToken(nextPageToken)
+                            .build());
+            for (DimensionValuesWithAttributes value : response.dimensionValues()) {
+                dimensionValues.add(value.value());
+            }
+            nextPageToken = response.nextPageToken();
+        } while (nextPageToken != null);
+
+        DimensionValueSet valueSet = new DimensionValueSet(dimensionValues, LocalDate.parse(period.start()),
+                LocalDate.parse(period.end()), clock.instant());
+        values.put(dimension, valueSet);
+        logger.infof("Indexed %d values of %s", valueSet.size(), dimension);
+        return valueSet;
+    }
+}
@@ -0,0 +1,19 @@
+package dimension;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "cost-explorer.dimension-index")
+public interface DimensionIndexConfig {
+    @WithDefault("true")
+    boolean enabled();
+
+    @WithDefault("3")
+    int lookbackMonths();
+
+    @WithDefault("24h")
+    String refreshInterval();
+
+    @WithDefault("5")
+    int maxSuggestions();
+}
@@ -0,0 +1,181 @@
+package dimension;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The values of one dimension, sorted case-insensitively so a prefix selects a contiguous range found by binary
+ * search. Close matches of unknown values are found with a bounded edit distance, which gives up on a candidate as
+ * soon as it exceeds the bound, so a lookup over a few thousand values takes microseconds. Only the values with costs
+ * between {@link #from()} and {@link #until()} are known.
+ */
+public final class DimensionValueSet {
+    private final String[] values;
+    private final String[] folded;
+    private final LocalDate from;
+    private final LocalDate until;
+    private final Instant loadedAt;
+
+    public DimensionValueSet(Collection<String> values, LocalDate from, LocalDate until, Instant loadedAt) {
+        this.values = values.stream()
+                .distinct()
+                .sorted(Comparator.comparing(DimensionValueSet::fold).thenComparing(Comparator.naturalOrder()))
+                .toArray(String[]::new);
+        this.folded = Arrays.stream(this.values).map(DimensionValueSet::fold).toArray(String[]::new);
+        this.from = from;
+        this.until = until;
+        this.loadedAt = loadedAt;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public Instant loadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * First day of the indexed period.
+     */
+    public LocalDate from() {
+        return from;
+    }
+
+    /**
+     * End of the indexed period, exclusive.
+     */
+    public LocalDate until() {
+        return until;
+    }
+
+    /**
+     * Whether the period from {@code startDate} to the exclusive {@code endDate} lies within the indexed one, so a
+     * value which is not known had no costs in it.
+     */
+    public boolean covers(LocalDate startDate, LocalDate endDate) {
+        return !startDate.isBefore(from) && !endDate.isAfter(until);
+    }
+
+    public boolean contains(String value) {
+        String key = fold(value);
+        for (int i = firstAtLeast(key); i < folded.length && folded[i].equals(key); i++) {
+            if (values[i].equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The value equal to the given one ignoring case, if exactly one is.
+     */
+    public Optional<String> ignoringCase(String value) {
+        String key = fold(value);
+        int index = firstAtLeast(key);
+        if (index < folded.length && folded[index].equals(key)
+                && (index + 1 == folded.length || !folded[index + 1].equals(key))) {
+            return Optional.of(values[index]);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The first {@code limit} values starting with the prefix ignoring case, every value with an empty prefix.
+     */
+    public List<String> withPrefix(String prefix, int limit) {
+        String key = fold(prefix);
+        List<String> matches = new ArrayList<>(Math.min(limit, values.length));
+        for (int i = firstAtLeast(key); i < folded.length && matches.size() < limit && folded[i].startsWith(key); i++) {
+            matches.add(values[i]);
+        }
+        return matches;
+    }
+
+    /**
+     * Up to {@code limit} values closest to the given one, values sharing its prefix first and then the ones within a
+     * few edits of it.
+     */
+    public List<String> closest(String value, int limit) {
+        List<String> matches = new ArrayList<>(withPrefix(value, limit));
+        if (matches.size() >= limit) {
+            return matches;
+        }
+
+        String key = fold(value);
+        int maxDistance = Math.max(2, key.length() / 3);
+        List<int[]> candidates = new ArrayList<>();
+        for (int i = 0; i < folded.length; i++) {
+            int distance = distance(key, folded[i], maxDistance);
+            if (distance <= maxDistance && !matches.contains(values[i])) {
+                candidates.add(new int[]{distance, i});
+            }
+        }
+        candidates.sort(Comparator.comparingInt((int[] candidate) -> candidate[0]).thenComparingInt(c -> c[1]));
+
+        for (int[] candidate : candidates) {
+            if (matches.size() >= limit) {
+                break;
+            }
+            matches.add(values[candidate[1]]);
+        }
+        return matches;
+    }
+
+    private int firstAtLeast(String key) {
+        int low = 0;
+        int high = folded.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (folded[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Levenshtein distance of the two strings, or {@code maxDistance + 1} as soon as it is certain to exceed it.
+     */
+    static int distance(String a, String b, int maxDistance) {
+        if (Math.abs(a.length() - b.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (rowMinimum > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static String fold(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
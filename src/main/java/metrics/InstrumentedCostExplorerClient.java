@@ -0,0 +1,55 @@
+package metrics;
+
+import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesResponse;
+
+import java.util.function.Supplier;
+
+/**
+ * Decorates the client which actually talks to Cost Explorer, recording the latency and the failures of every page
+ * request, retries included.
+ */
+public class InstrumentedCostExplorerClient implements CostExplorerClient {
+    private final CostExplorerClient delegate;
+    private final ServerMetrics serverMetrics;
+
+    public InstrumentedCostExplorerClient(CostExplorerClient delegate, ServerMetrics serverMetrics) {
+        this.delegate = delegate;
+        this.serverMetrics = serverMetrics;
+    }
+
+    @Override
+    public GetCostAndUsageResponse getCostAndUsage(GetCostAndUsageRequest request) {
+        return record(() -> delegate.getCostAndUsage(request));
+    }
+
+    @Override
+    public GetDimensionValuesResponse getDimensionValues(GetDimensionValuesRequest request) {
+        return record(() -> delegate.getDimensionValues(request));
+    }
+
+    @Override
+    public String serviceName() {
+        return delegate.serviceName();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private <R> R record(Supplier<R> apiCall) {
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            R response = apiCall.get();
+            failed = false;
+            return response;
+        } finally {
+            serverMetrics.recordAwsCall(System.nanoTime() - started, failed);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package metrics;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "cost-explorer.metrics")
+public interface MetricsConfig {
+    @WithDefault("5m")
+    String logInterval();
+}
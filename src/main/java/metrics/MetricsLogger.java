@@ -0,0 +1,65 @@
+package metrics;
+
+import cache.CacheStats;
+import cache.ResponseCache;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import ratelimit.AdaptiveRateLimiter;
+
+import java.util.Map;
+
+/**
+ * Writes a snapshot of the {@link ServerMetrics} to the log at a fixed interval, as key=value pairs which log
+ * processors can parse. Intervals without any tool call are skipped.
+ */
+@ApplicationScoped
+public class MetricsLogger {
+    Logger logger = Logger.getLogger(MetricsLogger.class);
+
+    private final ServerMetrics serverMetrics;
+    private final AdaptiveRateLimiter rateLimiter;
+    private final ResponseCache responseCache;
+    private long loggedToolCalls;
+
+    @Inject
+    public MetricsLogger(ServerMetrics serverMetrics, AdaptiveRateLimiter rateLimiter, ResponseCache responseCache) {
+        this.serverMetrics = serverMetrics;
+        this.rateLimiter = rateLimiter;
+        this.responseCache = responseCache;
+    }
+
+    @Scheduled(every = "${cost-explorer.metrics.log-interval}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void logSnapshot() {
+        Map<String, ServerMetrics.ToolMetrics> tools = serverMetrics.tools();
+        long toolCalls = tools.values().stream().mapToLong(tool -> tool.latencyNanos().count()).sum();
+        if (toolCalls == loggedToolCalls) {
+            return;
+        }
+        loggedToolCalls = toolCalls;
+
+        tools.forEach((name, tool) -> logger.infof(
+                "metrics tool=%s calls=%d errors=%d p50_ms=%.1f p90_ms=%.1f p99_ms=%.1f max_ms=%.1f " +
+                        "avg_output_bytes=%.0f",
+                name, tool.latencyNanos().count(), tool.errors(),
+                ServerMetrics.millis(tool.latencyNanos().percentile(0.50)),
+                ServerMetrics.millis(tool.latencyNanos().percentile(0.90)),
+                ServerMetrics.millis(tool.latencyNanos().percentile(0.99)),
+                ServerMetrics.millis(tool.latencyNanos().max()),
+                tool.outputBytes().mean()));
+
+        Histogram awsCalls = serverMetrics.awsCallNanos();
+        CacheStats cacheStats = responseCache.stats();
+        logger.infof("metrics aws_calls=%d aws_errors=%d aws_p50_ms=%.1f aws_p99_ms=%.1f throttled=%d retries=%d " +
+                        "queries=%d pages_per_query_p50=%d pages_per_query_max=%d rows_aggregated=%d groups=%d " +
+                        "cache_hit_ratio=%.2f",
+                awsCalls.count(), serverMetrics.awsErrors(),
+                ServerMetrics.millis(awsCalls.percentile(0.50)), ServerMetrics.millis(awsCalls.percentile(0.99)),
+                rateLimiter.throttled(), rateLimiter.retries(),
+                serverMetrics.pagesPerQuery().count(), serverMetrics.pagesPerQuery().percentile(0.50),
+                serverMetrics.pagesPerQuery().max(), serverMetrics.rowsPerQuery().sum(), serverMetrics.groups(),
+                cacheStats.hitRatio());
+    }
+}
@@ -0,0 +1,123 @@
+package metrics;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process metrics of the hot path: the tool calls, the queries behind them and the Cost Explorer requests they
+ * send. Stdio servers have no endpoint to scrape, so the metrics are read through the getServerMetrics tool and the
+ * periodic log snapshots of {@link MetricsLogger}.
+ */
+@ApplicationScoped
+public class ServerMetrics {
+    private final ConcurrentMap<String, ToolMetrics> tools = new ConcurrentHashMap<>();
+
+    private final Histogram awsCallNanos = new Histogram();
+    private final LongAdder awsErrors = new LongAdder();
+
+    private final Histogram pagesPerQuery = new Histogram();
+    private final Histogram rowsPerQuery = new Histogram();
+    private final LongAdder groups = new LongAdder();
+
+    public static final class ToolMetrics {
+        private final Histogram latencyNanos = new Histogram();
+        private final Histogram outputBytes = new Histogram();
+        private final LongAdder errors = new LongAdder();
+
+        public Histogram latencyNanos() {
+            return latencyNanos;
+        }
+
+        public Histogram outputBytes() {
+            return outputBytes;
+        }
+
+        public long errors() {
+            return errors.sum();
+        }
+    }
+
+    /**
+     * Record a tool call. The output is null when the call failed.
+     */
+    public void recordTool(String tool, long nanos, String output) {
+        ToolMetrics toolMetrics = tools.computeIfAbsent(tool, ignored -> new ToolMetrics());
+        toolMetrics.latencyNanos.record(nanos);
+        if (output == null) {
+            toolMetrics.errors.increment();
+        } else {
+            toolMetrics.outputBytes.record(utf8Length(output));
+        }
+    }
+
+    public void recordAwsCall(long nanos, boolean failed) {
+        awsCallNanos.record(nanos);
+        if (failed) {
+            awsErrors.increment();
+        }
+    }
+
+    /**
+     * Record a query answered by the API: the pages read, from the API or the cache, the rows aggregated and the
+     * distinct groups they were aggregated into.
+     */
+    public void recordQuery(long pages, long rows, int distinctGroups) {
+        pagesPerQuery.record(pages);
+        rowsPerQuery.record(rows);
+        groups.add(distinctGroups);
+    }
+
+    /**
+     * Per tool metrics, sorted by tool name.
+     */
+    public Map<String, ToolMetrics> tools() {
+        return new TreeMap<>(tools);
+    }
+
+    public Histogram awsCallNanos() {
+        return awsCallNanos;
+    }
+
+    public long awsErrors() {
+        return awsErrors.sum();
+    }
+
+    public Histogram pagesPerQuery() {
+        return pagesPerQuery;
+    }
+
+    public Histogram rowsPerQuery() {
+        return rowsPerQuery;
+    }
+
+    public long groups() {
+        return groups.sum();
+    }
+
+    public static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static long utf8Length(String value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
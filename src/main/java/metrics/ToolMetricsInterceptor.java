@@ -0,0 +1,32 @@
+package metrics;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+
+@Instrumented
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class ToolMetricsInterceptor {
+    private final ServerMetrics serverMetrics;
+
+    @Inject
+    public ToolMetricsInterceptor(ServerMetrics serverMetrics) {
+        this.serverMetrics = serverMetrics;
+    }
+
+    @AroundInvoke
+    Object record(InvocationContext context) throws Exception {
+        long started = System.nanoTime();
+        Object result = null;
+        try {
+            result = context.proceed();
+            return result;
+        } finally {
+            serverMetrics.recordTool(context.getMethod().getName(), System.nanoTime() - started,
+                    result == null ? null : result.toString());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package prefetch;
+
+import cache.ResponseCache;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import query.CostAndUsageFetcher;
+import query.CostDataset;
+import query.CostQuery;
+import ratelimit.ApiBudget;
+import ratelimit.BudgetExceededException;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fetches the queries a session most likely starts with into the response cache: every {@link CostDataset} over all
+ * regions for the last {@link PrefetchConfig#months()} closed months, the shortest period first. Closed months are
+ * persisted by the disk tier, so the first answer of a session is a cache hit even right after a restart. Periods of
+ * several months reuse the month slices fetched before them and cost no extra request.
+ */
+@ApplicationScoped
+public class CachePrefetcher {
+    Logger logger = Logger.getLogger(CachePrefetcher.class);
+
+    private final CostAndUsageFetcher costAndUsageFetcher;
+    private final ResponseCache responseCache;
+    private final ApiBudget apiBudget;
+    private final PrefetchConfig config;
+    private final Clock clock;
+    private final ReentrantLock prefetchLock = new ReentrantLock();
+
+    @Inject
+    public CachePrefetcher(CostAndUsageFetcher costAndUsageFetcher, ResponseCache responseCache, ApiBudget apiBudget,
+                           PrefetchConfig config) {
+        this(costAndUsageFetcher, responseCache, apiBudget, config, Clock.systemUTC());
+    }
+
+    public CachePrefetcher(CostAndUsageFetcher costAndUsageFetcher, ResponseCache responseCache, ApiBudget apiBudget,
+                           PrefetchConfig config, Clock clock) {
+        this.costAndUsageFetcher = costAndUsageFetcher;
+        this.responseCache = responseCache;
+        this.apiBudget = apiBudget;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (config.enabled()) {
+            Thread.ofVirtual().name("cache-prefetch").start(this::prefetch);
+        }
+    }
+
+    @Scheduled(cron = "${cost-explorer.prefetch.cron}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledPrefetch() {
+        if (config.enabled()) {
+            prefetch();
+        }
+    }
+
+    public void prefetch() {
+        if (!responseCache.isEnabled()) {
+            logger.info("The response cache is disabled, nothing to prefetch");
+            return;
+        }
+
+        prefetchLock.lock();
+        try {
+            prefetchQueries(queries(LocalDate.now(clock)));
+        } finally {
+            prefetchLock.unlock();
+        }
+    }
+
+    private void prefetchQueries(List<CostQuery> queries) {
+        Semaphore permits = new Semaphore(Math.max(1, config.maxConcurrency()));
+        AtomicBoolean budgetSpent = new AtomicBoolean();
+        LongAdder prefetched = new LongAdder();
+        LongAdder failed = new LongAdder();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (CostQuery query : queries) {
+                permits.acquireUninterruptibly();
+                // Checked once the previous query is done, so its requests are already counted. The next query sends
+                // at least one request, which must not come out of the reserve
+                if (budgetSpent.get() || !apiBudget.hasRemaining(config.budgetReserve() + 1)) {
+                    permits.release();
+                    budgetSpent.set(true);
+                    break;
+                }
+
+                executor.submit(() -> {
+                    try {
+                        costAndUsageFetcher.fetch(query.toRequest());
+                        prefetched.increment();
+                    } catch (BudgetExceededException e) {
+                        budgetSpent.set(true);
+                    } catch (RuntimeException e) {
+                        failed.increment();
+                        logger.warnf(e, "Could not prefetch %s - %s", query.startDate(), query.endDate());
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+
+        logger.infof("Prefetched %d of %d queries into the response cache, %d failed%s", prefetched.sum(),
+                queries.size(), failed.sum(), budgetSpent.get() ? ", stopped to keep the budget reserve" : "");
+    }
+
+    private List<CostQuery> queries(LocalDate today) {
+        LocalDate end = today.withDayOfMonth(1);
+        List<CostQuery> queries = new ArrayList<>();
+
+        for (int months = 1; months <= config.months(); months++) {
+            String startDate = end.minusMonths(months).toString();
+            for (CostDataset dataset : CostDataset.values()) {
+                queries.add(dataset.query(startDate, end.toString(), List.of()));
+            }
+        }
+        return queries;
+    }
+}
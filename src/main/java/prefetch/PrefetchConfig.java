@@ -0,0 +1,22 @@
+package prefetch;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "cost-explorer.prefetch")
+public interface PrefetchConfig {
+    @WithDefault("false")
+    boolean enabled();
+
+    @WithDefault("0 0 6 * * ?")
+    String cron();
+
+    @WithDefault("3")
+    int months();
+
+    @WithDefault("1")
+    int maxConcurrency();
+
+    @WithDefault("100")
+    int budgetReserve();
+}
@@ -0,0 +1,59 @@
+package query;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregated groups of a query together with the freshness of the data they were built from.
+ */
+public record Aggregation(CostAggregator aggregator, DataFreshness freshness) {
+    /**
+     * Merge the aggregations of the same query in several accounts. The name of the account becomes the first key of
+     * every group, the freshness is the one of the oldest data.
+     */
+    public static Aggregation perAccount(Map<String, Aggregation> aggregations) {
+        int width = 0;
+        int groups = 0;
+        for (Aggregation aggregation : aggregations.values()) {
+            width = aggregation.aggregator.width();
+            groups += aggregation.aggregator.size();
+        }
+
+        CostAggregator merged = new CostAggregator(width + 1, groups);
+        DataFreshness oldest = null;
+        String[] keys = new String[width + 1];
+        List<String> keyList = Arrays.asList(keys);
+
+        for (Map.Entry<String, Aggregation> account : aggregations.entrySet()) {
+            CostAggregator aggregator = account.getValue().aggregator;
+            keys[0] = account.getKey();
+            for (int slot = 0; slot < aggregator.size(); slot++) {
+                for (int part = 0; part < width; part++) {
+                    keys[part + 1] = aggregator.key(slot, part);
+                }
+                merged.add(keyList, aggregator.currency(slot), aggregator.value(slot));
+            }
+
+            DataFreshness freshness = account.getValue().freshness;
+            oldest = oldest == null ? freshness : oldest.older(freshness);
+        }
+
+        return new Aggregation(merged, oldest);
+    }
+
+    /**
+     * The {@code limit} rows with the highest value plus an "Other" row per currency, or every row with a limit of 0.
+     */
+    public <T> QueryResult<T> result(RowMapper<T> rowMapper, int limit) {
+        return new QueryResult<>(aggregator.rows(rowMapper, limit), aggregator.totalPerCurrency(), freshness);
+    }
+
+    /**
+     * The result of an aggregation merged by {@link #perAccount(Map)}, whose "Other" rows are labelled in the first
+     * key after the account.
+     */
+    public <T> QueryResult<T> perAccountResult(RowMapper<T> rowMapper, int limit) {
+        return new QueryResult<>(aggregator.rows(rowMapper, limit, 1), aggregator.totalPerCurrency(), freshness);
+    }
+}
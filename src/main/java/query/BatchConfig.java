@@ -0,0 +1,13 @@
+package query;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "cost-explorer.batch")
+public interface BatchConfig {
+    @WithDefault("20")
+    int maxQueries();
+
+    @WithDefault("4")
+    int maxConcurrency();
+}
@@ -0,0 +1,32 @@
+package query;
+
+/**
+ * The aggregation of one query of a batch, or the exception which failed it.
+ */
+public record BatchOutcome(Aggregation aggregation, RuntimeException error) {
+    static BatchOutcome of(Aggregation aggregation) {
+        return new BatchOutcome(aggregation, null);
+    }
+
+    static BatchOutcome failed(RuntimeException error) {
+        return new BatchOutcome(null, error);
+    }
+
+    /**
+     * The aggregation of the query, or the exception which failed it.
+     */
+    public Aggregation aggregationOrThrow() {
+        if (error != null) {
+            throw error;
+        }
+        return aggregation;
+    }
+
+    /**
+     * The rows of the query like {@link QueryEngine#execute(CostQuery, RowMapper, int)} returns them, or the
+     * exception which failed the query.
+     */
+    public <T> QueryResult<T> result(RowMapper<T> rowMapper, int limit) {
+        return aggregationOrThrow().result(rowMapper, limit);
+    }
+}
@@ -0,0 +1,13 @@
+package query;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "cost-explorer.comparison")
+public interface ComparisonConfig {
+    @WithDefault("10")
+    int defaultLimit();
+
+    @WithDefault("1.0")
+    double minRelativeBase();
+}
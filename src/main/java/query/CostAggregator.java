@@ -0,0 +1,429 @@
+package query;
+
+import java.util.*;
+
+/**
+ * Sums amounts per group and per currency. Groups are stored in an open addressing table over flat primitive arrays,
+ * so adding a row allocates nothing once its group has been seen. Key strings are interned, so a service name
+ * repeated across thousands of groups is kept once. Sums use Neumaier's compensated summation, the totals do not
+ * drift when many small amounts are added to large ones.
+ */
+public final class CostAggregator {
+    private static final int EMPTY = -1;
+
+    private final int width;
+    private final Map<String, String> internedStrings = new HashMap<>();
+
+    private int[] table;
+    private int[] hashes;
+    private String[] keys;
+    private int[] currencies;
+    private double[] sums;
+    private double[] compensations;
+    private int size;
+
+    private final List<String> currencyNames = new ArrayList<>(2);
+    private double[] currencySums = new double[2];
+    private double[] currencyCompensations = new double[2];
+
+    /**
+     * @param width number of group-by keys of every row
+     */
+    public CostAggregator(int width) {
+        this(width, 64);
+    }
+
+    public CostAggregator(int width, int expectedGroups) {
+        this.width = width;
+        int capacity = Integer.highestOneBit(Math.max(16, expectedGroups) * 2 - 1) << 1;
+        this.table = new int[capacity];
+        Arrays.fill(this.table, EMPTY);
+        int slots = capacity / 2;
+        this.hashes = new int[slots];
+        this.keys = new String[slots * width];
+        this.currencies = new int[slots];
+        this.sums = new double[slots];
+        this.compensations = new double[slots];
+    }
+
+    /**
+     * Add the amount to its group and return the slot of the group.
+     */
+    public int add(List<String> groupKeys, String currency, double amount) {
+        int currencyIndex = currencyIndex(currency);
+        addToTotal(currencyIndex, amount);
+
+        int hash = hash(groupKeys, currencyIndex);
+        int mask = table.length - 1;
+        int bucket = hash & mask;
+
+        while (true) {
+            int slot = table[bucket];
+
+            if (slot == EMPTY) {
+                slot = insert(groupKeys, currencyIndex, hash);
+                table[bucket] = slot;
+                accumulate(slot, amount);
+                if (size * 2 > table.length) {
+                    rehash();
+                }
+                return slot;
+            }
+
+            if (hashes[slot] == hash && currencies[slot] == currencyIndex && keysEqual(slot, groupKeys)) {
+                accumulate(slot, amount);
+                return slot;
+            }
+
+            bucket = (bucket + 1) & mask;
+        }
+    }
+
+    /**
+     * The slot of the group, or -1 if no amount was added to it.
+     */
+    public int find(List<String> groupKeys, String currency) {
+        int currencyIndex = currencyNames.indexOf(currency);
+        if (currencyIndex < 0) {
+            return EMPTY;
+        }
+
+        int hash = hash(groupKeys, currencyIndex);
+        int mask = table.length - 1;
+        for (int bucket = hash & mask; table[bucket] != EMPTY; bucket = (bucket + 1) & mask) {
+            int slot = table[bucket];
+            if (hashes[slot] == hash && currencies[slot] == currencyIndex && keysEqual(slot, groupKeys)) {
+                return slot;
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Add every group of another aggregator, as if its rows had been added here.
+     */
+    public void addAll(CostAggregator other) {
+        String[] otherKeys = new String[other.width];
+        List<String> otherKeyList = Arrays.asList(otherKeys);
+        for (int slot = 0; slot < other.size; slot++) {
+            System.arraycopy(other.keys, slot * other.width, otherKeys, 0, other.width);
+            add(otherKeyList, other.currency(slot), other.value(slot));
+        }
+    }
+
+    /**
+     * Number of group-by keys of every row.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Number of distinct groups.
+     */
+    public int size() {
+        return size;
+    }
+
+    public String key(int slot, int part) {
+        return keys[slot * width + part];
+    }
+
+    public String currency(int slot) {
+        return currencyNames.get(currencies[slot]);
+    }
+
+    public double value(int slot) {
+        return sums[slot] + compensations[slot];
+    }
+
+    /**
+     * Totals per currency, in the order the currencies were first seen.
+     */
+    public Map<String, Double> totalPerCurrency() {
+        Map<String, Double> totals = new LinkedHashMap<>();
+        for (int i = 0; i < currencyNames.size(); i++) {
+            totals.put(currencyNames.get(i), currencySums[i] + currencyCompensations[i]);
+        }
+        return totals;
+    }
+
+    /**
+     * Map every group into a record, sorted by descending value. Groups with the same value keep the order in which
+     * they were first seen.
+     */
+    public <T> List<T> rows(RowMapper<T> rowMapper) {
+        int[] order = orderByValueDescending();
+        List<T> rows = new ArrayList<>(order.length);
+        for (int slot : order) {
+            rows.add(map(slot, rowMapper));
+        }
+        return rows;
+    }
+
+    /**
+     * Map the {@code limit} groups with the highest value into records, sorted by descending value, followed by one
+     * "Other" record per currency holding the sum of the remaining groups. The groups are selected with a bounded
+     * heap, the long tail is neither sorted nor mapped.
+     */
+    public <T> List<T> rows(RowMapper<T> rowMapper, int limit) {
+        return rows(rowMapper, limit, 0);
+    }
+
+    /**
+     * Like {@link #rows(RowMapper, int)}, with the label of the "Other" records in the key {@code labelKey}.
+     */
+    public <T> List<T> rows(RowMapper<T> rowMapper, int limit, int labelKey) {
+        if (limit <= 0 || limit >= size) {
+            return rows(rowMapper);
+        }
+
+        int[] top = topByValue(limit);
+        boolean[] selected = new boolean[size];
+        List<T> rows = new ArrayList<>(limit + currencyNames.size());
+        for (int slot : top) {
+            selected[slot] = true;
+            rows.add(map(slot, rowMapper));
+        }
+
+        double[] otherSums = new double[currencyNames.size()];
+        double[] otherCompensations = new double[currencyNames.size()];
+        int[] otherCounts = new int[currencyNames.size()];
+        for (int slot = 0; slot < size; slot++) {
+            if (selected[slot]) {
+                continue;
+            }
+            int currencyIndex = currencies[slot];
+            double sum = otherSums[currencyIndex];
+            double amount = value(slot);
+            double total = sum + amount;
+            otherCompensations[currencyIndex] += Math.abs(sum) >= Math.abs(amount)
+                    ? (sum - total) + amount
+                    : (amount - total) + sum;
+            otherSums[currencyIndex] = total;
+            otherCounts[currencyIndex]++;
+        }
+
+        for (int currencyIndex = 0; currencyIndex < currencyNames.size(); currencyIndex++) {
+            if (otherCounts[currencyIndex] == 0) {
+                continue;
+            }
+            String[] otherKeys = new String[width];
+            Arrays.fill(otherKeys, "");
+            if (width > 0) {
+                otherKeys[Math.min(labelKey, width - 1)] = "Other (" + otherCounts[currencyIndex] + " groups)";
+            }
+            rows.add(rowMapper.map(otherKeys, currencyNames.get(currencyIndex),
+                    otherSums[currencyIndex] + otherCompensations[currencyIndex]));
+        }
+
+        return rows;
+    }
+
+    /**
+     * Slots of the {@code limit} groups with the highest value, sorted by descending value. Groups with the same
+     * value keep the order in which they were first seen, exactly like in {@link #orderByValueDescending()}.
+     */
+    public int[] topByValue(int limit) {
+        int capacity = Math.min(limit, size);
+        int[] heap = new int[capacity];
+        int heapSize = 0;
+
+        for (int slot = 0; slot < size; slot++) {
+            if (heapSize < capacity) {
+                heap[heapSize] = slot;
+                siftUp(heap, heapSize++);
+            } else if (ranksBefore(slot, heap[0])) {
+                heap[0] = slot;
+                siftDown(heap, heapSize);
+            }
+        }
+
+        int[] top = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            top[i] = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize);
+        }
+        return top;
+    }
+
+    public <T> T map(int slot, RowMapper<T> rowMapper) {
+        String[] rowKeys = new String[width];
+        System.arraycopy(keys, slot * width, rowKeys, 0, width);
+        return rowMapper.map(rowKeys, currency(slot), value(slot));
+    }
+
+    /**
+     * Slots sorted by descending value with a stable merge sort on primitive arrays.
+     */
+    public int[] orderByValueDescending() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        int[] buffer = new int[size];
+        for (int run = 1; run < size; run *= 2) {
+            for (int low = 0; low < size - run; low += 2 * run) {
+                int middle = low + run;
+                int high = Math.min(low + 2 * run, size);
+                int left = low;
+                int right = middle;
+                int target = low;
+
+                while (left < middle && right < high) {
+                    if (Double.compare(value(order[right]), value(order[left])) > 0) {
+                        buffer[target++] = order[right++];
+                    } else {
+                        buffer[target++] = order[left++];
+                    }
+                }
+                while (left < middle) {
+                    buffer[target++] = order[left++];
+                }
+                while (right < high) {
+                    buffer[target++] = order[right++];
+                }
+                System.arraycopy(buffer, low, order, low, high - low);
+            }
+        }
+
+        return order;
+    }
+
+    private boolean ranksBefore(int a, int b) {
+        int comparison = Double.compare(value(a), value(b));
+        return comparison > 0 || (comparison == 0 && a < b);
+    }
+
+    // Min-heap by rank, the root is the group ranked last
+    private void siftUp(int[] heap, int index) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!ranksBefore(heap[parent], slot)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = slot;
+    }
+
+    private void siftDown(int[] heap, int heapSize) {
+        if (heapSize == 0) {
+            return;
+        }
+
+        int index = 0;
+        int slot = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && ranksBefore(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!ranksBefore(slot, heap[child])) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = slot;
+    }
+
+    private int currencyIndex(String currency) {
+        for (int i = 0; i < currencyNames.size(); i++) {
+            if (currencyNames.get(i).equals(currency)) {
+                return i;
+            }
+        }
+
+        currencyNames.add(intern(currency));
+        if (currencyNames.size() > currencySums.length) {
+            currencySums = Arrays.copyOf(currencySums, currencySums.length * 2);
+            currencyCompensations = Arrays.copyOf(currencyCompensations, currencyCompensations.length * 2);
+        }
+        return currencyNames.size() - 1;
+    }
+
+    private void addToTotal(int currencyIndex, double amount) {
+        double sum = currencySums[currencyIndex];
+        double total = sum + amount;
+        currencyCompensations[currencyIndex] += Math.abs(sum) >= Math.abs(amount)
+                ? (sum - total) + amount
+                : (amount - total) + sum;
+        currencySums[currencyIndex] = total;
+    }
+
+    private void accumulate(int slot, double amount) {
+        double sum = sums[slot];
+        double total = sum + amount;
+        compensations[slot] += Math.abs(sum) >= Math.abs(amount)
+                ? (sum - total) + amount
+                : (amount - total) + sum;
+        sums[slot] = total;
+    }
+
+    private int insert(List<String> groupKeys, int currencyIndex, int hash) {
+        if (size == hashes.length) {
+            int slots = hashes.length * 2;
+            hashes = Arrays.copyOf(hashes, slots);
+            keys = Arrays.copyOf(keys, slots * width);
+            currencies = Arrays.copyOf(currencies, slots);
+            sums = Arrays.copyOf(sums, slots);
+            compensations = Arrays.copyOf(compensations, slots);
+        }
+
+        int slot = size++;
+        hashes[slot] = hash;
+        currencies[slot] = currencyIndex;
+        for (int i = 0; i < width; i++) {
+            keys[slot * width + i] = intern(keyPart(groupKeys, i));
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        Arrays.fill(table, EMPTY);
+        int mask = table.length - 1;
+
+        for (int slot = 0; slot < size; slot++) {
+            int bucket = hashes[slot] & mask;
+            while (table[bucket] != EMPTY) {
+                bucket = (bucket + 1) & mask;
+            }
+            table[bucket] = slot;
+        }
+    }
+
+    private boolean keysEqual(int slot, List<String> groupKeys) {
+        for (int i = 0; i < width; i++) {
+            if (!keys[slot * width + i].equals(keyPart(groupKeys, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hash(List<String> groupKeys, int currencyIndex) {
+        int hash = currencyIndex;
+        for (int i = 0; i < width; i++) {
+            hash = 31 * hash + keyPart(groupKeys, i).hashCode();
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static String keyPart(List<String> groupKeys, int part) {
+        return part < groupKeys.size() ? groupKeys.get(part) : "";
+    }
+
+    private String intern(String value) {
+        String interned = internedStrings.putIfAbsent(value, value);
+        return interned == null ? value : interned;
+    }
+}
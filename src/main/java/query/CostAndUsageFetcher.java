@@ -0,0 +1,249 @@
+package query;
+
+import cache.CachedResponse;
+import cache.CachingCostExplorerClient;
+import cache.ResponseCache;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
+import software.amazon.awssdk.services.costexplorer.model.DateInterval;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+import software.amazon.awssdk.services.costexplorer.model.Granularity;
+import software.amazon.awssdk.services.costexplorer.model.ResultByTime;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Runs a GetCostAndUsage request to completion, following every page. Ranges spanning several slices (calendar
+ * months by default) are split, and each slice is paginated on its own virtual thread. Slices already in the
+ * response cache are read on the calling thread without taking a concurrency permit. Every page carries the time it
+ * was fetched from the API, which is in the past for the pages served from the cache. The locks held while fetching,
+ * here and in its callers, are ReentrantLocks: a virtual thread waiting on the API within a synchronized block would
+ * pin its carrier.
+ */
+@ApplicationScoped
+public class CostAndUsageFetcher {
+    Logger logger = Logger.getLogger(CostAndUsageFetcher.class);
+
+    private final CostExplorerClient costExplorerClient;
+    private final ResponseCache responseCache;
+    private final FanOutConfig config;
+    private final Clock clock;
+
+    @Inject
+    public CostAndUsageFetcher(CostExplorerClient costExplorerClient, ResponseCache responseCache,
+                               FanOutConfig config) {
+        this(costExplorerClient, responseCache, config, Clock.systemUTC());
+    }
+
+    public CostAndUsageFetcher(CostExplorerClient costExplorerClient, ResponseCache responseCache,
+                               FanOutConfig config, Clock clock) {
+        this.costExplorerClient = costExplorerClient;
+        this.responseCache = responseCache;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    /**
+     * Fetch all the results of the request. Results are returned in chronological slice order, so the output is
+     * the same whether the slices were fetched sequentially or in parallel.
+     */
+    public List<ResultByTime> fetch(GetCostAndUsageRequest request) {
+        return fetch(request, new FetchedPages());
+    }
+
+    /**
+     * Fetch all the results of the request, adding the pages read, from the API or the cache, to {@code pages}.
+     */
+    public List<ResultByTime> fetch(GetCostAndUsageRequest request, FetchedPages pages) {
+        List<DateInterval> slices = slices(request, config);
+
+        if (slices.size() == 1) {
+            return fetchAllPages(request, pages);
+        }
+
+        logger.debugf("Splitting %s - %s into %d slices", request.timePeriod().start(), request.timePeriod().end(),
+                slices.size());
+
+        List<List<ResultByTime>> sliceResults = new ArrayList<>(slices.size());
+        List<Future<List<ResultByTime>>> pending = new ArrayList<>(slices.size());
+        Semaphore permits = new Semaphore(Math.max(1, config.maxConcurrency()));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (DateInterval slice : slices) {
+                GetCostAndUsageRequest sliceRequest = request.toBuilder().timePeriod(slice).build();
+
+                if (responseCache.contains(sliceRequest)) {
+                    sliceResults.add(fetchAllPages(sliceRequest, pages));
+                    pending.add(null);
+                    continue;
+                }
+
+                sliceResults.add(null);
+                pending.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return fetchAllPages(sliceRequest, pages);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            List<ResultByTime> results = new ArrayList<>();
+            for (int i = 0; i < slices.size(); i++) {
+                results.addAll(pending.get(i) == null ? sliceResults.get(i) : await(pending.get(i)));
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Pass every result of the request to the consumer as its page arrives, without keeping the pages, so the memory
+     * needed is that of the pages in flight. Slices are fetched like in {@link #fetch(GetCostAndUsageRequest)}, the
+     * consumer is called by one thread at a time but in no particular slice order.
+     */
+    public void fetch(GetCostAndUsageRequest request, FetchedPages pages, Consumer<ResultByTime> consumer) {
+        List<DateInterval> slices = slices(request, config);
+        if (slices.size() == 1) {
+            forEachPage(request, pages, consumer);
+            return;
+        }
+
+        ReentrantLock consumerLock = new ReentrantLock();
+        Consumer<ResultByTime> serializedConsumer = result -> {
+            consumerLock.lock();
+            try {
+                consumer.accept(result);
+            } finally {
+                consumerLock.unlock();
+            }
+        };
+        Semaphore permits = new Semaphore(Math.max(1, config.maxConcurrency()));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Void>> pending = new ArrayList<>(slices.size());
+            for (DateInterval slice : slices) {
+                GetCostAndUsageRequest sliceRequest = request.toBuilder().timePeriod(slice).build();
+
+                if (responseCache.contains(sliceRequest)) {
+                    forEachPage(sliceRequest, pages, serializedConsumer);
+                    continue;
+                }
+
+                pending.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        forEachPage(sliceRequest, pages, serializedConsumer);
+                        return null;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            for (Future<Void> slice : pending) {
+                await(slice);
+            }
+        }
+    }
+
+    /**
+     * Slices of the request, the same for both ways of fetching it. HOURLY requests cover at most 14 days and are
+     * never split, MONTHLY ones are always split into calendar months, so that no month is returned in pieces. The
+     * planner looks up the same slices in the cache.
+     */
+    static List<DateInterval> slices(GetCostAndUsageRequest request, FanOutConfig config) {
+        if (!config.enabled() || request.granularity() == Granularity.HOURLY) {
+            return List.of(request.timePeriod());
+        }
+        return slice(request.timePeriod(), request.granularity() == Granularity.MONTHLY ? 0 : config.sliceDays());
+    }
+
+    private List<ResultByTime> fetchAllPages(GetCostAndUsageRequest request, FetchedPages pages) {
+        List<ResultByTime> results = new ArrayList<>();
+        forEachPage(request, pages, results::add);
+        return results;
+    }
+
+    private void forEachPage(GetCostAndUsageRequest request, FetchedPages pages, Consumer<ResultByTime> consumer) {
+        String nextPageToken = null;
+
+        do {
+            GetCostAndUsageRequest pageRequest = request.toBuilder()
+                    .nextPageToken(nextPageToken)
+                    .build();
+            GetCostAndUsageResponse response;
+            Instant requestedAt = clock.instant();
+            if (costExplorerClient instanceof CachingCostExplorerClient cachingClient) {
+                CachedResponse page = cachingClient.getCachedCostAndUsage(pageRequest);
+                response = page.response();
+                // Pages fetched by this request are cached as they arrive, older ones were served from the cache
+                if (!page.fetchedAt().isBefore(requestedAt)) {
+                    pages.add(DataFreshness.api(requestedAt));
+                } else if (page.isImmutable()) {
+                    pages.addClosed(DataFreshness.cache(page.fetchedAt()));
+                } else {
+                    pages.add(DataFreshness.cache(page.fetchedAt()));
+                }
+            } else {
+                response = costExplorerClient.getCostAndUsage(pageRequest);
+                pages.add(DataFreshness.api(requestedAt));
+            }
+            response.resultsByTime().forEach(consumer);
+            nextPageToken = response.nextPageToken();
+        } while (nextPageToken != null);
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching cost and usage", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Split the [start, end) interval into calendar months, or into chunks of {@code sliceDays} days.
+     */
+    static List<DateInterval> slice(DateInterval timePeriod, int sliceDays) {
+        LocalDate start = LocalDate.parse(timePeriod.start());
+        LocalDate end = LocalDate.parse(timePeriod.end());
+
+        List<DateInterval> slices = new ArrayList<>();
+        while (start.isBefore(end)) {
+            LocalDate next = sliceDays > 0
+                    ? start.plusDays(sliceDays)
+                    : start.withDayOfMonth(1).plusMonths(1);
+            if (next.isAfter(end)) {
+                next = end;
+            }
+            slices.add(DateInterval.builder()
+                    .start(start.toString())
+                    .end(next.toString())
+                    .build());
+            start = next;
+        }
+
+        return slices.isEmpty() ? List.of(timePeriod) : slices;
+    }
+}
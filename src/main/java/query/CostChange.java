@@ -0,0 +1,18 @@
+package query;
+
+/**
+ * The amounts of one group and currency in the base and in the compared period. A group missing from one of the
+ * periods has an amount of 0 in it.
+ */
+public record CostChange(String[] keys, String currency, double baseValue, double comparedValue) {
+    public double change() {
+        return comparedValue - baseValue;
+    }
+
+    /**
+     * The change relative to the base amount, NaN when the group is new.
+     */
+    public double relativeChange() {
+        return baseValue == 0 ? Double.NaN : change() / Math.abs(baseValue);
+    }
+}
@@ -0,0 +1,67 @@
+package query;
+
+import software.amazon.awssdk.services.costexplorer.model.Dimension;
+import software.amazon.awssdk.services.costexplorer.model.DimensionValues;
+import software.amazon.awssdk.services.costexplorer.model.Expression;
+import software.amazon.awssdk.services.costexplorer.model.GroupDefinition;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The shapes of data the cost tools ask for: a record type filter together with the group-by dimensions.
+ */
+public enum CostDataset {
+    USAGE_PER_SERVICE_AND_OPERATION(Filters.EXCLUDE_DISCOUNTS, "SERVICE", "OPERATION"),
+    USAGE_PER_LINKED_ACCOUNT_AND_SERVICE(Filters.EXCLUDE_DISCOUNTS, "LINKED_ACCOUNT", "SERVICE"),
+    DISCOUNTS_PER_SERVICE_AND_TYPE(Filters.DISCOUNTS, "SERVICE", "RECORD_TYPE");
+
+    private final Expression baseFilter;
+    private final List<GroupDefinition> groupBy;
+
+    CostDataset(Expression baseFilter, String... dimensions) {
+        this.baseFilter = baseFilter;
+        this.groupBy = List.copyOf(CostQuery.dimensions(dimensions));
+    }
+
+    public Expression baseFilter() {
+        return baseFilter;
+    }
+
+    public List<GroupDefinition> groupBy() {
+        return groupBy;
+    }
+
+    public CostQuery query(String startDate, String endDate, List<String> regions) {
+        return CostQuery.of(startDate, endDate, regions, baseFilter, groupBy);
+    }
+
+    /**
+     * The dataset the query reads from, if its filter and group-by match one of them.
+     */
+    public static Optional<CostDataset> of(CostQuery query) {
+        for (CostDataset dataset : values()) {
+            if (dataset.baseFilter.equals(query.baseFilter()) && dataset.groupBy.equals(query.groupBy())) {
+                return Optional.of(dataset);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public static final class Filters {
+        public static final Expression DISCOUNTS = Expression.builder()
+                .dimensions(DimensionValues.builder()
+                        .key(Dimension.RECORD_TYPE)
+                        .values(List.of("Refund", "Credit", "DiscountedUsage", "Discount",
+                                "BundledDiscount ", "SavingsPlanCoveredUsage", "SavingsPlanNegation"))
+                        .build())
+                .build();
+
+        public static final Expression EXCLUDE_DISCOUNTS = Expression.builder()
+                .not(DISCOUNTS)
+                .build();
+
+        private Filters() {
+        }
+    }
+}
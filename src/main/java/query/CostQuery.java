@@ -0,0 +1,94 @@
+package query;
+
+import software.amazon.awssdk.services.costexplorer.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A normalized cost query: the period, the regions pushed down as a filter, the base record type filter, the
+ * group-by definitions and the granularity of the periods. Queries asking for the same data are equal, regardless of
+ * the order of the regions. The reports sum every period up, so they ask for the fewest periods with MONTHLY.
+ */
+public record CostQuery(String startDate,
+                        String endDate,
+                        List<String> regions,
+                        Expression baseFilter,
+                        List<GroupDefinition> groupBy,
+                        Granularity granularity) {
+    public static final String METRIC = "UnblendedCost";
+
+    public static CostQuery of(String startDate, String endDate, List<String> regions, Expression baseFilter,
+                               List<GroupDefinition> groupBy) {
+        return new CostQuery(startDate, endDate, regions.stream().distinct().sorted().toList(), baseFilter,
+                List.copyOf(groupBy), Granularity.MONTHLY);
+    }
+
+    public static List<GroupDefinition> dimensions(String... keys) {
+        List<GroupDefinition> groupBy = new ArrayList<>(keys.length);
+        for (String key : keys) {
+            groupBy.add(GroupDefinition.builder()
+                    .type(GroupDefinitionType.DIMENSION)
+                    .key(key)
+                    .build());
+        }
+        return groupBy;
+    }
+
+    public CostQuery withPeriod(String startDate, String endDate) {
+        return new CostQuery(startDate, endDate, regions, baseFilter, groupBy, granularity);
+    }
+
+    public CostQuery withRegions(List<String> regions) {
+        return of(startDate, endDate, regions, baseFilter, groupBy).withGranularity(granularity);
+    }
+
+    public CostQuery withGranularity(Granularity granularity) {
+        return new CostQuery(startDate, endDate, regions, baseFilter, groupBy, granularity);
+    }
+
+    public Expression filter() {
+        List<Expression> filterExpressionList = new ArrayList<>();
+
+        if (!regions.isEmpty()) {
+            filterExpressionList.add(Expression.builder()
+                    .dimensions(DimensionValues.builder()
+                            .key(Dimension.REGION)
+                            .values(regions)
+                            .build())
+                    .build());
+        }
+
+        if (baseFilter != null) {
+            filterExpressionList.add(baseFilter);
+        }
+
+        if (filterExpressionList.isEmpty()) {
+            return null;
+        }
+
+        if (filterExpressionList.size() == 1) {
+            return filterExpressionList.getFirst();
+        }
+
+        return Expression.builder().and(filterExpressionList).build();
+    }
+
+    public GetCostAndUsageRequest toRequest() {
+        return GetCostAndUsageRequest.builder()
+                .timePeriod(DateInterval.builder()
+                        .start(time(startDate))
+                        .end(time(endDate))
+                        .build())
+                .granularity(granularity)
+                .metrics(List.of(METRIC))
+                .filter(filter())
+                .groupBy(groupBy)
+                .build();
+    }
+
+    // HOURLY requests take a date and time, the other granularities a date
+    private String time(String date) {
+        return granularity == Granularity.HOURLY ? date + "T00:00:00Z" : date;
+    }
+}
@@ -0,0 +1,60 @@
+package query;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Where the data of a report comes from, how recent it is and whether a newer version is being fetched.
+ */
+public record DataFreshness(Source source, Instant asOf, boolean refreshing) {
+    public enum Source {
+        API("fetched from the Cost Explorer API at"),
+        CACHE("served from cached Cost Explorer pages, fetched at"),
+        WAREHOUSE("served from the local cost warehouse, synced at");
+
+        private final String description;
+
+        Source(String description) {
+            this.description = description;
+        }
+    }
+
+    public static DataFreshness api(Instant fetchedAt) {
+        return new DataFreshness(Source.API, fetchedAt, false);
+    }
+
+    public static DataFreshness cache(Instant fetchedAt) {
+        return new DataFreshness(Source.CACHE, fetchedAt, false);
+    }
+
+    public static DataFreshness warehouse(Instant syncedAt) {
+        return new DataFreshness(Source.WAREHOUSE, syncedAt, false);
+    }
+
+    /**
+     * The same data, served while a refresh runs in the background.
+     */
+    public DataFreshness whileRefreshing() {
+        return new DataFreshness(source, asOf, true);
+    }
+
+    /**
+     * The older of this freshness and {@code other}, this one when they are as old. Data built from several sources
+     * is as fresh as the oldest of them.
+     */
+    public DataFreshness older(DataFreshness other) {
+        return other.asOf.isBefore(asOf) ? other : this;
+    }
+
+    public String describe(Clock clock) {
+        String description = source.description + " " + asOf.truncatedTo(ChronoUnit.SECONDS);
+        if (!refreshing) {
+            return description;
+        }
+
+        Duration age = Duration.between(asOf, clock.instant());
+        return description + " (" + age.toMinutes() + " minutes ago, a refresh is running in the background)";
+    }
+}
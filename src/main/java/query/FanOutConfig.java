@@ -0,0 +1,16 @@
+package query;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "cost-explorer.fan-out")
+public interface FanOutConfig {
+    @WithDefault("true")
+    boolean enabled();
+
+    @WithDefault("0")
+    int sliceDays();
+
+    @WithDefault("4")
+    int maxConcurrency();
+}
@@ -0,0 +1,45 @@
+package query;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The pages read for a query, from the API or the cache: how many there were and the freshness of the oldest one.
+ * Cached pages of closed periods never change, so they only count while no other page was read. The slices of a query
+ * add their pages concurrently.
+ */
+public class FetchedPages {
+    private final LongAdder count = new LongAdder();
+    private final AtomicReference<DataFreshness> oldest = new AtomicReference<>();
+    private final AtomicReference<DataFreshness> oldestClosed = new AtomicReference<>();
+
+    void add(DataFreshness freshness) {
+        count.increment();
+        fold(oldest, freshness);
+    }
+
+    void addClosed(DataFreshness freshness) {
+        count.increment();
+        fold(oldestClosed, freshness);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * The freshness of the oldest page, or of the oldest cached page of a closed period when only those were read.
+     * Every fetch reads at least one page.
+     */
+    public DataFreshness freshness() {
+        DataFreshness freshness = oldest.get() != null ? oldest.get() : oldestClosed.get();
+        if (freshness == null) {
+            throw new IllegalStateException("No page was fetched");
+        }
+        return freshness;
+    }
+
+    private static void fold(AtomicReference<DataFreshness> oldest, DataFreshness freshness) {
+        oldest.accumulateAndGet(freshness, (current, page) -> current == null ? page : current.older(page));
+    }
+}
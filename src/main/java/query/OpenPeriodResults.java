@@ -0,0 +1,128 @@
+package query;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Stale-while-revalidate for the results of queries covering the current month, whose costs change all the time. A
+ * result younger than {@link RevalidationConfig#softTtl()} is served as is. An older one is still served at once, with
+ * its age in the report, while a single background refresh per query replaces it. Past
+ * {@link RevalidationConfig#hardTtl()} the query waits for fresh data, so staleness stays bounded.
+ */
+@ApplicationScoped
+public class OpenPeriodResults {
+    Logger logger = Logger.getLogger(OpenPeriodResults.class);
+
+    private final RevalidationConfig config;
+    private final Clock clock;
+    private final Map<CostQuery, Aggregation> results;
+    private final Set<CostQuery> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder freshHits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failedRefreshes = new LongAdder();
+
+    @Inject
+    public OpenPeriodResults(RevalidationConfig config) {
+        this(config, Clock.systemUTC());
+    }
+
+    public OpenPeriodResults(RevalidationConfig config, Clock clock) {
+        this.config = config;
+        this.clock = clock;
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CostQuery, Aggregation> eldest) {
+                return size() > config.maxEntries();
+            }
+        };
+    }
+
+    /**
+     * Serve the aggregation of the query, from {@code fetch} or from the last result of the query.
+     */
+    public Aggregation serve(CostQuery query, Supplier<Aggregation> fetch) {
+        if (!config.enabled() || !coversCurrentMonth(query)) {
+            return fetch.get();
+        }
+
+        Aggregation last;
+        synchronized (results) {
+            last = results.get(query);
+        }
+
+        if (last != null) {
+            Duration age = Duration.between(last.freshness().asOf(), clock.instant());
+            if (age.compareTo(config.softTtl()) < 0) {
+                freshHits.increment();
+                return last;
+            }
+            if (age.compareTo(config.hardTtl()) < 0) {
+                staleHits.increment();
+                refreshInBackground(query, fetch);
+                return new Aggregation(last.aggregator(), last.freshness().whileRefreshing());
+            }
+            expired.increment();
+        }
+
+        return fetchAndKeep(query, fetch);
+    }
+
+    public RevalidationStats stats() {
+        int entries;
+        synchronized (results) {
+            entries = results.size();
+        }
+        return new RevalidationStats(entries, freshHits.sum(), staleHits.sum(), expired.sum(), refreshes.sum(),
+                failedRefreshes.sum());
+    }
+
+    private void refreshInBackground(CostQuery query, Supplier<Aggregation> fetch) {
+        if (!refreshing.add(query)) {
+            return;
+        }
+
+        refreshes.increment();
+        Thread.ofVirtual().name("revalidate").start(() -> {
+            try {
+                fetchAndKeep(query, fetch);
+            } catch (RuntimeException e) {
+                failedRefreshes.increment();
+                logger.warnf(e, "Could not refresh %s - %s, serving the last result until the hard TTL",
+                        query.startDate(), query.endDate());
+            } finally {
+                refreshing.remove(query);
+            }
+        });
+    }
+
+    private Aggregation fetchAndKeep(CostQuery query, Supplier<Aggregation> fetch) {
+        Aggregation aggregation = fetch.get();
+        // Warehouse results are as fresh as the last sync, fetching them again does not change them
+        if (aggregation.freshness().source() != DataFreshness.Source.WAREHOUSE) {
+            synchronized (results) {
+                results.put(query, aggregation);
+            }
+        }
+        return aggregation;
+    }
+
+    private boolean coversCurrentMonth(CostQuery query) {
+        LocalDate firstOfMonth = LocalDate.now(clock).withDayOfMonth(1);
+        return LocalDate.parse(query.endDate()).isAfter(firstOfMonth);
+    }
+}
@@ -0,0 +1,126 @@
+package query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The groups of the same query over two periods, joined on their keys and currency. The groups of the base period
+ * probe the hash table of the compared aggregation, then the compared groups which were not matched are added as new
+ * ones, so the join reads each aggregation once and allocates nothing per lookup.
+ */
+public final class PeriodComparison {
+    private final List<CostChange> changes;
+    private final Map<String, Double> baseTotalPerCurrency;
+    private final Map<String, Double> comparedTotalPerCurrency;
+    private final DataFreshness freshness;
+
+    private PeriodComparison(List<CostChange> changes, Map<String, Double> baseTotalPerCurrency,
+                             Map<String, Double> comparedTotalPerCurrency, DataFreshness freshness) {
+        this.changes = changes;
+        this.baseTotalPerCurrency = baseTotalPerCurrency;
+        this.comparedTotalPerCurrency = comparedTotalPerCurrency;
+        this.freshness = freshness;
+    }
+
+    public static PeriodComparison join(Aggregation base, Aggregation compared) {
+        CostAggregator baseGroups = base.aggregator();
+        CostAggregator comparedGroups = compared.aggregator();
+        int width = baseGroups.width();
+
+        List<CostChange> changes = new ArrayList<>(Math.max(baseGroups.size(), comparedGroups.size()));
+        boolean[] matched = new boolean[comparedGroups.size()];
+        String[] keys = new String[width];
+        List<String> keyList = Arrays.asList(keys);
+
+        for (int slot = 0; slot < baseGroups.size(); slot++) {
+            for (int part = 0; part < width; part++) {
+                keys[part] = baseGroups.key(slot, part);
+            }
+            String currency = baseGroups.currency(slot);
+            int comparedSlot = comparedGroups.find(keyList, currency);
+            double comparedValue = 0;
+            if (comparedSlot >= 0) {
+                matched[comparedSlot] = true;
+                comparedValue = comparedGroups.value(comparedSlot);
+            }
+            changes.add(new CostChange(keys.clone(), currency, baseGroups.value(slot), comparedValue));
+        }
+
+        for (int slot = 0; slot < comparedGroups.size(); slot++) {
+            if (matched[slot]) {
+                continue;
+            }
+            String[] newKeys = new String[width];
+            for (int part = 0; part < width; part++) {
+                newKeys[part] = comparedGroups.key(slot, part);
+            }
+            changes.add(new CostChange(newKeys, comparedGroups.currency(slot), 0, comparedGroups.value(slot)));
+        }
+
+        // The comparison is as fresh as its oldest period
+        return new PeriodComparison(changes, baseGroups.totalPerCurrency(), comparedGroups.totalPerCurrency(),
+                base.freshness().older(compared.freshness()));
+    }
+
+    /**
+     * Number of groups present in at least one of the periods.
+     */
+    public int groups() {
+        return changes.size();
+    }
+
+    /**
+     * The {@code limit} groups with the largest change in either direction, largest first.
+     */
+    public List<CostChange> topByChange(int limit) {
+        return top(changes, limit, change -> Math.abs(change.change()));
+    }
+
+    /**
+     * The {@code limit} groups with the largest relative change in either direction, largest first. Only groups with
+     * at least {@code minBase} in the base period are ranked, new groups are among the top changes instead.
+     */
+    public List<CostChange> topByRelativeChange(int limit, double minBase) {
+        List<CostChange> ranked = new ArrayList<>();
+        for (CostChange change : changes) {
+            if (change.baseValue() != 0 && Math.abs(change.baseValue()) >= minBase) {
+                ranked.add(change);
+            }
+        }
+        return top(ranked, limit, change -> Math.abs(change.relativeChange()));
+    }
+
+    public Map<String, Double> baseTotalPerCurrency() {
+        return baseTotalPerCurrency;
+    }
+
+    public Map<String, Double> comparedTotalPerCurrency() {
+        return comparedTotalPerCurrency;
+    }
+
+    public DataFreshness freshness() {
+        return freshness;
+    }
+
+    private static List<CostChange> top(List<CostChange> changes, int limit, ToDoubleFunction<CostChange> rank) {
+        Comparator<CostChange> ascending = Comparator.comparingDouble(rank);
+        PriorityQueue<CostChange> heap = new PriorityQueue<>(Math.max(1, limit), ascending);
+        for (CostChange change : changes) {
+            if (heap.size() < limit) {
+                heap.add(change);
+            } else if (ascending.compare(change, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(change);
+            }
+        }
+
+        List<CostChange> top = new ArrayList<>(heap);
+        top.sort(ascending.reversed());
+        return top;
+    }
+}
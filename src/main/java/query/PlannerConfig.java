@@ -0,0 +1,10 @@
+package query;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "cost-explorer.planner")
+public interface PlannerConfig {
+    @WithDefault("true")
+    boolean enabled();
+}
@@ -0,0 +1,13 @@
+package query;
+
+import ratelimit.ApiUsageStats;
+
+/**
+ * Snapshot of the query planner counters. Every rolled up slice is at least one GetCostAndUsage page which was not
+ * paid for.
+ */
+public record PlannerStats(long plans, long rollupPlans, long rolledUpSlices, long partiallyRolledUpSlices) {
+    public double estimatedSavings() {
+        return rolledUpSlices * ApiUsageStats.COST_PER_REQUEST;
+    }
+}
@@ -0,0 +1,155 @@
+package query;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Executes the queries of one tool call together. Identical queries are executed once. Queries for the same data
+ * (dataset, regions and granularity) whose periods overlap are cut at every start and end date among them: every
+ * piece is fetched once and every query adds up the pieces it covers, so an overlap is never fetched twice. The
+ * pieces run concurrently, the rate limiter of the client paces the requests they send.
+ */
+@ApplicationScoped
+public class QueryBatch {
+    Logger logger = Logger.getLogger(QueryBatch.class);
+
+    private final QueryEngine queryEngine;
+    private final BatchConfig config;
+
+    @Inject
+    public QueryBatch(QueryEngine queryEngine, BatchConfig config) {
+        this.queryEngine = queryEngine;
+        this.config = config;
+    }
+
+    /**
+     * Execute every query and return their outcomes in the order of the queries. A failed query does not fail the
+     * others.
+     */
+    public List<BatchOutcome> execute(List<CostQuery> queries) {
+        Map<CostQuery, List<CostQuery>> pieces = pieces(queries);
+        Set<CostQuery> distinctPieces = new LinkedHashSet<>();
+        pieces.values().forEach(distinctPieces::addAll);
+        logger.infof("Batch of %d queries: %d distinct, executed as %d pieces", queries.size(), pieces.size(),
+                distinctPieces.size());
+
+        Semaphore permits = new Semaphore(Math.max(1, config.maxConcurrency()));
+        Map<CostQuery, Future<Aggregation>> running = new HashMap<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (CostQuery piece : distinctPieces) {
+                running.put(piece, executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return queryEngine.aggregation(piece);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            Map<CostQuery, BatchOutcome> outcomes = new HashMap<>();
+            List<BatchOutcome> results = new ArrayList<>(queries.size());
+            for (CostQuery query : queries) {
+                results.add(outcomes.computeIfAbsent(query, ignored -> outcome(query, pieces.get(query), running)));
+            }
+            return results;
+        }
+    }
+
+    private static BatchOutcome outcome(CostQuery query, List<CostQuery> queryPieces,
+                                        Map<CostQuery, Future<Aggregation>> running) {
+        try {
+            if (queryPieces.size() == 1) {
+                return BatchOutcome.of(await(running.get(queryPieces.getFirst())));
+            }
+
+            CostAggregator aggregator = new CostAggregator(query.groupBy().size());
+            DataFreshness freshness = null;
+            for (CostQuery piece : queryPieces) {
+                Aggregation aggregation = await(running.get(piece));
+                aggregator.addAll(aggregation.aggregator());
+                // The report is as fresh as its oldest piece
+                freshness = freshness == null ? aggregation.freshness() : freshness.older(aggregation.freshness());
+            }
+            return BatchOutcome.of(new Aggregation(aggregator, freshness));
+        } catch (RuntimeException e) {
+            return BatchOutcome.failed(e);
+        }
+    }
+
+    // Queries differing only in their period are cut at every boundary of the overlapping periods among them
+    private static Map<CostQuery, List<CostQuery>> pieces(List<CostQuery> queries) {
+        Map<CostQuery, List<CostQuery>> groups = new LinkedHashMap<>();
+        for (CostQuery query : new LinkedHashSet<>(queries)) {
+            groups.computeIfAbsent(query.withPeriod("", ""), ignored -> new ArrayList<>()).add(query);
+        }
+
+        Map<CostQuery, List<CostQuery>> pieces = new HashMap<>();
+        for (List<CostQuery> group : groups.values()) {
+            // Dates are yyyy-MM-dd, their string order is their chronological order
+            group.sort(Comparator.comparing(CostQuery::startDate));
+
+            List<CostQuery> cluster = new ArrayList<>();
+            String clusterEnd = null;
+            for (CostQuery query : group) {
+                if (clusterEnd != null && query.startDate().compareTo(clusterEnd) >= 0) {
+                    cut(cluster, pieces);
+                    cluster.clear();
+                    clusterEnd = null;
+                }
+                cluster.add(query);
+                if (clusterEnd == null || query.endDate().compareTo(clusterEnd) > 0) {
+                    clusterEnd = query.endDate();
+                }
+            }
+            cut(cluster, pieces);
+        }
+        return pieces;
+    }
+
+    private static void cut(List<CostQuery> cluster, Map<CostQuery, List<CostQuery>> pieces) {
+        if (cluster.size() == 1) {
+            pieces.put(cluster.getFirst(), List.of(cluster.getFirst()));
+            return;
+        }
+
+        TreeSet<String> boundaries = new TreeSet<>();
+        for (CostQuery query : cluster) {
+            boundaries.add(query.startDate());
+            boundaries.add(query.endDate());
+        }
+
+        for (CostQuery query : cluster) {
+            List<CostQuery> queryPieces = new ArrayList<>();
+            String start = query.startDate();
+            for (String end : boundaries.subSet(query.startDate(), false, query.endDate(), true)) {
+                queryPieces.add(query.withPeriod(start, end));
+                start = end;
+            }
+            pieces.put(query, queryPieces);
+        }
+    }
+
+    private static Aggregation await(Future<Aggregation> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while executing a batch of queries", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
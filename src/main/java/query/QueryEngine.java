@@ -0,0 +1,166 @@
+package query;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import metrics.ServerMetrics;
+import org.jboss.logging.Logger;
+import software.amazon.awssdk.services.costexplorer.model.Group;
+import software.amazon.awssdk.services.costexplorer.model.MetricValue;
+import software.amazon.awssdk.services.costexplorer.model.ResultByTime;
+import warehouse.CostWarehouse;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Single pipeline behind every cost tool: builds the request of a {@link CostQuery}, fetches all of its pages and
+ * aggregates the groups. Queries covered by the local {@link CostWarehouse} are answered from it without API calls,
+ * the others are split by the {@link QueryPlanner} into parts which reuse cached results of region subsets.
+ * Identical queries running at the same time share one fetch and aggregation. Time series keep the periods apart,
+ * the pages are streamed into per-period sums without being kept. Results are as fresh as the oldest page they were
+ * built from.
+ */
+@ApplicationScoped
+public class QueryEngine {
+    Logger logger = Logger.getLogger(QueryEngine.class);
+
+    private final CostAndUsageFetcher costAndUsageFetcher;
+    private final CostWarehouse costWarehouse;
+    private final QueryPlanner queryPlanner;
+    private final ServerMetrics serverMetrics;
+    private final OpenPeriodResults openPeriodResults;
+    private final SingleFlight<CostQuery, Aggregation> singleFlight = new SingleFlight<>();
+    private final SingleFlight<CostQuery, TimeSeriesAggregation> timeSeriesSingleFlight = new SingleFlight<>();
+
+    @Inject
+    public QueryEngine(CostAndUsageFetcher costAndUsageFetcher, CostWarehouse costWarehouse,
+                       QueryPlanner queryPlanner, ServerMetrics serverMetrics, OpenPeriodResults openPeriodResults) {
+        this.costAndUsageFetcher = costAndUsageFetcher;
+        this.costWarehouse = costWarehouse;
+        this.queryPlanner = queryPlanner;
+        this.serverMetrics = serverMetrics;
+        this.openPeriodResults = openPeriodResults;
+    }
+
+    public <T> QueryResult<T> execute(CostQuery query, RowMapper<T> rowMapper) {
+        return execute(query, rowMapper, 0);
+    }
+
+    /**
+     * Execute the query and return only the {@code limit} rows with the highest value, plus an "Other" row per
+     * currency for the rest. A limit of 0 returns every row.
+     */
+    public <T> QueryResult<T> execute(CostQuery query, RowMapper<T> rowMapper, int limit) {
+        return aggregation(query).result(rowMapper, limit);
+    }
+
+    /**
+     * The aggregated groups of the query, shared with identical queries running at the same time. Queries covering
+     * the current month may be served their last result while it is refreshed.
+     */
+    public Aggregation aggregation(CostQuery query) {
+        return openPeriodResults.serve(query, () -> singleFlight.execute(query, () -> aggregate(query)));
+    }
+
+    /**
+     * Execute a query whose group-by may have hundreds of thousands of groups, such as one on tags, with bounded heap:
+     * the groups are spilled to {@code spillDirectory} as sorted runs whenever their estimated size crosses
+     * {@code maxBytes}, and merged once every page is fetched. The result is neither cached nor shared with identical
+     * queries, only the pages are.
+     */
+    public <T> QueryResult<T> executeSpilling(CostQuery query, RowMapper<T> rowMapper, int limit, long maxBytes,
+                                              Path spillDirectory) {
+        try (SpillingAggregator aggregator = new SpillingAggregator(query.groupBy().size(), maxBytes, spillDirectory)) {
+            QueryPlan plan = queryPlanner.plan(query);
+            FetchedPages pages = new FetchedPages();
+
+            for (CostQuery part : plan.parts()) {
+                costAndUsageFetcher.fetch(part.toRequest(), pages, result -> {
+                    for (Group group : result.groups()) {
+                        MetricValue metric = group.metrics().get(CostQuery.METRIC);
+                        aggregator.add(group.keys(), metric.unit(), Double.parseDouble(metric.amount()));
+                    }
+                });
+            }
+            queryPlanner.completed(plan);
+
+            List<T> rows = aggregator.rows(rowMapper, limit);
+            serverMetrics.recordQuery(pages.count(), aggregator.rows(),
+                    (int) Math.min(aggregator.groups(), Integer.MAX_VALUE));
+            if (aggregator.spilledRuns() > 0) {
+                logger.infof("Merged %d groups of %d rows from %d runs spilled to %s",
+                        aggregator.groups(), aggregator.rows(), aggregator.spilledRuns(), spillDirectory);
+            }
+            return new QueryResult<>(rows, aggregator.totalPerCurrency(), pages.freshness());
+        }
+    }
+
+    /**
+     * Execute the query keeping its periods apart: one series per group and currency, with the amount of every period
+     * of the granularity of the query. Only the {@code limit} series with the highest total are returned, plus an
+     * "Other" series per currency for the rest. A limit of 0 returns every series.
+     */
+    public TimeSeriesResult executeTimeSeries(CostQuery query, int limit) {
+        TimeSeriesAggregation aggregation = timeSeriesSingleFlight.execute(query, () -> aggregateTimeSeries(query));
+        TimeSeriesAggregator aggregator = aggregation.aggregator();
+        return new TimeSeriesResult(aggregator.periods(), aggregator.series(limit), aggregator.totalPerCurrency(),
+                aggregation.freshness());
+    }
+
+    /**
+     * Number of queries which were answered by a fetch started for an identical concurrent query.
+     */
+    public long coalescedQueries() {
+        return singleFlight.coalesced() + timeSeriesSingleFlight.coalesced();
+    }
+
+    private Aggregation aggregate(CostQuery query) {
+        Optional<Aggregation> local = costWarehouse.aggregate(query);
+        if (local.isPresent()) {
+            return local.get();
+        }
+
+        CostAggregator aggregator = new CostAggregator(query.groupBy().size());
+
+        QueryPlan plan = queryPlanner.plan(query);
+        FetchedPages pages = new FetchedPages();
+        long rows = 0;
+
+        for (CostQuery part : plan.parts()) {
+            for (ResultByTime result : costAndUsageFetcher.fetch(part.toRequest(), pages)) {
+                for (Group group : result.groups()) {
+                    MetricValue metric = group.metrics().get(CostQuery.METRIC);
+                    aggregator.add(group.keys(), metric.unit(), Double.parseDouble(metric.amount()));
+                }
+                rows += result.groups().size();
+            }
+        }
+        queryPlanner.completed(plan);
+        serverMetrics.recordQuery(pages.count(), rows, aggregator.size());
+
+        return new Aggregation(aggregator, pages.freshness());
+    }
+
+    private TimeSeriesAggregation aggregateTimeSeries(CostQuery query) {
+        TimeSeriesAggregator aggregator = new TimeSeriesAggregator(query.groupBy().size());
+
+        QueryPlan plan = queryPlanner.plan(query);
+        FetchedPages pages = new FetchedPages();
+
+        for (CostQuery part : plan.parts()) {
+            costAndUsageFetcher.fetch(part.toRequest(), pages, result -> {
+                String periodStart = result.timePeriod().start();
+                aggregator.addPeriod(periodStart);
+                for (Group group : result.groups()) {
+                    MetricValue metric = group.metrics().get(CostQuery.METRIC);
+                    aggregator.add(periodStart, group.keys(), metric.unit(), Double.parseDouble(metric.amount()));
+                }
+            });
+        }
+        queryPlanner.completed(plan);
+        serverMetrics.recordQuery(pages.count(), aggregator.rows(), aggregator.size());
+
+        return new TimeSeriesAggregation(aggregator, pages.freshness());
+    }
+}
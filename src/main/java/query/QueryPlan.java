@@ -0,0 +1,22 @@
+package query;
+
+import java.util.List;
+
+/**
+ * The queries whose results add up to the planned query. Every part covers a disjoint set of regions of one period,
+ * so the groups of all parts can be summed without counting any cost twice.
+ *
+ * @param parts                   queries to fetch, answered from the cache where possible
+ * @param slices                  number of slices the period of the planned query was split into
+ * @param rolledUpSlices          slices answered entirely by cached results of region subsets
+ * @param partiallyRolledUpSlices slices where only the regions missing from the cache are fetched
+ */
+public record QueryPlan(List<CostQuery> parts, int slices, int rolledUpSlices, int partiallyRolledUpSlices) {
+    public static QueryPlan of(CostQuery query) {
+        return new QueryPlan(List.of(query), 1, 0, 0);
+    }
+
+    public boolean usesRollup() {
+        return rolledUpSlices > 0 || partiallyRolledUpSlices > 0;
+    }
+}
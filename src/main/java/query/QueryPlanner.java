@@ -0,0 +1,179 @@
+package query;
+
+import cache.ResponseCache;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import software.amazon.awssdk.services.costexplorer.model.DateInterval;
+import software.amazon.awssdk.services.costexplorer.model.Granularity;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Splits a query filtering on several regions into parts which can be answered from the memory tier of the response
+ * cache. Every region belongs to exactly one cost row, so a slice whose regions are covered by disjoint cached region
+ * subsets is the sum of those results. Only the regions which are not covered are fetched, with one request per run of
+ * slices missing the same regions.
+ */
+@ApplicationScoped
+public class QueryPlanner {
+    Logger logger = Logger.getLogger(QueryPlanner.class);
+
+    private final ResponseCache responseCache;
+    private final FanOutConfig fanOutConfig;
+    private final PlannerConfig config;
+
+    // Region sets fetched per slice, keyed by the slice query without regions
+    private final Map<CostQuery, Set<List<String>>> fetchedRegions = new ConcurrentHashMap<>();
+
+    private final LongAdder plans = new LongAdder();
+    private final LongAdder rollupPlans = new LongAdder();
+    private final LongAdder rolledUpSlices = new LongAdder();
+    private final LongAdder partiallyRolledUpSlices = new LongAdder();
+
+    @Inject
+    public QueryPlanner(ResponseCache responseCache, FanOutConfig fanOutConfig, PlannerConfig config) {
+        this.responseCache = responseCache;
+        this.fanOutConfig = fanOutConfig;
+        this.config = config;
+    }
+
+    public QueryPlan plan(CostQuery query) {
+        plans.increment();
+
+        if (!config.enabled() || !responseCache.isEnabled() || query.regions().size() < 2
+                || query.granularity() == Granularity.HOURLY) {
+            return QueryPlan.of(query);
+        }
+
+        List<DateInterval> slices = slices(query);
+        List<CostQuery> cachedParts = new ArrayList<>();
+        Map<List<String>, List<DateInterval>> missingParts = new LinkedHashMap<>();
+        int rolledUp = 0;
+        int partiallyRolledUp = 0;
+
+        for (DateInterval slice : slices) {
+            CostQuery sliceQuery = query.withPeriod(slice.start(), slice.end());
+            if (responseCache.containsInMemory(sliceQuery.toRequest())) {
+                cachedParts.add(sliceQuery);
+                continue;
+            }
+
+            Set<String> missingRegions = new TreeSet<>(query.regions());
+            for (List<String> regions : cover(sliceQuery)) {
+                cachedParts.add(sliceQuery.withRegions(regions));
+                missingRegions.removeAll(regions);
+            }
+
+            if (missingRegions.isEmpty()) {
+                rolledUp++;
+                continue;
+            }
+            if (missingRegions.size() < query.regions().size()) {
+                partiallyRolledUp++;
+            }
+            missingParts.computeIfAbsent(List.copyOf(missingRegions), ignored -> new ArrayList<>()).add(slice);
+        }
+
+        if (rolledUp == 0 && partiallyRolledUp == 0) {
+            return QueryPlan.of(query);
+        }
+
+        List<CostQuery> parts = new ArrayList<>(cachedParts);
+        missingParts.forEach((regions, missingSlices) -> {
+            for (DateInterval run : mergeContiguous(missingSlices)) {
+                parts.add(query.withPeriod(run.start(), run.end()).withRegions(regions));
+            }
+        });
+
+        rollupPlans.increment();
+        rolledUpSlices.add(rolledUp);
+        partiallyRolledUpSlices.add(partiallyRolledUp);
+        logger.infof("Planned %s - %s over %d regions: %d of %d slices rolled up from cached region subsets, " +
+                        "%d partially, %d requests instead of %d",
+                query.startDate(), query.endDate(), query.regions().size(), rolledUp, slices.size(),
+                partiallyRolledUp, parts.size() - cachedParts.size(), slices.size());
+
+        return new QueryPlan(List.copyOf(parts), slices.size(), rolledUp, partiallyRolledUp);
+    }
+
+    /**
+     * Remember the regions fetched by the parts of a completed plan, so later queries over a superset of them can
+     * reuse the cached results.
+     */
+    public void completed(QueryPlan plan) {
+        if (!config.enabled() || !responseCache.isEnabled()) {
+            return;
+        }
+
+        for (CostQuery part : plan.parts()) {
+            if (part.regions().isEmpty() || part.granularity() == Granularity.HOURLY) {
+                continue;
+            }
+            for (DateInterval slice : slices(part)) {
+                fetchedRegions.computeIfAbsent(part.withPeriod(slice.start(), slice.end()).withRegions(List.of()),
+                        ignored -> ConcurrentHashMap.newKeySet()).add(part.regions());
+            }
+        }
+    }
+
+    public PlannerStats stats() {
+        return new PlannerStats(plans.sum(), rollupPlans.sum(), rolledUpSlices.sum(), partiallyRolledUpSlices.sum());
+    }
+
+    // Only the memory tier is probed, reading the disk tier for every candidate costs more than it saves
+    private List<List<String>> cover(CostQuery sliceQuery) {
+        List<String> regions = sliceQuery.regions();
+        Set<List<String>> candidates = new HashSet<>(
+                fetchedRegions.getOrDefault(sliceQuery.withRegions(List.of()), Set.of()));
+        for (String region : regions) {
+            candidates.add(List.of(region));
+        }
+
+        List<List<String>> subsets = new ArrayList<>();
+        for (List<String> candidate : candidates) {
+            if (candidate.size() < regions.size() && regions.containsAll(candidate)) {
+                subsets.add(candidate);
+            }
+        }
+        subsets.sort(Comparator.comparingInt((List<String> subset) -> subset.size()).reversed());
+
+        Set<String> remaining = new HashSet<>(regions);
+        List<List<String>> cover = new ArrayList<>();
+        for (List<String> subset : subsets) {
+            if (remaining.containsAll(subset)
+                    && responseCache.containsInMemory(sliceQuery.withRegions(subset).toRequest())) {
+                cover.add(subset);
+                subset.forEach(remaining::remove);
+            }
+        }
+        return cover;
+    }
+
+    private List<DateInterval> slices(CostQuery query) {
+        return CostAndUsageFetcher.slices(query.toRequest(), fanOutConfig);
+    }
+
+    private static List<DateInterval> mergeContiguous(List<DateInterval> slices) {
+        List<DateInterval> runs = new ArrayList<>();
+        DateInterval run = null;
+
+        for (DateInterval slice : slices) {
+            if (run != null && run.end().equals(slice.start())) {
+                run = run.toBuilder().end(slice.end()).build();
+                continue;
+            }
+            if (run != null) {
+                runs.add(run);
+            }
+            run = slice;
+        }
+        if (run != null) {
+            runs.add(run);
+        }
+
+        return runs;
+    }
+}
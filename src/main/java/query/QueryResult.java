@@ -0,0 +1,10 @@
+package query;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows of a query sorted by descending value, together with the totals per currency and the freshness of the data.
+ */
+public record QueryResult<T>(List<T> rows, Map<String, Double> totalPerCurrency, DataFreshness freshness) {
+}
@@ -0,0 +1,21 @@
+package query;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "cost-explorer.revalidation")
+public interface RevalidationConfig {
+    @WithDefault("true")
+    boolean enabled();
+
+    @WithDefault("PT15M")
+    Duration softTtl();
+
+    @WithDefault("PT6H")
+    Duration hardTtl();
+
+    @WithDefault("64")
+    int maxEntries();
+}
@@ -0,0 +1,8 @@
+package query;
+
+/**
+ * Snapshot of the counters of the results served while revalidating.
+ */
+public record RevalidationStats(int entries, long freshHits, long staleHits, long expired, long refreshes,
+                                long failedRefreshes) {
+}
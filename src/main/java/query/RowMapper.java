@@ -0,0 +1,16 @@
+package query;
+
+/**
+ * Maps an aggregated group into one of the report records.
+ *
+ * @param <T> type of the report record
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * @param keys     values of the group-by definitions of the query, in the same order
+     * @param currency unit of the aggregated amount
+     * @param value    aggregated amount of the group
+     */
+    T map(String[] keys, String currency, double value);
+}
@@ -0,0 +1,328 @@
+package query;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Sums amounts per group like {@link CostAggregator}, with bounded memory for queries with hundreds of thousands of
+ * groups, such as group-bys on tags. Groups are added to an open addressing {@link CostAggregator} until its estimated
+ * size crosses the threshold. Then its groups are written to disk as a run sorted by keys and currency, and a new
+ * aggregator takes over. The result merges the runs and the last aggregator in one sequential pass, adding up the
+ * groups split across runs and selecting the top groups with a bounded heap. No more than one group per run is in
+ * memory during the merge.
+ */
+final class SpillingAggregator implements Closeable {
+    // Rough heap of a group without its strings: table, hash, currency, sum and compensation entries plus the keys
+    private static final int GROUP_OVERHEAD_BYTES = 64;
+
+    private final int width;
+    private final long maxBytes;
+    private final Path directory;
+    private final CostAggregator totals = new CostAggregator(0);
+    private final List<Path> runs = new ArrayList<>();
+
+    private CostAggregator current;
+    private long estimatedBytes;
+    private long rows;
+    private long groups;
+
+    SpillingAggregator(int width, long maxBytes, Path directory) {
+        this.width = width;
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+        this.current = new CostAggregator(width);
+    }
+
+    void add(List<String> groupKeys, String currency, double amount) {
+        rows++;
+        totals.add(List.of(), currency, amount);
+
+        int groupsBefore = current.size();
+        current.add(groupKeys, currency, amount);
+        if (current.size() > groupsBefore) {
+            estimatedBytes += GROUP_OVERHEAD_BYTES;
+            for (String key : groupKeys) {
+                estimatedBytes += 2L * key.length();
+            }
+            if (estimatedBytes > maxBytes) {
+                spill();
+            }
+        }
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    /**
+     * Number of distinct groups, known once they are merged by {@link #rows(RowMapper, int)}.
+     */
+    long groups() {
+        return groups;
+    }
+
+    int spilledRuns() {
+        return runs.size();
+    }
+
+    Map<String, Double> totalPerCurrency() {
+        return totals.totalPerCurrency();
+    }
+
+    /**
+     * Map the {@code limit} groups with the highest value into records, sorted by descending value, followed by one
+     * "Other" record per currency holding the sum of the remaining groups. A limit of 0 returns every group, which
+     * keeps all of them in memory.
+     */
+    <T> List<T> rows(RowMapper<T> rowMapper, int limit) {
+        int bound = limit > 0 ? limit : Integer.MAX_VALUE;
+        Comparator<Group> ascending = Comparator.comparingDouble(Group::value);
+        PriorityQueue<Group> top = new PriorityQueue<>(Math.min(bound, 1024), ascending);
+        // Sum, Neumaier compensation and number of groups of the "Other" row of every currency
+        Map<String, double[]> other = new LinkedHashMap<>();
+        long merged = 0;
+
+        try (Merge merge = new Merge(runs, current, width)) {
+            for (Group group = merge.next(); group != null; group = merge.next()) {
+                merged++;
+                Group dropped = group;
+                if (top.size() < bound) {
+                    top.add(group);
+                    dropped = null;
+                } else if (group.value() > top.peek().value()) {
+                    dropped = top.poll();
+                    top.add(group);
+                }
+                if (dropped != null) {
+                    double[] otherRow = other.computeIfAbsent(dropped.currency(), ignored -> new double[3]);
+                    accumulate(otherRow, dropped.value());
+                    otherRow[2]++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not merge the spilled groups", e);
+        }
+        groups = merged;
+
+        List<Group> selected = new ArrayList<>(top);
+        selected.sort(ascending.reversed());
+        List<T> rows = new ArrayList<>(selected.size() + other.size());
+        for (Group group : selected) {
+            rows.add(rowMapper.map(group.keys(), group.currency(), group.value()));
+        }
+        other.forEach((currency, otherRow) -> {
+            String[] otherKeys = new String[width];
+            Arrays.fill(otherKeys, "");
+            if (width > 0) {
+                otherKeys[0] = "Other (" + (long) otherRow[2] + " groups)";
+            }
+            rows.add(rowMapper.map(otherKeys, currency, otherRow[0] + otherRow[1]));
+        });
+        return rows;
+    }
+
+    /**
+     * Add the amount to the sum in {@code sum[0]} with Neumaier's compensated summation, like {@link CostAggregator},
+     * keeping the lost low-order bits in {@code sum[1]}.
+     */
+    static void accumulate(double[] sum, double amount) {
+        double total = sum[0] + amount;
+        sum[1] += Math.abs(sum[0]) >= Math.abs(amount)
+                ? (sum[0] - total) + amount
+                : (amount - total) + sum[0];
+        sum[0] = total;
+    }
+
+    @Override
+    public void close() {
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException e) {
+                run.toFile().deleteOnExit();
+            }
+        }
+        runs.clear();
+    }
+
+    private void spill() {
+        try {
+            Files.createDirectories(directory);
+            Path run = Files.createTempFile(directory, "run", ".bin");
+            runs.add(run);
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+                Group.writeSorted(current, width, output);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill the groups to " + directory, e);
+        }
+
+        current = new CostAggregator(width);
+        estimatedBytes = 0;
+    }
+
+    /**
+     * One group of a run: its keys, currency and summed amount.
+     */
+    record Group(String[] keys, String currency, double value) {
+        static final Comparator<Group> ORDER = (a, b) -> {
+            for (int i = 0; i < a.keys.length; i++) {
+                int comparison = a.keys[i].compareTo(b.keys[i]);
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+            return a.currency.compareTo(b.currency);
+        };
+
+        static List<Group> sorted(CostAggregator aggregator, int width) {
+            List<Group> groups = new ArrayList<>(aggregator.size());
+            for (int slot = 0; slot < aggregator.size(); slot++) {
+                String[] keys = new String[width];
+                for (int part = 0; part < width; part++) {
+                    keys[part] = aggregator.key(slot, part);
+                }
+                groups.add(new Group(keys, aggregator.currency(slot), aggregator.value(slot)));
+            }
+            groups.sort(ORDER);
+            return groups;
+        }
+
+        static void writeSorted(CostAggregator aggregator, int width, DataOutputStream output) throws IOException {
+            List<Group> groups = sorted(aggregator, width);
+            output.writeInt(groups.size());
+            for (Group group : groups) {
+                for (String key : group.keys) {
+                    output.writeUTF(key);
+                }
+                output.writeUTF(group.currency);
+                output.writeDouble(group.value);
+            }
+        }
+
+        boolean sameGroup(Group other) {
+            return ORDER.compare(this, other) == 0;
+        }
+    }
+
+    private static final class Merge implements Closeable {
+        private final PriorityQueue<Cursor> cursors = new PriorityQueue<>(
+                (a, b) -> Group.ORDER.compare(a.head, b.head));
+        private final List<Cursor> opened = new ArrayList<>();
+
+        Merge(List<Path> runs, CostAggregator inMemory, int width) throws IOException {
+            try {
+                for (Path run : runs) {
+                    add(new RunCursor(run, width));
+                }
+                add(new MemoryCursor(Group.sorted(inMemory, width).iterator()));
+            } catch (IOException | RuntimeException e) {
+                // Not owned by a try-with-resources yet, the runs opened so far are closed here
+                try {
+                    close();
+                } catch (IOException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+                throw e;
+            }
+        }
+
+        Group next() throws IOException {
+            Cursor cursor = cursors.poll();
+            if (cursor == null) {
+                return null;
+            }
+
+            Group group = cursor.head;
+            double[] value = {group.value(), 0};
+            advance(cursor);
+            while (!cursors.isEmpty() && cursors.peek().head.sameGroup(group)) {
+                Cursor same = cursors.poll();
+                accumulate(value, same.head.value());
+                advance(same);
+            }
+            return new Group(group.keys(), group.currency(), value[0] + value[1]);
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Cursor cursor : opened) {
+                cursor.close();
+            }
+        }
+
+        private void add(Cursor cursor) throws IOException {
+            opened.add(cursor);
+            advance(cursor);
+        }
+
+        private void advance(Cursor cursor) throws IOException {
+            cursor.head = cursor.read();
+            if (cursor.head != null) {
+                cursors.add(cursor);
+            }
+        }
+    }
+
+    private abstract static class Cursor implements Closeable {
+        Group head;
+
+        abstract Group read() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private static final class MemoryCursor extends Cursor {
+        private final Iterator<Group> groups;
+
+        MemoryCursor(Iterator<Group> groups) {
+            this.groups = groups;
+        }
+
+        @Override
+        Group read() {
+            return groups.hasNext() ? groups.next() : null;
+        }
+    }
+
+    private static final class RunCursor extends Cursor {
+        private final DataInputStream input;
+        private final int width;
+        private int remaining;
+
+        RunCursor(Path run, int width) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+            this.width = width;
+            try {
+                this.remaining = input.readInt();
+            } catch (IOException e) {
+                input.close();
+                throw e;
+            }
+        }
+
+        @Override
+        Group read() throws IOException {
+            if (remaining == 0) {
+                return null;
+            }
+            remaining--;
+
+            String[] keys = new String[width];
+            for (int part = 0; part < width; part++) {
+                keys[part] = input.readUTF();
+            }
+            String currency = input.readUTF();
+            return new Group(keys, currency, input.readDouble());
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
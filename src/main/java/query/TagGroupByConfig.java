@@ -0,0 +1,16 @@
+package query;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "cost-explorer.tag-group-by")
+public interface TagGroupByConfig {
+    @WithDefault("50")
+    int defaultLimit();
+
+    @WithDefault("32")
+    int maxMemoryMegabytes();
+
+    @WithDefault("${java.io.tmpdir}/mcp-aws-cost-explorer/spill")
+    String spillDirectory();
+}
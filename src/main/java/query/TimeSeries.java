@@ -0,0 +1,7 @@
+package query;
+
+/**
+ * Amounts of one group and currency per period, in the order of {@link TimeSeriesResult#periods()}, with their total.
+ */
+public record TimeSeries(String[] keys, String currency, double total, double[] values) {
+}
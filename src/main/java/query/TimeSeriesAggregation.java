@@ -0,0 +1,7 @@
+package query;
+
+/**
+ * Aggregated series of a query together with the freshness of the data they were built from.
+ */
+record TimeSeriesAggregation(TimeSeriesAggregator aggregator, DataFreshness freshness) {
+}
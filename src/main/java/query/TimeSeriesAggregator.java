@@ -0,0 +1,172 @@
+package query;
+
+import java.util.*;
+
+/**
+ * Sums amounts per group, currency and period as the pages stream in. A {@link CostAggregator} identifies the series
+ * (a group and a currency), holds their totals and interns their keys once for every period; the amounts per period
+ * go into one primitive array per period, indexed by the slot of the series. Memory is proportional to the distinct
+ * series times the periods, not to the number of rows read. Sums use Neumaier's compensated summation, like the
+ * totals.
+ */
+public final class TimeSeriesAggregator {
+    private final int width;
+    private final CostAggregator series;
+    private final Map<String, Integer> periodIndexes = new HashMap<>();
+    private final List<String> periodStarts = new ArrayList<>();
+    private final List<double[]> sums = new ArrayList<>();
+    private final List<double[]> compensations = new ArrayList<>();
+    private int capacity = 64;
+    private long rows;
+
+    /**
+     * @param width number of group-by keys of every row
+     */
+    public TimeSeriesAggregator(int width) {
+        this.width = width;
+        this.series = new CostAggregator(width);
+    }
+
+    /**
+     * Add a period without costs, so that every series has a 0 for it instead of a gap.
+     */
+    public void addPeriod(String periodStart) {
+        periodIndex(periodStart);
+    }
+
+    public void add(String periodStart, List<String> groupKeys, String currency, double amount) {
+        int period = periodIndex(periodStart);
+        int slot = series.add(groupKeys, currency, amount);
+        if (slot >= capacity) {
+            grow(slot);
+        }
+
+        accumulate(sums.get(period), compensations.get(period), slot, amount);
+        rows++;
+    }
+
+    public int size() {
+        return series.size();
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * Start of every period added, with or without costs, in chronological order.
+     */
+    public List<String> periods() {
+        return periodStarts.stream().sorted().toList();
+    }
+
+    public Map<String, Double> totalPerCurrency() {
+        return series.totalPerCurrency();
+    }
+
+    /**
+     * The {@code limit} series with the highest total, sorted by descending total, followed by one "Other" series
+     * per currency summing up the remaining ones period by period. A limit of 0 returns every series.
+     */
+    public List<TimeSeries> series(int limit) {
+        List<String> periods = periods();
+        int[] columns = new int[periods.size()];
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = periodIndexes.get(periods.get(column));
+        }
+
+        boolean all = limit <= 0 || limit >= series.size();
+        int[] top = all ? series.orderByValueDescending() : series.topByValue(limit);
+        List<TimeSeries> result = new ArrayList<>(top.length + 1);
+        for (int slot : top) {
+            result.add(series.map(slot, (keys, currency, total) -> new TimeSeries(keys, currency, total,
+                    values(slot, columns))));
+        }
+
+        if (!all) {
+            result.addAll(others(top, columns));
+        }
+        return result;
+    }
+
+    private List<TimeSeries> others(int[] top, int[] columns) {
+        boolean[] selected = new boolean[series.size()];
+        for (int slot : top) {
+            selected[slot] = true;
+        }
+
+        // Per currency: the sums of every period, then the total, and their compensations
+        Map<String, double[][]> sumsPerCurrency = new LinkedHashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        for (int slot = 0; slot < series.size(); slot++) {
+            if (selected[slot]) {
+                continue;
+            }
+            String currency = series.currency(slot);
+            double[][] other = sumsPerCurrency.computeIfAbsent(currency,
+                    ignored -> new double[2][columns.length + 1]);
+            counts.merge(currency, 1, Integer::sum);
+            for (int column = 0; column < columns.length; column++) {
+                accumulate(other[0], other[1], column, value(slot, columns[column]));
+            }
+            accumulate(other[0], other[1], columns.length, series.value(slot));
+        }
+
+        List<TimeSeries> others = new ArrayList<>(sumsPerCurrency.size());
+        sumsPerCurrency.forEach((currency, other) -> {
+            String[] keys = new String[width];
+            Arrays.fill(keys, "");
+            if (width > 0) {
+                keys[0] = "Other (" + counts.get(currency) + " groups)";
+            }
+            double[] values = new double[columns.length];
+            for (int column = 0; column < columns.length; column++) {
+                values[column] = other[0][column] + other[1][column];
+            }
+            others.add(new TimeSeries(keys, currency, other[0][columns.length] + other[1][columns.length], values));
+        });
+        return others;
+    }
+
+    private double[] values(int slot, int[] columns) {
+        double[] values = new double[columns.length];
+        for (int column = 0; column < columns.length; column++) {
+            values[column] = value(slot, columns[column]);
+        }
+        return values;
+    }
+
+    private double value(int slot, int period) {
+        return sums.get(period)[slot] + compensations.get(period)[slot];
+    }
+
+    private static void accumulate(double[] sums, double[] compensations, int index, double amount) {
+        double sum = sums[index];
+        double total = sum + amount;
+        compensations[index] += Math.abs(sum) >= Math.abs(amount)
+                ? (sum - total) + amount
+                : (amount - total) + sum;
+        sums[index] = total;
+    }
+
+    private int periodIndex(String periodStart) {
+        Integer index = periodIndexes.get(periodStart);
+        if (index != null) {
+            return index;
+        }
+
+        periodIndexes.put(periodStart, periodStarts.size());
+        periodStarts.add(periodStart);
+        sums.add(new double[capacity]);
+        compensations.add(new double[capacity]);
+        return periodStarts.size() - 1;
+    }
+
+    private void grow(int slot) {
+        while (capacity <= slot) {
+            capacity *= 2;
+        }
+        sums.replaceAll(periodSums -> Arrays.copyOf(periodSums, capacity));
+        compensations.replaceAll(periodCompensations -> Arrays.copyOf(periodCompensations, capacity));
+    }
+}
@@ -0,0 +1,14 @@
+package query;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import software.amazon.awssdk.services.costexplorer.model.Granularity;
+
+@ConfigMapping(prefix = "cost-explorer.time-series")
+public interface TimeSeriesConfig {
+    @WithDefault("daily")
+    Granularity defaultGranularity();
+
+    @WithDefault("20")
+    int defaultLimit();
+}
@@ -0,0 +1,12 @@
+package query;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Series of a query sorted by descending total, the start of every period, the totals per currency and the freshness
+ * of the data.
+ */
+public record TimeSeriesResult(List<String> periods, List<TimeSeries> series, Map<String, Double> totalPerCurrency,
+                               DataFreshness freshness) {
+}
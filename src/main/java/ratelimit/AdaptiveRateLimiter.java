@@ -0,0 +1,111 @@
+package ratelimit;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket in front of the Cost Explorer API. The rate adapts to throttling: it is halved whenever AWS throttles
+ * a request and grows back by a tenth of the configured rate with every successful one.
+ */
+@ApplicationScoped
+public class AdaptiveRateLimiter {
+    private static final double MIN_REQUESTS_PER_SECOND = 0.1;
+
+    private final RateLimitConfig config;
+    private final Clock clock;
+
+    private double rate;
+    private double tokens;
+    private Instant lastRefill;
+
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    @Inject
+    public AdaptiveRateLimiter(RateLimitConfig config) {
+        this(config, Clock.systemUTC());
+    }
+
+    public AdaptiveRateLimiter(RateLimitConfig config, Clock clock) {
+        this.config = config;
+        this.clock = clock;
+        this.rate = config.requestsPerSecond();
+        this.tokens = config.burst();
+        this.lastRefill = clock.instant();
+    }
+
+    /**
+     * Wait until a request may be sent. Waiting callers reserve their token up front, so they are served in
+     * arrival order.
+     */
+    public void acquire() throws InterruptedException {
+        Duration wait = reserve();
+        if (!wait.isZero()) {
+            Thread.sleep(wait);
+        }
+    }
+
+    /**
+     * Take a token and return how long the caller has to wait before its request may be sent.
+     */
+    synchronized Duration reserve() {
+        refill();
+        tokens -= 1;
+        if (tokens >= 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos((long) (-tokens / rate * 1_000_000_000L));
+    }
+
+    public synchronized void onSuccess() {
+        rate = Math.min(config.requestsPerSecond(), rate + config.requestsPerSecond() / 10);
+    }
+
+    public synchronized void onThrottled() {
+        refill();
+        rate = Math.max(MIN_REQUESTS_PER_SECOND, rate / 2);
+        throttled.increment();
+    }
+
+    /**
+     * Jittered exponential backoff before the given retry attempt (starting at 0).
+     */
+    public Duration backoff(int attempt) {
+        retries.increment();
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(backoffCeiling(attempt).toMillis() + 1));
+    }
+
+    /**
+     * Longest backoff before the given retry attempt.
+     */
+    Duration backoffCeiling(int attempt) {
+        return Duration.ofMillis(Math.min(config.maxBackoff().toMillis(),
+                config.initialBackoff().toMillis() << Math.min(attempt, 20)));
+    }
+
+    public synchronized double currentRate() {
+        return rate;
+    }
+
+    public long throttled() {
+        return throttled.sum();
+    }
+
+    public long retries() {
+        return retries.sum();
+    }
+
+    // A clock set back earns nothing instead of taking tokens away
+    private void refill() {
+        Instant now = clock.instant();
+        double elapsedSeconds = Math.max(0, Duration.between(lastRefill, now).toNanos() / 1_000_000_000.0);
+        tokens = Math.min(config.burst(), tokens + elapsedSeconds * rate);
+        lastRefill = now;
+    }
+}
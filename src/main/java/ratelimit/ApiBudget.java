@@ -0,0 +1,114 @@
+package ratelimit;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the requests sent to the Cost Explorer API per clock hour and per day, and refuses new ones once the
+ * configured budget is spent. Every attempt is counted, including the ones which are retried after throttling.
+ */
+@ApplicationScoped
+public class ApiBudget {
+    private final BudgetConfig config;
+    private final Clock clock;
+
+    private Instant currentHour;
+    private Instant currentDay;
+    private long requestsThisHour;
+    private long requestsToday;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @Inject
+    public ApiBudget(BudgetConfig config) {
+        this(config, Clock.systemUTC());
+    }
+
+    public ApiBudget(BudgetConfig config, Clock clock) {
+        this.config = config;
+        this.clock = clock;
+        this.currentHour = clock.instant().truncatedTo(ChronoUnit.HOURS);
+        this.currentDay = clock.instant().truncatedTo(ChronoUnit.DAYS);
+    }
+
+    public boolean isServeStaleWhenExhausted() {
+        return config.serveStaleWhenExhausted();
+    }
+
+    /**
+     * Take one request from the budget.
+     *
+     * @throws BudgetExceededException if the hourly or the daily budget is spent
+     */
+    public synchronized void acquire() {
+        roll();
+
+        if (config.requestsPerHour() > 0 && requestsThisHour >= config.requestsPerHour()) {
+            rejected.increment();
+            throw new BudgetExceededException("The hourly budget of " + config.requestsPerHour()
+                    + " Cost Explorer API requests is spent");
+        }
+
+        if (config.requestsPerDay() > 0 && requestsToday >= config.requestsPerDay()) {
+            rejected.increment();
+            throw new BudgetExceededException("The daily budget of " + config.requestsPerDay()
+                    + " Cost Explorer API requests is spent");
+        }
+
+        requestsThisHour++;
+        requestsToday++;
+        requests.increment();
+    }
+
+    /**
+     * Whether at least {@code requests} more requests fit in both the hourly and the daily budget.
+     */
+    public synchronized boolean hasRemaining(long requests) {
+        roll();
+
+        if (config.requestsPerHour() > 0 && config.requestsPerHour() - requestsThisHour < requests) {
+            return false;
+        }
+        return config.requestsPerDay() <= 0 || config.requestsPerDay() - requestsToday >= requests;
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public synchronized long requestsThisHour() {
+        roll();
+        return requestsThisHour;
+    }
+
+    public synchronized long requestsToday() {
+        roll();
+        return requestsToday;
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    private void roll() {
+        Instant now = clock.instant();
+
+        Instant hour = now.truncatedTo(ChronoUnit.HOURS);
+        if (!hour.equals(currentHour)) {
+            currentHour = hour;
+            requestsThisHour = 0;
+        }
+
+        Instant day = now.truncatedTo(ChronoUnit.DAYS);
+        if (!day.equals(currentDay)) {
+            currentDay = day;
+            requestsToday = 0;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ratelimit;
+
+/**
+ * Snapshot of the requests sent to the Cost Explorer API.
+ */
+public record ApiUsageStats(long requests,
+                            long requestsThisHour,
+                            long requestsToday,
+                            long rejected,
+                            long throttled,
+                            long retries,
+                            double currentRequestsPerSecond) {
+    /**
+     * AWS charges this amount in USD for every paginated Cost Explorer API request.
+     */
+    public static final double COST_PER_REQUEST = 0.01;
+
+    public static ApiUsageStats of(ApiBudget budget, AdaptiveRateLimiter rateLimiter) {
+        return new ApiUsageStats(budget.requests(), budget.requestsThisHour(), budget.requestsToday(),
+                budget.rejected(), rateLimiter.throttled(), rateLimiter.retries(), rateLimiter.currentRate());
+    }
+
+    public double estimatedSpend() {
+        return requests * COST_PER_REQUEST;
+    }
+
+    public double estimatedSpendToday() {
+        return requestsToday * COST_PER_REQUEST;
+    }
+}
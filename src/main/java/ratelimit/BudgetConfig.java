@@ -0,0 +1,16 @@
+package ratelimit;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "cost-explorer.budget")
+public interface BudgetConfig {
+    @WithDefault("0")
+    int requestsPerHour();
+
+    @WithDefault("0")
+    int requestsPerDay();
+
+    @WithDefault("true")
+    boolean serveStaleWhenExhausted();
+}
@@ -0,0 +1,10 @@
+package ratelimit;
+
+/**
+ * Thrown instead of sending a request to AWS when the configured API budget is spent.
+ */
+public class BudgetExceededException extends RuntimeException {
+    public BudgetExceededException(String message) {
+        super(message);
+    }
+}
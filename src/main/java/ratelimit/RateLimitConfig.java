@@ -0,0 +1,27 @@
+package ratelimit;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "cost-explorer.rate-limit")
+public interface RateLimitConfig {
+    @WithDefault("true")
+    boolean enabled();
+
+    @WithDefault("5")
+    double requestsPerSecond();
+
+    @WithDefault("5")
+    int burst();
+
+    @WithDefault("5")
+    int maxRetries();
+
+    @WithDefault("PT0.5S")
+    Duration initialBackoff();
+
+    @WithDefault("PT20S")
+    Duration maxBackoff();
+}
@@ -0,0 +1,88 @@
+package ratelimit;
+
+import org.jboss.logging.Logger;
+import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
+import software.amazon.awssdk.services.costexplorer.model.*;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Decorates a {@link CostExplorerClient} with the API budget and the adaptive rate limiter. Throttled requests are
+ * retried page by page with jittered exponential backoff, so the pages fetched before the throttling are kept.
+ */
+public class RateLimitedCostExplorerClient implements CostExplorerClient {
+    Logger logger = Logger.getLogger(RateLimitedCostExplorerClient.class);
+
+    private final CostExplorerClient delegate;
+    private final AdaptiveRateLimiter rateLimiter;
+    private final ApiBudget budget;
+    private final RateLimitConfig config;
+
+    public RateLimitedCostExplorerClient(CostExplorerClient delegate, AdaptiveRateLimiter rateLimiter,
+                                         ApiBudget budget, RateLimitConfig config) {
+        this.delegate = delegate;
+        this.rateLimiter = rateLimiter;
+        this.budget = budget;
+        this.config = config;
+    }
+
+    @Override
+    public GetCostAndUsageResponse getCostAndUsage(GetCostAndUsageRequest request) {
+        return call(() -> delegate.getCostAndUsage(request));
+    }
+
+    @Override
+    public GetDimensionValuesResponse getDimensionValues(GetDimensionValuesRequest request) {
+        return call(() -> delegate.getDimensionValues(request));
+    }
+
+    @Override
+    public String serviceName() {
+        return delegate.serviceName();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private <R> R call(Supplier<R> apiCall) {
+        for (int attempt = 0; ; attempt++) {
+            budget.acquire();
+
+            try {
+                rateLimiter.acquire();
+                R response = apiCall.get();
+                rateLimiter.onSuccess();
+                return response;
+            } catch (CostExplorerException e) {
+                if (!isThrottling(e) || attempt >= config.maxRetries()) {
+                    throw e;
+                }
+
+                rateLimiter.onThrottled();
+                Duration backoff = rateLimiter.backoff(attempt);
+                logger.warnf("Cost Explorer API throttled the request, retrying in %d ms (attempt %d of %d)",
+                        backoff.toMillis(), attempt + 1, config.maxRetries());
+                sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the Cost Explorer rate limiter", e);
+            }
+        }
+    }
+
+    private static boolean isThrottling(CostExplorerException e) {
+        return e instanceof LimitExceededException || e.isThrottlingException();
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off a throttled request", e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package snapshot;
+
+import data.FormatConfig;
+import data.Report;
+import data.ReportFormat;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Splits large reports into chunks of {@link SnapshotConfig#pageRows()} rows. The first chunk is returned with the
+ * totals and an opaque cursor, the report is kept in the {@link SnapshotStore} and every following chunk is rendered
+ * from it by {@link #nextChunk(String)}, without fetching or sorting the rows again.
+ */
+@ApplicationScoped
+public class ReportPager {
+    private final SnapshotStore snapshotStore;
+    private final SnapshotConfig config;
+    private final FormatConfig formatConfig;
+
+    @Inject
+    public ReportPager(SnapshotStore snapshotStore, SnapshotConfig config, FormatConfig formatConfig) {
+        this.snapshotStore = snapshotStore;
+        this.config = config;
+        this.formatConfig = formatConfig;
+    }
+
+    /**
+     * Render the totals and the first chunk of rows, followed by the cursor of the next chunk if there are more rows.
+     */
+    public String firstChunk(Report report, ReportFormat format) {
+        int rows = report.rows().size();
+        if (config.pageRows() <= 0 || rows <= config.pageRows()) {
+            return report.generate(format, formatConfig);
+        }
+
+        String chunk = report.generate(format, formatConfig, config.pageRows());
+        ResultSnapshot snapshot = new ResultSnapshot(report, format, report.estimatedBytes(),
+                snapshotStore.expiresAt());
+        return snapshotStore.put(snapshot)
+                .map(id -> chunk + continuation(id, config.pageRows(), rows))
+                .orElseGet(() -> chunk + "The remaining " + (rows - config.pageRows()) + " rows are too many to " +
+                        "keep for fetchMoreRows. Ask for a shorter period, fewer rows with a limit or the compact " +
+                        "format.\n");
+    }
+
+    /**
+     * Render the chunk the cursor points to, followed by the cursor of the next one. Empty once the snapshot of the
+     * cursor has expired or was evicted.
+     */
+    public Optional<String> nextChunk(String cursor) {
+        Optional<Cursor> decoded = Cursor.decode(cursor);
+        if (decoded.isEmpty()) {
+            return Optional.empty();
+        }
+
+        String id = decoded.get().snapshotId();
+        int from = decoded.get().offset();
+        return snapshotStore.get(id)
+                .filter(snapshot -> from < snapshot.report().rows().size())
+                .map(snapshot -> {
+                    int rows = snapshot.report().rows().size();
+                    int until = Math.min(rows, from + config.pageRows());
+                    String chunk = snapshot.report().generateRows(snapshot.format(), formatConfig, from, until);
+                    return until < rows ? chunk + continuation(id, until, rows) : chunk;
+                });
+    }
+
+    private String continuation(String id, int until, int rows) {
+        return (rows - until) + " more rows. Call fetchMoreRows with the cursor " + new Cursor(id, until).encode() +
+                " to get the next " + Math.min(config.pageRows(), rows - until) + ".\n";
+    }
+
+    private record Cursor(String snapshotId, int offset) {
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((snapshotId + ":" + offset).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Optional<Cursor> decode(String cursor) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf(':');
+                if (separator < 0) {
+                    return Optional.empty();
+                }
+                int offset = Integer.parseInt(decoded.substring(separator + 1));
+                return offset < 0 ? Optional.empty() : Optional.of(new Cursor(decoded.substring(0, separator), offset));
+            } catch (IllegalArgumentException e) {
+                // Covers malformed Base64 and offsets alike, NumberFormatException is an IllegalArgumentException
+                return Optional.empty();
+            }
+        }
+    }
+}
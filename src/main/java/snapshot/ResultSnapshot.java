@@ -0,0 +1,16 @@
+package snapshot;
+
+import data.Report;
+import data.ReportFormat;
+
+import java.time.Instant;
+
+/**
+ * The aggregated and sorted rows of a tool call, kept so that the following chunks are rendered without fetching or
+ * sorting again.
+ */
+record ResultSnapshot(Report report, ReportFormat format, long estimatedBytes, Instant expiresAt) {
+    boolean isExpired(Instant now) {
+        return !now.isBefore(expiresAt);
+    }
+}
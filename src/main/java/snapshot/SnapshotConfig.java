@@ -0,0 +1,18 @@
+package snapshot;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "cost-explorer.snapshot")
+public interface SnapshotConfig {
+    @WithDefault("500")
+    int pageRows();
+
+    @WithDefault("PT30M")
+    Duration ttl();
+
+    @WithDefault("64")
+    int maxMegabytes();
+}
@@ -0,0 +1,15 @@
+package snapshot;
+
+/**
+ * Snapshot of the result snapshot store counters. Every follow-up chunk was served without an API call.
+ */
+public record SnapshotStats(int snapshots, long estimatedBytes, long maxBytes, long stored, long rejected,
+                            long chunksServed, long unknownCursors, long expired, long evicted) {
+    public double estimatedMegabytes() {
+        return estimatedBytes / (1024.0 * 1024);
+    }
+
+    public double maxMegabytes() {
+        return maxBytes / (1024.0 * 1024);
+    }
+}
@@ -0,0 +1,124 @@
+package snapshot;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the results of tool calls which did not fit in one chunk, keyed by a random id. Snapshots expire after
+ * {@link SnapshotConfig#ttl()} and the least recently used ones are evicted once their estimated memory exceeds
+ * {@link SnapshotConfig#maxMegabytes()}.
+ */
+@ApplicationScoped
+public class SnapshotStore {
+    private final SnapshotConfig config;
+    private final Clock clock;
+    private final long maxBytes;
+    private final Map<String, ResultSnapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder chunksServed = new LongAdder();
+    private final LongAdder unknownCursors = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    @Inject
+    public SnapshotStore(SnapshotConfig config) {
+        this(config, Clock.systemUTC());
+    }
+
+    public SnapshotStore(SnapshotConfig config, Clock clock) {
+        this.config = config;
+        this.clock = clock;
+        this.maxBytes = config.maxMegabytes() * 1024L * 1024;
+    }
+
+    /**
+     * Store the snapshot and return its id, unless it is larger than the whole store.
+     */
+    Optional<String> put(ResultSnapshot snapshot) {
+        if (snapshot.estimatedBytes() > maxBytes) {
+            rejected.increment();
+            return Optional.empty();
+        }
+
+        String id = UUID.randomUUID().toString();
+        synchronized (snapshots) {
+            removeExpired(clock.instant());
+
+            Iterator<ResultSnapshot> eldest = snapshots.values().iterator();
+            while (bytes + snapshot.estimatedBytes() > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().estimatedBytes();
+                eldest.remove();
+                evicted.increment();
+            }
+
+            snapshots.put(id, snapshot);
+            bytes += snapshot.estimatedBytes();
+        }
+        stored.increment();
+
+        return Optional.of(id);
+    }
+
+    Optional<ResultSnapshot> get(String id) {
+        Instant now = clock.instant();
+
+        synchronized (snapshots) {
+            ResultSnapshot snapshot = snapshots.get(id);
+            if (snapshot == null) {
+                unknownCursors.increment();
+                return Optional.empty();
+            }
+            if (snapshot.isExpired(now)) {
+                remove(id);
+                expired.increment();
+                return Optional.empty();
+            }
+            chunksServed.increment();
+            return Optional.of(snapshot);
+        }
+    }
+
+    private void remove(String id) {
+        synchronized (snapshots) {
+            ResultSnapshot snapshot = snapshots.remove(id);
+            if (snapshot != null) {
+                bytes -= snapshot.estimatedBytes();
+            }
+        }
+    }
+
+    Instant expiresAt() {
+        return clock.instant().plus(config.ttl());
+    }
+
+    public SnapshotStats stats() {
+        synchronized (snapshots) {
+            return new SnapshotStats(snapshots.size(), bytes, maxBytes, stored.sum(), rejected.sum(),
+                    chunksServed.sum(), unknownCursors.sum(), expired.sum(), evicted.sum());
+        }
+    }
+
+    private void removeExpired(Instant now) {
+        Iterator<ResultSnapshot> iterator = snapshots.values().iterator();
+        while (iterator.hasNext()) {
+            ResultSnapshot snapshot = iterator.next();
+            if (snapshot.isExpired(now)) {
+                bytes -= snapshot.estimatedBytes();
+                iterator.remove();
+                expired.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package standin;
+
+import cache.CacheKey;
+import cache.CachedResponse;
+import cache.ResponseCodec;
+import org.jboss.logging.Logger;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Recorded response pages, one file per request page, named and encoded like the entries of the disk cache.
+ */
+public class FixtureStore {
+    Logger logger = Logger.getLogger(FixtureStore.class);
+
+    private final Path directory;
+
+    public FixtureStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public Optional<GetCostAndUsageResponse> read(GetCostAndUsageRequest request) {
+        Path file = directory.resolve(CacheKey.of(request).fileName());
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            return Optional.of(ResponseCodec.read(inputStream).response());
+        } catch (IOException e) {
+            logger.warnf(e, "Could not read fixture %s", file);
+            return Optional.empty();
+        }
+    }
+
+    public void write(GetCostAndUsageRequest request, GetCostAndUsageResponse response) {
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(CacheKey.of(request).fileName());
+            try (OutputStream outputStream = Files.newOutputStream(file)) {
+                ResponseCodec.write(new CachedResponse(response, Instant.now(), null), outputStream);
+            }
+        } catch (IOException e) {
+            logger.warnf(e, "Could not record fixture for %s", CacheKey.of(request).value());
+        }
+    }
+}
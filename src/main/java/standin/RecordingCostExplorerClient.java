@@ -0,0 +1,43 @@
+package standin;
+
+import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesResponse;
+
+/**
+ * Decorates a live {@link CostExplorerClient}, saving every response page as a fixture for the replay mode.
+ */
+public class RecordingCostExplorerClient implements CostExplorerClient {
+    private final CostExplorerClient delegate;
+    private final FixtureStore fixtureStore;
+
+    public RecordingCostExplorerClient(CostExplorerClient delegate, FixtureStore fixtureStore) {
+        this.delegate = delegate;
+        this.fixtureStore = fixtureStore;
+    }
+
+    @Override
+    public GetCostAndUsageResponse getCostAndUsage(GetCostAndUsageRequest request) {
+        GetCostAndUsageResponse response = delegate.getCostAndUsage(request);
+        fixtureStore.write(request, response);
+        return response;
+    }
+
+    @Override
+    public GetDimensionValuesResponse getDimensionValues(GetDimensionValuesRequest request) {
+        // Only cost pages are recorded, the replay mode generates the dimension values
+        return delegate.getDimensionValues(request);
+    }
+
+    @Override
+    public String serviceName() {
+        return delegate.serviceName();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,67 @@
+package standin;
+
+import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesResponse;
+import software.amazon.awssdk.services.costexplorer.model.LimitExceededException;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Offline stand-in for the Cost Explorer API. Every page takes the configured latency, a share of the pages is
+ * throttled, and requests are answered from the recorded fixtures or, without one, with synthetic pages.
+ */
+public class ReplayCostExplorerClient implements CostExplorerClient {
+    private final FixtureStore fixtureStore;
+    private final StandInConfig config;
+
+    public ReplayCostExplorerClient(FixtureStore fixtureStore, StandInConfig config) {
+        this.fixtureStore = fixtureStore;
+        this.config = config;
+    }
+
+    @Override
+    public GetCostAndUsageResponse getCostAndUsage(GetCostAndUsageRequest request) {
+        simulateLatencyAndThrottling();
+
+        return fixtureStore.read(request)
+                .orElseGet(() -> SyntheticResponses.page(request, config.syntheticGroups(), config.currencies(),
+                        config.pageSize()));
+    }
+
+    @Override
+    public GetDimensionValuesResponse getDimensionValues(GetDimensionValuesRequest request) {
+        simulateLatencyAndThrottling();
+
+        return SyntheticResponses.dimensionValues(request, config.syntheticGroups(), config.pageSize());
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void simulateLatencyAndThrottling() {
+        if (!config.latency().isZero()) {
+            try {
+                Thread.sleep(config.latency());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while replaying a response", e);
+            }
+        }
+
+        if (ThreadLocalRandom.current().nextDouble() < config.throttleRatio()) {
+            throw LimitExceededException.builder()
+                    .message("Rate exceeded (replayed)")
+                    .statusCode(400)
+                    .build();
+        }
+    }
+}
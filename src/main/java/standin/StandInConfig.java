@@ -0,0 +1,36 @@
+package standin;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "cost-explorer.stand-in")
+public interface StandInConfig {
+    enum Mode {
+        LIVE,
+        RECORD,
+        REPLAY
+    }
+
+    @WithDefault("live")
+    Mode mode();
+
+    @WithDefault("${user.home}/.mcp-aws-cost-explorer/fixtures")
+    String directory();
+
+    @WithDefault("PT0.2S")
+    Duration latency();
+
+    @WithDefault("0")
+    double throttleRatio();
+
+    @WithDefault("2000")
+    int syntheticGroups();
+
+    @WithDefault("500")
+    int pageSize();
+
+    @WithDefault("1")
+    int currencies();
+}
@@ -0,0 +1,210 @@
+package standin;
+
+import query.CostQuery;
+import software.amazon.awssdk.services.costexplorer.model.DateInterval;
+import software.amazon.awssdk.services.costexplorer.model.DimensionValuesWithAttributes;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesResponse;
+import software.amazon.awssdk.services.costexplorer.model.Granularity;
+import software.amazon.awssdk.services.costexplorer.model.Group;
+import software.amazon.awssdk.services.costexplorer.model.GroupDefinition;
+import software.amazon.awssdk.services.costexplorer.model.MetricValue;
+import software.amazon.awssdk.services.costexplorer.model.ResultByTime;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generates GetCostAndUsage pages shaped like the ones of a large organization: a few hundred services with dozens of
+ * operations each, amounts spanning several orders of magnitude and, optionally, more than one currency. Every page
+ * holds the same groups for each MONTHLY, DAILY or HOURLY period of the request, and the pages are a pure function of
+ * the request, so a replayed query always adds up to the same report.
+ */
+public final class SyntheticResponses {
+    private static final String PAGE_TOKEN_PREFIX = "synthetic-";
+    private static final String[] CURRENCIES = {"USD", "EUR", "JPY", "GBP"};
+    private static final String[] RECORD_TYPES = {"Usage", "Credit", "Refund", "DiscountedUsage", "Discount",
+            "SavingsPlanCoveredUsage", "SavingsPlanNegation"};
+    // Real names, so the tool arguments pass the dimension index in replay mode
+    private static final String[] REGIONS = {"us-east-1", "us-east-2", "us-west-1", "us-west-2", "ca-central-1",
+            "eu-west-1", "eu-west-2", "eu-west-3", "eu-central-1", "eu-north-1", "ap-south-1", "ap-northeast-1",
+            "ap-northeast-2", "ap-southeast-1", "ap-southeast-2", "sa-east-1", "global"};
+    private static final long SEED = 42;
+
+    private SyntheticResponses() {
+    }
+
+    /**
+     * The page of the request selected by its next page token, out of {@code groups} groups.
+     */
+    public static GetCostAndUsageResponse page(GetCostAndUsageRequest request, int groups, int currencies,
+                                               int pageSize) {
+        int pageIndex = request.nextPageToken() == null
+                ? 0
+                : Integer.parseInt(request.nextPageToken().substring(PAGE_TOKEN_PREFIX.length()));
+        int from = pageIndex * pageSize;
+        int until = Math.min(groups, from + pageSize);
+
+        List<String> dimensions = new ArrayList<>();
+        for (GroupDefinition groupDefinition : request.groupBy()) {
+            dimensions.add(groupDefinition.key());
+        }
+
+        List<DateInterval> periods = periods(request);
+        SplittableRandom random = new SplittableRandom(SEED + pageIndex);
+        List<ResultByTime> results = new ArrayList<>(periods.size());
+
+        for (DateInterval period : periods) {
+            List<Group> page = new ArrayList<>(Math.max(0, until - from));
+            for (int i = from; i < until; i++) {
+                // Log-uniform amounts, from fractions of a cent to thousands
+                double amount = Math.pow(10, random.nextDouble() * 10 - 6);
+                page.add(Group.builder()
+                        .keys(keys(dimensions, i, groups))
+                        .metrics(Map.of(CostQuery.METRIC, MetricValue.builder()
+                                .amount(String.format(Locale.ROOT, "%.10f", amount))
+                                .unit(CURRENCIES[i % Math.clamp(currencies, 1, CURRENCIES.length)])
+                                .build()))
+                        .build());
+            }
+
+            results.add(ResultByTime.builder()
+                    .timePeriod(period)
+                    .groups(page)
+                    .estimated(false)
+                    .build());
+        }
+
+        return GetCostAndUsageResponse.builder()
+                .resultsByTime(results)
+                .nextPageToken(until < groups ? PAGE_TOKEN_PREFIX + (pageIndex + 1) : null)
+                .build();
+    }
+
+    /**
+     * Every page of the request, in order.
+     */
+    public static List<GetCostAndUsageResponse> pages(GetCostAndUsageRequest request, int groups, int currencies,
+                                                      int pageSize) {
+        List<GetCostAndUsageResponse> pages = new ArrayList<>();
+        String nextPageToken = null;
+
+        do {
+            GetCostAndUsageResponse page = page(request.toBuilder().nextPageToken(nextPageToken).build(), groups,
+                    currencies, pageSize);
+            pages.add(page);
+            nextPageToken = page.nextPageToken();
+        } while (nextPageToken != null);
+
+        return pages;
+    }
+
+    /**
+     * The page of GetDimensionValues selected by its next page token: the values the synthetic cost pages use for the
+     * dimension, out of {@code groups} values at most.
+     */
+    public static GetDimensionValuesResponse dimensionValues(GetDimensionValuesRequest request, int groups,
+                                                             int pageSize) {
+        String dimension = request.dimensionAsString();
+        int values = Math.min(groups, cardinality(dimension));
+        int pageIndex = request.nextPageToken() == null
+                ? 0
+                : Integer.parseInt(request.nextPageToken().substring(PAGE_TOKEN_PREFIX.length()));
+        int from = pageIndex * pageSize;
+        int until = Math.min(values, from + pageSize);
+
+        List<DimensionValuesWithAttributes> page = new ArrayList<>(Math.max(0, until - from));
+        for (int i = from; i < until; i++) {
+            page.add(DimensionValuesWithAttributes.builder()
+                    .value(key(dimension, i))
+                    .attributes(Map.of())
+                    .build());
+        }
+
+        return GetDimensionValuesResponse.builder()
+                .dimensionValues(page)
+                .returnSize(page.size())
+                .totalSize(values)
+                .nextPageToken(until < values ? PAGE_TOKEN_PREFIX + (pageIndex + 1) : null)
+                .build();
+    }
+
+    private static List<String> keys(List<String> dimensions, int group, int groups) {
+        if (dimensions.isEmpty()) {
+            return List.of();
+        }
+        if (dimensions.size() == 1) {
+            return List.of(key(dimensions.getFirst(), group));
+        }
+
+        int perFirst = Math.max(1, Math.min((int) Math.sqrt(groups) / 4, cardinality(dimensions.get(1))));
+        return List.of(key(dimensions.get(0), group / perFirst), key(dimensions.get(1), group % perFirst));
+    }
+
+    private static String key(String dimension, int value) {
+        return switch (dimension) {
+            case "SERVICE" -> "Amazon Service " + value;
+            case "OPERATION" -> "Operation:" + value;
+            case "LINKED_ACCOUNT" -> String.valueOf(100_000_000_000L + value);
+            case "REGION" -> REGIONS[value % REGIONS.length];
+            case "RECORD_TYPE" -> RECORD_TYPES[value % RECORD_TYPES.length];
+            default -> dimension + "-" + value;
+        };
+    }
+
+    private static int cardinality(String dimension) {
+        return switch (dimension) {
+            case "RECORD_TYPE" -> RECORD_TYPES.length;
+            case "REGION" -> REGIONS.length;
+            default -> Integer.MAX_VALUE;
+        };
+    }
+
+    private static List<DateInterval> periods(GetCostAndUsageRequest request) {
+        if (request.granularity() == Granularity.HOURLY) {
+            return hourlyPeriods(request);
+        }
+
+        LocalDate start = LocalDate.parse(request.timePeriod().start());
+        LocalDate end = LocalDate.parse(request.timePeriod().end());
+        boolean daily = request.granularity() == Granularity.DAILY;
+
+        List<DateInterval> periods = new ArrayList<>();
+        while (start.isBefore(end)) {
+            LocalDate next = daily ? start.plusDays(1) : start.withDayOfMonth(1).plusMonths(1);
+            if (next.isAfter(end)) {
+                next = end;
+            }
+            periods.add(DateInterval.builder()
+                    .start(start.toString())
+                    .end(next.toString())
+                    .build());
+            start = next;
+        }
+        return periods;
+    }
+
+    private static List<DateInterval> hourlyPeriods(GetCostAndUsageRequest request) {
+        Instant start = Instant.parse(request.timePeriod().start());
+        Instant end = Instant.parse(request.timePeriod().end());
+
+        List<DateInterval> periods = new ArrayList<>();
+        while (start.isBefore(end)) {
+            Instant next = start.plus(1, ChronoUnit.HOURS);
+            periods.add(DateInterval.builder()
+                    .start(start.toString())
+                    .end(next.toString())
+                    .build());
+            start = next;
+        }
+        return periods;
+    }
+}
@@ -0,0 +1,205 @@
+package warehouse;
+
+import query.CostAggregator;
+import query.CostQuery;
+import software.amazon.awssdk.services.costexplorer.model.Group;
+import software.amazon.awssdk.services.costexplorer.model.MetricValue;
+import software.amazon.awssdk.services.costexplorer.model.ResultByTime;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Daily costs of one dataset stored column by column. Every day is a partition holding dictionary encoded key and
+ * currency columns and a primitive amount column, so a scan over a date range touches only flat arrays.
+ */
+final class ColumnarTable {
+    private static final int MAGIC = 0x43574831;
+
+    private final int width;
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> dictionaryIndexes = new HashMap<>();
+    private final TreeMap<LocalDate, Partition> partitions = new TreeMap<>();
+
+    private LocalDate coveredFrom;
+    private LocalDate coveredUntil;
+    private Instant syncedAt;
+
+    private record Partition(int rows, int[][] keys, int[] currencies, double[] amounts) {
+    }
+
+    ColumnarTable(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Replace every day in [from, until) with the given DAILY results.
+     */
+    void replace(LocalDate from, LocalDate until, List<ResultByTime> results, Instant syncedAt) {
+        partitions.subMap(from, until).clear();
+
+        for (ResultByTime result : results) {
+            LocalDate day = LocalDate.parse(result.timePeriod().start());
+            int rows = result.groups().size();
+            int[][] keys = new int[width][rows];
+            int[] currencies = new int[rows];
+            double[] amounts = new double[rows];
+
+            int row = 0;
+            for (Group group : result.groups()) {
+                for (int part = 0; part < width; part++) {
+                    keys[part][row] = encode(part < group.keys().size() ? group.keys().get(part) : "");
+                }
+                MetricValue metric = group.metrics().get(CostQuery.METRIC);
+                currencies[row] = encode(metric.unit());
+                amounts[row] = Double.parseDouble(metric.amount());
+                row++;
+            }
+
+            partitions.put(day, new Partition(rows, keys, currencies, amounts));
+        }
+
+        coveredFrom = coveredFrom == null || from.isBefore(coveredFrom) ? from : coveredFrom;
+        coveredUntil = coveredUntil == null || until.isAfter(coveredUntil) ? until : coveredUntil;
+        this.syncedAt = syncedAt;
+    }
+
+    boolean covers(LocalDate from, LocalDate until) {
+        return coveredFrom != null && !from.isBefore(coveredFrom) && !until.isAfter(coveredUntil);
+    }
+
+    void scan(LocalDate from, LocalDate until, CostAggregator aggregator) {
+        String[] rowKeys = new String[width];
+        List<String> rowKeysView = Arrays.asList(rowKeys);
+
+        for (Partition partition : partitions.subMap(from, until).values()) {
+            for (int row = 0; row < partition.rows(); row++) {
+                for (int part = 0; part < width; part++) {
+                    rowKeys[part] = dictionary.get(partition.keys()[part][row]);
+                }
+                aggregator.add(rowKeysView, dictionary.get(partition.currencies()[row]), partition.amounts()[row]);
+            }
+        }
+    }
+
+    Optional<LocalDate> coveredFrom() {
+        return Optional.ofNullable(coveredFrom);
+    }
+
+    Optional<LocalDate> coveredUntil() {
+        return Optional.ofNullable(coveredUntil);
+    }
+
+    Instant syncedAt() {
+        return syncedAt;
+    }
+
+    int rows() {
+        int rows = 0;
+        for (Partition partition : partitions.values()) {
+            rows += partition.rows();
+        }
+        return rows;
+    }
+
+    void write(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(outputStream)));
+
+        out.writeInt(MAGIC);
+        out.writeInt(width);
+        out.writeLong(coveredFrom.toEpochDay());
+        out.writeLong(coveredUntil.toEpochDay());
+        out.writeLong(syncedAt.toEpochMilli());
+
+        out.writeInt(dictionary.size());
+        for (String value : dictionary) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        out.writeInt(partitions.size());
+        for (Map.Entry<LocalDate, Partition> entry : partitions.entrySet()) {
+            Partition partition = entry.getValue();
+            out.writeLong(entry.getKey().toEpochDay());
+            out.writeInt(partition.rows());
+            for (int[] column : partition.keys()) {
+                writeColumn(column, out);
+            }
+            writeColumn(partition.currencies(), out);
+            for (double amount : partition.amounts()) {
+                out.writeDouble(amount);
+            }
+        }
+
+        out.flush();
+        out.close();
+    }
+
+    static ColumnarTable read(InputStream inputStream) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(inputStream)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a cost warehouse table");
+            }
+
+            ColumnarTable table = new ColumnarTable(in.readInt());
+            table.coveredFrom = LocalDate.ofEpochDay(in.readLong());
+            table.coveredUntil = LocalDate.ofEpochDay(in.readLong());
+            table.syncedAt = Instant.ofEpochMilli(in.readLong());
+
+            int dictionarySize = in.readInt();
+            for (int i = 0; i < dictionarySize; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                table.encode(new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            int partitionCount = in.readInt();
+            for (int i = 0; i < partitionCount; i++) {
+                LocalDate day = LocalDate.ofEpochDay(in.readLong());
+                int rows = in.readInt();
+                int[][] keys = new int[table.width][];
+                for (int part = 0; part < table.width; part++) {
+                    keys[part] = readColumn(rows, in);
+                }
+                int[] currencies = readColumn(rows, in);
+                double[] amounts = new double[rows];
+                for (int row = 0; row < rows; row++) {
+                    amounts[row] = in.readDouble();
+                }
+                table.partitions.put(day, new Partition(rows, keys, currencies, amounts));
+            }
+
+            return table;
+        }
+    }
+
+    private int encode(String value) {
+        Integer index = dictionaryIndexes.get(value);
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.add(value);
+            dictionaryIndexes.put(value, index);
+        }
+        return index;
+    }
+
+    private static void writeColumn(int[] column, DataOutputStream out) throws IOException {
+        for (int value : column) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readColumn(int rows, DataInputStream in) throws IOException {
+        int[] column = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            column[row] = in.readInt();
+        }
+        return column;
+    }
+}
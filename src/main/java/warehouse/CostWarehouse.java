@@ -0,0 +1,156 @@
+package warehouse;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import query.Aggregation;
+import query.CostAggregator;
+import query.CostDataset;
+import query.CostQuery;
+import query.DataFreshness;
+import software.amazon.awssdk.services.costexplorer.model.ResultByTime;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Local store of the daily costs of every {@link CostDataset}, kept in sync by {@link WarehouseSync}. Queries over
+ * all regions whose period is covered by the synced days are answered with a local scan instead of API calls.
+ */
+@ApplicationScoped
+public class CostWarehouse {
+    Logger logger = Logger.getLogger(CostWarehouse.class);
+
+    private final WarehouseConfig config;
+    private final Path directory;
+    private final Map<CostDataset, ColumnarTable> tables = new EnumMap<>(CostDataset.class);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Inject
+    public CostWarehouse(WarehouseConfig config) {
+        this.config = config;
+        this.directory = Path.of(config.directory());
+
+        if (config.enabled()) {
+            load();
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.enabled();
+    }
+
+    /**
+     * Aggregate the query locally, if the warehouse holds its dataset for the whole period. Queries filtering on
+     * regions are not covered, the warehouse keeps the costs of all regions together.
+     */
+    public Optional<Aggregation> aggregate(CostQuery query) {
+        if (!config.enabled() || !query.regions().isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<CostDataset> dataset = CostDataset.of(query);
+        if (dataset.isEmpty()) {
+            return Optional.empty();
+        }
+
+        LocalDate from = LocalDate.parse(query.startDate());
+        LocalDate until = LocalDate.parse(query.endDate());
+
+        lock.readLock().lock();
+        try {
+            ColumnarTable table = tables.get(dataset.get());
+            if (table == null || !table.covers(from, until)) {
+                return Optional.empty();
+            }
+
+            CostAggregator aggregator = new CostAggregator(query.groupBy().size());
+            table.scan(from, until, aggregator);
+            return Optional.of(new Aggregation(aggregator, DataFreshness.warehouse(table.syncedAt())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<LocalDate> coveredFrom(CostDataset dataset) {
+        lock.readLock().lock();
+        try {
+            ColumnarTable table = tables.get(dataset);
+            return table == null ? Optional.empty() : table.coveredFrom();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<LocalDate> coveredUntil(CostDataset dataset) {
+        lock.readLock().lock();
+        try {
+            ColumnarTable table = tables.get(dataset);
+            return table == null ? Optional.empty() : table.coveredUntil();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the days in [from, until) of the dataset with freshly fetched DAILY results and persist the table.
+     */
+    public void replace(CostDataset dataset, LocalDate from, LocalDate until, List<ResultByTime> results,
+                        Instant syncedAt) {
+        lock.writeLock().lock();
+        try {
+            ColumnarTable table = tables.computeIfAbsent(dataset,
+                    ignored -> new ColumnarTable(dataset.groupBy().size()));
+            table.replace(from, until, results, syncedAt);
+            persist(dataset, table);
+            logger.infof("Synced %s from %s to %s, %d rows in total", dataset, from, until, table.rows());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        for (CostDataset dataset : CostDataset.values()) {
+            Path file = fileOf(dataset);
+            if (!Files.exists(file)) {
+                continue;
+            }
+
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                tables.put(dataset, ColumnarTable.read(inputStream));
+            } catch (IOException e) {
+                logger.warnf(e, "Could not load warehouse table %s, it will be synced again", file);
+            }
+        }
+    }
+
+    private void persist(CostDataset dataset, ColumnarTable table) {
+        try {
+            Files.createDirectories(directory);
+            Path temporaryFile = Files.createTempFile(directory, "table", ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+                table.write(outputStream);
+            }
+            Files.move(temporaryFile, fileOf(dataset), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warnf(e, "Could not persist warehouse table %s", dataset);
+        }
+    }
+
+    private Path fileOf(CostDataset dataset) {
+        return directory.resolve(dataset.name().toLowerCase() + ".col");
+    }
+}
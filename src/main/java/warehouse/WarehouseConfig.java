@@ -0,0 +1,22 @@
+package warehouse;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "cost-explorer.warehouse")
+public interface WarehouseConfig {
+    @WithDefault("false")
+    boolean enabled();
+
+    @WithDefault("${user.home}/.mcp-aws-cost-explorer/warehouse")
+    String directory();
+
+    @WithDefault("12")
+    int historyMonths();
+
+    @WithDefault("3")
+    int restatementDays();
+
+    @WithDefault("6h")
+    String syncInterval();
+}
@@ -0,0 +1,106 @@
+package warehouse;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import query.CostAndUsageFetcher;
+import query.CostDataset;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.Granularity;
+import software.amazon.awssdk.services.costexplorer.model.ResultByTime;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pulls DAILY costs of every {@link CostDataset} into the {@link CostWarehouse}. The first sync fetches
+ * {@link WarehouseConfig#historyMonths()} closed months, every later one only the days since the last sync plus the
+ * trailing {@link WarehouseConfig#restatementDays()} days.
+ */
+@ApplicationScoped
+public class WarehouseSync {
+    Logger logger = Logger.getLogger(WarehouseSync.class);
+
+    private final CostWarehouse warehouse;
+    private final CostAndUsageFetcher costAndUsageFetcher;
+    private final WarehouseConfig config;
+    private final Clock clock;
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    @Inject
+    public WarehouseSync(CostWarehouse warehouse, CostAndUsageFetcher costAndUsageFetcher, WarehouseConfig config) {
+        this(warehouse, costAndUsageFetcher, config, Clock.systemUTC());
+    }
+
+    WarehouseSync(CostWarehouse warehouse, CostAndUsageFetcher costAndUsageFetcher, WarehouseConfig config,
+                  Clock clock) {
+        this.warehouse = warehouse;
+        this.costAndUsageFetcher = costAndUsageFetcher;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (config.enabled()) {
+            Thread.ofVirtual().name("warehouse-sync").start(this::sync);
+        }
+    }
+
+    @Scheduled(every = "${cost-explorer.warehouse.sync-interval}", delayed = "${cost-explorer.warehouse.sync-interval}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledSync() {
+        if (config.enabled()) {
+            sync();
+        }
+    }
+
+    public void sync() {
+        syncLock.lock();
+        try {
+            syncDatasets();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void syncDatasets() {
+        LocalDate today = LocalDate.now(clock);
+
+        for (CostDataset dataset : CostDataset.values()) {
+            LocalDate from = syncStart(dataset, today);
+            if (!from.isBefore(today)) {
+                continue;
+            }
+
+            GetCostAndUsageRequest request = dataset.query(from.toString(), today.toString(), List.of())
+                    .withGranularity(Granularity.DAILY)
+                    .toRequest();
+
+            try {
+                Instant syncedAt = clock.instant();
+                List<ResultByTime> results = costAndUsageFetcher.fetch(request);
+                warehouse.replace(dataset, from, today, results, syncedAt);
+            } catch (RuntimeException e) {
+                logger.warnf(e, "Could not sync %s into the cost warehouse", dataset);
+            }
+        }
+    }
+
+    private LocalDate syncStart(CostDataset dataset, LocalDate today) {
+        Optional<LocalDate> coveredUntil = warehouse.coveredUntil(dataset);
+        if (coveredUntil.isEmpty()) {
+            return today.withDayOfMonth(1).minusMonths(config.historyMonths());
+        }
+
+        LocalDate restated = coveredUntil.get().minusDays(config.restatementDays());
+        LocalDate coveredFrom = warehouse.coveredFrom(dataset).orElse(restated);
+        return restated.isBefore(coveredFrom) ? coveredFrom : restated;
+    }
+}
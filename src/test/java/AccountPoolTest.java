@@ -0,0 +1,115 @@
+import cache.CacheConfig;
+import cache.ResponseCache;
+import data.AccountRow;
+import data.UsagePerServiceAndOperation;
+import io.quarkiverse.mcp.server.ToolCallException;
+import metrics.ServerMetrics;
+import org.junit.jupiter.api.Test;
+import query.*;
+import software.amazon.awssdk.services.costexplorer.model.*;
+import testing.StubCostExplorerClient;
+import testing.TestConfig;
+import warehouse.CostWarehouse;
+import warehouse.WarehouseConfig;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountPoolTest {
+    private static final RowMapper<UsagePerServiceAndOperation> USAGE = (keys, currency, value) ->
+            new UsagePerServiceAndOperation.Builder()
+                    .serviceName(keys[0])
+                    .operation(keys[1])
+                    .currency(currency)
+                    .value(value)
+                    .build();
+
+    private static final CostQuery QUERY = CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query("2025-01-01",
+            "2025-02-01", List.of());
+
+    private final StubCostExplorerClient defaultClient = client("10");
+    private final StubCostExplorerClient prodClient = client("4");
+    private final AtomicInteger builtAccounts = new AtomicInteger();
+
+    @Test
+    void rowsOfEveryAccountAreMergedAndTaggedWithTheirAccount() {
+        QueryResult<AccountRow<UsagePerServiceAndOperation>> result = pool().execute(List.of("default", " prod "),
+                QUERY, USAGE, 0);
+
+        assertEquals(List.of(
+                new AccountRow<>("default", new UsagePerServiceAndOperation("AmazonEC2", "RunInstances", "USD", 10)),
+                new AccountRow<>("prod", new UsagePerServiceAndOperation("AmazonEC2", "RunInstances", "USD", 4))),
+                result.rows());
+        assertEquals(Map.of("USD", 14.0), result.totalPerCurrency());
+        assertEquals(1, defaultClient.requests.size());
+        assertEquals(1, prodClient.requests.size());
+    }
+
+    @Test
+    void limitAppliesToTheMergedRows() {
+        QueryResult<AccountRow<UsagePerServiceAndOperation>> result = pool().execute(List.of("prod", "default"),
+                QUERY, USAGE, 1);
+
+        assertEquals(2, result.rows().size());
+        assertEquals("default", result.rows().getFirst().account());
+        assertEquals(new AccountRow<>("", new UsagePerServiceAndOperation("Other (1 groups)", "", "USD", 4)),
+                result.rows().get(1), "The other row of the limit, labelled in the service column");
+    }
+
+    @Test
+    void accountsAreBuiltOnceOnFirstUse() {
+        AccountPool pool = pool();
+
+        pool.execute(List.of("default"), QUERY, USAGE, 0);
+        assertEquals(0, builtAccounts.get());
+        pool.execute(List.of("prod"), QUERY, USAGE, 0);
+        pool.execute(List.of("prod", "prod"), QUERY, USAGE, 0);
+
+        assertEquals(1, builtAccounts.get());
+    }
+
+    @Test
+    void unknownAccountIsRejected() {
+        ToolCallException exception = assertThrows(ToolCallException.class,
+                () -> pool().execute(List.of("default", "staging"), QUERY, USAGE, 0));
+
+        assertEquals("Unknown account: staging, it should be default or one of prod", exception.getMessage());
+        assertTrue(defaultClient.requests.isEmpty());
+    }
+
+    private AccountPool pool() {
+        return new AccountPool(TestConfig.of(AccountsConfig.class, "cost-explorer.accounts.pool.prod.profile=prod"),
+                queryEngine(defaultClient), account -> {
+                    assertEquals("prod", account.profile());
+                    builtAccounts.incrementAndGet();
+                    return new AccountPool.PooledAccount(queryEngine(prodClient), prodClient);
+                });
+    }
+
+    private static QueryEngine queryEngine(StubCostExplorerClient client) {
+        ResponseCache responseCache = new ResponseCache(TestConfig.of(CacheConfig.class));
+        FanOutConfig fanOutConfig = TestConfig.of(FanOutConfig.class);
+        return new QueryEngine(new CostAndUsageFetcher(client, responseCache, fanOutConfig),
+                new CostWarehouse(TestConfig.of(WarehouseConfig.class)),
+                new QueryPlanner(responseCache, fanOutConfig, TestConfig.of(PlannerConfig.class)),
+                new ServerMetrics(), new OpenPeriodResults(TestConfig.of(RevalidationConfig.class)));
+    }
+
+    private static StubCostExplorerClient client(String amount) {
+        return new StubCostExplorerClient(request -> GetCostAndUsageResponse.builder()
+                .resultsByTime(ResultByTime.builder()
+                        .timePeriod(request.timePeriod())
+                        .groups(Group.builder()
+                                .keys("AmazonEC2", "RunInstances")
+                                .metrics(Map.of(CostQuery.METRIC, MetricValue.builder()
+                                        .amount(amount)
+                                        .unit("USD")
+                                        .build()))
+                                .build())
+                        .build())
+                .build());
+    }
+}
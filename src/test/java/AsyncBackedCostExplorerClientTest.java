@@ -0,0 +1,94 @@
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.costexplorer.CostExplorerAsyncClient;
+import software.amazon.awssdk.services.costexplorer.model.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncBackedCostExplorerClientTest {
+    private static final GetCostAndUsageRequest REQUEST = GetCostAndUsageRequest.builder()
+            .timePeriod(DateInterval.builder().start("2025-01-01").end("2025-02-01").build())
+            .build();
+
+    @Test
+    void waitsForTheResponseOfTheAsyncClient() throws InterruptedException {
+        CompletableFuture<GetCostAndUsageResponse> pending = new CompletableFuture<>();
+        AsyncBackedCostExplorerClient client = new AsyncBackedCostExplorerClient(asyncClient(pending));
+        GetCostAndUsageResponse response = GetCostAndUsageResponse.builder().nextPageToken("next").build();
+
+        AtomicReference<GetCostAndUsageResponse> received = new AtomicReference<>();
+        Thread caller = Thread.ofVirtual().start(() -> received.set(client.getCostAndUsage(REQUEST)));
+        pending.complete(response);
+        caller.join();
+
+        assertSame(response, received.get());
+    }
+
+    @Test
+    void serviceExceptionsAreThrownUnwrapped() {
+        LimitExceededException throttled = LimitExceededException.builder().message("Rate exceeded").build();
+        AsyncBackedCostExplorerClient client = new AsyncBackedCostExplorerClient(
+                asyncClient(CompletableFuture.failedFuture(throttled)));
+
+        assertSame(throttled, assertThrows(LimitExceededException.class, () -> client.getCostAndUsage(REQUEST)));
+    }
+
+    @Test
+    void checkedFailuresStayWrapped() {
+        IOException failure = new IOException("Connection reset");
+        AsyncBackedCostExplorerClient client = new AsyncBackedCostExplorerClient(
+                asyncClient(CompletableFuture.failedFuture(failure)));
+
+        assertSame(failure, assertThrows(CompletionException.class, () -> client.getCostAndUsage(REQUEST)).getCause());
+    }
+
+    @Test
+    void dimensionValuesGoThroughTheAsyncClient() {
+        GetDimensionValuesResponse response = GetDimensionValuesResponse.builder()
+                .dimensionValues(List.of(DimensionValuesWithAttributes.builder().value("us-east-1").build()))
+                .build();
+        AsyncBackedCostExplorerClient client = new AsyncBackedCostExplorerClient(new CostExplorerAsyncClient() {
+            @Override
+            public CompletableFuture<GetDimensionValuesResponse> getDimensionValues(
+                    GetDimensionValuesRequest request) {
+                return CompletableFuture.completedFuture(response);
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        assertSame(response, client.getDimensionValues(GetDimensionValuesRequest.builder().build()));
+        assertEquals(CostExplorerAsyncClient.SERVICE_NAME, client.serviceName());
+    }
+
+    private static CostExplorerAsyncClient asyncClient(CompletableFuture<GetCostAndUsageResponse> response) {
+        return new CostExplorerAsyncClient() {
+            @Override
+            public CompletableFuture<GetCostAndUsageResponse> getCostAndUsage(GetCostAndUsageRequest request) {
+                assertEquals(REQUEST, request);
+                return response;
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,97 @@
+import cache.CacheConfig;
+import cache.CachingCostExplorerClient;
+import cache.ResponseCache;
+import metrics.InstrumentedCostExplorerClient;
+import metrics.ServerMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import query.CostDataset;
+import ratelimit.AdaptiveRateLimiter;
+import ratelimit.ApiBudget;
+import ratelimit.BudgetConfig;
+import ratelimit.RateLimitConfig;
+import ratelimit.RateLimitedCostExplorerClient;
+import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import standin.FixtureStore;
+import standin.StandInConfig;
+import testing.StubCostExplorerClient;
+import testing.TestConfig;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AwsConfigTest {
+    private static final GetCostAndUsageRequest REQUEST = CostDataset.USAGE_PER_SERVICE_AND_OPERATION
+            .query("2025-01-01", "2025-02-01", List.of())
+            .toRequest();
+
+    @TempDir
+    Path directory;
+
+    private final StubCostExplorerClient live = StubCostExplorerClient.synthetic(3, 10);
+    private final AtomicInteger liveClientsBuilt = new AtomicInteger();
+
+    @Test
+    void liveModeSendsRequestsThroughTheInstrumentedLiveClient() {
+        CostExplorerClient client = client("cost-explorer.stand-in.mode=live");
+
+        assertInstanceOf(InstrumentedCostExplorerClient.class, client);
+        client.getCostAndUsage(REQUEST);
+        assertEquals(1, liveClientsBuilt.get());
+        assertEquals(List.of(REQUEST), live.requests);
+    }
+
+    @Test
+    void replayModeNeverBuildsTheLiveClient() {
+        CostExplorerClient client = client("cost-explorer.stand-in.mode=replay",
+                "cost-explorer.stand-in.latency=PT0S");
+
+        assertFalse(client.getCostAndUsage(REQUEST).resultsByTime().isEmpty());
+        assertEquals(0, liveClientsBuilt.get());
+    }
+
+    @Test
+    void recordModeSavesTheLivePagesAsFixtures() {
+        client("cost-explorer.stand-in.mode=record").getCostAndUsage(REQUEST);
+
+        assertEquals(1, liveClientsBuilt.get());
+        assertTrue(new FixtureStore(directory).read(REQUEST).isPresent());
+    }
+
+    @Test
+    void rateLimiterAndCacheWrapTheClientWhenEnabled() {
+        CostExplorerClient client = client("cost-explorer.rate-limit.enabled=true",
+                "cost-explorer.cache.enabled=true");
+
+        assertInstanceOf(CachingCostExplorerClient.class, client);
+        client.getCostAndUsage(REQUEST);
+        client.getCostAndUsage(REQUEST);
+        assertEquals(1, live.requests.size());
+        assertInstanceOf(RateLimitedCostExplorerClient.class, new AwsConfig().costExplorerClient(() -> live,
+                new ResponseCache(TestConfig.of(CacheConfig.class)),
+                new AdaptiveRateLimiter(TestConfig.of(RateLimitConfig.class)),
+                new ApiBudget(TestConfig.of(BudgetConfig.class)),
+                TestConfig.of(RateLimitConfig.class, "cost-explorer.rate-limit.enabled=true"),
+                TestConfig.of(StandInConfig.class), new ServerMetrics()));
+    }
+
+    private CostExplorerClient client(String... overrides) {
+        String[] properties = new String[overrides.length + 2];
+        properties[0] = "cost-explorer.stand-in.directory=" + directory;
+        properties[1] = "cost-explorer.cache.directory=" + directory.resolve("cache");
+        System.arraycopy(overrides, 0, properties, 2, overrides.length);
+
+        return new AwsConfig().costExplorerClient(() -> {
+                    liveClientsBuilt.incrementAndGet();
+                    return live;
+                }, new ResponseCache(TestConfig.of(CacheConfig.class, properties)),
+                new AdaptiveRateLimiter(TestConfig.of(RateLimitConfig.class, properties)),
+                new ApiBudget(TestConfig.of(BudgetConfig.class, properties)),
+                TestConfig.of(RateLimitConfig.class, properties), TestConfig.of(StandInConfig.class, properties),
+                new ServerMetrics());
+    }
+}
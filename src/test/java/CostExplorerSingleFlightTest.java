@@ -0,0 +1,156 @@
+import anomaly.AnomalyConfig;
+import anomaly.AnomalyDetector;
+import cache.CacheConfig;
+import cache.ResponseCache;
+import data.FormatConfig;
+import dimension.DimensionIndex;
+import dimension.DimensionIndexConfig;
+import metrics.ServerMetrics;
+import org.junit.jupiter.api.Test;
+import query.BatchConfig;
+import query.ComparisonConfig;
+import query.CostAndUsageFetcher;
+import query.FanOutConfig;
+import query.OpenPeriodResults;
+import query.PlannerConfig;
+import query.QueryBatch;
+import query.QueryEngine;
+import query.QueryPlanner;
+import query.RevalidationConfig;
+import query.TagGroupByConfig;
+import query.TimeSeriesConfig;
+import snapshot.ReportPager;
+import snapshot.SnapshotConfig;
+import snapshot.SnapshotStore;
+import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
+import software.amazon.awssdk.services.costexplorer.model.*;
+import testing.TestConfig;
+import warehouse.CostWarehouse;
+import warehouse.WarehouseConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CostExplorerSingleFlightTest {
+    private static final int CALLERS = 16;
+
+    @Test
+    void concurrentIdenticalCallsShareOnePageSequence() throws Exception {
+        StubCostExplorerClient client = new StubCostExplorerClient();
+        QueryEngine queryEngine = queryEngine(client);
+        CostExplorer costExplorer = costExplorer(queryEngine);
+
+        List<Future<String>> reports = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CALLERS; i++) {
+                // The same regions in a different order must be coalesced as well
+                List<String> regions = i % 2 == 0 ? List.of("us-east-1", "eu-west-1") : List.of("eu-west-1", "us-east-1");
+                reports.add(executor.submit(() -> costExplorer.getCostPerServiceAndOperation("2025-01-01",
+                        "2025-02-01", regions, null, null, null)));
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (queryEngine.coalescedQueries() < CALLERS - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            client.firstPageReleased.countDown();
+
+            String expected = reports.getFirst().get(10, TimeUnit.SECONDS);
+            for (Future<String> report : reports) {
+                assertEquals(expected, report.get(10, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(CALLERS - 1, queryEngine.coalescedQueries());
+        assertEquals(2, client.calls.get(), "Expected exactly one upstream sequence of two pages");
+    }
+
+    @Test
+    void sequentialCallsAreNotCoalesced() {
+        StubCostExplorerClient client = new StubCostExplorerClient();
+        client.firstPageReleased.countDown();
+        QueryEngine queryEngine = queryEngine(client);
+        CostExplorer costExplorer = costExplorer(queryEngine);
+
+        costExplorer.getCostPerServiceAndOperation("2025-01-01", "2025-02-01", List.of(), null, null, null);
+        costExplorer.getCostPerServiceAndOperation("2025-01-01", "2025-02-01", List.of(), null, null, null);
+
+        assertEquals(4, client.calls.get());
+        assertEquals(0, queryEngine.coalescedQueries());
+    }
+
+    static class StubCostExplorerClient implements CostExplorerClient {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch firstPageReleased = new CountDownLatch(1);
+
+        @Override
+        public GetCostAndUsageResponse getCostAndUsage(GetCostAndUsageRequest request) {
+            calls.incrementAndGet();
+
+            if (request.nextPageToken() == null) {
+                try {
+                    firstPageReleased.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return page("page-2", "AmazonEC2", "RunInstances", "12.5");
+            }
+
+            return page(null, "AmazonS3", "PutObject", "3.25");
+        }
+
+        private static GetCostAndUsageResponse page(String nextPageToken, String service, String operation,
+                                                    String amount) {
+            return GetCostAndUsageResponse.builder()
+                    .nextPageToken(nextPageToken)
+                    .resultsByTime(ResultByTime.builder()
+                            .timePeriod(DateInterval.builder().start("2025-01-01").end("2025-02-01").build())
+                            .groups(Group.builder()
+                                    .keys(service, operation)
+                                    .metrics(Map.of("UnblendedCost", MetricValue.builder()
+                                            .amount(amount)
+                                            .unit("USD")
+                                            .build()))
+                                    .build())
+                            .build())
+                    .build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static QueryEngine queryEngine(CostExplorerClient client) {
+        ResponseCache responseCache = new ResponseCache(TestConfig.of(CacheConfig.class));
+        FanOutConfig fanOutConfig = TestConfig.of(FanOutConfig.class);
+        return new QueryEngine(new CostAndUsageFetcher(client, responseCache, fanOutConfig),
+                new CostWarehouse(TestConfig.of(WarehouseConfig.class)),
+                new QueryPlanner(responseCache, fanOutConfig, TestConfig.of(PlannerConfig.class)),
+                new ServerMetrics(), new OpenPeriodResults(TestConfig.of(RevalidationConfig.class)));
+    }
+
+    private static CostExplorer costExplorer(QueryEngine queryEngine) {
+        FormatConfig formatConfig = TestConfig.of(FormatConfig.class);
+        SnapshotConfig snapshotConfig = TestConfig.of(SnapshotConfig.class);
+        BatchConfig batchConfig = TestConfig.of(BatchConfig.class);
+        return new CostExplorer(queryEngine, formatConfig,
+                new ReportPager(new SnapshotStore(snapshotConfig), snapshotConfig, formatConfig),
+                TestConfig.of(TimeSeriesConfig.class), new QueryBatch(queryEngine, batchConfig), batchConfig,
+                new AccountPool(TestConfig.of(AccountsConfig.class), queryEngine, account -> {
+                    throw new IllegalStateException("No pooled accounts in this test");
+                }), new DimensionIndex(null, TestConfig.of(DimensionIndexConfig.class)),
+                TestConfig.of(ComparisonConfig.class), TestConfig.of(TagGroupByConfig.class),
+                new AnomalyDetector(null, TestConfig.of(AnomalyConfig.class)));
+    }
+}
@@ -14,21 +14,21 @@ class CostExplorerTest {
     @Test
     void getCostsForTheLastMonth() {
         String report = costExplorer.getCostPerServiceAndOperation("2025-01-01",
-                "2025-02-01", List.of("us-east-1"));
+                "2025-02-01", List.of("us-east-1"), null, null, null);
         System.out.println(report);
     }
 
     @Test
     void getCostsPerLinkedAccountForTheLastMonth() {
         String report = costExplorer.getCostPerLinkedAccount("2025-01-01",
-                "2025-02-01", List.of("us-east-1"));
+                "2025-02-01", List.of("us-east-1"), null, null, null);
         System.out.println(report);
     }
 
     @Test
     void getDiscounts() {
         String report = costExplorer.getDiscounts("2025-01-01",
-                "2025-02-01", List.of("us-east-1"));
+                "2025-02-01", List.of("us-east-1"), null, null, null);
         System.out.println(report);
     }
 }
@@ -0,0 +1,96 @@
+import data.ReportFormat;
+import dimension.DimensionIndex;
+import dimension.DimensionIndexConfig;
+import io.quarkiverse.mcp.server.ToolCallException;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.costexplorer.model.Dimension;
+import software.amazon.awssdk.services.costexplorer.model.DimensionValuesWithAttributes;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesResponse;
+import testing.MutableClock;
+import testing.StubCostExplorerClient;
+import testing.TestConfig;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UtilsTest {
+    @Test
+    void missingFormatFallsBackToTheDefault() {
+        assertEquals(ReportFormat.COMPACT, Utils.parseFormat(null, ReportFormat.COMPACT));
+        assertEquals(ReportFormat.CSV, Utils.parseFormat(" ", ReportFormat.CSV));
+        assertEquals(ReportFormat.JSONL, Utils.parseFormat(" JSONL ", ReportFormat.CSV));
+    }
+
+    @Test
+    void unknownFormatIsRejected() {
+        ToolCallException exception = assertThrows(ToolCallException.class,
+                () -> Utils.parseFormat("xml", ReportFormat.CSV));
+
+        assertEquals("Invalid format: xml, it should be one of csv, jsonl or compact", exception.getMessage());
+    }
+
+    @Test
+    void invalidDatesAreNamedInTheError() {
+        assertEquals("Invalid start date: 2025-13-01", assertThrows(ToolCallException.class,
+                () -> Utils.validateStartEndEndDate("2025-13-01", "2025-02-01")).getMessage());
+        assertEquals("Invalid end date: 2025-02-30x", assertThrows(ToolCallException.class,
+                () -> Utils.validateStartEndEndDate("2025-01-01", "2025-02-30x")).getMessage());
+    }
+
+    @Test
+    void periodEndingBeforeItStartsIsRejected() {
+        ToolCallException exception = assertThrows(ToolCallException.class,
+                () -> Utils.validateStartEndEndDate("2025-02-01", "2025-01-01"));
+
+        assertEquals("Invalid period: 2025-02-01 - 2025-01-01, the start date should be before the end date",
+                exception.getMessage());
+        assertThrows(ToolCallException.class, () -> Utils.validateStartEndEndDate("2025-01-01", "2025-01-01"));
+        assertDoesNotThrow(() -> Utils.validateStartEndEndDate("2025-01-01", "2025-01-02"));
+    }
+
+    @Test
+    void valuesWhichOnlyDifferInCaseAreCorrected() {
+        assertEquals(List.of("us-east-1", "eu-west-1"), Utils.resolveValues(regionIndex(), Dimension.REGION,
+                List.of("us-east-1", "EU-West-1"), "2025-02-01", "2025-03-01", List.of()));
+    }
+
+    @Test
+    void unknownValuesAreRejectedWithinTheIndexedMonths() {
+        ToolCallException exception = assertThrows(ToolCallException.class, () -> Utils.resolveValues(
+                regionIndex(), Dimension.REGION, List.of("us-east-3"), "2025-02-01", "2025-03-01", null));
+
+        assertEquals("Unknown REGION value: us-east-3, it has no costs between 2024-12-01 and 2025-03-10. Did you " +
+                "mean us-east-1?", exception.getMessage());
+    }
+
+    @Test
+    void unknownValuesArePassedThroughOutsideOfTheIndexedMonths() {
+        DimensionIndex index = regionIndex();
+
+        assertEquals(List.of("ap-east-1"), Utils.resolveValues(index, Dimension.REGION, List.of("ap-east-1"),
+                "2024-06-01", "2024-07-01", List.of()));
+        assertEquals(List.of("ap-east-1", "us-east-1"), Utils.resolveValues(index, Dimension.REGION,
+                List.of("ap-east-1", "US-EAST-1"), "2025-03-01", "2025-04-01", List.of()));
+    }
+
+    @Test
+    void unknownValuesArePassedThroughForOtherAccounts() {
+        assertEquals(List.of("ap-east-1", "us-east-1"), Utils.resolveValues(regionIndex(), Dimension.REGION,
+                List.of("ap-east-1", "US-EAST-1"), "2025-02-01", "2025-03-01", List.of("default", "prod")));
+    }
+
+    private static DimensionIndex regionIndex() {
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> {
+            throw new IllegalStateException("No costs in this test");
+        }, request -> GetDimensionValuesResponse.builder()
+                .dimensionValues(List.of("us-east-1", "eu-west-1").stream()
+                        .map(value -> DimensionValuesWithAttributes.builder().value(value).build())
+                        .toList())
+                .build());
+        DimensionIndex index = new DimensionIndex(client, TestConfig.of(DimensionIndexConfig.class,
+                "cost-explorer.dimension-index.enabled=true"), MutableClock.at("2025-03-10T06:00:00Z"));
+        index.refresh();
+        return index;
+    }
+}
@@ -0,0 +1,186 @@
+package anomaly;
+
+import cache.CacheConfig;
+import cache.ResponseCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import query.CostAndUsageFetcher;
+import query.CostQuery;
+import query.FanOutConfig;
+import software.amazon.awssdk.services.costexplorer.model.*;
+import testing.MutableClock;
+import testing.StubCostExplorerClient;
+import testing.TestConfig;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnomalyDetectorTest {
+    private static final LocalDate TODAY = LocalDate.parse("2025-03-10");
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = MutableClock.at("2025-03-10T12:00:00Z");
+
+    @Test
+    void spikesOnLearnedDaysAreReported() {
+        AnomalyScan scan = detector(client(flatWithSpike("2025-03-05", 300))).detect(7, 3);
+
+        assertEquals(LocalDate.parse("2025-03-07"), scan.learnedUntil());
+        assertEquals(1, scan.series());
+        CostAnomaly anomaly = scan.anomalies().getFirst();
+        assertEquals(List.of(LocalDate.parse("2025-03-05")), days(scan));
+        assertEquals(300, anomaly.value());
+        assertEquals(100, anomaly.expected(), 1e-9);
+        assertEquals(40, anomaly.score(), 1e-9);
+    }
+
+    @Test
+    void spikesOnRestatedDaysAreScored() {
+        AnomalyScan scan = detector(client(flatWithSpike("2025-03-08", 300))).detect(7, 3);
+
+        assertEquals(List.of(LocalDate.parse("2025-03-08")), days(scan));
+        assertEquals(40, scan.anomalies().getFirst().score(), 1e-9);
+    }
+
+    @Test
+    void servicesStartingOnARestatedDayAreReportedAsNew() {
+        StubCostExplorerClient client = client((service, day) -> switch (service) {
+            case "AmazonEC2" -> 100.0;
+            case "AmazonBedrock" -> day.isBefore(LocalDate.parse("2025-03-08")) ? 0.0 : 50.0;
+            default -> 0.0;
+        });
+
+        AnomalyScan scan = detector(client).detect(7, 3);
+
+        assertEquals(List.of(new CostAnomaly("AmazonBedrock", "USD", LocalDate.parse("2025-03-08"), 50, 0,
+                Double.POSITIVE_INFINITY)), scan.anomalies());
+        assertEquals(1, scan.series(), "Not learned yet");
+    }
+
+    @Test
+    void servicesStartingOnALearnedDayAreReportedAsNew() {
+        StubCostExplorerClient client = client((service, day) -> switch (service) {
+            case "AmazonEC2" -> 100.0;
+            case "AmazonBedrock" -> day.isBefore(LocalDate.parse("2025-03-04")) ? 0.0 : 50.0;
+            default -> 0.0;
+        });
+
+        AnomalyScan scan = detector(client).detect(7, 3);
+
+        assertEquals(List.of(new CostAnomaly("AmazonBedrock", "USD", LocalDate.parse("2025-03-04"), 50, 0,
+                Double.POSITIVE_INFINITY)), scan.anomalies());
+        assertEquals(2, scan.series());
+    }
+
+    @Test
+    void newServicesStartingBeforeTheLookbackAreReportedOnTheirFirstDayWithinIt() {
+        StubCostExplorerClient client = client((service, day) -> switch (service) {
+            case "AmazonEC2" -> 100.0;
+            case "AmazonBedrock" -> day.isBefore(LocalDate.parse("2025-03-07")) ? 0.0 : 50.0;
+            default -> 0.0;
+        });
+
+        assertEquals(List.of(new CostAnomaly("AmazonBedrock", "USD", LocalDate.parse("2025-03-08"), 50, 0,
+                Double.POSITIVE_INFINITY)), detector(client).detect(2, 3).anomalies());
+    }
+
+    @Test
+    void theMostRecentDayNeedsAHigherThreshold() {
+        AnomalyScan drop = detector(client(flatWithSpike("2025-03-09", 80))).detect(7, 3);
+        assertTrue(drop.anomalies().isEmpty(), "A score of -4 is below twice the threshold");
+
+        AnomalyScan largerDrop = detector(client(flatWithSpike("2025-03-09", 65))).detect(7, 3);
+        assertEquals(List.of(LocalDate.parse("2025-03-09")), days(largerDrop));
+        assertEquals(-7, largerDrop.anomalies().getFirst().score(), 1e-9);
+
+        AnomalyScan earlierDrop = detector(client(flatWithSpike("2025-03-08", 80))).detect(7, 3);
+        assertEquals(List.of(LocalDate.parse("2025-03-08")), days(earlierDrop));
+    }
+
+    @Test
+    void checksWithinTheRefreshIntervalFetchNothing() {
+        StubCostExplorerClient client = client(flatWithSpike("2025-03-05", 300));
+        AnomalyDetector detector = detector(client);
+        detector.detect(7, 3);
+        clock.advance(Duration.ofMinutes(30));
+        detector.detect(7, 3);
+
+        assertEquals(1, client.requests.size());
+        assertEquals(period(TODAY.minusDays(91), TODAY), client.requests.getFirst().timePeriod());
+    }
+
+    @Test
+    void restartedDetectorsOnlyFetchTheDaysSinceTheLastLearnedOne() {
+        detector(client(flatWithSpike("2025-03-05", 300))).detect(7, 3);
+
+        clock.advance(Duration.ofDays(1));
+        StubCostExplorerClient client = client(flatWithSpike("2025-03-05", 300));
+        AnomalyScan scan = detector(client).detect(7, 3);
+
+        assertEquals(List.of(period(LocalDate.parse("2025-03-07"), TODAY.plusDays(1))),
+                client.requests.stream().map(GetCostAndUsageRequest::timePeriod).toList());
+        assertEquals(List.of(LocalDate.parse("2025-03-05")), days(scan));
+        assertEquals(LocalDate.parse("2025-03-08"), scan.learnedUntil());
+    }
+
+    private AnomalyDetector detector(StubCostExplorerClient client) {
+        CostAndUsageFetcher fetcher = new CostAndUsageFetcher(client,
+                new ResponseCache(TestConfig.of(CacheConfig.class)), TestConfig.of(FanOutConfig.class));
+        return new AnomalyDetector(fetcher, TestConfig.of(AnomalyConfig.class,
+                "cost-explorer.anomaly.enabled=true",
+                "cost-explorer.anomaly.directory=" + directory), clock);
+    }
+
+    private static BiFunction<String, LocalDate, Double> flatWithSpike(String day, double value) {
+        LocalDate spike = LocalDate.parse(day);
+        return (service, date) -> !service.equals("AmazonEC2") ? 0.0 : date.equals(spike) ? value : 100.0;
+    }
+
+    /**
+     * Answers one page with the daily costs of AmazonEC2 and AmazonBedrock, leaving out the services without costs.
+     */
+    private static StubCostExplorerClient client(BiFunction<String, LocalDate, Double> costs) {
+        return new StubCostExplorerClient(request -> {
+            List<ResultByTime> results = new ArrayList<>();
+            LocalDate end = LocalDate.parse(request.timePeriod().end());
+            for (LocalDate day = LocalDate.parse(request.timePeriod().start()); day.isBefore(end);
+                 day = day.plusDays(1)) {
+                List<Group> groups = new ArrayList<>();
+                for (String service : List.of("AmazonEC2", "AmazonBedrock")) {
+                    double amount = costs.apply(service, day);
+                    if (amount != 0) {
+                        groups.add(Group.builder()
+                                .keys(service)
+                                .metrics(Map.of(CostQuery.METRIC, MetricValue.builder()
+                                        .amount(String.valueOf(amount))
+                                        .unit("USD")
+                                        .build()))
+                                .build());
+                    }
+                }
+                results.add(ResultByTime.builder()
+                        .timePeriod(period(day, day.plusDays(1)))
+                        .groups(groups)
+                        .build());
+            }
+            return GetCostAndUsageResponse.builder().resultsByTime(results).build();
+        });
+    }
+
+    private static List<LocalDate> days(AnomalyScan scan) {
+        return scan.anomalies().stream().map(CostAnomaly::day).toList();
+    }
+
+    private static DateInterval period(LocalDate start, LocalDate end) {
+        return DateInterval.builder().start(start.toString()).end(end.toString()).build();
+    }
+}
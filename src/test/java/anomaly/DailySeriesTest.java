@@ -0,0 +1,143 @@
+package anomaly;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailySeriesTest {
+    private static final double ALPHA = 2.0 / 29;
+    private static final double WEEKDAY_ALPHA = 2.0 / 5;
+    private static final int WARMUP_DAYS = 14;
+    private static final LocalDate START = LocalDate.parse("2025-01-06");
+
+    @Test
+    void daysAreNotScoredWhileWarmingUp() {
+        DailySeries series = new DailySeries(14);
+        addFlat(series, 13, 100);
+
+        assertTrue(Double.isNaN(series.score(START.plusDays(13), 500, WARMUP_DAYS)));
+
+        series.add(START.plusDays(13), 100, ALPHA, WEEKDAY_ALPHA, WARMUP_DAYS);
+        assertFalse(Double.isNaN(series.score(START.plusDays(14), 500, WARMUP_DAYS)));
+    }
+
+    @Test
+    void firstDayIsKeptAsNew() {
+        DailySeries series = new DailySeries(14);
+        series.add(START, 40, ALPHA, WEEKDAY_ALPHA, WARMUP_DAYS);
+
+        assertEquals(List.of(new CostAnomaly("AmazonBedrock", "USD", START, 40, 0, Double.POSITIVE_INFINITY)),
+                anomalies(series, START, 3));
+        assertEquals(Double.NEGATIVE_INFINITY, DailySeries.newSeriesScore(-5));
+    }
+
+    @Test
+    void flatSeriesDeviationsAreMeasuredAgainstAShareOfTheLevel() {
+        DailySeries series = new DailySeries(14);
+        addFlat(series, 28, 100);
+
+        LocalDate day = START.plusDays(28);
+        assertEquals(100, series.expected(day), 1e-9);
+        assertEquals(2, series.score(day, 110, WARMUP_DAYS), 1e-9);
+        assertEquals(-4, series.score(day, 80, WARMUP_DAYS), 1e-9);
+    }
+
+    @Test
+    void weeklySeasonalityIsLearned() {
+        DailySeries series = new DailySeries(14);
+        for (int i = 0; i < 140; i++) {
+            LocalDate day = START.plusDays(i);
+            series.add(day, isWeekend(day) ? 20 : 100, ALPHA, WEEKDAY_ALPHA, WARMUP_DAYS);
+        }
+
+        LocalDate saturday = START.plusDays(145);
+        assertEquals(DayOfWeek.SATURDAY, saturday.getDayOfWeek());
+        assertEquals(20, series.expected(saturday), 1);
+        assertEquals(100, series.expected(saturday.plusDays(2)), 1);
+        assertTrue(Math.abs(series.score(saturday, 20, WARMUP_DAYS)) < 1);
+        assertTrue(anomalies(series, START.plusDays(WARMUP_DAYS + 1), 3).isEmpty(), "Weekends are not anomalies");
+    }
+
+    @Test
+    void oneSpikeDoesNotInflateTheBaseline() {
+        DailySeries series = new DailySeries(14);
+        addFlat(series, 28, 100);
+        LocalDate spike = START.plusDays(28);
+        series.add(spike, 1000, ALPHA, WEEKDAY_ALPHA, WARMUP_DAYS);
+
+        LocalDate next = spike.plusDays(1);
+        assertTrue(series.expected(next) < 105, "Expected " + series.expected(next));
+        assertTrue(Math.abs(series.score(next, 100, WARMUP_DAYS)) < 3);
+        List<CostAnomaly> anomalies = anomalies(series, spike, 3);
+        assertEquals(1, anomalies.size());
+        assertEquals(spike, anomalies.getFirst().day());
+        assertEquals(180, anomalies.getFirst().score(), 1e-9);
+    }
+
+    @Test
+    void onlyTheRecentDaysAreKept() {
+        DailySeries series = new DailySeries(3);
+        addFlat(series, 20, 100);
+        series.add(START.plusDays(20), 300, ALPHA, WEEKDAY_ALPHA, WARMUP_DAYS);
+        addFlat(series, 21, 3, 100);
+
+        assertTrue(anomalies(series, LocalDate.MIN, 3).isEmpty());
+    }
+
+    @Test
+    void smallDeviationsAreNotReported() {
+        assertFalse(DailySeries.isAnomaly(10, 0.5, 3, 1));
+        assertFalse(DailySeries.isAnomaly(2.9, 50, 3, 1));
+        assertFalse(DailySeries.isAnomaly(Double.NaN, 50, 3, 1));
+        assertTrue(DailySeries.isAnomaly(-3, -50, 3, 1));
+    }
+
+    @Test
+    void writtenSeriesAreReadBackTheSame() throws IOException {
+        DailySeries series = new DailySeries(14);
+        for (int i = 0; i < 40; i++) {
+            series.add(START.plusDays(i), i == 35 ? 400 : 100 + i % 7, ALPHA, WEEKDAY_ALPHA, WARMUP_DAYS);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            series.write(out);
+        }
+        DailySeries read;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = DailySeries.read(in, 14);
+        }
+
+        LocalDate day = START.plusDays(40);
+        assertEquals(series.expected(day), read.expected(day));
+        assertEquals(series.score(day, 150, WARMUP_DAYS), read.score(day, 150, WARMUP_DAYS));
+        assertEquals(anomalies(series, LocalDate.MIN, 3), anomalies(read, LocalDate.MIN, 3));
+        assertEquals(1, anomalies(read, LocalDate.MIN, 3).size());
+    }
+
+    private static void addFlat(DailySeries series, int days, double value) {
+        addFlat(series, 0, days, value);
+    }
+
+    private static void addFlat(DailySeries series, int from, int days, double value) {
+        for (int i = from; i < from + days; i++) {
+            series.add(START.plusDays(i), value, ALPHA, WEEKDAY_ALPHA, WARMUP_DAYS);
+        }
+    }
+
+    private static List<CostAnomaly> anomalies(DailySeries series, LocalDate from, double threshold) {
+        List<CostAnomaly> anomalies = new ArrayList<>();
+        series.anomalies("AmazonBedrock", "USD", from, threshold, 1, anomalies);
+        return anomalies;
+    }
+
+    private static boolean isWeekend(LocalDate day) {
+        return day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY;
+    }
+}
@@ -0,0 +1,78 @@
+package cache;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.costexplorer.model.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheKeyTest {
+    @Test
+    void orderOfMetricsOperandsAndValuesDoesNotMatter() {
+        GetCostAndUsageRequest request = request(Expression.builder()
+                .and(dimension(Dimension.REGION, "us-east-1", "eu-west-1"),
+                        dimension(Dimension.RECORD_TYPE, "Usage"))
+                .build(), "UnblendedCost", "UsageQuantity");
+        GetCostAndUsageRequest reordered = request(Expression.builder()
+                .and(dimension(Dimension.RECORD_TYPE, "Usage"),
+                        dimension(Dimension.REGION, "eu-west-1", "us-east-1"))
+                .build(), "UsageQuantity", "UnblendedCost");
+
+        assertEquals(CacheKey.of(request), CacheKey.of(reordered));
+        assertEquals(CacheKey.of(request).fileName(), CacheKey.of(reordered).fileName());
+    }
+
+    @Test
+    void differentDataGetsDifferentKeys() {
+        GetCostAndUsageRequest request = request(dimension(Dimension.REGION, "us-east-1"), "UnblendedCost");
+
+        assertNotEquals(CacheKey.of(request),
+                CacheKey.of(request(dimension(Dimension.REGION, "eu-west-1"), "UnblendedCost")));
+        assertNotEquals(CacheKey.of(request), CacheKey.of(request.toBuilder().nextPageToken("page-2").build()));
+        assertNotEquals(CacheKey.of(request), CacheKey.of(request.toBuilder()
+                .timePeriod(DateInterval.builder().start("2025-01-01").end("2025-03-01").build())
+                .build()));
+        assertNotEquals(CacheKey.of(request), CacheKey.of(request.toBuilder().granularity(Granularity.DAILY).build()));
+        assertNotEquals(CacheKey.of(request), CacheKey.of(request.toBuilder()
+                .filter(Expression.builder().not(dimension(Dimension.REGION, "us-east-1")).build())
+                .build()));
+        assertNotEquals(CacheKey.of(request), CacheKey.of(request.toBuilder()
+                .groupBy(GroupDefinition.builder().type(GroupDefinitionType.DIMENSION).key("OPERATION").build())
+                .build()));
+    }
+
+    @Test
+    void dimensionsTagsAndCostCategoriesWithTheSameValuesDiffer() {
+        Expression tag = Expression.builder().tags(TagValues.builder().key("REGION").values("x").build()).build();
+        Expression costCategory = Expression.builder()
+                .costCategories(CostCategoryValues.builder().key("REGION").values("x").build())
+                .build();
+
+        assertNotEquals(CacheKey.of(request(dimension(Dimension.REGION, "x"), "UnblendedCost")),
+                CacheKey.of(request(tag, "UnblendedCost")));
+        assertNotEquals(CacheKey.of(request(tag, "UnblendedCost")),
+                CacheKey.of(request(costCategory, "UnblendedCost")));
+    }
+
+    @Test
+    void fileNameIsAHexDigest() {
+        String fileName = CacheKey.of(request(null, "UnblendedCost")).fileName();
+
+        assertTrue(fileName.matches("[0-9a-f]{64}\\.bin"), fileName);
+    }
+
+    private static GetCostAndUsageRequest request(Expression filter, String... metrics) {
+        return GetCostAndUsageRequest.builder()
+                .timePeriod(DateInterval.builder().start("2025-01-01").end("2025-02-01").build())
+                .granularity(Granularity.MONTHLY)
+                .metrics(metrics)
+                .filter(filter)
+                .groupBy(GroupDefinition.builder().type(GroupDefinitionType.DIMENSION).key("SERVICE").build())
+                .build();
+    }
+
+    private static Expression dimension(Dimension dimension, String... values) {
+        return Expression.builder()
+                .dimensions(DimensionValues.builder().key(dimension).values(values).build())
+                .build();
+    }
+}
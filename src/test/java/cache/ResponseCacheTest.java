@@ -0,0 +1,209 @@
+package cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.costexplorer.model.*;
+import testing.MutableClock;
+import testing.TestConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = MutableClock.at("2025-03-10T12:00:00Z");
+
+    @Test
+    void openPeriodPagesExpireFromMemoryAfterTheTtl() {
+        ResponseCache cache = cache();
+        GetCostAndUsageRequest request = request("2025-03-01", "2025-04-01");
+        cache.put(request, response("12.5"));
+
+        assertEquals(response("12.5"), cache.get(request).orElseThrow().response());
+        assertEquals(clock.instant(), cache.get(request).orElseThrow().fetchedAt());
+
+        clock.advance(Duration.ofMinutes(15));
+
+        assertTrue(cache.get(request).isEmpty());
+        assertFalse(cache.contains(request));
+        assertEquals(response("12.5"), cache.getStale(request).orElseThrow().response());
+        assertEquals(new CacheStats(2, 0, 1, 1), cache.stats());
+    }
+
+    @Test
+    void closedPeriodPagesNeverExpire() {
+        ResponseCache cache = cache();
+        GetCostAndUsageRequest request = request("2025-02-01", "2025-03-01");
+        clock.set(Instant.parse("2025-03-04T00:00:00Z"));
+        cache.put(request, response("3"));
+
+        clock.advance(Duration.ofDays(3650));
+
+        assertTrue(cache.get(request).orElseThrow().isImmutable());
+        assertEquals(0, cache.prune());
+    }
+
+    @Test
+    void periodsEndingLessThanImmutableAfterDaysAgoExpire() {
+        ResponseCache cache = cache();
+        GetCostAndUsageRequest request = request("2025-02-01", "2025-03-01");
+        clock.set(Instant.parse("2025-03-03T23:59:00Z"));
+        cache.put(request, response("3"));
+
+        assertFalse(cache.get(request).orElseThrow().isImmutable());
+    }
+
+    @Test
+    void diskTierSurvivesARestartUntilTheTtl() {
+        GetCostAndUsageRequest request = request("2025-03-01", "2025-04-01");
+        cache().put(request, response("12.5"));
+
+        ResponseCache restarted = cache();
+        assertTrue(restarted.contains(request));
+        assertEquals(response("12.5"), restarted.get(request).orElseThrow().response());
+        assertEquals(new CacheStats(1, 0, 0, 1), restarted.stats());
+
+        clock.advance(Duration.ofMinutes(15));
+        ResponseCache expired = cache();
+        assertFalse(expired.contains(request));
+        assertTrue(expired.get(request).isEmpty());
+        assertTrue(expired.getStale(request).isPresent());
+        assertEquals(new CacheStats(0, 0, 1, 0), expired.stats());
+    }
+
+    @Test
+    void containsInMemoryNeverReadsTheDiskTier() {
+        GetCostAndUsageRequest request = request("2025-03-01", "2025-04-01");
+        cache().put(request, response("12.5"));
+
+        ResponseCache restarted = cache();
+        assertFalse(restarted.containsInMemory(request));
+        assertEquals(new CacheStats(0, 0, 0, 0), restarted.stats());
+
+        assertTrue(restarted.contains(request));
+        assertTrue(restarted.containsInMemory(request));
+
+        clock.advance(Duration.ofMinutes(15));
+        assertFalse(restarted.containsInMemory(request));
+    }
+
+    @Test
+    void diskEntriesExpiredBeyondTheStaleRetentionAreDeletedOnRead() throws IOException {
+        GetCostAndUsageRequest request = request("2025-03-01", "2025-04-01");
+        cache().put(request, response("12.5"));
+        Path file = directory.resolve(CacheKey.of(request).fileName());
+
+        clock.advance(Duration.ofMinutes(15).plusDays(1).minusSeconds(1));
+        assertTrue(cache().getStale(request).isPresent());
+        assertTrue(Files.exists(file));
+
+        clock.advance(Duration.ofSeconds(1));
+        assertTrue(cache().getStale(request).isEmpty());
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void pruneDeletesOnlyEntriesExpiredBeyondTheStaleRetention() throws IOException {
+        ResponseCache cache = cache();
+        GetCostAndUsageRequest closed = request("2025-01-01", "2025-02-01");
+        GetCostAndUsageRequest old = request("2025-03-01", "2025-04-01");
+        cache.put(closed, response("1"));
+        cache.put(old, response("2"));
+        clock.advance(Duration.ofDays(1).plusMinutes(15));
+        GetCostAndUsageRequest recent = request("2025-03-02", "2025-04-01");
+        cache.put(recent, response("3"));
+        Files.writeString(directory.resolve("entry123.tmp"), "partial");
+
+        assertEquals(1, cache.prune());
+
+        assertFalse(Files.exists(directory.resolve(CacheKey.of(old).fileName())));
+        assertTrue(Files.exists(directory.resolve(CacheKey.of(closed).fileName())));
+        assertTrue(Files.exists(directory.resolve(CacheKey.of(recent).fileName())));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(3, files.count());
+        }
+    }
+
+    @Test
+    void corruptDiskEntriesAreDiscarded() throws IOException {
+        GetCostAndUsageRequest request = request("2025-01-01", "2025-02-01");
+        Path file = directory.resolve(CacheKey.of(request).fileName());
+        Files.writeString(file, "not gzip");
+
+        assertTrue(cache().get(request).isEmpty());
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void memoryTierEvictsTheLeastRecentlyUsedPage() {
+        ResponseCache cache = new ResponseCache(TestConfig.of(CacheConfig.class,
+                "cost-explorer.cache.enabled=true",
+                "cost-explorer.cache.memory-max-entries=2",
+                "cost-explorer.cache.directory=" + directory.resolve("evicting")), clock);
+        GetCostAndUsageRequest first = request("2025-01-01", "2025-02-01");
+        GetCostAndUsageRequest second = request("2025-02-01", "2025-03-01");
+        cache.put(first, response("1"));
+        cache.put(second, response("2"));
+        cache.get(first);
+        cache.put(request("2024-12-01", "2025-01-01"), response("3"));
+
+        assertTrue(cache.get(first).isPresent());
+        assertTrue(cache.get(second).isPresent());
+        assertEquals(new CacheStats(2, 1, 0, 2), cache.stats());
+    }
+
+    @Test
+    void disabledCacheStoresNothing() throws IOException {
+        ResponseCache cache = new ResponseCache(TestConfig.of(CacheConfig.class,
+                "cost-explorer.cache.directory=" + directory), clock);
+        GetCostAndUsageRequest request = request("2025-01-01", "2025-02-01");
+        cache.put(request, response("1"));
+
+        assertTrue(cache.get(request).isEmpty());
+        assertFalse(cache.contains(request));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private ResponseCache cache() {
+        return new ResponseCache(TestConfig.of(CacheConfig.class,
+                "cost-explorer.cache.enabled=true",
+                "cost-explorer.cache.directory=" + directory,
+                "cost-explorer.cache.stale-retention=P1D"), clock);
+    }
+
+    private static GetCostAndUsageRequest request(String start, String end) {
+        return GetCostAndUsageRequest.builder()
+                .timePeriod(DateInterval.builder().start(start).end(end).build())
+                .granularity(Granularity.MONTHLY)
+                .metrics("UnblendedCost")
+                .build();
+    }
+
+    private static GetCostAndUsageResponse response(String amount) {
+        return GetCostAndUsageResponse.builder()
+                .groupDefinitions(List.of())
+                .resultsByTime(ResultByTime.builder()
+                        .timePeriod(DateInterval.builder().start("2025-03-01").end("2025-04-01").build())
+                        .estimated(false)
+                        .total(Map.of())
+                        .groups(Group.builder()
+                                .keys("AmazonEC2")
+                                .metrics(Map.of("UnblendedCost",
+                                        MetricValue.builder().amount(amount).unit("USD").build()))
+                                .build())
+                        .build())
+                .build();
+    }
+}
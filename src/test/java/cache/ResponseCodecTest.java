@@ -0,0 +1,118 @@
+package cache;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.costexplorer.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCodecTest {
+    private static final Instant FETCHED_AT = Instant.parse("2025-03-04T10:15:30.123Z");
+
+    @Test
+    void roundTripKeepsEveryField() throws IOException {
+        CachedResponse entry = new CachedResponse(response("token-2"), FETCHED_AT,
+                FETCHED_AT.plusSeconds(900));
+
+        CachedResponse decoded = roundTrip(entry);
+
+        assertEquals(entry, decoded);
+        assertFalse(decoded.isImmutable());
+    }
+
+    @Test
+    void roundTripKeepsImmutableEntriesAndMissingPageToken() throws IOException {
+        CachedResponse entry = new CachedResponse(response(null), FETCHED_AT, null);
+
+        CachedResponse decoded = roundTrip(entry);
+
+        assertEquals(entry, decoded);
+        assertTrue(decoded.isImmutable());
+        assertNull(decoded.response().nextPageToken());
+    }
+
+    @Test
+    void readExpiresAtDecodesOnlyTheHeader() throws IOException {
+        Instant expiresAt = FETCHED_AT.plusSeconds(60);
+
+        assertEquals(expiresAt, ResponseCodec.readExpiresAt(new ByteArrayInputStream(
+                encode(new CachedResponse(response(null), FETCHED_AT, expiresAt)))));
+        assertNull(ResponseCodec.readExpiresAt(new ByteArrayInputStream(
+                encode(new CachedResponse(response(null), FETCHED_AT, null)))));
+    }
+
+    @Test
+    void repeatedStringsAreWrittenOnce() throws IOException {
+        ResultByTime.Builder result = ResultByTime.builder()
+                .timePeriod(DateInterval.builder().start("2025-01-01").end("2025-02-01").build());
+        Group[] groups = new Group[200];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = group("AmazonEC2", "RunInstances", "1.0");
+        }
+        GetCostAndUsageResponse response = GetCostAndUsageResponse.builder()
+                .groupDefinitions(List.of())
+                .resultsByTime(result.estimated(false).total(Map.of()).groups(groups).build())
+                .build();
+
+        byte[] encoded = encode(new CachedResponse(response, FETCHED_AT, null));
+
+        assertEquals(response, roundTrip(new CachedResponse(response, FETCHED_AT, null)).response());
+        // 200 groups of four strings written in full would take more than 8000 bytes before compression
+        assertTrue(encoded.length < 200, "Encoded size " + encoded.length);
+    }
+
+    @Test
+    void rejectsOtherData() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        }
+
+        assertThrows(IOException.class, () -> ResponseCodec.read(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private static CachedResponse roundTrip(CachedResponse entry) throws IOException {
+        return ResponseCodec.read(new ByteArrayInputStream(encode(entry)));
+    }
+
+    private static byte[] encode(CachedResponse entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ResponseCodec.write(entry, bytes);
+        return bytes.toByteArray();
+    }
+
+    private static GetCostAndUsageResponse response(String nextPageToken) {
+        return GetCostAndUsageResponse.builder()
+                .nextPageToken(nextPageToken)
+                .groupDefinitions(GroupDefinition.builder().type(GroupDefinitionType.DIMENSION).key("SERVICE").build(),
+                        GroupDefinition.builder().type(GroupDefinitionType.DIMENSION).key("OPERATION").build())
+                .resultsByTime(ResultByTime.builder()
+                                .timePeriod(DateInterval.builder().start("2025-01-01").end("2025-02-01").build())
+                                .estimated(false)
+                                .total(Map.of())
+                                .groups(group("AmazonEC2", "RunInstances", "12.5"),
+                                        group("AmazonS3", "PutObject", "0.0000012"))
+                                .build(),
+                        ResultByTime.builder()
+                                .timePeriod(DateInterval.builder().start("2025-02-01").end("2025-03-01").build())
+                                .estimated(true)
+                                .total(Map.of())
+                                .groups(group("AmazonEC2", "RunInstances", "13"))
+                                .build())
+                .build();
+    }
+
+    private static Group group(String service, String operation, String amount) {
+        return Group.builder()
+                .keys(service, operation)
+                .metrics(Map.of("UnblendedCost", MetricValue.builder().amount(amount).unit("USD").build()))
+                .build();
+    }
+}
@@ -0,0 +1,29 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComparisonReportTest {
+    private static final List<String> COLUMNS = List.of("SERVICE", "CURRENCY", "BASE", "COMPARED", "CHANGE",
+            "RELATIVE CHANGE");
+
+    @Test
+    void rowsAreTheChangesFollowedByTheRelativeChangesBuiltOnce() {
+        CostChangeRow ec2 = row("AmazonEC2", 100, 150, "50.0%");
+        CostChangeRow s3 = row("AmazonS3", 0, 5, "new");
+        ComparisonReport report = new ComparisonReport(List.of(ec2), List.of(s3), "2025-01-01 - 2025-02-01",
+                Map.of("USD", 100.0), "2025-02-01 - 2025-03-01", Map.of("USD", 155.0), "just now");
+
+        assertEquals(List.of(ec2, s3), report.rows());
+        assertSame(report.rows(), report.rows());
+    }
+
+    private static CostChangeRow row(String service, double base, double compared, String relativeChange) {
+        return new CostChangeRow(COLUMNS, new String[]{service}, "USD", base, compared, compared - base,
+                relativeChange);
+    }
+}
@@ -0,0 +1,99 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+import testing.TestConfig;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportFormatTest {
+    private static final FormatConfig FORMAT_CONFIG = TestConfig.of(FormatConfig.class);
+
+    @Test
+    void formatsAreParsedIgnoringCase() {
+        assertEquals(Optional.of(ReportFormat.JSONL), ReportFormat.parse("JsonL"));
+        assertEquals(Optional.of(ReportFormat.COMPACT), ReportFormat.parse("compact"));
+        assertEquals(Optional.empty(), ReportFormat.parse("xml"));
+    }
+
+    @Test
+    void jsonLinesAreKeyedByTheColumnsAndEscaped() {
+        UsageReport<UsagePerServiceAndOperation> report = new UsageReport<>(List.of(
+                new UsagePerServiceAndOperation("AmazonEC2", "say \"hi\"\\\n\t\u0001", "USD", 1.0E-7),
+                new UsagePerServiceAndOperation(null, "Invoke", "EUR", Double.NaN)),
+                Map.of("USD", 1.0E-7), "now");
+
+        assertEquals("""
+                Total cost per currency: {USD=1.0E-7}
+                Data freshness: now
+
+                Cost usage in jsonl format:
+                {"CURRENCY":"USD","OPERATION":"say \\"hi\\"\\\\\\n\\t\\u0001","SERVICE":"AmazonEC2","VALUE":1.0E-7}
+                {"CURRENCY":"EUR","OPERATION":"Invoke","SERVICE":null,"VALUE":null}
+
+                """, report.generate(ReportFormat.JSONL, FORMAT_CONFIG));
+    }
+
+    @Test
+    void compactTableListsEveryStringOnceAndDropsNearZeroRows() {
+        Map<String, Double> totals = new LinkedHashMap<>();
+        totals.put("USD", 12.3466);
+        totals.put("EUR", -3.2);
+        UsageReport<UsagePerServiceAndOperation> report = new UsageReport<>(List.of(
+                new UsagePerServiceAndOperation("AmazonEC2", "RunInstances", "USD", 12.3456),
+                new UsagePerServiceAndOperation("AmazonEC2", "CreateVolume", "USD", 0.001),
+                new UsagePerServiceAndOperation("AmazonS3", "RunInstances\nPut", "EUR", -3.2)),
+                totals, "now");
+
+        assertEquals("""
+                Total cost per currency: {USD=12.35, EUR=-3.20}
+                Data freshness: now
+
+                Cost usage in compact format, strings are indexes into the dictionary, amounts have 2 decimals, \
+                1 rows below 0.005 left out:
+                Dictionary:
+                0=USD
+                1=RunInstances
+                2=AmazonEC2
+                3=EUR
+                4=RunInstances\\nPut
+                5=AmazonS3
+                Rows:
+                CURRENCY,OPERATION,SERVICE,VALUE
+                0,1,2,12.35
+                3,4,5,-3.20
+
+                """, report.generate(ReportFormat.COMPACT, FORMAT_CONFIG));
+    }
+
+    @Test
+    void compactTableOfOnlyNearZeroRowsHasNoDictionary() {
+        DiscountReport report = new DiscountReport(List.of(new Discount("AmazonEC2", "Credit", "USD", -0.004)),
+                Map.of("USD", -0.004), "now");
+
+        assertTrue(report.generate(ReportFormat.COMPACT, FORMAT_CONFIG).endsWith(
+                "1 rows below 0.005 left out:\n\n"));
+    }
+
+    @Test
+    void fixedAmountsAreRoundedHalfUp() {
+        assertEquals("0.01", fixed(0.005, 2));
+        assertEquals("0.00", fixed(-0.004, 2));
+        assertEquals("-1.50", fixed(-1.495, 2));
+        assertEquals("3", fixed(2.5, 0));
+        assertEquals("0.000000001", fixed(1e-9, 12), "At most 9 decimals");
+        assertEquals("12345678901.23", fixed(12345678901.225, 2));
+        assertEquals("NaN", fixed(Double.NaN, 2));
+        assertEquals("-Infinity", fixed(Double.NEGATIVE_INFINITY, 2));
+    }
+
+    private static String fixed(double value, int precision) {
+        StringBuilder buffer = new StringBuilder();
+        CompactTableWriter.appendFixed(buffer, value, precision);
+        return buffer.toString();
+    }
+}
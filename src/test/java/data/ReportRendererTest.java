@@ -0,0 +1,115 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The CSV reports must read exactly like the ones rendered by the baseline with opencsv beans and a Qute template.
+ * The expected texts are that rendering; only the freshness line was added to the reports since.
+ */
+class ReportRendererTest {
+    private static final String FRESHNESS = "fetched from the Cost Explorer API just now";
+
+    @Test
+    void usageReportMatchesTheBaselineRendering() {
+        UsageReport<UsagePerServiceAndOperation> report = new UsageReport<>(List.of(
+                new UsagePerServiceAndOperation("AmazonEC2", "RunInstances:SV001,x", "USD", 12.5),
+                new UsagePerServiceAndOperation("O'Reilly S3", "Put\"Object", "USD", 1.0E-7),
+                new UsagePerServiceAndOperation("AWSLambda", "say \"hi\"", "EUR", 1234567.0),
+                new UsagePerServiceAndOperation("Tax", "", "USD", -3.25)),
+                Map.of("USD", 9.2500001), FRESHNESS);
+
+        assertEquals("""
+                Total cost per currency: {USD=9.2500001}
+
+                Cost usage in CSV format:
+                'CURRENCY','OPERATION','SERVICE','VALUE'
+                'USD','RunInstances:SV001,x','AmazonEC2','12.5'
+                'USD','Put""Object','O"'Reilly S3','1.0E-7'
+                'EUR','say ""hi""','AWSLambda','1234567.0'
+                'USD','','Tax','-3.25'
+
+                """, withoutFreshness(report.generate()));
+    }
+
+    @Test
+    void linkedAccountReportMatchesTheBaselineRendering() {
+        UsageReport<UsagePerLinkedAccountAndService> report = new UsageReport<>(List.of(
+                new UsagePerLinkedAccountAndService("123456789012", "AmazonEC2", "USD", 100.0),
+                new UsagePerLinkedAccountAndService("210987654321", "AmazonS3", "USD", 0.01)),
+                Map.of("USD", 100.01), FRESHNESS);
+
+        assertEquals("""
+                Total cost per currency: {USD=100.01}
+
+                Cost usage in CSV format:
+                'AWS ACCOUNT NUMBER','CURRENCY','SERVICE','VALUE'
+                '123456789012','USD','AmazonEC2','100.0'
+                '210987654321','USD','AmazonS3','0.01'
+
+                """, withoutFreshness(report.generate()));
+    }
+
+    @Test
+    void groupReportListsItsColumnsAlphabetically() {
+        UsageReport<UsagePerGroupAndService> report = new UsageReport<>(List.of(
+                new UsagePerGroupAndService("USD", "team-a", "AmazonEC2", 10.0),
+                new UsagePerGroupAndService("USD", "(untagged)", "AmazonS3", 2.5)),
+                Map.of("USD", 12.5), FRESHNESS);
+
+        assertEquals("""
+                Total cost per currency: {USD=12.5}
+
+                Cost usage in CSV format:
+                'CURRENCY','GROUP','SERVICE','VALUE'
+                'USD','team-a','AmazonEC2','10.0'
+                'USD','(untagged)','AmazonS3','2.5'
+
+                """, withoutFreshness(report.generate()));
+    }
+
+    @Test
+    void discountReportMatchesTheBaselineRendering() {
+        DiscountReport report = new DiscountReport(List.of(
+                new Discount("AmazonEC2", "SavingsPlanNegation", "USD", -42.0)),
+                Map.of("USD", -42.0), FRESHNESS);
+
+        assertEquals("""
+                Total discount per currency: {USD=-42.0}
+
+                Discount list in CSV format:
+                'CURRENCY','DISCOUNTTYPE','SERVICE','VALUE'
+                'USD','SavingsPlanNegation','AmazonEC2','-42.0'
+
+                """, withoutFreshness(report.generate()));
+    }
+
+    @Test
+    void emptyReportHasNoHeaderLikeTheBaselineRendering() {
+        UsageReport<UsagePerServiceAndOperation> report = new UsageReport<>(List.of(), Map.of(), FRESHNESS);
+
+        assertEquals("""
+                Total cost per currency: {}
+
+                Cost usage in CSV format:
+
+                """, withoutFreshness(report.generate()));
+    }
+
+    @Test
+    void freshnessFollowsTheTotals() {
+        UsageReport<UsagePerServiceAndOperation> report = new UsageReport<>(List.of(), Map.of(), FRESHNESS);
+
+        assertTrue(report.generate().startsWith("Total cost per currency: {}\nData freshness: " + FRESHNESS + "\n\n"));
+    }
+
+    private static String withoutFreshness(String report) {
+        String line = "Data freshness: " + FRESHNESS + "\n";
+        assertTrue(report.contains(line));
+        return report.replace(line, "");
+    }
+}
@@ -0,0 +1,99 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+import query.CostAggregator;
+import query.CostDataset;
+import query.CostQuery;
+import query.RowMapper;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+import software.amazon.awssdk.services.costexplorer.model.Group;
+import software.amazon.awssdk.services.costexplorer.model.MetricValue;
+import software.amazon.awssdk.services.costexplorer.model.ResultByTime;
+import standin.SyntheticResponses;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The path measured by the hot path benchmark, on the same synthetic pages: parsing the groups, aggregating them,
+ * building the sorted rows and rendering the report.
+ */
+class UsageReportTest {
+    private static final RowMapper<UsagePerServiceAndOperation> USAGE =
+            (keys, currency, value) -> new UsagePerServiceAndOperation(keys[0], keys[1], currency, value);
+
+    private final List<GetCostAndUsageResponse> pages = SyntheticResponses.pages(
+            CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query("2025-01-01", "2025-02-01", List.of()).toRequest(),
+            1000, 2, 300);
+
+    @Test
+    void everyGroupOfEveryPageEndsUpInOneRow() {
+        CostAggregator aggregator = aggregate();
+        List<UsagePerServiceAndOperation> rows = aggregator.rows(USAGE);
+
+        assertEquals(4, pages.size());
+        assertEquals(1000, rows.size());
+        Map<String, BigDecimal> exact = exactSumPerCurrency();
+        assertEquals(exact.keySet(), aggregator.totalPerCurrency().keySet());
+        exact.forEach((currency, sum) ->
+                assertEquals(sum.doubleValue(), aggregator.totalPerCurrency().get(currency), 1e-6, currency));
+        for (int i = 1; i < rows.size(); i++) {
+            assertTrue(rows.get(i - 1).value() >= rows.get(i).value());
+        }
+    }
+
+    @Test
+    void reportHasAHeaderAndOneLinePerRow() {
+        CostAggregator aggregator = aggregate();
+        List<UsagePerServiceAndOperation> rows = aggregator.rows(USAGE);
+
+        String report = new UsageReport<>(rows, aggregator.totalPerCurrency(), "test").generate();
+
+        String csv = report.substring(report.indexOf("'CURRENCY'"));
+        List<String> lines = csv.strip().lines().toList();
+        assertEquals(rows.size() + 1, lines.size());
+        UsagePerServiceAndOperation first = rows.getFirst();
+        assertEquals("'" + first.currency() + "','" + first.operation() + "','" + first.serviceName() + "','"
+                + first.value() + "'", lines.get(1));
+    }
+
+    @Test
+    void topRowsArePrefixOfTheSortedRows() {
+        CostAggregator aggregator = aggregate();
+
+        List<UsagePerServiceAndOperation> top = aggregator.rows(USAGE, 20);
+
+        assertEquals(aggregator.rows(USAGE).subList(0, 20), top.subList(0, 20));
+        assertEquals(22, top.size(), "One Other row per currency");
+    }
+
+    private CostAggregator aggregate() {
+        CostAggregator aggregator = new CostAggregator(2);
+        for (GetCostAndUsageResponse page : pages) {
+            for (ResultByTime result : page.resultsByTime()) {
+                for (Group group : result.groups()) {
+                    MetricValue metric = group.metrics().get(CostQuery.METRIC);
+                    aggregator.add(group.keys(), metric.unit(), Double.parseDouble(metric.amount()));
+                }
+            }
+        }
+        return aggregator;
+    }
+
+    private Map<String, BigDecimal> exactSumPerCurrency() {
+        Map<String, BigDecimal> sums = new HashMap<>();
+        for (GetCostAndUsageResponse page : pages) {
+            for (ResultByTime result : page.resultsByTime()) {
+                for (Group group : result.groups()) {
+                    MetricValue metric = group.metrics().get(CostQuery.METRIC);
+                    sums.merge(metric.unit(), new BigDecimal(metric.amount()), BigDecimal::add);
+                }
+            }
+        }
+        return sums;
+    }
+}
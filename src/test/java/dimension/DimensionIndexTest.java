@@ -0,0 +1,87 @@
+package dimension;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.costexplorer.model.CostExplorerException;
+import software.amazon.awssdk.services.costexplorer.model.DateInterval;
+import software.amazon.awssdk.services.costexplorer.model.Dimension;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesResponse;
+import standin.SyntheticResponses;
+import testing.MutableClock;
+import testing.StubCostExplorerClient;
+import testing.TestConfig;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DimensionIndexTest {
+    private final MutableClock clock = MutableClock.at("2025-03-10T06:00:00Z");
+
+    @Test
+    void valuesAreIndexedOverTheLookbackMonthsFollowingEveryPage() {
+        StubCostExplorerClient client = client(request -> SyntheticResponses.dimensionValues(request, 25, 10));
+
+        DimensionValueSet services = index(client, "cost-explorer.dimension-index.enabled=true")
+                .values(Dimension.SERVICE);
+
+        assertEquals(25, services.size());
+        assertTrue(services.contains("Amazon Service 24"));
+        assertEquals(LocalDate.parse("2024-12-01"), services.from());
+        assertEquals(LocalDate.parse("2025-03-10"), services.until());
+        assertEquals(clock.instant(), services.loadedAt());
+        assertEquals(3, client.dimensionValuesRequests.size());
+        assertEquals(DateInterval.builder().start("2024-12-01").end("2025-03-10").build(),
+                client.dimensionValuesRequests.getFirst().timePeriod());
+    }
+
+    @Test
+    void valuesAreLoadedOnceAndOnlyServedWhenEnabled() {
+        StubCostExplorerClient client = client(request -> SyntheticResponses.dimensionValues(request, 5, 10));
+        DimensionIndex enabled = index(client, "cost-explorer.dimension-index.enabled=true");
+
+        assertTrue(enabled.loaded(Dimension.REGION).isEmpty(), "Not loaded yet");
+        DimensionValueSet regions = enabled.values(Dimension.REGION);
+
+        assertSame(regions, enabled.values(Dimension.REGION));
+        assertSame(regions, enabled.loaded(Dimension.REGION).orElseThrow());
+        assertEquals(1, client.dimensionValuesRequests.size());
+
+        DimensionIndex disabled = index(client);
+        disabled.values(Dimension.REGION);
+        assertTrue(disabled.loaded(Dimension.REGION).isEmpty());
+    }
+
+    @Test
+    void failedRefreshKeepsThePreviousValues() {
+        AtomicBoolean failing = new AtomicBoolean();
+        StubCostExplorerClient client = client(request -> {
+            if (failing.get()) {
+                throw CostExplorerException.builder().message("Throttled").build();
+            }
+            return SyntheticResponses.dimensionValues(request, 5, 10);
+        });
+        DimensionIndex index = index(client, "cost-explorer.dimension-index.enabled=true");
+        index.refresh();
+        DimensionValueSet services = index.loaded(Dimension.SERVICE).orElseThrow();
+
+        failing.set(true);
+        index.refresh();
+
+        assertSame(services, index.loaded(Dimension.SERVICE).orElseThrow());
+        assertEquals(2 * DimensionIndex.DIMENSIONS.size(), client.dimensionValuesRequests.size());
+    }
+
+    private DimensionIndex index(StubCostExplorerClient client, String... properties) {
+        return new DimensionIndex(client, TestConfig.of(DimensionIndexConfig.class, properties), clock);
+    }
+
+    private static StubCostExplorerClient client(
+            Function<GetDimensionValuesRequest, GetDimensionValuesResponse> dimensionValues) {
+        return new StubCostExplorerClient(request -> {
+            throw new IllegalStateException("No costs in this test");
+        }, dimensionValues);
+    }
+}
@@ -0,0 +1,71 @@
+package dimension;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DimensionValueSetTest {
+    private static final DimensionValueSet REGIONS = valueSet("us-east-1", "us-east-2", "us-west-1", "us-west-2",
+            "eu-west-1", "eu-central-1", "ap-southeast-1", "global", "Global");
+
+    @Test
+    void containsOnlyTheExactValue() {
+        assertTrue(REGIONS.contains("eu-west-1"));
+        assertTrue(REGIONS.contains("Global"));
+        assertFalse(REGIONS.contains("EU-WEST-1"));
+        assertFalse(REGIONS.contains("eu-west-3"));
+        assertEquals(9, REGIONS.size());
+    }
+
+    @Test
+    void ignoringCaseFindsTheOnlyValueWhichMatches() {
+        assertEquals(Optional.of("eu-west-1"), REGIONS.ignoringCase("EU-West-1"));
+        assertEquals(Optional.empty(), REGIONS.ignoringCase("GLOBAL"), "Ambiguous, global and Global");
+        assertEquals(Optional.empty(), REGIONS.ignoringCase("eu-west-3"));
+    }
+
+    @Test
+    void prefixSelectsTheValuesInOrderIgnoringCase() {
+        assertEquals(List.of("us-east-1", "us-east-2", "us-west-1", "us-west-2"), REGIONS.withPrefix("US-", 10));
+        assertEquals(List.of("us-east-1", "us-east-2"), REGIONS.withPrefix("us-", 2));
+        assertEquals(List.of("Global", "global"), REGIONS.withPrefix("glo", 10));
+        assertEquals(List.of(), REGIONS.withPrefix("sa-", 10));
+        assertEquals(List.of("ap-southeast-1", "eu-central-1"), REGIONS.withPrefix("", 2));
+    }
+
+    @Test
+    void closestListsThePrefixMatchesBeforeTheValuesWithinAFewEdits() {
+        assertEquals(List.of("eu-west-1"), REGIONS.closest("eu-wst-1", 5));
+        assertEquals(List.of("us-east-1", "us-east-2", "us-west-1", "us-west-2"), REGIONS.closest("us-east-3", 5),
+                "Nearest first");
+        assertEquals(List.of("us-east-1", "us-east-2", "us-west-1"), REGIONS.closest("us-", 3));
+        assertEquals(List.of(), REGIONS.closest("antarctica-1", 5));
+    }
+
+    @Test
+    void distanceGivesUpPastTheBound() {
+        assertEquals(0, DimensionValueSet.distance("us-east-1", "us-east-1", 2));
+        assertEquals(1, DimensionValueSet.distance("us-east-1", "us-east-2", 2));
+        assertEquals(2, DimensionValueSet.distance("us-est-1", "us-east-2", 2));
+        assertEquals(3, DimensionValueSet.distance("us-east-1", "ap-southeast-1", 2), "Lengths already too far");
+        assertEquals(3, DimensionValueSet.distance("abcdef", "uvwxyz", 2));
+    }
+
+    @Test
+    void coversThePeriodsWithinTheIndexedMonths() {
+        assertTrue(REGIONS.covers(LocalDate.parse("2024-12-01"), LocalDate.parse("2025-03-10")));
+        assertTrue(REGIONS.covers(LocalDate.parse("2025-02-01"), LocalDate.parse("2025-03-01")));
+        assertFalse(REGIONS.covers(LocalDate.parse("2024-11-01"), LocalDate.parse("2024-12-01")));
+        assertFalse(REGIONS.covers(LocalDate.parse("2025-03-01"), LocalDate.parse("2025-04-01")));
+    }
+
+    static DimensionValueSet valueSet(String... values) {
+        return new DimensionValueSet(List.of(values), LocalDate.parse("2024-12-01"), LocalDate.parse("2025-03-10"),
+                Instant.parse("2025-03-10T06:00:00Z"));
+    }
+}
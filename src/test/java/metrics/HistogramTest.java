@@ -0,0 +1,66 @@
+package metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+    @Test
+    void emptyHistogramReportsZero() {
+        Histogram histogram = new Histogram();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0.0, histogram.mean());
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(0, histogram.max());
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (long value : new long[]{0, 1, 2, 3, 3}) {
+            histogram.record(value);
+        }
+
+        assertEquals(5, histogram.count());
+        assertEquals(9, histogram.sum());
+        assertEquals(1.8, histogram.mean(), 1e-12);
+        assertEquals(0, histogram.percentile(0.2));
+        assertEquals(2, histogram.percentile(0.6));
+        assertEquals(3, histogram.percentile(1));
+    }
+
+    @Test
+    void percentilesAreNeverBelowTheValueAndAtMostAQuarterAbove() {
+        SplittableRandom random = new SplittableRandom(3);
+        long[] values = new long[10_000];
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.pow(10, random.nextDouble() * 9);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[]{0.01, 0.5, 0.9, 0.99, 0.999}) {
+            long exact = values[(int) Math.ceil(percentile * values.length) - 1];
+            long estimate = histogram.percentile(percentile);
+            assertTrue(estimate >= exact, percentile + ": " + estimate + " < " + exact);
+            assertTrue(estimate <= exact * 1.25, percentile + ": " + estimate + " > 1.25 * " + exact);
+        }
+        assertEquals(values[values.length - 1], histogram.percentile(1));
+        assertEquals(values[values.length - 1], histogram.max());
+    }
+
+    @Test
+    void negativeValuesCountAsZeroAndHugeOnesFit() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.percentile(0.5));
+        assertEquals(Long.MAX_VALUE, histogram.percentile(1));
+    }
+}
@@ -0,0 +1,64 @@
+package metrics;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.costexplorer.model.CostExplorerException;
+import software.amazon.awssdk.services.costexplorer.model.DateInterval;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import testing.StubCostExplorerClient;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerMetricsTest {
+    private static final GetCostAndUsageRequest REQUEST = GetCostAndUsageRequest.builder()
+            .timePeriod(DateInterval.builder().start("2025-01-01").end("2025-02-01").build())
+            .build();
+
+    @Test
+    void toolCallsAreRecordedPerToolWithTheirUtf8Output() {
+        ServerMetrics serverMetrics = new ServerMetrics();
+        serverMetrics.recordTool("getDiscounts", 2_000_000, "total: 1 €");
+        serverMetrics.recordTool("getCostPerServiceAndOperation", 1_000_000, "a💰é");
+        serverMetrics.recordTool("getCostPerServiceAndOperation", 3_000_000, null);
+
+        assertEquals(List.of("getCostPerServiceAndOperation", "getDiscounts"),
+                List.copyOf(serverMetrics.tools().keySet()));
+        ServerMetrics.ToolMetrics costs = serverMetrics.tools().get("getCostPerServiceAndOperation");
+        assertEquals(2, costs.latencyNanos().count());
+        assertEquals(1, costs.errors());
+        assertEquals(1, costs.outputBytes().count());
+        assertEquals(7, costs.outputBytes().sum(), "1 + 4 + 2 bytes");
+        assertEquals(12, serverMetrics.tools().get("getDiscounts").outputBytes().sum(), "9 + 3 bytes");
+    }
+
+    @Test
+    void queriesAreRecordedWithTheirPagesRowsAndGroups() {
+        ServerMetrics serverMetrics = new ServerMetrics();
+        serverMetrics.recordQuery(3, 1500, 200);
+        serverMetrics.recordQuery(1, 10, 10);
+
+        assertEquals(4, serverMetrics.pagesPerQuery().sum());
+        assertEquals(1510, serverMetrics.rowsPerQuery().sum());
+        assertEquals(210, serverMetrics.groups());
+    }
+
+    @Test
+    void instrumentedClientRecordsEveryCallAndItsFailures() {
+        ServerMetrics serverMetrics = new ServerMetrics();
+        StubCostExplorerClient stub = new StubCostExplorerClient(request -> {
+            if (request.nextPageToken() != null) {
+                throw CostExplorerException.builder().message("Throttled").build();
+            }
+            return StubCostExplorerClient.synthetic(1, 1).getCostAndUsage(request);
+        });
+        InstrumentedCostExplorerClient client = new InstrumentedCostExplorerClient(stub, serverMetrics);
+
+        client.getCostAndUsage(REQUEST);
+        assertThrows(CostExplorerException.class,
+                () -> client.getCostAndUsage(REQUEST.toBuilder().nextPageToken("next").build()));
+
+        assertEquals(2, serverMetrics.awsCallNanos().count());
+        assertEquals(1, serverMetrics.awsErrors());
+    }
+}
@@ -0,0 +1,93 @@
+package prefetch;
+
+import cache.CacheConfig;
+import cache.CachingCostExplorerClient;
+import cache.ResponseCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import query.CostAndUsageFetcher;
+import query.CostDataset;
+import query.FanOutConfig;
+import ratelimit.ApiBudget;
+import ratelimit.BudgetConfig;
+import software.amazon.awssdk.services.costexplorer.model.DateInterval;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import standin.SyntheticResponses;
+import testing.MutableClock;
+import testing.StubCostExplorerClient;
+import testing.TestConfig;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachePrefetcherTest {
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = MutableClock.at("2025-03-10T06:00:00Z");
+
+    @Test
+    void closedMonthsOfEveryDatasetAreFetchedOnce() {
+        StubCostExplorerClient client = StubCostExplorerClient.synthetic(3, 10);
+        ResponseCache cache = cache();
+
+        prefetcher(client, cache, budget()).prefetch();
+
+        assertEquals(List.of(period("2025-01-01", "2025-02-01"), period("2025-02-01", "2025-03-01")),
+                client.requests.stream().map(GetCostAndUsageRequest::timePeriod).distinct()
+                        .sorted((first, second) -> first.start().compareTo(second.start())).toList());
+        assertEquals(2 * CostDataset.values().length, client.requests.size(), "Two months reuse the last one");
+        for (CostDataset dataset : CostDataset.values()) {
+            assertTrue(cache.contains(dataset.query("2025-02-01", "2025-03-01", List.of()).toRequest()));
+            assertTrue(cache.contains(dataset.query("2025-01-01", "2025-02-01", List.of()).toRequest()));
+        }
+    }
+
+    @Test
+    void stopsBeforeEatingIntoTheBudgetReserve() {
+        ApiBudget budget = budget("cost-explorer.budget.requests-per-hour=5");
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> {
+            budget.acquire();
+            return SyntheticResponses.page(request, 3, 1, 10);
+        });
+
+        prefetcher(client, cache(), budget).prefetch();
+
+        assertEquals(3, client.requests.size());
+        assertEquals(2, 5 - budget.requestsThisHour(), "The reserve is left for tool calls");
+    }
+
+    @Test
+    void disabledCacheIsNotPrefetched() {
+        StubCostExplorerClient client = StubCostExplorerClient.synthetic(3, 10);
+        ResponseCache cache = new ResponseCache(TestConfig.of(CacheConfig.class), clock);
+
+        prefetcher(client, cache, budget()).prefetch();
+
+        assertTrue(client.requests.isEmpty());
+    }
+
+    private CachePrefetcher prefetcher(StubCostExplorerClient client, ResponseCache cache, ApiBudget budget) {
+        CostAndUsageFetcher fetcher = new CostAndUsageFetcher(new CachingCostExplorerClient(client, cache, false),
+                cache, TestConfig.of(FanOutConfig.class, "cost-explorer.fan-out.enabled=true"), clock);
+        return new CachePrefetcher(fetcher, cache, budget, TestConfig.of(PrefetchConfig.class,
+                "cost-explorer.prefetch.months=2",
+                "cost-explorer.prefetch.budget-reserve=2"), clock);
+    }
+
+    private ResponseCache cache() {
+        return new ResponseCache(TestConfig.of(CacheConfig.class,
+                "cost-explorer.cache.enabled=true",
+                "cost-explorer.cache.directory=" + directory), clock);
+    }
+
+    private ApiBudget budget(String... properties) {
+        return new ApiBudget(TestConfig.of(BudgetConfig.class, properties), clock);
+    }
+
+    private static DateInterval period(String start, String end) {
+        return DateInterval.builder().start(start).end(end).build();
+    }
+}
@@ -0,0 +1,45 @@
+package query;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregationTest {
+    private static final Instant FETCHED_AT = Instant.parse("2025-03-10T12:00:00Z");
+
+    @Test
+    void perAccountPrefixesEveryGroupWithItsAccount() {
+        Map<String, Aggregation> aggregations = new LinkedHashMap<>();
+        aggregations.put("default", aggregation(DataFreshness.api(FETCHED_AT), "AmazonEC2", 10));
+        aggregations.put("prod", aggregation(DataFreshness.api(FETCHED_AT), "AmazonEC2", 4));
+
+        CostAggregator merged = Aggregation.perAccount(aggregations).aggregator();
+
+        assertEquals(3, merged.width());
+        assertEquals(10.0, merged.value(merged.find(List.of("default", "AmazonEC2", "RunInstances"), "USD")));
+        assertEquals(4.0, merged.value(merged.find(List.of("prod", "AmazonEC2", "RunInstances"), "USD")));
+        assertEquals(Map.of("USD", 14.0), merged.totalPerCurrency());
+    }
+
+    @Test
+    void perAccountIsAsFreshAsTheOldestAccount() {
+        DataFreshness cached = DataFreshness.cache(FETCHED_AT.minusSeconds(600));
+        Map<String, Aggregation> aggregations = new LinkedHashMap<>();
+        aggregations.put("default", aggregation(DataFreshness.api(FETCHED_AT), "AmazonEC2", 1));
+        aggregations.put("prod", aggregation(cached, "AmazonS3", 1));
+        aggregations.put("staging", aggregation(DataFreshness.api(FETCHED_AT.minusSeconds(60)), "AmazonRDS", 1));
+
+        assertEquals(cached, Aggregation.perAccount(aggregations).freshness());
+    }
+
+    private static Aggregation aggregation(DataFreshness freshness, String service, double amount) {
+        CostAggregator aggregator = new CostAggregator(2);
+        aggregator.add(List.of(service, "RunInstances"), "USD", amount);
+        return new Aggregation(aggregator, freshness);
+    }
+}
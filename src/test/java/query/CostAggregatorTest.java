@@ -0,0 +1,170 @@
+package query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostAggregatorTest {
+    private static final RowMapper<Row> ROW = (keys, currency, value) -> new Row(String.join("/", keys), currency,
+            value);
+
+    record Row(String key, String currency, double value) {
+    }
+
+    @Test
+    void sumsPerGroupAndCurrency() {
+        CostAggregator aggregator = new CostAggregator(2);
+        aggregator.add(List.of("AmazonEC2", "RunInstances"), "USD", 10);
+        aggregator.add(List.of("AmazonEC2", "RunInstances"), "USD", 2.5);
+        aggregator.add(List.of("AmazonEC2", "RunInstances"), "EUR", 4);
+        aggregator.add(List.of("AmazonS3", "PutObject"), "USD", 1);
+
+        assertEquals(3, aggregator.size());
+        assertEquals(List.of(new Row("AmazonEC2/RunInstances", "USD", 12.5),
+                new Row("AmazonEC2/RunInstances", "EUR", 4),
+                new Row("AmazonS3/PutObject", "USD", 1)), aggregator.rows(ROW));
+        assertEquals(Map.of("USD", 13.5, "EUR", 4.0), aggregator.totalPerCurrency());
+        assertEquals(List.of("USD", "EUR"), List.copyOf(aggregator.totalPerCurrency().keySet()));
+        assertEquals(-1, aggregator.find(List.of("AmazonS3", "PutObject"), "EUR"));
+        assertEquals(-1, aggregator.find(List.of("AmazonS3", "PutObject"), "JPY"));
+        assertEquals(1.0, aggregator.value(aggregator.find(List.of("AmazonS3", "PutObject"), "USD")));
+    }
+
+    @Test
+    void missingKeysAreEmpty() {
+        CostAggregator aggregator = new CostAggregator(2);
+        aggregator.add(List.of("AmazonEC2"), "USD", 1);
+        aggregator.add(List.of("AmazonEC2", ""), "USD", 2);
+
+        assertEquals(List.of(new Row("AmazonEC2/", "USD", 3)), aggregator.rows(ROW));
+    }
+
+    @Test
+    void sumsAndTotalsDoNotDriftWithSmallAmountsAddedToLargeOnes() {
+        CostAggregator aggregator = new CostAggregator(1);
+        aggregator.add(List.of("AmazonEC2"), "USD", 1e16);
+        aggregator.add(List.of("AmazonS3"), "USD", 1e16);
+        for (int i = 0; i < 1000; i++) {
+            aggregator.add(List.of("AmazonEC2"), "USD", 1);
+            aggregator.add(List.of("AmazonS3"), "USD", 1);
+        }
+        aggregator.add(List.of("AmazonEC2"), "USD", -1e16);
+        aggregator.add(List.of("AmazonS3"), "USD", -1e16);
+
+        assertEquals(1000.0, aggregator.value(aggregator.find(List.of("AmazonEC2"), "USD")));
+        assertEquals(2000.0, aggregator.totalPerCurrency().get("USD"));
+    }
+
+    @Test
+    void equalValuesKeepTheOrderTheyWereFirstSeenIn() {
+        CostAggregator aggregator = new CostAggregator(1);
+        for (String service : List.of("c", "a", "d", "b")) {
+            aggregator.add(List.of(service), "USD", 1);
+        }
+        aggregator.add(List.of("e"), "USD", 2);
+
+        assertEquals(List.of("e", "c", "a", "d", "b"), aggregator.rows(ROW).stream().map(Row::key).toList());
+        assertEquals(List.of("e", "c", "a"), aggregator.rows(ROW, 3).stream().limit(3).map(Row::key).toList());
+    }
+
+    @Test
+    void limitKeepsTheTopGroupsAndSumsTheRestIntoOneOtherRowPerCurrency() {
+        CostAggregator aggregator = new CostAggregator(2);
+        aggregator.add(List.of("AmazonEC2", "RunInstances"), "USD", 100);
+        aggregator.add(List.of("AmazonS3", "PutObject"), "USD", 5);
+        aggregator.add(List.of("AmazonRDS", "CreateDBInstance"), "EUR", 50);
+        aggregator.add(List.of("AWSLambda", "Invoke"), "USD", 3);
+        aggregator.add(List.of("AmazonSNS", "Publish"), "EUR", 0.25);
+        aggregator.add(List.of("AmazonSQS", "SendMessage"), "USD", 0.5);
+
+        assertEquals(List.of(new Row("AmazonEC2/RunInstances", "USD", 100),
+                new Row("AmazonRDS/CreateDBInstance", "EUR", 50),
+                new Row("Other (3 groups)/", "USD", 8.5),
+                new Row("Other (1 groups)/", "EUR", 0.25)), aggregator.rows(ROW, 2));
+    }
+
+    @Test
+    void limitCoveringEveryGroupReturnsEveryRow() {
+        CostAggregator aggregator = new CostAggregator(1);
+        aggregator.add(List.of("AmazonEC2"), "USD", 2);
+        aggregator.add(List.of("AmazonS3"), "USD", 1);
+
+        assertEquals(aggregator.rows(ROW), aggregator.rows(ROW, 2));
+        assertEquals(aggregator.rows(ROW), aggregator.rows(ROW, 0));
+    }
+
+    @Test
+    void otherRowOfAQueryWithoutGroupByHasNoKeys() {
+        CostAggregator aggregator = new CostAggregator(0);
+        aggregator.add(List.of(), "USD", 2);
+        aggregator.add(List.of(), "EUR", 1);
+
+        assertEquals(List.of(new Row("", "USD", 2), new Row("", "EUR", 1)), aggregator.rows(ROW, 1));
+    }
+
+    @Test
+    void topByValueIsThePrefixOfTheFullOrder() {
+        SplittableRandom random = new SplittableRandom(7);
+        CostAggregator aggregator = new CostAggregator(1);
+        for (int i = 0; i < 5000; i++) {
+            // Few distinct values, so many groups tie
+            aggregator.add(List.of("service-" + random.nextInt(2000)), "USD", random.nextInt(50));
+        }
+
+        int[] order = aggregator.orderByValueDescending();
+        for (int limit : new int[]{1, 10, 100, aggregator.size() - 1}) {
+            assertArrayEquals(Arrays.copyOf(order, limit), aggregator.topByValue(limit), "limit " + limit);
+        }
+        for (int i = 1; i < order.length; i++) {
+            assertTrue(aggregator.value(order[i - 1]) >= aggregator.value(order[i]));
+        }
+    }
+
+    @Test
+    void growsPastItsExpectedGroups() {
+        CostAggregator aggregator = new CostAggregator(2, 16);
+        for (int i = 0; i < 10_000; i++) {
+            aggregator.add(List.of("service-" + i % 1000, "operation-" + i), "USD", i);
+        }
+
+        assertEquals(10_000, aggregator.size());
+        for (int i = 0; i < 10_000; i += 997) {
+            assertEquals(i, aggregator.value(aggregator.find(List.of("service-" + i % 1000, "operation-" + i),
+                    "USD")));
+        }
+        assertEquals(9999.0 * 10_000 / 2, aggregator.totalPerCurrency().get("USD"));
+    }
+
+    @Test
+    void addAllMergesLikeAddingTheRows() {
+        CostAggregator merged = new CostAggregator(1);
+        CostAggregator expected = new CostAggregator(1);
+        List<CostAggregator> parts = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(11);
+        for (int part = 0; part < 3; part++) {
+            CostAggregator aggregator = new CostAggregator(1);
+            for (int i = 0; i < 200; i++) {
+                String service = "service-" + random.nextInt(50);
+                String currency = random.nextBoolean() ? "USD" : "EUR";
+                double amount = random.nextDouble() * 100;
+                aggregator.add(List.of(service), currency, amount);
+                expected.add(List.of(service), currency, amount);
+            }
+            parts.add(aggregator);
+        }
+
+        parts.forEach(merged::addAll);
+
+        assertEquals(expected.size(), merged.size());
+        for (int slot = 0; slot < expected.size(); slot++) {
+            int mergedSlot = merged.find(List.of(expected.key(slot, 0)), expected.currency(slot));
+            assertEquals(expected.value(slot), merged.value(mergedSlot), 1e-9);
+        }
+    }
+}
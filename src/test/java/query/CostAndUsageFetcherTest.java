@@ -0,0 +1,224 @@
+package query;
+
+import cache.CacheConfig;
+import cache.CachingCostExplorerClient;
+import cache.ResponseCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ratelimit.BudgetExceededException;
+import software.amazon.awssdk.services.costexplorer.model.*;
+import testing.MutableClock;
+import testing.StubCostExplorerClient;
+import testing.TestConfig;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostAndUsageFetcherTest {
+    @Test
+    void sliceSplitsIntoCalendarMonths() {
+        assertEquals(List.of(period("2025-01-15", "2025-02-01"), period("2025-02-01", "2025-03-01"),
+                        period("2025-03-01", "2025-03-10")),
+                CostAndUsageFetcher.slice(period("2025-01-15", "2025-03-10"), 0));
+    }
+
+    @Test
+    void sliceSplitsIntoChunksOfDays() {
+        assertEquals(List.of(period("2025-01-01", "2025-01-11"), period("2025-01-11", "2025-01-21"),
+                        period("2025-01-21", "2025-01-25")),
+                CostAndUsageFetcher.slice(period("2025-01-01", "2025-01-25"), 10));
+    }
+
+    @Test
+    void bothWaysOfFetchingSendTheSameSlices() {
+        for (Granularity granularity : List.of(Granularity.DAILY, Granularity.MONTHLY)) {
+            GetCostAndUsageRequest request = request("2025-01-01", "2025-03-01", granularity);
+
+            StubCostExplorerClient listed = StubCostExplorerClient.synthetic(3, 10);
+            fetcher(listed, 10).fetch(request, new FetchedPages());
+            StubCostExplorerClient consumed = StubCostExplorerClient.synthetic(3, 10);
+            fetcher(consumed, 10).fetch(request, new FetchedPages(), result -> {
+            });
+
+            assertEquals(periods(listed), periods(consumed), granularity.toString());
+        }
+    }
+
+    @Test
+    void dailyRequestsAreSlicedIntoChunksOfDays() {
+        StubCostExplorerClient client = StubCostExplorerClient.synthetic(3, 10);
+
+        List<ResultByTime> results = fetcher(client, 20).fetch(request("2025-01-01", "2025-02-15",
+                Granularity.DAILY));
+
+        assertEquals(List.of(period("2025-01-01", "2025-01-21"), period("2025-01-21", "2025-02-10"),
+                period("2025-02-10", "2025-02-15")), periods(client));
+        assertEquals(45, results.size());
+    }
+
+    @Test
+    void monthlyRequestsAreNeverSplitWithinAMonth() {
+        StubCostExplorerClient client = StubCostExplorerClient.synthetic(3, 10);
+
+        List<ResultByTime> results = fetcher(client, 10).fetch(request("2025-01-01", "2025-03-01",
+                Granularity.MONTHLY));
+
+        assertEquals(List.of(period("2025-01-01", "2025-02-01"), period("2025-02-01", "2025-03-01")),
+                periods(client));
+        assertEquals(List.of("2025-01-01", "2025-02-01"),
+                results.stream().map(result -> result.timePeriod().start()).toList());
+    }
+
+    @Test
+    void hourlyRequestsAreNeverSplit() {
+        GetCostAndUsageRequest request = GetCostAndUsageRequest.builder()
+                .timePeriod(period("2025-01-01T00:00:00Z", "2025-01-03T00:00:00Z"))
+                .granularity(Granularity.HOURLY)
+                .metrics(CostQuery.METRIC)
+                .build();
+
+        StubCostExplorerClient listed = StubCostExplorerClient.synthetic(3, 10);
+        assertEquals(48, fetcher(listed, 1).fetch(request).size());
+        StubCostExplorerClient consumed = StubCostExplorerClient.synthetic(3, 10);
+        fetcher(consumed, 1).fetch(request, new FetchedPages(), result -> {
+        });
+
+        assertEquals(List.of(request.timePeriod()), periods(listed));
+        assertEquals(List.of(request.timePeriod()), periods(consumed));
+    }
+
+    @Test
+    void resultsFollowEveryPageInChronologicalOrder() {
+        StubCostExplorerClient client = StubCostExplorerClient.synthetic(25, 10);
+        FetchedPages pages = new FetchedPages();
+
+        List<ResultByTime> results = fetcher(client, 0).fetch(request("2024-11-01", "2025-03-01",
+                Granularity.MONTHLY), pages);
+
+        assertEquals(12, pages.count());
+        assertEquals(12, client.requests.size());
+        List<String> starts = results.stream().map(result -> result.timePeriod().start()).toList();
+        assertEquals(starts.stream().sorted().toList(), starts);
+        assertEquals(25 * 4, results.stream().mapToInt(result -> result.groups().size()).sum());
+    }
+
+    @Test
+    void consumerSeesEveryResultOnce() {
+        StubCostExplorerClient client = StubCostExplorerClient.synthetic(25, 10);
+        List<ResultByTime> consumed = new ArrayList<>();
+
+        fetcher(client, 0).fetch(request("2024-11-01", "2025-03-01", Granularity.MONTHLY), new FetchedPages(),
+                consumed::add);
+
+        List<ResultByTime> listed = fetcher(StubCostExplorerClient.synthetic(25, 10), 0)
+                .fetch(request("2024-11-01", "2025-03-01", Granularity.MONTHLY));
+        assertEquals(sorted(listed), sorted(consumed));
+    }
+
+    @Test
+    void disabledFanOutFetchesTheWholeRange() {
+        StubCostExplorerClient client = StubCostExplorerClient.synthetic(3, 10);
+        CostAndUsageFetcher fetcher = new CostAndUsageFetcher(client, new ResponseCache(TestConfig.of(
+                CacheConfig.class)), TestConfig.of(FanOutConfig.class));
+
+        fetcher.fetch(request("2024-11-01", "2025-03-01", Granularity.MONTHLY));
+
+        assertEquals(List.of(period("2024-11-01", "2025-03-01")), periods(client));
+    }
+
+    @Test
+    void cachedPagesOfClosedMonthsOnlyCountWhenNoOtherPageWasRead(@TempDir Path directory) {
+        MutableClock clock = MutableClock.at("2025-03-10T12:00:00Z");
+        StubCostExplorerClient client = StubCostExplorerClient.synthetic(3, 10);
+        CostAndUsageFetcher fetcher = cachingFetcher(client, directory, clock, false);
+        Instant firstFetch = clock.instant();
+        FetchedPages january = new FetchedPages();
+        fetcher.fetch(request("2025-01-01", "2025-02-01", Granularity.MONTHLY), january);
+
+        clock.advance(Duration.ofHours(1));
+        FetchedPages quarter = new FetchedPages();
+        fetcher.fetch(request("2025-01-01", "2025-03-01", Granularity.MONTHLY), quarter);
+        FetchedPages cachedJanuary = new FetchedPages();
+        fetcher.fetch(request("2025-01-01", "2025-02-01", Granularity.MONTHLY), cachedJanuary);
+
+        assertEquals(DataFreshness.api(firstFetch), january.freshness());
+        assertEquals(DataFreshness.api(clock.instant()), quarter.freshness(), "As old as the February just fetched");
+        assertEquals(2, quarter.count());
+        assertEquals(DataFreshness.cache(firstFetch), cachedJanuary.freshness());
+        assertEquals(List.of(period("2025-01-01", "2025-02-01"), period("2025-02-01", "2025-03-01")),
+                periods(client));
+    }
+
+    @Test
+    void stalePagesServedWhenTheBudgetIsSpentCarryTheTimeTheyWereFetchedAt(@TempDir Path directory) {
+        MutableClock clock = MutableClock.at("2025-03-10T12:00:00Z");
+        StubCostExplorerClient synthetic = StubCostExplorerClient.synthetic(3, 10);
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> {
+            if (!synthetic.requests.isEmpty()) {
+                throw new BudgetExceededException("API budget exhausted");
+            }
+            return synthetic.getCostAndUsage(request);
+        });
+        CostAndUsageFetcher fetcher = cachingFetcher(client, directory, clock, true);
+        Instant firstFetch = clock.instant();
+        fetcher.fetch(request("2025-03-01", "2025-04-01", Granularity.MONTHLY));
+
+        clock.advance(Duration.ofHours(2));
+        FetchedPages pages = new FetchedPages();
+        fetcher.fetch(request("2025-03-01", "2025-04-01", Granularity.MONTHLY), pages);
+
+        assertEquals(DataFreshness.cache(firstFetch), pages.freshness());
+        assertEquals(2, client.requests.size(), "The expired page was requested again");
+    }
+
+    private static CostAndUsageFetcher cachingFetcher(StubCostExplorerClient client, Path directory,
+                                                      MutableClock clock, boolean serveStale) {
+        ResponseCache cache = new ResponseCache(TestConfig.of(CacheConfig.class,
+                "cost-explorer.cache.enabled=true",
+                "cost-explorer.cache.directory=" + directory), clock);
+        return new CostAndUsageFetcher(new CachingCostExplorerClient(client, cache, serveStale), cache,
+                TestConfig.of(FanOutConfig.class, "cost-explorer.fan-out.enabled=true"), clock);
+    }
+
+    private static CostAndUsageFetcher fetcher(StubCostExplorerClient client, int sliceDays) {
+        return new CostAndUsageFetcher(client, new ResponseCache(TestConfig.of(CacheConfig.class)),
+                TestConfig.of(FanOutConfig.class,
+                        "cost-explorer.fan-out.enabled=true",
+                        "cost-explorer.fan-out.max-concurrency=3",
+                        "cost-explorer.fan-out.slice-days=" + sliceDays));
+    }
+
+    private static List<DateInterval> periods(StubCostExplorerClient client) {
+        return client.requests.stream()
+                .filter(request -> request.nextPageToken() == null)
+                .map(GetCostAndUsageRequest::timePeriod)
+                .sorted(Comparator.comparing(DateInterval::start))
+                .toList();
+    }
+
+    private static List<ResultByTime> sorted(List<ResultByTime> results) {
+        return results.stream()
+                .sorted(Comparator.comparing((ResultByTime result) -> result.timePeriod().start())
+                        .thenComparing(result -> result.groups().getFirst().keys().getFirst()))
+                .toList();
+    }
+
+    private static GetCostAndUsageRequest request(String start, String end, Granularity granularity) {
+        return GetCostAndUsageRequest.builder()
+                .timePeriod(period(start, end))
+                .granularity(granularity)
+                .metrics(CostQuery.METRIC)
+                .groupBy(GroupDefinition.builder().type(GroupDefinitionType.DIMENSION).key("SERVICE").build())
+                .build();
+    }
+
+    private static DateInterval period(String start, String end) {
+        return DateInterval.builder().start(start).end(end).build();
+    }
+}
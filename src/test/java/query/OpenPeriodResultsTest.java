@@ -0,0 +1,140 @@
+package query;
+
+import cache.CacheConfig;
+import cache.CachingCostExplorerClient;
+import cache.ResponseCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import testing.MutableClock;
+import testing.StubCostExplorerClient;
+import testing.TestConfig;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenPeriodResultsTest {
+    private static final CostQuery CURRENT_MONTH = CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query("2025-03-01",
+            "2025-04-01", List.of());
+
+    private final MutableClock clock = MutableClock.at("2025-03-10T12:00:00Z");
+    private final OpenPeriodResults results = new OpenPeriodResults(TestConfig.of(RevalidationConfig.class,
+            "cost-explorer.revalidation.enabled=true"), clock);
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    @Test
+    void resultYoungerThanTheSoftTtlIsServedAsIs() {
+        Aggregation first = results.serve(CURRENT_MONTH, fetch());
+        clock.advance(Duration.ofMinutes(14));
+
+        assertSame(first, results.serve(CURRENT_MONTH, fetch()));
+        assertEquals(1, fetches.get());
+        assertEquals(1, results.stats().freshHits());
+    }
+
+    @Test
+    void staleResultIsServedWhileOneRefreshRunsInTheBackground() throws InterruptedException {
+        Instant fetchedAt = clock.instant();
+        results.serve(CURRENT_MONTH, fetch());
+        clock.advance(Duration.ofMinutes(20));
+        CountDownLatch refreshed = new CountDownLatch(1);
+
+        Aggregation stale = results.serve(CURRENT_MONTH, () -> {
+            Aggregation aggregation = fetch().get();
+            refreshed.countDown();
+            return aggregation;
+        });
+
+        assertEquals(DataFreshness.api(fetchedAt).whileRefreshing(), stale.freshness());
+        assertEquals("fetched from the Cost Explorer API at 2025-03-10T12:00:00Z (20 minutes ago, a refresh is " +
+                "running in the background)", stale.freshness().describe(clock));
+        assertTrue(refreshed.await(10, TimeUnit.SECONDS));
+        assertEquals(2, fetches.get());
+        assertEquals(1, results.stats().staleHits());
+        assertEquals(1, results.stats().refreshes());
+    }
+
+    @Test
+    void resultOlderThanTheHardTtlWaitsForFreshData() {
+        results.serve(CURRENT_MONTH, fetch());
+        clock.advance(Duration.ofHours(6));
+
+        Aggregation aggregation = results.serve(CURRENT_MONTH, fetch());
+
+        assertEquals(DataFreshness.api(clock.instant()), aggregation.freshness());
+        assertEquals(2, fetches.get());
+        assertEquals(1, results.stats().expired());
+    }
+
+    @Test
+    void resultsBuiltFromCachedPagesAgeFromTheirOldestPage() {
+        Instant fetchedAt = clock.instant().minus(Duration.ofMinutes(10));
+        results.serve(CURRENT_MONTH, () -> new Aggregation(new CostAggregator(2), DataFreshness.cache(fetchedAt)));
+        clock.advance(Duration.ofMinutes(6));
+
+        Aggregation stale = results.serve(CURRENT_MONTH, fetch());
+
+        assertTrue(stale.freshness().refreshing(), "16 minutes old, past the soft TTL");
+        assertEquals(fetchedAt, stale.freshness().asOf());
+    }
+
+    @Test
+    void cachedClosedMonthsDoNotAgeResultsOfTheCurrentMonth(@TempDir Path directory) {
+        ResponseCache cache = new ResponseCache(TestConfig.of(CacheConfig.class,
+                "cost-explorer.cache.enabled=true",
+                "cost-explorer.cache.directory=" + directory), clock);
+        StubCostExplorerClient client = StubCostExplorerClient.synthetic(3, 10);
+        CostAndUsageFetcher fetcher = new CostAndUsageFetcher(new CachingCostExplorerClient(client, cache, false),
+                cache, TestConfig.of(FanOutConfig.class, "cost-explorer.fan-out.enabled=true"), clock);
+        CostQuery lastMonth = CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query("2025-02-01", "2025-03-01",
+                List.of());
+        CostQuery sinceLastMonth = CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query("2025-02-01", "2025-04-01",
+                List.of());
+        fetcher.fetch(lastMonth.toRequest());
+        clock.advance(Duration.ofDays(2));
+        Supplier<Aggregation> fetch = () -> {
+            fetches.incrementAndGet();
+            FetchedPages pages = new FetchedPages();
+            fetcher.fetch(sinceLastMonth.toRequest(), pages);
+            return new Aggregation(new CostAggregator(2), pages.freshness());
+        };
+
+        Aggregation first = results.serve(sinceLastMonth, fetch);
+        clock.advance(Duration.ofMinutes(14));
+        Aggregation fresh = results.serve(sinceLastMonth, fetch);
+
+        assertEquals(DataFreshness.api(clock.instant().minus(Duration.ofMinutes(14))), first.freshness());
+        assertSame(first, fresh);
+        assertEquals(1, fetches.get());
+        assertEquals(1, results.stats().freshHits());
+        assertEquals(0, results.stats().expired());
+    }
+
+    @Test
+    void closedPeriodsAndWarehouseResultsAreNotKept() {
+        CostQuery lastMonth = CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query("2025-02-01", "2025-03-01",
+                List.of());
+        results.serve(lastMonth, fetch());
+        results.serve(lastMonth, fetch());
+        Supplier<Aggregation> warehouse = () -> new Aggregation(new CostAggregator(2),
+                DataFreshness.warehouse(clock.instant()));
+        results.serve(CURRENT_MONTH, warehouse);
+
+        assertEquals(2, fetches.get());
+        assertEquals(0, results.stats().entries());
+    }
+
+    private Supplier<Aggregation> fetch() {
+        return () -> {
+            fetches.incrementAndGet();
+            return new Aggregation(new CostAggregator(2), DataFreshness.api(clock.instant()));
+        };
+    }
+}
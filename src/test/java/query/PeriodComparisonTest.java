@@ -0,0 +1,103 @@
+package query;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeriodComparisonTest {
+    private static final Instant FETCHED_AT = Instant.parse("2025-03-10T12:00:00Z");
+
+    @Test
+    void groupsAreJoinedOnTheirKeysAndCurrency() {
+        CostAggregator base = new CostAggregator(2);
+        base.add(List.of("AmazonEC2", "RunInstances"), "USD", 100);
+        base.add(List.of("AmazonEC2", "RunInstances"), "EUR", 10);
+        base.add(List.of("AmazonS3", "PutObject"), "USD", 5);
+        CostAggregator compared = new CostAggregator(2);
+        compared.add(List.of("AmazonEC2", "RunInstances"), "USD", 80);
+        compared.add(List.of("AWSLambda", "Invoke"), "USD", 7);
+
+        PeriodComparison comparison = join(base, compared);
+
+        assertEquals(4, comparison.groups());
+        assertEquals(List.of(
+                "AmazonEC2/RunInstances USD 100.0 -> 80.0",
+                "AmazonEC2/RunInstances EUR 10.0 -> 0.0",
+                "AWSLambda/Invoke USD 0.0 -> 7.0",
+                "AmazonS3/PutObject USD 5.0 -> 0.0"), describe(comparison.topByChange(10)));
+        assertEquals(Map.of("USD", 105.0, "EUR", 10.0), comparison.baseTotalPerCurrency());
+        assertEquals(Map.of("USD", 87.0), comparison.comparedTotalPerCurrency());
+    }
+
+    @Test
+    void topByChangeRanksBothDirectionsByTheirSize() {
+        CostAggregator base = new CostAggregator(1);
+        CostAggregator compared = new CostAggregator(1);
+        for (int i = 0; i < 100; i++) {
+            base.add(List.of("service-" + i), "USD", 50);
+            compared.add(List.of("service-" + i), "USD", 50 + (i % 2 == 0 ? i : -i));
+        }
+
+        List<CostChange> top = join(base, compared).topByChange(3);
+
+        assertEquals(List.of("service-99 USD 50.0 -> -49.0", "service-98 USD 50.0 -> 148.0",
+                "service-97 USD 50.0 -> -47.0"), describe(top));
+    }
+
+    @Test
+    void topByRelativeChangeLeavesOutNewAndSmallGroups() {
+        CostAggregator base = new CostAggregator(1);
+        base.add(List.of("AmazonEC2"), "USD", 100);
+        base.add(List.of("AmazonS3"), "USD", 10);
+        base.add(List.of("AWSLambda"), "USD", 0.5);
+        CostAggregator compared = new CostAggregator(1);
+        compared.add(List.of("AmazonEC2"), "USD", 150);
+        compared.add(List.of("AmazonS3"), "USD", 30);
+        compared.add(List.of("AWSLambda"), "USD", 50);
+        compared.add(List.of("AmazonSNS"), "USD", 1000);
+
+        PeriodComparison comparison = join(base, compared);
+
+        assertEquals(List.of("AmazonS3 USD 10.0 -> 30.0", "AmazonEC2 USD 100.0 -> 150.0"),
+                describe(comparison.topByRelativeChange(10, 1.0)));
+        assertEquals(2.0, comparison.topByRelativeChange(1, 1.0).getFirst().relativeChange());
+        assertEquals("AmazonSNS USD 0.0 -> 1000.0", describe(comparison.topByChange(1)).getFirst());
+        assertTrue(Double.isNaN(comparison.topByChange(1).getFirst().relativeChange()));
+    }
+
+    @Test
+    void comparisonIsAsFreshAsItsOldestPeriod() {
+        DataFreshness older = DataFreshness.cache(FETCHED_AT.minusSeconds(3600));
+
+        assertEquals(older, PeriodComparison.join(new Aggregation(new CostAggregator(1), older),
+                new Aggregation(new CostAggregator(1), DataFreshness.api(FETCHED_AT))).freshness());
+        assertEquals(older, PeriodComparison.join(new Aggregation(new CostAggregator(1), DataFreshness.api(FETCHED_AT)),
+                new Aggregation(new CostAggregator(1), older)).freshness());
+    }
+
+    @Test
+    void emptyPeriodsHaveNoMovers() {
+        PeriodComparison comparison = join(new CostAggregator(2), new CostAggregator(2));
+
+        assertEquals(0, comparison.groups());
+        assertEquals(List.of(), comparison.topByChange(10));
+        assertEquals(List.of(), comparison.topByRelativeChange(10, 0));
+    }
+
+    private static PeriodComparison join(CostAggregator base, CostAggregator compared) {
+        return PeriodComparison.join(new Aggregation(base, DataFreshness.api(FETCHED_AT)),
+                new Aggregation(compared, DataFreshness.api(FETCHED_AT)));
+    }
+
+    private static List<String> describe(List<CostChange> changes) {
+        return changes.stream()
+                .map(change -> String.join("/", Arrays.asList(change.keys())) + " " + change.currency() + " " +
+                        change.baseValue() + " -> " + change.comparedValue())
+                .toList();
+    }
+}
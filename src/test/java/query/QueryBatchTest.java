@@ -0,0 +1,99 @@
+package query;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.costexplorer.model.CostExplorerException;
+import software.amazon.awssdk.services.costexplorer.model.DateInterval;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import testing.StubCostExplorerClient;
+import testing.TestConfig;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static query.QueryEngineTest.*;
+
+class QueryBatchTest {
+    @Test
+    void overlappingPeriodsFetchEveryPieceOnce() {
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> page(null, request,
+                group("AmazonEC2", "RunInstances", "1", "USD")));
+
+        List<BatchOutcome> outcomes = batch(client).execute(List.of(query("2025-01-01", "2025-03-01"),
+                query("2025-02-01", "2025-04-01")));
+
+        assertEquals(List.of(period("2025-01-01", "2025-02-01"), period("2025-02-01", "2025-03-01"),
+                period("2025-03-01", "2025-04-01")), periods(client));
+        assertEquals(Map.of("USD", 2.0), outcomes.get(0).aggregationOrThrow().aggregator().totalPerCurrency());
+        assertEquals(Map.of("USD", 2.0), outcomes.get(1).aggregationOrThrow().aggregator().totalPerCurrency());
+    }
+
+    @Test
+    void identicalQueriesAreExecutedOnce() {
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> page(null, request,
+                group("AmazonEC2", "RunInstances", "1", "USD")));
+
+        List<BatchOutcome> outcomes = batch(client).execute(List.of(query("2025-01-01", "2025-02-01"),
+                query("2025-01-01", "2025-02-01")));
+
+        assertEquals(1, client.requests.size());
+        assertSame(outcomes.get(0), outcomes.get(1));
+    }
+
+    @Test
+    void queriesForOtherDataAreNotCut() {
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> page(null, request));
+
+        batch(client).execute(List.of(query("2025-01-01", "2025-03-01"),
+                query("2025-02-01", "2025-04-01").withRegions(List.of("us-east-1"))));
+
+        assertEquals(List.of(period("2025-01-01", "2025-03-01"), period("2025-02-01", "2025-04-01")),
+                periods(client));
+    }
+
+    @Test
+    void aFailedQueryDoesNotFailTheOthers() {
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> {
+            if (request.timePeriod().start().equals("2025-06-01")) {
+                throw CostExplorerException.builder().message("Throttled").build();
+            }
+            return page(null, request, group("AmazonEC2", "RunInstances", "1", "USD"));
+        });
+
+        List<BatchOutcome> outcomes = batch(client).execute(List.of(query("2025-01-01", "2025-02-01"),
+                query("2025-06-01", "2025-07-01")));
+
+        assertEquals(Map.of("USD", 1.0), outcomes.get(0).aggregationOrThrow().aggregator().totalPerCurrency());
+        assertNull(outcomes.get(0).error());
+        assertInstanceOf(CostExplorerException.class, outcomes.get(1).error());
+        assertThrows(CostExplorerException.class, () -> outcomes.get(1).aggregationOrThrow());
+    }
+
+    @Test
+    void aCutQueryIsAsFreshAsItsOldestPiece() {
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> page(null, request,
+                group("AmazonEC2", "RunInstances", "1", "USD")));
+
+        List<BatchOutcome> outcomes = batch(client).execute(List.of(query("2025-01-01", "2025-03-01"),
+                query("2025-02-01", "2025-03-01")));
+
+        DataFreshness freshness = outcomes.get(0).aggregationOrThrow().freshness();
+        assertEquals(DataFreshness.Source.API, freshness.source());
+        assertFalse(freshness.asOf().isAfter(outcomes.get(1).aggregationOrThrow().freshness().asOf()));
+    }
+
+    private static QueryBatch batch(StubCostExplorerClient client) {
+        return new QueryBatch(queryEngine(client), TestConfig.of(BatchConfig.class));
+    }
+
+    private static List<DateInterval> periods(StubCostExplorerClient client) {
+        return client.requests.stream()
+                .map(GetCostAndUsageRequest::timePeriod)
+                .sorted((first, second) -> first.start().compareTo(second.start()))
+                .toList();
+    }
+
+    private static DateInterval period(String start, String end) {
+        return DateInterval.builder().start(start).end(end).build();
+    }
+}
@@ -0,0 +1,142 @@
+package query;
+
+import cache.CacheConfig;
+import cache.ResponseCache;
+import metrics.ServerMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.costexplorer.model.*;
+import testing.StubCostExplorerClient;
+import testing.TestConfig;
+import warehouse.CostWarehouse;
+import warehouse.WarehouseConfig;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryEngineTest {
+    private static final RowMapper<Row> ROW = (keys, currency, value) -> new Row(String.join("/", keys), currency,
+            value);
+
+    record Row(String key, String currency, double value) {
+    }
+
+    @Test
+    void sumsTheGroupsOfEveryPageAndSlice() {
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> request.nextPageToken() == null
+                ? page("page-2", request, group("AmazonEC2", "RunInstances", "10", "USD"),
+                        group("AmazonS3", "PutObject", "1.5", "USD"))
+                : page(null, request, group("AmazonEC2", "RunInstances", "2.5", "USD"),
+                        group("AmazonRDS", "CreateDBInstance", "4", "EUR")));
+        QueryEngine queryEngine = queryEngine(client, "cost-explorer.fan-out.enabled=true");
+
+        QueryResult<Row> result = queryEngine.execute(query("2025-01-01", "2025-04-01"), ROW);
+
+        assertEquals(6, client.requests.size(), "Two pages for each of the three months");
+        assertEquals(List.of(new Row("AmazonEC2/RunInstances", "USD", 37.5),
+                new Row("AmazonRDS/CreateDBInstance", "EUR", 12),
+                new Row("AmazonS3/PutObject", "USD", 4.5)), result.rows());
+        assertEquals(Map.of("USD", 42.0, "EUR", 12.0), result.totalPerCurrency());
+        assertEquals(DataFreshness.Source.API, result.freshness().source());
+    }
+
+    @Test
+    void sendsTheQueryAsOneRequest() {
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> page(null, request));
+        CostQuery query = query("2025-01-01", "2025-02-01").withRegions(List.of("us-east-1", "eu-west-1"));
+
+        queryEngine(client).execute(query, ROW);
+
+        GetCostAndUsageRequest request = client.requests.getFirst();
+        assertEquals(query.toRequest(), request);
+        assertEquals(List.of("eu-west-1", "us-east-1"), request.filter().dimensions().values());
+        assertEquals(List.of(CostQuery.METRIC), request.metrics());
+    }
+
+    @Test
+    void identicalQueriesAreFetchedAgainOnceTheFirstCompleted() {
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> page(null, request,
+                group("AmazonEC2", "RunInstances", "1", "USD")));
+        QueryEngine queryEngine = queryEngine(client);
+
+        queryEngine.execute(query("2025-01-01", "2025-02-01"), ROW);
+        queryEngine.execute(query("2025-01-01", "2025-02-01"), ROW);
+
+        assertEquals(2, client.requests.size());
+        assertEquals(0, queryEngine.coalescedQueries());
+    }
+
+    @Test
+    void failedFetchesAreNotRemembered() {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> {
+            if (failing.getAndSet(false)) {
+                throw CostExplorerException.builder().message("Throttled").build();
+            }
+            return page(null, request, group("AmazonEC2", "RunInstances", "1", "USD"));
+        });
+        QueryEngine queryEngine = queryEngine(client);
+
+        assertThrows(CostExplorerException.class, () -> queryEngine.execute(query("2025-01-01", "2025-02-01"), ROW));
+
+        assertEquals(List.of(new Row("AmazonEC2/RunInstances", "USD", 1)),
+                queryEngine.execute(query("2025-01-01", "2025-02-01"), ROW).rows());
+    }
+
+    @Test
+    void warehouseAnswersCarryTheTimeOfTheSync(@TempDir Path directory) {
+        String[] properties = {"cost-explorer.warehouse.enabled=true",
+                "cost-explorer.warehouse.directory=" + directory};
+        Instant syncedAt = Instant.parse("2025-03-10T06:00:00Z");
+        new CostWarehouse(TestConfig.of(WarehouseConfig.class, properties)).replace(
+                CostDataset.USAGE_PER_SERVICE_AND_OPERATION, LocalDate.parse("2025-03-01"),
+                LocalDate.parse("2025-03-03"), List.of(ResultByTime.builder()
+                        .timePeriod(DateInterval.builder().start("2025-03-01").end("2025-03-02").build())
+                        .groups(group("AmazonEC2", "RunInstances", "1", "USD"))
+                        .build()), syncedAt);
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> page(null, request));
+
+        QueryResult<Row> result = queryEngine(client, properties).execute(
+                CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query("2025-03-01", "2025-03-03", List.of()), ROW);
+
+        assertTrue(client.requests.isEmpty());
+        assertEquals(List.of(new Row("AmazonEC2/RunInstances", "USD", 1)), result.rows());
+        assertEquals(DataFreshness.warehouse(syncedAt), result.freshness());
+    }
+
+    static QueryEngine queryEngine(StubCostExplorerClient client, String... properties) {
+        ResponseCache responseCache = new ResponseCache(TestConfig.of(CacheConfig.class, properties));
+        FanOutConfig fanOutConfig = TestConfig.of(FanOutConfig.class, properties);
+        return new QueryEngine(new CostAndUsageFetcher(client, responseCache, fanOutConfig),
+                new CostWarehouse(TestConfig.of(WarehouseConfig.class, properties)),
+                new QueryPlanner(responseCache, fanOutConfig, TestConfig.of(PlannerConfig.class, properties)),
+                new ServerMetrics(), new OpenPeriodResults(TestConfig.of(RevalidationConfig.class, properties)));
+    }
+
+    static CostQuery query(String startDate, String endDate) {
+        return CostQuery.of(startDate, endDate, List.of(), null, CostQuery.dimensions("SERVICE", "OPERATION"));
+    }
+
+    static GetCostAndUsageResponse page(String nextPageToken, GetCostAndUsageRequest request, Group... groups) {
+        return GetCostAndUsageResponse.builder()
+                .nextPageToken(nextPageToken)
+                .resultsByTime(ResultByTime.builder()
+                        .timePeriod(request.timePeriod())
+                        .groups(groups)
+                        .build())
+                .build();
+    }
+
+    static Group group(String service, String operation, String amount, String currency) {
+        return Group.builder()
+                .keys(service, operation)
+                .metrics(Map.of(CostQuery.METRIC, MetricValue.builder().amount(amount).unit(currency).build()))
+                .build();
+    }
+}
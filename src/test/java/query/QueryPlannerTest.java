@@ -0,0 +1,123 @@
+package query;
+
+import cache.CacheConfig;
+import cache.CacheStats;
+import cache.ResponseCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.costexplorer.model.Granularity;
+import testing.MutableClock;
+import testing.TestConfig;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static query.QueryEngineTest.page;
+import static query.QueryEngineTest.query;
+
+class QueryPlannerTest {
+    private static final List<String> REGIONS = List.of("eu-west-1", "us-east-1", "us-west-2");
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = MutableClock.at("2025-03-10T12:00:00Z");
+
+    @Test
+    void queriesWithoutCachedRegionSubsetsAreFetchedAsTheyAre() {
+        CostQuery query = query("2025-01-01", "2025-02-01").withRegions(REGIONS);
+
+        assertEquals(QueryPlan.of(query), planner(cache()).plan(query));
+    }
+
+    @Test
+    void sliceCoveredByCachedRegionSubsetsIsRolledUp() {
+        ResponseCache cache = cache();
+        QueryPlanner planner = planner(cache);
+        CostQuery query = query("2025-01-01", "2025-02-01");
+        CostQuery pair = query.withRegions(List.of("us-east-1", "eu-west-1"));
+        CostQuery single = query.withRegions(List.of("us-west-2"));
+        cached(cache, pair, single);
+        planner.completed(QueryPlan.of(pair));
+
+        QueryPlan plan = planner.plan(query.withRegions(REGIONS));
+
+        assertEquals(new QueryPlan(List.of(pair, single), 1, 1, 0), plan);
+        assertEquals(new PlannerStats(1, 1, 1, 0), planner.stats());
+    }
+
+    @Test
+    void onlyTheMissingRegionsAreFetched() {
+        ResponseCache cache = cache();
+        QueryPlanner planner = planner(cache);
+        CostQuery query = query("2025-01-01", "2025-02-01");
+        cached(cache, query.withRegions(List.of("us-east-1")));
+
+        QueryPlan plan = planner.plan(query.withRegions(REGIONS));
+
+        assertEquals(new QueryPlan(List.of(query.withRegions(List.of("us-east-1")),
+                query.withRegions(List.of("eu-west-1", "us-west-2"))), 1, 0, 1), plan);
+    }
+
+    @Test
+    void missingSlicesAreFetchedInContiguousRuns() {
+        ResponseCache cache = cache();
+        QueryPlanner planner = planner(cache, "cost-explorer.fan-out.enabled=true");
+        CostQuery query = query("2025-01-01", "2025-05-01");
+        cached(cache, query.withPeriod("2025-02-01", "2025-03-01").withRegions(REGIONS));
+        cached(cache, query.withPeriod("2025-01-01", "2025-02-01").withRegions(List.of("us-east-1")));
+
+        QueryPlan plan = planner.plan(query.withRegions(REGIONS));
+
+        CostQuery january = query.withPeriod("2025-01-01", "2025-02-01");
+        assertEquals(new QueryPlan(List.of(january.withRegions(List.of("us-east-1")),
+                query.withPeriod("2025-02-01", "2025-03-01").withRegions(REGIONS),
+                january.withRegions(List.of("eu-west-1", "us-west-2")),
+                query.withPeriod("2025-03-01", "2025-05-01").withRegions(REGIONS)), 4, 0, 1), plan);
+    }
+
+    @Test
+    void onlyTheMemoryTierIsProbed() {
+        CostQuery query = query("2025-01-01", "2025-02-01");
+        cached(cache(), query.withRegions(List.of("us-east-1")), query.withRegions(List.of("eu-west-1")),
+                query.withRegions(List.of("us-west-2")));
+        ResponseCache restarted = cache();
+
+        assertEquals(QueryPlan.of(query.withRegions(REGIONS)), planner(restarted).plan(query.withRegions(REGIONS)));
+        assertEquals(new CacheStats(0, 0, 0, 0), restarted.stats());
+    }
+
+    @Test
+    void singleRegionAndHourlyQueriesAreNotPlanned() {
+        ResponseCache cache = cache();
+        CostQuery query = query("2025-01-01", "2025-02-01");
+        cached(cache, query.withRegions(List.of("us-east-1")));
+        QueryPlanner planner = planner(cache);
+
+        CostQuery single = query.withRegions(List.of("eu-west-1"));
+        CostQuery hourly = query.withRegions(REGIONS).withGranularity(Granularity.HOURLY);
+        assertEquals(QueryPlan.of(single), planner.plan(single));
+        assertEquals(QueryPlan.of(hourly), planner.plan(hourly));
+        assertEquals(QueryPlan.of(query.withRegions(REGIONS)), planner(cache, "cost-explorer.planner.enabled=false")
+                .plan(query.withRegions(REGIONS)));
+    }
+
+    private QueryPlanner planner(ResponseCache cache, String... properties) {
+        return new QueryPlanner(cache, TestConfig.of(FanOutConfig.class, properties),
+                TestConfig.of(PlannerConfig.class, properties));
+    }
+
+    private ResponseCache cache() {
+        return new ResponseCache(TestConfig.of(CacheConfig.class,
+                "cost-explorer.cache.enabled=true",
+                "cost-explorer.cache.directory=" + directory), clock);
+    }
+
+    private static void cached(ResponseCache cache, CostQuery... queries) {
+        for (CostQuery query : queries) {
+            cache.put(query.toRequest(), page(null, query.toRequest()));
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+package query;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillingAggregatorTest {
+    private static final RowMapper<Row> ROW = (keys, currency, value) -> new Row(String.join("/", keys), currency,
+            value);
+
+    record Row(String key, String currency, double value) {
+    }
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void spilledGroupsMergeIntoTheResultOfTheInMemoryAggregator() {
+        CostAggregator expected = new CostAggregator(2);
+        try (SpillingAggregator spilling = new SpillingAggregator(2, 16 * 1024, directory)) {
+            SplittableRandom random = new SplittableRandom(3);
+            for (int i = 0; i < 20_000; i++) {
+                List<String> keys = List.of("team-" + random.nextInt(3000), "service-" + random.nextInt(5));
+                String currency = random.nextInt(10) == 0 ? "EUR" : "USD";
+                double amount = random.nextDouble() * 100;
+                expected.add(keys, currency, amount);
+                spilling.add(keys, currency, amount);
+            }
+
+            assertTrue(spilling.spilledRuns() > 1, "Spilled " + spilling.spilledRuns() + " runs");
+            assertEquals(byKey(expected.rows(ROW)), byKey(spilling.rows(ROW, 0)));
+            assertEquals(expected.size(), spilling.groups());
+            assertEquals(20_000, spilling.rows());
+            assertEquals(expected.totalPerCurrency().get("USD"), spilling.totalPerCurrency().get("USD"), 1e-9);
+            assertEquals(expected.totalPerCurrency().get("EUR"), spilling.totalPerCurrency().get("EUR"), 1e-9);
+
+            List<Row> expectedTop = expected.rows(ROW, 20);
+            List<Row> top = spilling.rows(ROW, 20);
+            assertEquals(expectedTop.subList(0, 20).stream().map(Row::key).toList(),
+                    top.subList(0, 20).stream().map(Row::key).toList());
+            // The "Other" rows of the two currencies may come in another order
+            assertEquals(byKey(expectedTop), byKey(top));
+        }
+    }
+
+    @Test
+    void otherRowDoesNotDriftWithSmallAmountsAddedToLargeOnes() {
+        try (SpillingAggregator spilling = new SpillingAggregator(1, 1024, directory)) {
+            spilling.add(List.of("a"), "USD", 1e17);
+            spilling.add(List.of("b"), "USD", 1e16);
+            for (int i = 0; i < 1000; i++) {
+                spilling.add(List.of(String.format("c-%04d", i)), "USD", 1);
+            }
+            spilling.add(List.of("d"), "USD", -1e16);
+
+            assertTrue(spilling.spilledRuns() > 0);
+            assertEquals(List.of(new Row("a", "USD", 1e17), new Row("Other (1002 groups)", "USD", 1000)),
+                    spilling.rows(ROW, 1));
+        }
+    }
+
+    @Test
+    void groupsSplitAcrossRunsAreAddedUp() {
+        try (SpillingAggregator spilling = new SpillingAggregator(1, 100, directory)) {
+            for (int run = 0; run < 5; run++) {
+                spilling.add(List.of("AmazonEC2"), "USD", 0.1);
+                spilling.add(List.of("AmazonS3-" + run), "USD", 1);
+            }
+
+            assertTrue(spilling.spilledRuns() >= 4);
+            Map<String, Double> rows = byKey(spilling.rows(ROW, 0));
+            assertEquals(0.5, rows.get("AmazonEC2/USD"), 1e-15);
+            assertEquals(6, rows.size());
+        }
+    }
+
+    @Test
+    void groupsAreCountedOnceHoweverOftenTheRowsAreMerged() {
+        try (SpillingAggregator spilling = new SpillingAggregator(1, 100, directory)) {
+            for (int i = 0; i < 10; i++) {
+                spilling.add(List.of("service-" + i), "USD", i);
+            }
+
+            spilling.rows(ROW, 3);
+            spilling.rows(ROW, 0);
+
+            assertEquals(10, spilling.groups());
+        }
+    }
+
+    @Test
+    void unreadableRunFailsTheMerge() throws IOException {
+        try (SpillingAggregator spilling = new SpillingAggregator(1, 100, directory)) {
+            for (int i = 0; i < 10; i++) {
+                spilling.add(List.of("service-" + i), "USD", i);
+            }
+            try (Stream<Path> files = Files.list(directory)) {
+                Files.write(files.max(Path::compareTo).orElseThrow(), new byte[0]);
+            }
+
+            assertThrows(UncheckedIOException.class, () -> spilling.rows(ROW, 0));
+        }
+    }
+
+    @Test
+    void closeDeletesTheRuns() throws IOException {
+        SpillingAggregator spilling = new SpillingAggregator(1, 100, directory);
+        for (int i = 0; i < 10; i++) {
+            spilling.add(List.of("service-" + i), "USD", i);
+        }
+        assertTrue(spilling.spilledRuns() > 0);
+
+        spilling.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static Map<String, Double> byKey(List<Row> rows) {
+        Map<String, Double> values = new HashMap<>();
+        for (Row row : rows) {
+            // Rounded, the two aggregators add the same amounts in another order
+            values.put(row.key() + "/" + row.currency(), Math.round(row.value() * 1e6) / 1e6);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,142 @@
+package query;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.costexplorer.model.DateInterval;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+import software.amazon.awssdk.services.costexplorer.model.Granularity;
+import software.amazon.awssdk.services.costexplorer.model.Group;
+import software.amazon.awssdk.services.costexplorer.model.ResultByTime;
+import testing.StubCostExplorerClient;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static query.QueryEngineTest.*;
+
+class TimeSeriesAggregatorTest {
+    @Test
+    void sumsPerSeriesAndPeriodInChronologicalOrder() {
+        TimeSeriesAggregator aggregator = new TimeSeriesAggregator(1);
+        aggregator.add("2025-01-02", List.of("AmazonEC2"), "USD", 2);
+        aggregator.add("2025-01-01", List.of("AmazonEC2"), "USD", 1);
+        aggregator.add("2025-01-02", List.of("AmazonEC2"), "USD", 0.5);
+        aggregator.add("2025-01-01", List.of("AmazonS3"), "USD", 7);
+
+        List<TimeSeries> series = aggregator.series(0);
+
+        assertEquals(List.of("2025-01-01", "2025-01-02"), aggregator.periods());
+        assertEquals(2, aggregator.size());
+        assertEquals(4, aggregator.rows());
+        assertEquals(List.of("AmazonS3", "AmazonEC2"), series.stream().map(s -> s.keys()[0]).toList());
+        assertArrayEquals(new double[]{7, 0}, series.get(0).values());
+        assertArrayEquals(new double[]{1, 2.5}, series.get(1).values());
+        assertEquals(3.5, series.get(1).total());
+        assertEquals(Map.of("USD", 10.5), aggregator.totalPerCurrency());
+    }
+
+    @Test
+    void limitSumsTheRemainingSeriesPerCurrencyAndPeriod() {
+        TimeSeriesAggregator aggregator = new TimeSeriesAggregator(2);
+        aggregator.add("2025-01", List.of("AmazonEC2", "RunInstances"), "USD", 100);
+        aggregator.add("2025-01", List.of("AmazonS3", "PutObject"), "USD", 1);
+        aggregator.add("2025-02", List.of("AmazonS3", "GetObject"), "USD", 2);
+        aggregator.add("2025-02", List.of("AmazonRDS", "CreateDBInstance"), "EUR", 4);
+
+        List<TimeSeries> series = aggregator.series(1);
+
+        assertEquals(3, series.size());
+        assertArrayEquals(new String[]{"AmazonEC2", "RunInstances"}, series.get(0).keys());
+        TimeSeries otherUsd = series.get(1);
+        assertArrayEquals(new String[]{"Other (2 groups)", ""}, otherUsd.keys());
+        assertEquals("USD", otherUsd.currency());
+        assertArrayEquals(new double[]{1, 2}, otherUsd.values());
+        assertEquals(3.0, otherUsd.total());
+        TimeSeries otherEur = series.get(2);
+        assertArrayEquals(new String[]{"Other (1 groups)", ""}, otherEur.keys());
+        assertArrayEquals(new double[]{0, 4}, otherEur.values());
+    }
+
+    @Test
+    void growsPastItsInitialCapacityForEveryPeriod() {
+        TimeSeriesAggregator aggregator = new TimeSeriesAggregator(1);
+        for (int i = 0; i < 1000; i++) {
+            aggregator.add("2025-01-01", List.of("service-" + i), "USD", i);
+            aggregator.add("2025-01-02", List.of("service-" + i), "USD", 1);
+        }
+
+        List<TimeSeries> series = aggregator.series(0);
+
+        assertEquals(1000, series.size());
+        assertEquals("service-999", series.getFirst().keys()[0]);
+        assertArrayEquals(new double[]{999, 1}, series.getFirst().values());
+        assertArrayEquals(new double[]{0, 1}, series.getLast().values());
+    }
+
+    @Test
+    void periodsWithoutCostsAreZeroForEverySeries() {
+        TimeSeriesAggregator aggregator = new TimeSeriesAggregator(1);
+        aggregator.addPeriod("2025-01-01");
+        aggregator.add("2025-01-01", List.of("AmazonEC2"), "USD", 1);
+        aggregator.addPeriod("2025-01-02");
+        aggregator.addPeriod("2025-01-03");
+        aggregator.add("2025-01-03", List.of("AmazonEC2"), "USD", 3);
+
+        assertEquals(List.of("2025-01-01", "2025-01-02", "2025-01-03"), aggregator.periods());
+        assertArrayEquals(new double[]{1, 0, 3}, aggregator.series(0).getFirst().values());
+        assertEquals(2, aggregator.rows());
+    }
+
+    @Test
+    void queryEngineKeepsTheDaysWithoutCosts() {
+        StubCostExplorerClient client = new StubCostExplorerClient(request -> GetCostAndUsageResponse.builder()
+                .resultsByTime(day("2025-01-30", group("AmazonEC2", "RunInstances", "1", "USD")),
+                        day("2025-01-31"),
+                        day("2025-02-01", group("AmazonEC2", "RunInstances", "2", "USD")))
+                .build());
+        CostQuery query = query("2025-01-30", "2025-02-02").withGranularity(Granularity.DAILY);
+
+        TimeSeriesResult result = queryEngine(client).executeTimeSeries(query, 0);
+
+        assertEquals(List.of("2025-01-30", "2025-01-31", "2025-02-01"), result.periods());
+        assertArrayEquals(new double[]{1, 0, 2}, result.series().getFirst().values());
+    }
+
+    @Test
+    void periodSumsDoNotDrift() {
+        TimeSeriesAggregator aggregator = new TimeSeriesAggregator(1);
+        aggregator.add("2025-01-01", List.of("AmazonEC2"), "USD", 1e16);
+        for (int i = 0; i < 1000; i++) {
+            aggregator.add("2025-01-01", List.of("AmazonEC2"), "USD", 1);
+        }
+        aggregator.add("2025-01-01", List.of("AmazonEC2"), "USD", -1e16);
+
+        assertArrayEquals(new double[]{1000}, aggregator.series(0).getFirst().values());
+    }
+
+    @Test
+    void queryEngineStreamsEveryPeriodOfThePages() {
+        StubCostExplorerClient client = StubCostExplorerClient.synthetic(5, 2);
+        CostQuery query = query("2025-01-30", "2025-02-02").withGranularity(Granularity.DAILY);
+
+        TimeSeriesResult result = queryEngine(client).executeTimeSeries(query, 2);
+
+        assertEquals(List.of("2025-01-30", "2025-01-31", "2025-02-01"), result.periods());
+        assertEquals(3, client.requests.size(), "Three pages of two groups");
+        assertEquals(3, result.series().size(), "Two series and one Other series");
+        assertEquals(DataFreshness.Source.API, result.freshness().source());
+        double total = result.series().stream().mapToDouble(TimeSeries::total).sum();
+        assertEquals(result.totalPerCurrency().get("USD"), total, 1e-9);
+    }
+
+    private static ResultByTime day(String start, Group... groups) {
+        return ResultByTime.builder()
+                .timePeriod(DateInterval.builder()
+                        .start(start)
+                        .end(LocalDate.parse(start).plusDays(1).toString())
+                        .build())
+                .groups(groups)
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package ratelimit;
+
+import org.junit.jupiter.api.Test;
+import testing.MutableClock;
+import testing.TestConfig;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveRateLimiterTest {
+    private final MutableClock clock = MutableClock.at("2025-03-10T12:00:00Z");
+
+    @Test
+    void burstIsServedAtOnceThenRequestsWaitForTheirToken() {
+        AdaptiveRateLimiter rateLimiter = rateLimiter();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Duration.ZERO, rateLimiter.reserve());
+        }
+
+        assertEquals(Duration.ofMillis(200), rateLimiter.reserve());
+        assertEquals(Duration.ofMillis(400), rateLimiter.reserve());
+    }
+
+    @Test
+    void tokensRefillWithTimeUpToTheBurst() {
+        AdaptiveRateLimiter rateLimiter = rateLimiter();
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.reserve();
+        }
+
+        clock.advance(Duration.ofMillis(400));
+        assertEquals(Duration.ZERO, rateLimiter.reserve());
+        assertEquals(Duration.ZERO, rateLimiter.reserve());
+        assertEquals(Duration.ofMillis(200), rateLimiter.reserve());
+
+        clock.advance(Duration.ofHours(1));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Duration.ZERO, rateLimiter.reserve());
+        }
+        assertEquals(Duration.ofMillis(200), rateLimiter.reserve());
+    }
+
+    @Test
+    void clockSetBackEarnsNothing() {
+        AdaptiveRateLimiter rateLimiter = rateLimiter();
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.reserve();
+        }
+
+        clock.advance(Duration.ofSeconds(-10));
+
+        assertEquals(Duration.ofMillis(200), rateLimiter.reserve());
+    }
+
+    @Test
+    void throttlingHalvesTheRateDownToTheMinimum() {
+        AdaptiveRateLimiter rateLimiter = rateLimiter();
+
+        rateLimiter.onThrottled();
+        assertEquals(2.5, rateLimiter.currentRate());
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.reserve();
+        }
+        assertEquals(Duration.ofMillis(400), rateLimiter.reserve());
+
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.onThrottled();
+        }
+        assertEquals(0.1, rateLimiter.currentRate());
+        assertEquals(11, rateLimiter.throttled());
+    }
+
+    @Test
+    void successesRecoverATenthOfTheRateUpToTheConfiguredOne() {
+        AdaptiveRateLimiter rateLimiter = rateLimiter();
+        rateLimiter.onThrottled();
+        rateLimiter.onThrottled();
+
+        rateLimiter.onSuccess();
+        assertEquals(1.75, rateLimiter.currentRate(), 1e-9);
+        for (int i = 0; i < 6; i++) {
+            rateLimiter.onSuccess();
+        }
+        assertEquals(4.75, rateLimiter.currentRate(), 1e-9);
+
+        rateLimiter.onSuccess();
+        assertEquals(5.0, rateLimiter.currentRate());
+    }
+
+    @Test
+    void backoffDoublesPerAttemptUpToTheMaximum() {
+        AdaptiveRateLimiter rateLimiter = rateLimiter();
+
+        assertEquals(Duration.ofMillis(500), rateLimiter.backoffCeiling(0));
+        assertEquals(Duration.ofMillis(1000), rateLimiter.backoffCeiling(1));
+        assertEquals(Duration.ofMillis(16000), rateLimiter.backoffCeiling(5));
+        assertEquals(Duration.ofSeconds(20), rateLimiter.backoffCeiling(6));
+        assertEquals(Duration.ofSeconds(20), rateLimiter.backoffCeiling(1000));
+    }
+
+    @Test
+    void backoffIsJitteredBelowItsCeiling() {
+        AdaptiveRateLimiter rateLimiter = rateLimiter();
+
+        for (int attempt = 0; attempt < 100; attempt++) {
+            Duration backoff = rateLimiter.backoff(attempt % 8);
+            assertFalse(backoff.isNegative());
+            assertTrue(backoff.compareTo(rateLimiter.backoffCeiling(attempt % 8)) <= 0, backoff.toString());
+        }
+        assertEquals(100, rateLimiter.retries());
+    }
+
+    private AdaptiveRateLimiter rateLimiter() {
+        return new AdaptiveRateLimiter(TestConfig.of(RateLimitConfig.class), clock);
+    }
+}
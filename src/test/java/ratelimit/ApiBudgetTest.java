@@ -0,0 +1,87 @@
+package ratelimit;
+
+import org.junit.jupiter.api.Test;
+import testing.MutableClock;
+import testing.TestConfig;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiBudgetTest {
+    private final MutableClock clock = MutableClock.at("2025-03-10T22:30:00Z");
+
+    @Test
+    void hourlyBudgetIsRefusedUntilTheNextClockHour() {
+        ApiBudget budget = budget("cost-explorer.budget.requests-per-hour=3");
+        for (int i = 0; i < 3; i++) {
+            budget.acquire();
+        }
+
+        BudgetExceededException exception = assertThrows(BudgetExceededException.class, budget::acquire);
+        assertEquals("The hourly budget of 3 Cost Explorer API requests is spent", exception.getMessage());
+        assertEquals(1, budget.rejected());
+
+        clock.advance(Duration.ofMinutes(29));
+        assertThrows(BudgetExceededException.class, budget::acquire);
+
+        clock.advance(Duration.ofMinutes(1));
+        budget.acquire();
+        assertEquals(1, budget.requestsThisHour());
+        assertEquals(4, budget.requestsToday());
+        assertEquals(4, budget.requests());
+        assertEquals(2, budget.rejected());
+    }
+
+    @Test
+    void dailyBudgetSpansTheHoursOfAUtcDay() {
+        ApiBudget budget = budget("cost-explorer.budget.requests-per-hour=2",
+                "cost-explorer.budget.requests-per-day=3");
+        budget.acquire();
+        budget.acquire();
+        clock.advance(Duration.ofMinutes(30));
+        budget.acquire();
+
+        BudgetExceededException exception = assertThrows(BudgetExceededException.class, budget::acquire);
+        assertEquals("The daily budget of 3 Cost Explorer API requests is spent", exception.getMessage());
+
+        clock.advance(Duration.ofMinutes(59));
+        assertThrows(BudgetExceededException.class, budget::acquire);
+
+        clock.advance(Duration.ofMinutes(1));
+        budget.acquire();
+        assertEquals(1, budget.requestsToday());
+    }
+
+    @Test
+    void hasRemainingChecksBothBudgets() {
+        ApiBudget budget = budget("cost-explorer.budget.requests-per-hour=10",
+                "cost-explorer.budget.requests-per-day=12");
+        for (int i = 0; i < 5; i++) {
+            budget.acquire();
+        }
+
+        assertTrue(budget.hasRemaining(5));
+        assertFalse(budget.hasRemaining(6));
+
+        clock.advance(Duration.ofHours(1));
+        assertTrue(budget.hasRemaining(7));
+        assertFalse(budget.hasRemaining(8));
+    }
+
+    @Test
+    void zeroMeansUnlimited() {
+        ApiBudget budget = budget();
+        for (int i = 0; i < 1000; i++) {
+            budget.acquire();
+        }
+
+        assertTrue(budget.hasRemaining(Long.MAX_VALUE));
+        assertEquals(0, budget.rejected());
+        assertTrue(budget.isServeStaleWhenExhausted());
+    }
+
+    private ApiBudget budget(String... properties) {
+        return new ApiBudget(TestConfig.of(BudgetConfig.class, properties), clock);
+    }
+}
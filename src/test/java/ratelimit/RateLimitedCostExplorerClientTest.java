@@ -0,0 +1,89 @@
+package ratelimit;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.costexplorer.model.*;
+import testing.MutableClock;
+import testing.StubCostExplorerClient;
+import testing.TestConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitedCostExplorerClientTest {
+    private static final String[] NO_BACKOFF = {"cost-explorer.rate-limit.initial-backoff=PT0S",
+            "cost-explorer.rate-limit.max-retries=2", "cost-explorer.rate-limit.burst=100"};
+
+    private final MutableClock clock = MutableClock.at("2025-03-10T12:00:00Z");
+
+    @Test
+    void throttledRequestsAreRetriedAndCountedAgainstTheBudget() {
+        AtomicInteger calls = new AtomicInteger();
+        StubCostExplorerClient delegate = new StubCostExplorerClient(request -> {
+            if (calls.incrementAndGet() <= 2) {
+                throw LimitExceededException.builder().message("Rate exceeded").build();
+            }
+            return GetCostAndUsageResponse.builder().build();
+        });
+        ApiBudget budget = new ApiBudget(TestConfig.of(BudgetConfig.class), clock);
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(TestConfig.of(RateLimitConfig.class, NO_BACKOFF),
+                clock);
+
+        client(delegate, rateLimiter, budget).getCostAndUsage(GetCostAndUsageRequest.builder().build());
+
+        assertEquals(3, delegate.requests.size());
+        assertEquals(3, budget.requests());
+        assertEquals(2, rateLimiter.throttled());
+        assertEquals(2, rateLimiter.retries());
+        assertEquals(1.75, rateLimiter.currentRate(), 1e-9);
+    }
+
+    @Test
+    void throttlingIsReturnedOnceTheRetriesAreSpent() {
+        StubCostExplorerClient delegate = new StubCostExplorerClient(request -> {
+            throw LimitExceededException.builder().message("Rate exceeded").build();
+        });
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(TestConfig.of(RateLimitConfig.class, NO_BACKOFF),
+                clock);
+
+        assertThrows(LimitExceededException.class, () -> client(delegate, rateLimiter,
+                new ApiBudget(TestConfig.of(BudgetConfig.class), clock))
+                .getCostAndUsage(GetCostAndUsageRequest.builder().build()));
+        assertEquals(3, delegate.requests.size());
+    }
+
+    @Test
+    void otherErrorsAreNotRetried() {
+        StubCostExplorerClient delegate = new StubCostExplorerClient(request -> {
+            throw CostExplorerException.builder().message("Invalid filter").statusCode(400).build();
+        });
+
+        assertThrows(CostExplorerException.class, () -> client(delegate,
+                new AdaptiveRateLimiter(TestConfig.of(RateLimitConfig.class, NO_BACKOFF), clock),
+                new ApiBudget(TestConfig.of(BudgetConfig.class), clock))
+                .getCostAndUsage(GetCostAndUsageRequest.builder().build()));
+        assertEquals(1, delegate.requests.size());
+    }
+
+    @Test
+    void spentBudgetStopsTheRequestBeforeAws() {
+        StubCostExplorerClient delegate = new StubCostExplorerClient(
+                request -> GetCostAndUsageResponse.builder().build());
+        ApiBudget budget = new ApiBudget(TestConfig.of(BudgetConfig.class,
+                "cost-explorer.budget.requests-per-day=1"), clock);
+        RateLimitedCostExplorerClient client = client(delegate,
+                new AdaptiveRateLimiter(TestConfig.of(RateLimitConfig.class, NO_BACKOFF), clock), budget);
+
+        client.getCostAndUsage(GetCostAndUsageRequest.builder().build());
+
+        assertThrows(BudgetExceededException.class,
+                () -> client.getCostAndUsage(GetCostAndUsageRequest.builder().build()));
+        assertEquals(1, delegate.requests.size());
+    }
+
+    private static RateLimitedCostExplorerClient client(StubCostExplorerClient delegate,
+                                                        AdaptiveRateLimiter rateLimiter, ApiBudget budget) {
+        return new RateLimitedCostExplorerClient(delegate, rateLimiter, budget,
+                TestConfig.of(RateLimitConfig.class, NO_BACKOFF));
+    }
+}
@@ -0,0 +1,110 @@
+package snapshot;
+
+import data.FormatConfig;
+import data.ReportFormat;
+import data.UsagePerServiceAndOperation;
+import data.UsageReport;
+import org.junit.jupiter.api.Test;
+import testing.MutableClock;
+import testing.TestConfig;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportPagerTest {
+    private static final Pattern CURSOR = Pattern.compile("with the cursor (\\S+) to get the next (\\d+)\\.");
+    private static final FormatConfig FORMAT_CONFIG = TestConfig.of(FormatConfig.class);
+
+    private final MutableClock clock = MutableClock.at("2025-03-10T12:00:00Z");
+
+    @Test
+    void reportsWithinOneChunkAreReturnedWhole() {
+        UsageReport<UsagePerServiceAndOperation> report = report(10);
+
+        String whole = report.generate(ReportFormat.CSV, FORMAT_CONFIG);
+        assertEquals(whole, pager(store(), "cost-explorer.snapshot.page-rows=10").firstChunk(report, ReportFormat.CSV));
+        assertEquals(whole, pager(store()).firstChunk(report, ReportFormat.CSV), "Page rows of 0 never split");
+    }
+
+    @Test
+    void cursorsWalkThroughEveryRowOnce() {
+        UsageReport<UsagePerServiceAndOperation> report = report(25);
+        SnapshotStore store = store();
+        ReportPager pager = pager(store, "cost-explorer.snapshot.page-rows=10");
+
+        String first = pager.firstChunk(report, ReportFormat.JSONL);
+        assertTrue(first.startsWith(report.generate(ReportFormat.JSONL, FORMAT_CONFIG, 10)));
+        assertTrue(first.contains("15 more rows."));
+        List<String> lines = new ArrayList<>(jsonLines(first));
+
+        List<Integer> announced = new ArrayList<>();
+        for (Matcher matcher = CURSOR.matcher(first); matcher.find(); ) {
+            announced.add(Integer.parseInt(matcher.group(2)));
+            String chunk = pager.nextChunk(matcher.group(1)).orElseThrow();
+            lines.addAll(jsonLines(chunk));
+            matcher = CURSOR.matcher(chunk);
+        }
+
+        assertEquals(List.of(10, 5), announced);
+        assertEquals(jsonLines(report.generate(ReportFormat.JSONL, FORMAT_CONFIG)), lines);
+        assertEquals(2, store.stats().chunksServed());
+    }
+
+    @Test
+    void expiredUnknownAndMalformedCursorsFindNothing() {
+        ReportPager pager = pager(store(), "cost-explorer.snapshot.page-rows=10");
+        String cursor = cursor(pager.firstChunk(report(25), ReportFormat.CSV));
+
+        assertTrue(pager.nextChunk("not a cursor!").isEmpty());
+        assertTrue(pager.nextChunk(cursor.substring(1)).isEmpty());
+
+        clock.advance(Duration.ofMinutes(30));
+        assertEquals(Optional.empty(), pager.nextChunk(cursor));
+    }
+
+    @Test
+    void reportsTooLargeToKeepAreCutWithAHint() {
+        SnapshotStore store = new SnapshotStore(TestConfig.of(SnapshotConfig.class,
+                "cost-explorer.snapshot.max-megabytes=0"), clock);
+        ReportPager pager = pager(store, "cost-explorer.snapshot.page-rows=10");
+
+        String chunk = pager.firstChunk(report(25), ReportFormat.CSV);
+
+        assertTrue(chunk.endsWith("The remaining 15 rows are too many to keep for fetchMoreRows. Ask for a shorter " +
+                "period, fewer rows with a limit or the compact format.\n"));
+        assertEquals(1, store.stats().rejected());
+    }
+
+    private ReportPager pager(SnapshotStore store, String... properties) {
+        return new ReportPager(store, TestConfig.of(SnapshotConfig.class, properties), FORMAT_CONFIG);
+    }
+
+    private SnapshotStore store() {
+        return new SnapshotStore(TestConfig.of(SnapshotConfig.class), clock);
+    }
+
+    private static String cursor(String chunk) {
+        Matcher matcher = CURSOR.matcher(chunk);
+        assertTrue(matcher.find());
+        return matcher.group(1);
+    }
+
+    private static List<String> jsonLines(String chunk) {
+        return chunk.lines().filter(line -> line.startsWith("{")).toList();
+    }
+
+    static UsageReport<UsagePerServiceAndOperation> report(int rows) {
+        List<UsagePerServiceAndOperation> usage = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            usage.add(new UsagePerServiceAndOperation("Service " + i, "Operation", "USD", rows - i));
+        }
+        return new UsageReport<>(usage, Map.of("USD", rows * (rows + 1) / 2.0), "now");
+    }
+}
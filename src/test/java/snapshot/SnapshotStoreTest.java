@@ -0,0 +1,75 @@
+package snapshot;
+
+import data.ReportFormat;
+import org.junit.jupiter.api.Test;
+import testing.MutableClock;
+import testing.TestConfig;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static snapshot.ReportPagerTest.report;
+
+class SnapshotStoreTest {
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final MutableClock clock = MutableClock.at("2025-03-10T12:00:00Z");
+    private final SnapshotStore store = new SnapshotStore(TestConfig.of(SnapshotConfig.class,
+            "cost-explorer.snapshot.max-megabytes=2", "cost-explorer.snapshot.ttl=PT10M"), clock);
+
+    @Test
+    void leastRecentlyUsedSnapshotsAreEvictedAboveTheMemoryLimit() {
+        String first = store.put(snapshot(MEGABYTE)).orElseThrow();
+        String second = store.put(snapshot(MEGABYTE)).orElseThrow();
+        assertTrue(store.get(first).isPresent());
+
+        String third = store.put(snapshot(MEGABYTE)).orElseThrow();
+
+        assertTrue(store.get(first).isPresent());
+        assertTrue(store.get(second).isEmpty());
+        assertTrue(store.get(third).isPresent());
+        SnapshotStats stats = store.stats();
+        assertEquals(2, stats.snapshots());
+        assertEquals(2 * MEGABYTE, stats.estimatedBytes());
+        assertEquals(1, stats.evicted());
+        assertEquals(1, stats.unknownCursors());
+    }
+
+    @Test
+    void snapshotsLargerThanTheStoreAreRejected() {
+        assertTrue(store.put(snapshot(2 * MEGABYTE + 1)).isEmpty());
+        assertEquals(1, store.stats().rejected());
+        assertEquals(0, store.stats().snapshots());
+    }
+
+    @Test
+    void snapshotsExpireAfterTheTtl() {
+        String id = store.put(snapshot(100)).orElseThrow();
+
+        clock.advance(Duration.ofMinutes(10).minusSeconds(1));
+        assertTrue(store.get(id).isPresent());
+        clock.advance(Duration.ofSeconds(1));
+        assertTrue(store.get(id).isEmpty());
+
+        SnapshotStats stats = store.stats();
+        assertEquals(1, stats.expired());
+        assertEquals(0, stats.estimatedBytes());
+    }
+
+    @Test
+    void expiredSnapshotsAreDroppedWhenStoringANewOne() {
+        store.put(snapshot(MEGABYTE));
+        clock.advance(Duration.ofMinutes(10));
+
+        store.put(snapshot(2 * MEGABYTE));
+
+        SnapshotStats stats = store.stats();
+        assertEquals(1, stats.snapshots());
+        assertEquals(1, stats.expired());
+        assertEquals(0, stats.evicted());
+    }
+
+    private ResultSnapshot snapshot(long bytes) {
+        return new ResultSnapshot(report(1), ReportFormat.CSV, bytes, store.expiresAt());
+    }
+}
@@ -0,0 +1,87 @@
+package standin;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import query.CostDataset;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+import software.amazon.awssdk.services.costexplorer.model.LimitExceededException;
+import testing.StubCostExplorerClient;
+import testing.TestConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayCostExplorerClientTest {
+    private static final GetCostAndUsageRequest REQUEST = CostDataset.USAGE_PER_SERVICE_AND_OPERATION
+            .query("2025-01-01", "2025-02-01", List.of())
+            .toRequest();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordedPagesAreReplayed() {
+        FixtureStore fixtureStore = new FixtureStore(directory);
+        StubCostExplorerClient live = StubCostExplorerClient.synthetic(7, 5);
+        GetCostAndUsageRequest secondPage = REQUEST.toBuilder().nextPageToken("synthetic-1").build();
+        RecordingCostExplorerClient recording = new RecordingCostExplorerClient(live, fixtureStore);
+        GetCostAndUsageResponse first = recording.getCostAndUsage(REQUEST);
+        GetCostAndUsageResponse second = recording.getCostAndUsage(secondPage);
+
+        ReplayCostExplorerClient replay = new ReplayCostExplorerClient(fixtureStore, config());
+
+        assertSamePage(first, replay.getCostAndUsage(REQUEST));
+        assertSamePage(second, replay.getCostAndUsage(secondPage));
+        assertEquals(2, live.requests.size());
+    }
+
+    @Test
+    void requestsWithoutFixtureGetSyntheticPages() {
+        ReplayCostExplorerClient replay = new ReplayCostExplorerClient(new FixtureStore(directory), config());
+
+        assertEquals(SyntheticResponses.page(REQUEST, 40, 2, 25), replay.getCostAndUsage(REQUEST));
+    }
+
+    @Test
+    void unreadableFixturesFallBackToSyntheticPages() throws IOException {
+        FixtureStore fixtureStore = new FixtureStore(directory);
+        fixtureStore.write(REQUEST, SyntheticResponses.page(REQUEST, 3, 1, 3));
+        try (var files = Files.list(directory)) {
+            Files.writeString(files.findFirst().orElseThrow(), "truncated");
+        }
+
+        assertTrue(fixtureStore.read(REQUEST).isEmpty());
+        assertEquals(SyntheticResponses.page(REQUEST, 40, 2, 25),
+                new ReplayCostExplorerClient(fixtureStore, config()).getCostAndUsage(REQUEST));
+    }
+
+    @Test
+    void throttledShareOfThePagesFails() {
+        ReplayCostExplorerClient replay = new ReplayCostExplorerClient(new FixtureStore(directory),
+                config("cost-explorer.stand-in.throttle-ratio=1"));
+
+        LimitExceededException exception = assertThrows(LimitExceededException.class,
+                () -> replay.getCostAndUsage(REQUEST));
+        assertEquals(400, exception.statusCode());
+    }
+
+    private static void assertSamePage(GetCostAndUsageResponse expected, GetCostAndUsageResponse actual) {
+        assertEquals(expected.nextPageToken(), actual.nextPageToken());
+        assertEquals(expected.resultsByTime().getFirst().groups(), actual.resultsByTime().getFirst().groups());
+    }
+
+    private static StandInConfig config(String... properties) {
+        String[] all = new String[properties.length + 4];
+        all[0] = "cost-explorer.stand-in.latency=PT0S";
+        all[1] = "cost-explorer.stand-in.synthetic-groups=40";
+        all[2] = "cost-explorer.stand-in.page-size=25";
+        all[3] = "cost-explorer.stand-in.currencies=2";
+        System.arraycopy(properties, 0, all, 4, properties.length);
+        return TestConfig.of(StandInConfig.class, all);
+    }
+}
@@ -0,0 +1,100 @@
+package standin;
+
+import org.junit.jupiter.api.Test;
+import query.CostDataset;
+import software.amazon.awssdk.services.costexplorer.model.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticResponsesTest {
+    private static final GetCostAndUsageRequest REQUEST = CostDataset.USAGE_PER_SERVICE_AND_OPERATION
+            .query("2025-01-15", "2025-03-01", List.of())
+            .toRequest();
+
+    @Test
+    void pagesAreAPureFunctionOfTheRequest() {
+        assertEquals(SyntheticResponses.pages(REQUEST, 250, 2, 100), SyntheticResponses.pages(REQUEST, 250, 2, 100));
+    }
+
+    @Test
+    void groupsAreSpreadOverPagesLinkedByTheirTokens() {
+        List<GetCostAndUsageResponse> pages = SyntheticResponses.pages(REQUEST, 250, 2, 100);
+
+        assertEquals(3, pages.size());
+        assertEquals(List.of(100, 100, 50), pages.stream()
+                .map(page -> page.resultsByTime().getFirst().groups().size())
+                .toList());
+        assertNull(pages.getLast().nextPageToken());
+        assertEquals(pages.get(1), SyntheticResponses.page(REQUEST.toBuilder()
+                .nextPageToken(pages.getFirst().nextPageToken())
+                .build(), 250, 2, 100));
+        Set<List<String>> keys = pages.stream()
+                .flatMap(page -> page.resultsByTime().getFirst().groups().stream())
+                .map(Group::keys)
+                .collect(Collectors.toSet());
+        assertEquals(250, keys.size(), "Every group has its own keys");
+    }
+
+    @Test
+    void everyPeriodOfTheRequestHoldsTheSameGroups() {
+        GetCostAndUsageResponse monthly = SyntheticResponses.page(REQUEST, 10, 1, 10);
+        GetCostAndUsageResponse daily = SyntheticResponses.page(REQUEST.toBuilder()
+                .granularity(Granularity.DAILY)
+                .build(), 10, 1, 10);
+        GetCostAndUsageResponse hourly = SyntheticResponses.page(REQUEST.toBuilder()
+                .granularity(Granularity.HOURLY)
+                .timePeriod(DateInterval.builder().start("2025-01-15T00:00:00Z").end("2025-01-15T06:00:00Z").build())
+                .build(), 10, 1, 10);
+
+        assertEquals(List.of(period("2025-01-15", "2025-02-01"), period("2025-02-01", "2025-03-01")),
+                monthly.resultsByTime().stream().map(ResultByTime::timePeriod).toList());
+        assertEquals(45, daily.resultsByTime().size());
+        assertEquals(6, hourly.resultsByTime().size());
+        assertEquals(period("2025-01-15T05:00:00Z", "2025-01-15T06:00:00Z"),
+                hourly.resultsByTime().getLast().timePeriod());
+        assertEquals(monthly.resultsByTime().getFirst().groups().stream().map(Group::keys).toList(),
+                monthly.resultsByTime().getLast().groups().stream().map(Group::keys).toList());
+    }
+
+    @Test
+    void groupsAreBilledInTheRequestedCurrencies() {
+        Set<String> currencies = SyntheticResponses.page(REQUEST, 100, 3, 100).resultsByTime().getFirst().groups()
+                .stream()
+                .map(group -> group.metrics().values().iterator().next().unit())
+                .collect(Collectors.toSet());
+
+        assertEquals(Set.of("USD", "EUR", "JPY"), currencies);
+    }
+
+    @Test
+    void dimensionValuesAreBoundedByTheCardinalityOfTheDimension() {
+        GetDimensionValuesResponse services = SyntheticResponses.dimensionValues(dimensionValues(Dimension.SERVICE),
+                30, 20);
+        GetDimensionValuesResponse recordTypes = SyntheticResponses.dimensionValues(
+                dimensionValues(Dimension.RECORD_TYPE), 30, 20);
+
+        assertEquals(20, services.dimensionValues().size());
+        assertEquals(30, services.totalSize());
+        assertNotNull(services.nextPageToken());
+        assertEquals(10, SyntheticResponses.dimensionValues(dimensionValues(Dimension.SERVICE).toBuilder()
+                .nextPageToken(services.nextPageToken())
+                .build(), 30, 20).dimensionValues().size());
+        assertEquals(7, recordTypes.totalSize());
+        assertNull(recordTypes.nextPageToken());
+    }
+
+    private static GetDimensionValuesRequest dimensionValues(Dimension dimension) {
+        return GetDimensionValuesRequest.builder()
+                .timePeriod(period("2025-01-01", "2025-02-01"))
+                .dimension(dimension)
+                .build();
+    }
+
+    private static DateInterval period(String start, String end) {
+        return DateInterval.builder().start(start).end(end).build();
+    }
+}
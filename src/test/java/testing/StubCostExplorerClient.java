@@ -0,0 +1,62 @@
+package testing;
+
+import software.amazon.awssdk.services.costexplorer.CostExplorerClient;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageResponse;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesRequest;
+import software.amazon.awssdk.services.costexplorer.model.GetDimensionValuesResponse;
+import standin.SyntheticResponses;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Cost Explorer client of a test: answers from a function of the request, the synthetic pages by default, and records
+ * every request it receives.
+ */
+public class StubCostExplorerClient implements CostExplorerClient {
+    public final List<GetCostAndUsageRequest> requests = new CopyOnWriteArrayList<>();
+    public final List<GetDimensionValuesRequest> dimensionValuesRequests = new CopyOnWriteArrayList<>();
+
+    private final Function<GetCostAndUsageRequest, GetCostAndUsageResponse> responses;
+    private final Function<GetDimensionValuesRequest, GetDimensionValuesResponse> dimensionValues;
+
+    public StubCostExplorerClient(Function<GetCostAndUsageRequest, GetCostAndUsageResponse> responses) {
+        this(responses, request -> SyntheticResponses.dimensionValues(request, 20, 10));
+    }
+
+    public StubCostExplorerClient(Function<GetCostAndUsageRequest, GetCostAndUsageResponse> responses,
+                                  Function<GetDimensionValuesRequest, GetDimensionValuesResponse> dimensionValues) {
+        this.responses = responses;
+        this.dimensionValues = dimensionValues;
+    }
+
+    /**
+     * Synthetic pages of {@code pageSize} out of {@code groups} groups, in one currency.
+     */
+    public static StubCostExplorerClient synthetic(int groups, int pageSize) {
+        return new StubCostExplorerClient(request -> SyntheticResponses.page(request, groups, 1, pageSize));
+    }
+
+    @Override
+    public GetCostAndUsageResponse getCostAndUsage(GetCostAndUsageRequest request) {
+        requests.add(request);
+        return responses.apply(request);
+    }
+
+    @Override
+    public GetDimensionValuesResponse getDimensionValues(GetDimensionValuesRequest request) {
+        dimensionValuesRequests.add(request);
+        return dimensionValues.apply(request);
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
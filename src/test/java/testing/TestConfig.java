@@ -0,0 +1,51 @@
+package testing;
+
+import io.smallrye.config.PropertiesConfigSource;
+import io.smallrye.config.SmallRyeConfigBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Config mappings for tests, built from the defaults of the mapping. The background features and the disk tiers are
+ * disabled and every directory points to a temporary one, unless the test overrides them with "name=value" pairs.
+ */
+public final class TestConfig {
+    public static final String DIRECTORY = System.getProperty("java.io.tmpdir") + "/mcp-aws-cost-explorer-test";
+
+    private static final Map<String, String> BASE = Map.ofEntries(
+            Map.entry("cost-explorer.cache.enabled", "false"),
+            Map.entry("cost-explorer.cache.directory", DIRECTORY + "/cache"),
+            Map.entry("cost-explorer.fan-out.enabled", "false"),
+            Map.entry("cost-explorer.fan-out.max-concurrency", "1"),
+            Map.entry("cost-explorer.rate-limit.enabled", "false"),
+            Map.entry("cost-explorer.warehouse.enabled", "false"),
+            Map.entry("cost-explorer.warehouse.directory", DIRECTORY + "/warehouse"),
+            Map.entry("cost-explorer.stand-in.directory", DIRECTORY + "/fixtures"),
+            Map.entry("cost-explorer.snapshot.page-rows", "0"),
+            Map.entry("cost-explorer.batch.max-concurrency", "1"),
+            Map.entry("cost-explorer.revalidation.enabled", "false"),
+            Map.entry("cost-explorer.accounts.max-concurrency", "1"),
+            Map.entry("cost-explorer.dimension-index.enabled", "false"),
+            Map.entry("cost-explorer.tag-group-by.spill-directory", DIRECTORY + "/spill"),
+            Map.entry("cost-explorer.anomaly.enabled", "false"),
+            Map.entry("cost-explorer.anomaly.directory", DIRECTORY + "/anomaly"));
+
+    private TestConfig() {
+    }
+
+    public static <T> T of(Class<T> type, String... properties) {
+        Map<String, String> values = new HashMap<>(BASE);
+        for (String property : properties) {
+            int separator = property.indexOf('=');
+            values.put(property.substring(0, separator), property.substring(separator + 1));
+        }
+
+        return new SmallRyeConfigBuilder()
+                .addDefaultInterceptors()
+                .withMapping(type)
+                .withSources(new PropertiesConfigSource(values, "test", 400))
+                .build()
+                .getConfigMapping(type);
+    }
+}
@@ -0,0 +1,123 @@
+package warehouse;
+
+import org.junit.jupiter.api.Test;
+import query.CostAggregator;
+import query.CostQuery;
+import software.amazon.awssdk.services.costexplorer.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarTableTest {
+    private static final Instant SYNCED_AT = Instant.parse("2025-03-10T06:00:00Z");
+
+    @Test
+    void scanSumsTheDaysOfTheRange() {
+        ColumnarTable table = new ColumnarTable(2);
+        table.replace(day("2025-03-01"), day("2025-03-04"), List.of(
+                result("2025-03-01", group("USD", "1", "AmazonEC2", "RunInstances")),
+                result("2025-03-02", group("USD", "2", "AmazonEC2", "RunInstances"),
+                        group("EUR", "5", "AmazonS3", "PutObject")),
+                result("2025-03-03", group("USD", "4", "AmazonEC2", "RunInstances"))), SYNCED_AT);
+
+        CostAggregator aggregator = new CostAggregator(2);
+        table.scan(day("2025-03-02"), day("2025-03-04"), aggregator);
+
+        assertEquals(6.0, aggregator.value(aggregator.find(List.of("AmazonEC2", "RunInstances"), "USD")));
+        assertEquals(5.0, aggregator.value(aggregator.find(List.of("AmazonS3", "PutObject"), "EUR")));
+        assertEquals(2, aggregator.size());
+        assertEquals(4, table.rows());
+        assertEquals(SYNCED_AT, table.syncedAt());
+    }
+
+    @Test
+    void replaceOverwritesTheRestatedDaysAndWidensTheCoverage() {
+        ColumnarTable table = new ColumnarTable(1);
+        table.replace(day("2025-03-01"), day("2025-03-03"), List.of(
+                result("2025-03-01", group("USD", "1", "AmazonEC2")),
+                result("2025-03-02", group("USD", "2", "AmazonEC2"))), SYNCED_AT);
+        Instant resyncedAt = SYNCED_AT.plusSeconds(3600);
+        table.replace(day("2025-03-02"), day("2025-03-04"), List.of(
+                result("2025-03-02", group("USD", "20", "AmazonEC2")),
+                result("2025-03-03", group("USD", "30", "AmazonEC2"))), resyncedAt);
+
+        CostAggregator aggregator = new CostAggregator(1);
+        table.scan(day("2025-03-01"), day("2025-03-04"), aggregator);
+
+        assertEquals(51.0, aggregator.totalPerCurrency().get("USD"));
+        assertTrue(table.covers(day("2025-03-01"), day("2025-03-04")));
+        assertFalse(table.covers(day("2025-02-28"), day("2025-03-04")));
+        assertFalse(table.covers(day("2025-03-01"), day("2025-03-05")));
+        assertEquals(resyncedAt, table.syncedAt());
+    }
+
+    @Test
+    void emptyTableCoversNothing() {
+        ColumnarTable table = new ColumnarTable(1);
+
+        assertFalse(table.covers(day("2025-03-01"), day("2025-03-02")));
+        assertTrue(table.coveredFrom().isEmpty());
+        assertTrue(table.coveredUntil().isEmpty());
+    }
+
+    @Test
+    void missingKeysAreStoredEmpty() {
+        ColumnarTable table = new ColumnarTable(2);
+        table.replace(day("2025-03-01"), day("2025-03-02"), List.of(
+                result("2025-03-01", group("USD", "1", "AmazonEC2"))), SYNCED_AT);
+
+        CostAggregator aggregator = new CostAggregator(2);
+        table.scan(day("2025-03-01"), day("2025-03-02"), aggregator);
+
+        assertEquals(1.0, aggregator.value(aggregator.find(List.of("AmazonEC2", ""), "USD")));
+    }
+
+    @Test
+    void writeAndReadRoundTrip() throws IOException {
+        ColumnarTable table = new ColumnarTable(2);
+        table.replace(day("2025-02-27"), day("2025-03-02"), List.of(
+                result("2025-02-27", group("USD", "1.25", "AmazonEC2", "RunInstances"),
+                        group("JPY", "300", "AmazonEC2", "RunInstances")),
+                result("2025-03-01", group("USD", "0.0000001", "AWSLambda", "Invoke"))), SYNCED_AT);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        table.write(bytes);
+        ColumnarTable read = ColumnarTable.read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(table.coveredFrom(), read.coveredFrom());
+        assertEquals(table.coveredUntil(), read.coveredUntil());
+        assertEquals(SYNCED_AT, read.syncedAt());
+        assertEquals(3, read.rows());
+        CostAggregator expected = new CostAggregator(2);
+        table.scan(day("2025-02-27"), day("2025-03-02"), expected);
+        CostAggregator actual = new CostAggregator(2);
+        read.scan(day("2025-02-27"), day("2025-03-02"), actual);
+        assertEquals(expected.totalPerCurrency(), actual.totalPerCurrency());
+        assertEquals(expected.size(), actual.size());
+    }
+
+    static LocalDate day(String day) {
+        return LocalDate.parse(day);
+    }
+
+    static ResultByTime result(String day, Group... groups) {
+        return ResultByTime.builder()
+                .timePeriod(DateInterval.builder().start(day).end(day(day).plusDays(1).toString()).build())
+                .groups(groups)
+                .build();
+    }
+
+    static Group group(String currency, String amount, String... keys) {
+        return Group.builder()
+                .keys(keys)
+                .metrics(Map.of(CostQuery.METRIC, MetricValue.builder().amount(amount).unit(currency).build()))
+                .build();
+    }
+}
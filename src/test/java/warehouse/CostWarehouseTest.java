@@ -0,0 +1,87 @@
+package warehouse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import query.Aggregation;
+import query.CostDataset;
+import query.CostQuery;
+import query.DataFreshness;
+import testing.TestConfig;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static warehouse.ColumnarTableTest.*;
+
+class CostWarehouseTest {
+    private static final Instant SYNCED_AT = Instant.parse("2025-03-10T06:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void answersCoveredQueriesWithTheTimeOfTheSync() {
+        CostWarehouse warehouse = synced(warehouse());
+
+        Aggregation aggregation = warehouse.aggregate(CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query(
+                "2025-03-01", "2025-03-03", List.of())).orElseThrow();
+
+        assertEquals(DataFreshness.warehouse(SYNCED_AT), aggregation.freshness());
+        assertEquals(3.0, aggregation.aggregator().totalPerCurrency().get("USD"));
+    }
+
+    @Test
+    void leavesOtherQueriesToTheApi() {
+        CostWarehouse warehouse = synced(warehouse());
+
+        assertTrue(warehouse.aggregate(CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query("2025-02-28",
+                "2025-03-03", List.of())).isEmpty(), "Period not covered");
+        assertTrue(warehouse.aggregate(CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query("2025-03-01",
+                "2025-03-03", List.of("us-east-1"))).isEmpty(), "Filtered on regions");
+        assertTrue(warehouse.aggregate(CostDataset.USAGE_PER_LINKED_ACCOUNT_AND_SERVICE.query("2025-03-01",
+                "2025-03-03", List.of())).isEmpty(), "Dataset not synced");
+        assertTrue(warehouse.aggregate(CostQuery.of("2025-03-01", "2025-03-03", List.of(), null,
+                CostQuery.dimensions("SERVICE"))).isEmpty(), "No dataset");
+    }
+
+    @Test
+    void disabledWarehouseAnswersNothing() {
+        CostWarehouse warehouse = synced(new CostWarehouse(TestConfig.of(WarehouseConfig.class,
+                "cost-explorer.warehouse.directory=" + directory)));
+
+        assertFalse(warehouse.isEnabled());
+        assertTrue(warehouse.aggregate(CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query("2025-03-01",
+                "2025-03-03", List.of())).isEmpty());
+    }
+
+    @Test
+    void tablesAreLoadedAfterARestart() {
+        synced(warehouse());
+
+        CostWarehouse restarted = warehouse();
+
+        assertEquals(Optional.of(day("2025-03-01")),
+                restarted.coveredFrom(CostDataset.USAGE_PER_SERVICE_AND_OPERATION));
+        assertEquals(Optional.of(day("2025-03-03")),
+                restarted.coveredUntil(CostDataset.USAGE_PER_SERVICE_AND_OPERATION));
+        assertEquals(DataFreshness.warehouse(SYNCED_AT), restarted.aggregate(
+                CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query("2025-03-01", "2025-03-03", List.of()))
+                .orElseThrow().freshness());
+    }
+
+    private CostWarehouse warehouse() {
+        return new CostWarehouse(TestConfig.of(WarehouseConfig.class,
+                "cost-explorer.warehouse.enabled=true",
+                "cost-explorer.warehouse.directory=" + directory));
+    }
+
+    private static CostWarehouse synced(CostWarehouse warehouse) {
+        warehouse.replace(CostDataset.USAGE_PER_SERVICE_AND_OPERATION, day("2025-03-01"), day("2025-03-03"), List.of(
+                result("2025-03-01", group("USD", "1", "AmazonEC2", "RunInstances")),
+                result("2025-03-02", group("USD", "2", "AmazonS3", "PutObject"))), SYNCED_AT);
+        return warehouse;
+    }
+}
@@ -0,0 +1,107 @@
+package warehouse;
+
+import cache.CacheConfig;
+import cache.ResponseCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import query.CostAndUsageFetcher;
+import query.CostDataset;
+import query.DataFreshness;
+import query.FanOutConfig;
+import software.amazon.awssdk.services.costexplorer.model.DateInterval;
+import software.amazon.awssdk.services.costexplorer.model.GetCostAndUsageRequest;
+import software.amazon.awssdk.services.costexplorer.model.Granularity;
+import testing.MutableClock;
+import testing.StubCostExplorerClient;
+import testing.TestConfig;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static warehouse.ColumnarTableTest.day;
+
+class WarehouseSyncTest {
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = MutableClock.at("2025-03-10T06:00:00Z");
+    private final StubCostExplorerClient client = StubCostExplorerClient.synthetic(20, 50);
+
+    @Test
+    void firstSyncPullsTheClosedHistoryMonthsAndTheCurrentOne() {
+        CostWarehouse warehouse = warehouse();
+
+        sync(warehouse).sync();
+
+        assertEquals(List.of(period("2025-01-01", "2025-03-10")), periods());
+        assertTrue(client.requests.stream().allMatch(request -> request.granularity() == Granularity.DAILY));
+        for (CostDataset dataset : CostDataset.values()) {
+            assertEquals(Optional.of(day("2025-01-01")), warehouse.coveredFrom(dataset));
+            assertEquals(Optional.of(day("2025-03-10")), warehouse.coveredUntil(dataset));
+        }
+        assertEquals(DataFreshness.warehouse(clock.instant()), warehouse.aggregate(
+                CostDataset.DISCOUNTS_PER_SERVICE_AND_TYPE.query("2025-02-01", "2025-03-01", List.of()))
+                .orElseThrow().freshness());
+    }
+
+    @Test
+    void laterSyncsFetchOnlyTheRestatedAndNewDays() {
+        CostWarehouse warehouse = warehouse();
+        sync(warehouse).sync();
+        client.requests.clear();
+
+        clock.advance(Duration.ofDays(1));
+        sync(warehouse).sync();
+
+        assertEquals(List.of(period("2025-03-07", "2025-03-11")), periods());
+        assertEquals(Optional.of(day("2025-01-01")),
+                warehouse.coveredFrom(CostDataset.USAGE_PER_SERVICE_AND_OPERATION));
+        assertEquals(DataFreshness.warehouse(clock.instant()), warehouse.aggregate(
+                CostDataset.USAGE_PER_SERVICE_AND_OPERATION.query("2025-01-01", "2025-03-11", List.of()))
+                .orElseThrow().freshness());
+    }
+
+    @Test
+    void syncOnTheSameDayRefreshesOnlyTheRestatedDays() {
+        CostWarehouse warehouse = warehouse();
+        sync(warehouse).sync();
+        client.requests.clear();
+
+        sync(warehouse).sync();
+
+        assertEquals(List.of(period("2025-03-07", "2025-03-10")), periods());
+        assertEquals(CostDataset.values().length, client.requests.size());
+    }
+
+    private WarehouseSync sync(CostWarehouse warehouse) {
+        CostAndUsageFetcher fetcher = new CostAndUsageFetcher(client,
+                new ResponseCache(TestConfig.of(CacheConfig.class)), TestConfig.of(FanOutConfig.class));
+        return new WarehouseSync(warehouse, fetcher, config(), clock);
+    }
+
+    private CostWarehouse warehouse() {
+        return new CostWarehouse(config());
+    }
+
+    private WarehouseConfig config() {
+        return TestConfig.of(WarehouseConfig.class,
+                "cost-explorer.warehouse.enabled=true",
+                "cost-explorer.warehouse.directory=" + directory,
+                "cost-explorer.warehouse.history-months=2");
+    }
+
+    private List<DateInterval> periods() {
+        return client.requests.stream()
+                .filter(request -> request.nextPageToken() == null)
+                .map(GetCostAndUsageRequest::timePeriod)
+                .distinct()
+                .toList();
+    }
+
+    private static DateInterval period(String start, String end) {
+        return DateInterval.builder().start(start).end(end).build();
+    }
+}